@@ -0,0 +1,102 @@
+package hr.java.corporatetravelriskassessmenttool.analytics;
+
+import hr.java.corporatetravelriskassessmenttool.analytics.RiskAnalyticsService.Dimension;
+import hr.java.corporatetravelriskassessmenttool.analytics.RiskAnalyticsService.RankedEntity;
+import hr.java.corporatetravelriskassessmenttool.analytics.RiskAnalyticsService.ScoreSummary;
+import hr.java.corporatetravelriskassessmenttool.enums.RiskLevel;
+import hr.java.corporatetravelriskassessmenttool.repository.RiskDependencyIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how the analytics queries scale with the number of cores, on a synthetic graph of {@code tripCount} trips
+ * with one destination per ten trips, one risk per two trips and one traveller per five trips.
+ * <p>
+ * The parallel streams of the service run in the fork-join pool they are started from, so every benchmark submits
+ * its query to a pool of {@code parallelism} workers. {@code snapshot} builds all aggregate scores, as
+ * {@link RiskAnalyticsService#refresh()} does after loading its inputs, {@code snapshotAndSummary} also sorts the trip
+ * scores for the percentiles, and {@code topTrips} ranks an existing snapshot.
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args=RiskAnalyticsBenchmark}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class RiskAnalyticsBenchmark {
+    @Param({"100000"})
+    private int tripCount;
+
+    @Param({"1", "2", "4", "8"})
+    private int parallelism;
+
+    private ForkJoinPool pool;
+    private RiskScoreColumns risks;
+    private RiskDependencyIndex.Relations relations;
+    private RiskAnalyticsService service;
+
+    @Setup
+    public void createGraph() {
+        Random random = new Random(42);
+        int riskCount = tripCount / 2;
+        int destinationCount = tripCount / 10;
+        int employeeCount = tripCount / 5;
+        RiskLevel[] levels = {RiskLevel.LOW, RiskLevel.MEDIUM, RiskLevel.HIGH};
+        RiskScoreColumns.Builder builder = new RiskScoreColumns.Builder(riskCount);
+        for (long id = 1; id <= riskCount; id++) {
+            RiskLevel level = levels[random.nextInt(levels.length)];
+            switch ((int) (id % 3)) {
+                case 0 -> builder.addHealthRisk(id, level, random.nextInt(1_000));
+                case 1 -> builder.addEnvironmentalRisk(id, level, random.nextInt(1_000), random.nextInt(100));
+                default -> builder.addPoliticalRisk(id, level, random.nextInt(100), random.nextInt(100));
+            }
+        }
+        risks = builder.build();
+        Map<Long, Set<Long>> risksByDestination = new HashMap<>();
+        for (long id = 1; id <= destinationCount; id++) {
+            risksByDestination.put(id, randomIds(random, 5, riskCount));
+        }
+        Map<Long, Set<Long>> destinationsByTrip = new HashMap<>();
+        Map<Long, Set<Long>> employeesByTrip = new HashMap<>();
+        for (long id = 1; id <= tripCount; id++) {
+            destinationsByTrip.put(id, randomIds(random, 3, destinationCount));
+            employeesByTrip.put(id, randomIds(random, 3, employeeCount));
+        }
+        relations = new RiskDependencyIndex.Relations(risksByDestination, destinationsByTrip, employeesByTrip);
+        service = RiskAnalyticsService.of(risks, relations);
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown
+    public void shutdownPool() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public RiskAnalyticsService snapshot() {
+        return pool.submit(() -> RiskAnalyticsService.of(risks, relations)).join();
+    }
+
+    @Benchmark
+    public ScoreSummary snapshotAndSummary() {
+        return pool.submit(() -> RiskAnalyticsService.of(risks, relations).summary(Dimension.TRIP)).join();
+    }
+
+    @Benchmark
+    public List<RankedEntity> topTrips() {
+        return pool.submit(() -> service.top(Dimension.TRIP, 100)).join();
+    }
+
+    private static Set<Long> randomIds(Random random, int maxCount, int bound) {
+        Set<Long> ids = new HashSet<>();
+        for (int i = 1 + random.nextInt(maxCount); i > 0; i--) {
+            ids.add(1L + random.nextInt(bound));
+        }
+        return ids;
+    }
+}
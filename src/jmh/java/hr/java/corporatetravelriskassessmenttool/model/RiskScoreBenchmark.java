@@ -0,0 +1,75 @@
+package hr.java.corporatetravelriskassessmenttool.model;
+
+import hr.java.corporatetravelriskassessmenttool.enums.RiskLevel;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the decimal risk score with the scaled-long score over a mix of health, environmental and political risks.
+ * <p>
+ * {@code decimal} computes every score with {@link BigDecimal} arithmetic, bypassing the memoized value,
+ * {@code memoizedDecimal} returns the scores cached by {@link Risk#calculateRisk()}, and {@code scaled}
+ * computes them with {@link RiskCalculator#calculateRiskScaled()}. Run with {@code mvn -Pbenchmark test-compile exec:exec}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class RiskScoreBenchmark {
+    @Param({"1000", "100000"})
+    private int riskCount;
+
+    private Risk[] risks;
+
+    @Setup
+    public void createRisks() {
+        Random random = new Random(42);
+        RiskLevel[] levels = {RiskLevel.LOW, RiskLevel.MEDIUM, RiskLevel.HIGH};
+        risks = new Risk[riskCount];
+        for (int i = 0; i < riskCount; i++) {
+            RiskLevel level = levels[random.nextInt(levels.length)];
+            risks[i] = switch (i % 3) {
+                case 0 -> new HealthRisk.HealthRiskBuilder().setId((long) i).setRiskLevel(level)
+                        .setSeverity(BigDecimal.valueOf(random.nextInt(1_000), 2)).createHealthRisk();
+                case 1 -> new EnvironmentalRisk.EnvironmentalRiskBuilder().setId((long) i).setRiskLevel(level)
+                        .setDamageIndex(random.nextInt(1_000)).setDisasterProbability(BigDecimal.valueOf(random.nextInt(100), 2))
+                        .createEnvironmentalRisk();
+                default -> new PoliticalRisk.PoliticalRiskBuilder().setId((long) i).setRiskLevel(level)
+                        .setUnrestIndex(random.nextInt(100)).setStabilityIndex(random.nextInt(100)).createPoliticalRisk();
+            };
+        }
+    }
+
+    @Benchmark
+    public BigDecimal decimal() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (Risk risk : risks) {
+            total = total.add(risk.computeRisk());
+        }
+        return total;
+    }
+
+    @Benchmark
+    public BigDecimal memoizedDecimal() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (Risk risk : risks) {
+            total = total.add(risk.calculateRisk());
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long scaled() {
+        long total = 0;
+        for (Risk risk : risks) {
+            total += risk.calculateRiskScaled();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,326 @@
+package hr.java.corporatetravelriskassessmenttool.analytics;
+
+import hr.java.corporatetravelriskassessmenttool.exception.RepositoryAccessException;
+import hr.java.corporatetravelriskassessmenttool.model.Risk;
+import hr.java.corporatetravelriskassessmenttool.model.RiskCalculator;
+import hr.java.corporatetravelriskassessmenttool.repository.RiskDependencyIndex;
+import hr.java.corporatetravelriskassessmenttool.repository.RiskRepository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+import java.util.stream.IntStream;
+
+/**
+ * Portfolio-wide risk rankings and score distributions over the trip, destination and risk graph.
+ * <p>
+ * The service works on an immutable snapshot built from the {@link RiskScoreColumns} of all risks and the relations
+ * held by the {@link RiskDependencyIndex}. Aggregate scores are computed once per snapshot with parallel streams:
+ * a destination scores the sum of its risks, a trip the sum of its destinations, like the materialized trip scores,
+ * and a traveller the sum of the trips they take part in. Entities without any relation are not part of the graph.
+ * </p>
+ * <p>
+ * Rankings are selected in parallel with the bounded-heap collector {@link #topK(int, Comparator)}, so only
+ * {@code n} candidates are kept per worker; percentiles are read from a score column sorted once per snapshot.
+ * {@link #refresh()} builds a new snapshot; queries running at the same time keep using the previous one.
+ * </p>
+ * Instances are created with {@link #create()}, which loads the first snapshot.
+ */
+public final class RiskAnalyticsService {
+    private static final Comparator<RankedEntity> BY_RISK = Comparator.comparingLong(RankedEntity::scaledScore)
+            .thenComparing(Comparator.comparingLong(RankedEntity::id).reversed());
+
+    private final RiskRepository<Risk> riskRepository = new RiskRepository<>();
+    private volatile Snapshot snapshot;
+
+    /**
+     * Kind of entity scores are aggregated for.
+     */
+    public enum Dimension {
+        /** Trips, scored by the risks of all their destinations. */
+        TRIP,
+        /** Destinations, scored by their risks. */
+        DESTINATION,
+        /** Travellers, scored by all the trips they take part in. */
+        EMPLOYEE
+    }
+
+    /**
+     * An entity with its aggregate risk score.
+     *
+     * @param id the ID of the entity
+     * @param scaledScore the aggregate score in hundredths
+     */
+    public record RankedEntity(long id, long scaledScore) {
+        /**
+         * @return the aggregate score as a decimal
+         */
+        public BigDecimal score() {
+            return RiskCalculator.toDecimal(scaledScore);
+        }
+    }
+
+    /**
+     * Distribution of the aggregate scores of one dimension.
+     *
+     * @param count the number of scored entities
+     * @param min the lowest score
+     * @param median the 50th percentile
+     * @param p90 the 90th percentile
+     * @param p99 the 99th percentile
+     * @param max the highest score
+     * @param mean the average score
+     */
+    public record ScoreSummary(int count, BigDecimal min, BigDecimal median, BigDecimal p90, BigDecimal p99,
+                               BigDecimal max, BigDecimal mean) {
+    }
+
+    /**
+     * Creates a service over the given snapshot.
+     *
+     * @param snapshot the first snapshot
+     */
+    private RiskAnalyticsService(Snapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Creates a service over the current risks and relations.
+     *
+     * @return the service with its first snapshot built
+     * @throws RepositoryAccessException if the risks or their relations cannot be loaded
+     */
+    public static RiskAnalyticsService create() {
+        RiskAnalyticsService service = new RiskAnalyticsService(null);
+        service.refresh();
+        return service;
+    }
+
+    /**
+     * Creates a service over risk scores and relations that are already in memory.
+     * A later {@link #refresh()} replaces them with the current risks and relations.
+     *
+     * @param risks the scores of all risks
+     * @param relations the relations between trips, destinations, travellers and risks
+     * @return the service
+     */
+    static RiskAnalyticsService of(RiskScoreColumns risks, RiskDependencyIndex.Relations relations) {
+        return new RiskAnalyticsService(new Snapshot(risks, relations));
+    }
+
+    /**
+     * Builds a new snapshot from the current risks and relations.
+     *
+     * @throws RepositoryAccessException if the risks or their relations cannot be loaded
+     */
+    public void refresh() {
+        snapshot = new Snapshot(RiskScoreColumns.load(riskRepository), RiskDependencyIndex.getInstance().relations());
+    }
+
+    /**
+     * Returns the entities of a dimension with the highest aggregate risk.
+     *
+     * @param dimension the kind of entity to rank
+     * @param n the maximum number of entities to return
+     * @return up to {@code n} entities, highest score first, ties ordered by ID
+     */
+    public List<RankedEntity> top(Dimension dimension, int n) {
+        Scores scores = snapshot.scores(dimension);
+        return IntStream.range(0, scores.ids.length).parallel()
+                .mapToObj(i -> new RankedEntity(scores.ids[i], scores.values[i]))
+                .collect(topK(n, BY_RISK));
+    }
+
+    /**
+     * Returns a percentile of the aggregate scores of a dimension, using the nearest-rank method.
+     *
+     * @param dimension the kind of entity
+     * @param percentile the percentile, between 0 and 100
+     * @return the score at the percentile, or zero if the dimension has no entities
+     * @throws IllegalArgumentException if the percentile is out of range
+     */
+    public BigDecimal percentile(Dimension dimension, double percentile) {
+        if (percentile < 0 || percentile > 100) throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        return RiskCalculator.toDecimal(snapshot.scores(dimension).percentile(percentile));
+    }
+
+    /**
+     * Summarizes the distribution of the aggregate scores of a dimension.
+     *
+     * @param dimension the kind of entity
+     * @return the count, extremes, mean and main percentiles of the scores
+     */
+    public ScoreSummary summary(Dimension dimension) {
+        Scores scores = snapshot.scores(dimension);
+        long[] sorted = scores.sorted();
+        int count = sorted.length;
+        long sum = Arrays.stream(sorted).parallel().sum();
+        return new ScoreSummary(count,
+                RiskCalculator.toDecimal(count == 0 ? 0 : sorted[0]),
+                RiskCalculator.toDecimal(scores.percentile(50)),
+                RiskCalculator.toDecimal(scores.percentile(90)),
+                RiskCalculator.toDecimal(scores.percentile(99)),
+                RiskCalculator.toDecimal(count == 0 ? 0 : sorted[count - 1]),
+                count == 0 ? BigDecimal.ZERO.setScale(RiskCalculator.SCORE_SCALE)
+                        : BigDecimal.valueOf(sum, RiskCalculator.SCORE_SCALE).divide(BigDecimal.valueOf(count),
+                        RiskCalculator.SCORE_SCALE, RoundingMode.HALF_UP));
+    }
+
+    /**
+     * Collector keeping the {@code k} greatest elements in a bounded min-heap per container.
+     * Works with parallel streams: partial heaps are merged, and never more than {@code k} elements are retained.
+     *
+     * @param k the number of elements to keep
+     * @param comparator the order, the greatest elements are kept
+     * @param <T> the type of element
+     * @return a collector producing the {@code k} greatest elements in descending order
+     */
+    public static <T> Collector<T, ?, List<T>> topK(int k, Comparator<? super T> comparator) {
+        if (k < 0) throw new IllegalArgumentException("k must not be negative");
+        Supplier<PriorityQueue<T>> supplier = () -> new PriorityQueue<>(Math.min(k, 1024) + 1, comparator);
+        BiConsumer<PriorityQueue<T>, T> accumulator = (heap, element) -> {
+            if (heap.size() < k) {
+                heap.add(element);
+            } else if (k > 0 && comparator.compare(element, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(element);
+            }
+        };
+        BinaryOperator<PriorityQueue<T>> combiner = (left, right) -> {
+            right.forEach(element -> accumulator.accept(left, element));
+            return left;
+        };
+        Function<PriorityQueue<T>, List<T>> finisher = heap -> {
+            List<T> result = new ArrayList<>(heap);
+            result.sort(comparator.reversed());
+            return result;
+        };
+        return Collector.of(supplier, accumulator, combiner, finisher, Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * Aggregate scores of one dimension, in parallel arrays.
+     */
+    private static final class Scores {
+        private final long[] ids;
+        private final long[] values;
+        private volatile long[] sorted;
+
+        /**
+         * @param ids the entity IDs
+         * @param values the aggregate score of each entity, in hundredths
+         */
+        private Scores(long[] ids, long[] values) {
+            this.ids = ids;
+            this.values = values;
+        }
+
+        /**
+         * @return the scores in ascending order, sorted in parallel on first use
+         */
+        private long[] sorted() {
+            long[] result = sorted;
+            if (result == null) {
+                result = values.clone();
+                Arrays.parallelSort(result);
+                sorted = result;
+            }
+            return result;
+        }
+
+        /**
+         * @param percentile the percentile, between 0 and 100
+         * @return the nearest-rank percentile, or 0 if there are no scores
+         */
+        private long percentile(double percentile) {
+            long[] result = sorted();
+            if (result.length == 0) return 0;
+            int rank = (int) Math.ceil(percentile / 100 * result.length);
+            return result[Math.max(rank, 1) - 1];
+        }
+    }
+
+    /**
+     * Immutable aggregate scores of all dimensions, computed from one consistent set of inputs.
+     */
+    private static final class Snapshot {
+        private final Scores destinations;
+        private final Scores trips;
+        private final Scores employees;
+
+        /**
+         * Computes the aggregate scores of all destinations, trips and travellers in parallel.
+         *
+         * @param risks the scores of all risks
+         * @param relations the relations between trips, destinations, travellers and risks
+         */
+        private Snapshot(RiskScoreColumns risks, RiskDependencyIndex.Relations relations) {
+            Set<Long> destinationIds = new HashSet<>(relations.risksByDestination().keySet());
+            relations.destinationsByTrip().values().forEach(destinationIds::addAll);
+            this.destinations = aggregate(destinationIds, relations.risksByDestination(), risks::scoreOf);
+
+            Map<Long, Long> destinationScores = toMap(destinations);
+            Set<Long> tripIds = new HashSet<>(relations.destinationsByTrip().keySet());
+            tripIds.addAll(relations.employeesByTrip().keySet());
+            this.trips = aggregate(tripIds, relations.destinationsByTrip(), id -> destinationScores.getOrDefault(id, 0L));
+
+            Map<Long, Set<Long>> tripsByEmployee = new HashMap<>();
+            relations.employeesByTrip().forEach((tripId, employeeIds) -> employeeIds.forEach(employeeId ->
+                    tripsByEmployee.computeIfAbsent(employeeId, key -> new HashSet<>()).add(tripId)));
+            Map<Long, Long> tripScores = toMap(trips);
+            this.employees = aggregate(tripsByEmployee.keySet(), tripsByEmployee, id -> tripScores.getOrDefault(id, 0L));
+        }
+
+        /**
+         * @param dimension the kind of entity
+         * @return the aggregate scores of the dimension
+         */
+        private Scores scores(Dimension dimension) {
+            return switch (dimension) {
+                case TRIP -> trips;
+                case DESTINATION -> destinations;
+                case EMPLOYEE -> employees;
+            };
+        }
+
+        /**
+         * Sums the scores of the parts of every entity in parallel.
+         *
+         * @param entityIds the IDs of the entities
+         * @param parts the IDs of the parts of each entity
+         * @param partScore the score of a part in hundredths
+         * @return the aggregate scores
+         */
+        private static Scores aggregate(Collection<Long> entityIds, Map<Long, Set<Long>> parts,
+                                        ToLongFunction<Long> partScore) {
+            long[] ids = entityIds.stream().mapToLong(Long::longValue).sorted().toArray();
+            long[] values = new long[ids.length];
+            IntStream.range(0, ids.length).parallel().forEach(i -> {
+                long sum = 0;
+                for (Long part : parts.getOrDefault(ids[i], Set.of())) {
+                    sum += partScore.applyAsLong(part);
+                }
+                values[i] = sum;
+            });
+            return new Scores(ids, values);
+        }
+
+        /**
+         * @param scores aggregate scores
+         * @return the scores by entity ID
+         */
+        private static Map<Long, Long> toMap(Scores scores) {
+            Map<Long, Long> map = new HashMap<>(scores.ids.length * 4 / 3 + 1);
+            for (int i = 0; i < scores.ids.length; i++) {
+                map.put(scores.ids[i], scores.values[i]);
+            }
+            return map;
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package hr.java.corporatetravelriskassessmenttool.analytics;
+
+import hr.java.corporatetravelriskassessmenttool.enums.RiskLevel;
+import hr.java.corporatetravelriskassessmenttool.model.RiskCalculator;
+import hr.java.corporatetravelriskassessmenttool.repository.RiskRepository;
+import hr.java.corporatetravelriskassessmenttool.repository.RiskScoreInputs;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Immutable column-oriented snapshot of risk scoring inputs, kept apart from the {@link hr.java.corporatetravelriskassessmenttool.model.Risk}
+ * object graph for scoring many risks at once.
+ * <p>
+ * Every input lives in a primitive array indexed by row, with rows in ascending risk ID order. Inputs that do not
+ * apply to a risk type are zero. All scores are computed once when the snapshot is built, in hundredths like
+ * {@link RiskCalculator#calculateRiskScaled()}, by tight branch-free loops over the arrays:
+ * health and environmental scores share one multiply-add loop, political scores need an integer division
+ * and are computed by a second loop over the political rows only.
+ * </p>
+ * <p>
+ * Scores can be aggregated over arbitrary sets of risk IDs; unknown IDs are ignored.
+ * A political risk with level {@link RiskLevel#NONE}, whose decimal score is undefined, scores zero.
+ * </p>
+ */
+public final class RiskScoreColumns {
+    /** Type code of health risks. */
+    public static final byte HEALTH = 1;
+    /** Type code of environmental risks. */
+    public static final byte ENVIRONMENTAL = 2;
+    /** Type code of political risks. */
+    public static final byte POLITICAL = 3;
+
+    private final int size;
+    private final long[] ids;
+    private final byte[] types;
+    private final long[] levels;
+    private final long[] severities;
+    private final long[] probabilities;
+    private final long[] damageFactors;
+    private final int[] unrestIndices;
+    private final int[] stabilityIndices;
+    private final int[] politicalRows;
+    private final long[] scores;
+
+    /**
+     * Aggregated scores of a set of risks, in hundredths.
+     *
+     * @param count the number of risks found in the snapshot
+     * @param sum the sum of their scores
+     * @param min the lowest score, or 0 if no risk was found
+     * @param max the highest score, or 0 if no risk was found
+     */
+    public record Aggregate(int count, long sum, long min, long max) {
+        /**
+         * @return the mean score in hundredths, or 0 if no risk was found
+         */
+        public double mean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+    }
+
+    /**
+     * Loads the scoring inputs of all risks from the database into a snapshot.
+     *
+     * @param riskRepository the repository the inputs are read from
+     * @return the snapshot with the scores of all risks
+     * @throws hr.java.corporatetravelriskassessmenttool.exception.RepositoryAccessException if the risks cannot be read
+     */
+    public static RiskScoreColumns load(RiskRepository<?> riskRepository) {
+        Builder builder = new Builder(0);
+        riskRepository.readScoreInputs(new RiskScoreInputs() {
+            @Override
+            public void expectRows(int expectedRows) {
+                builder.reserve(expectedRows);
+            }
+
+            @Override
+            public void health(long id, RiskLevel level, long severityHundredths) {
+                builder.addHealthRisk(id, level, severityHundredths);
+            }
+
+            @Override
+            public void environmental(long id, RiskLevel level, int damageIndex, long probabilityHundredths) {
+                builder.addEnvironmentalRisk(id, level, damageIndex, probabilityHundredths);
+            }
+
+            @Override
+            public void political(long id, RiskLevel level, int unrestIndex, int stabilityIndex) {
+                builder.addPoliticalRisk(id, level, unrestIndex, stabilityIndex);
+            }
+        });
+        return builder.build();
+    }
+
+    /**
+     * Creates the snapshot from the columns filled by the builder and computes all scores.
+     *
+     * @param builder the builder holding the columns
+     */
+    private RiskScoreColumns(Builder builder) {
+        this.size = builder.size;
+        this.ids = Arrays.copyOf(builder.ids, size);
+        this.types = Arrays.copyOf(builder.types, size);
+        this.levels = Arrays.copyOf(builder.levels, size);
+        this.severities = Arrays.copyOf(builder.severities, size);
+        this.probabilities = Arrays.copyOf(builder.probabilities, size);
+        this.damageFactors = Arrays.copyOf(builder.damageFactors, size);
+        this.unrestIndices = Arrays.copyOf(builder.unrestIndices, size);
+        this.stabilityIndices = Arrays.copyOf(builder.stabilityIndices, size);
+        int politicalCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (types[i] == POLITICAL) politicalCount++;
+        }
+        this.politicalRows = new int[politicalCount];
+        for (int i = 0, p = 0; i < size; i++) {
+            if (types[i] == POLITICAL) politicalRows[p++] = i;
+        }
+        this.scores = new long[size];
+        computeScores();
+    }
+
+    /**
+     * Fills the score column.
+     * Health rows have no probability and environmental rows no severity, so one loop covers both.
+     */
+    private void computeScores() {
+        for (int i = 0; i < size; i++) {
+            scores[i] = levels[i] * (severities[i] + probabilities[i] * damageFactors[i]);
+        }
+        for (int row : politicalRows) {
+            long level = levels[row];
+            long score = level == 0 ? 0 : Math.floorDiv((long) unrestIndices[row] - stabilityIndices[row], level);
+            scores[row] = Math.max(score, 0) * 100;
+        }
+    }
+
+    /**
+     * @return the number of risks in the snapshot
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param row the row index
+     * @return the ID of the risk in the row
+     */
+    public long idAt(int row) {
+        return ids[row];
+    }
+
+    /**
+     * @param row the row index
+     * @return the type code of the risk in the row, one of {@link #HEALTH}, {@link #ENVIRONMENTAL} and {@link #POLITICAL}
+     */
+    public byte typeAt(int row) {
+        return types[row];
+    }
+
+    /**
+     * @param row the row index
+     * @return the score of the risk in the row, in hundredths
+     */
+    public long scoreAt(int row) {
+        return scores[row];
+    }
+
+    /**
+     * Finds the row of a risk.
+     *
+     * @param id the ID of the risk
+     * @return the row index, or a negative value if the risk is not in the snapshot
+     */
+    public int rowOf(long id) {
+        return Arrays.binarySearch(ids, 0, size, id);
+    }
+
+    /**
+     * Returns the score of a risk.
+     *
+     * @param id the ID of the risk
+     * @return the score in hundredths, or 0 if the risk is not in the snapshot
+     */
+    public long scoreOf(long id) {
+        int row = rowOf(id);
+        return row < 0 ? 0 : scores[row];
+    }
+
+    /**
+     * Resolves risk IDs to row indices, dropping IDs that are not in the snapshot.
+     *
+     * @param riskIds the IDs of the risks
+     * @return the row indices, in the order of the IDs
+     */
+    public int[] rowsOf(Collection<Long> riskIds) {
+        int[] rows = new int[riskIds.size()];
+        int count = 0;
+        for (Long id : riskIds) {
+            int row = rowOf(id);
+            if (row >= 0) rows[count++] = row;
+        }
+        return count == rows.length ? rows : Arrays.copyOf(rows, count);
+    }
+
+    /**
+     * Aggregates the scores of the given rows.
+     *
+     * @param rows the row indices, for example from {@link #rowsOf(Collection)}
+     * @return the aggregated scores
+     */
+    public Aggregate aggregateRows(int[] rows) {
+        long sum = 0;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int row : rows) {
+            long score = scores[row];
+            sum += score;
+            min = Math.min(min, score);
+            max = Math.max(max, score);
+        }
+        return rows.length == 0 ? new Aggregate(0, 0, 0, 0) : new Aggregate(rows.length, sum, min, max);
+    }
+
+    /**
+     * Aggregates the scores of a set of risks.
+     *
+     * @param riskIds the IDs of the risks
+     * @return the aggregated scores of the risks found in the snapshot
+     */
+    public Aggregate aggregate(Collection<Long> riskIds) {
+        return aggregateRows(rowsOf(riskIds));
+    }
+
+    /**
+     * Aggregates the scores of all risks in the snapshot.
+     *
+     * @return the aggregated scores
+     */
+    public Aggregate aggregateAll() {
+        long sum = 0;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            sum += scores[i];
+            min = Math.min(min, scores[i]);
+            max = Math.max(max, scores[i]);
+        }
+        return size == 0 ? new Aggregate(0, 0, 0, 0) : new Aggregate(size, sum, min, max);
+    }
+
+    /**
+     * Builder collecting the scoring inputs of risks row by row. Risks must be added in ascending ID order.
+     * Decimal inputs are given in hundredths, the precision they are stored with.
+     */
+    public static class Builder {
+        private int size;
+        private long[] ids;
+        private byte[] types;
+        private long[] levels;
+        private long[] severities;
+        private long[] probabilities;
+        private long[] damageFactors;
+        private int[] unrestIndices;
+        private int[] stabilityIndices;
+
+        /**
+         * Creates a builder for about the given number of risks; it grows as needed.
+         *
+         * @param expectedSize the expected number of risks
+         */
+        public Builder(int expectedSize) {
+            allocate(Math.max(expectedSize, 16));
+        }
+
+        /**
+         * Adds a health risk.
+         *
+         * @param id the ID of the risk
+         * @param level the risk level
+         * @param severityHundredths the severity in hundredths
+         * @return this builder
+         */
+        public Builder addHealthRisk(long id, RiskLevel level, long severityHundredths) {
+            int row = nextRow(id, HEALTH, level);
+            severities[row] = severityHundredths;
+            return this;
+        }
+
+        /**
+         * Adds an environmental risk.
+         *
+         * @param id the ID of the risk
+         * @param level the risk level
+         * @param damageIndex the damage index
+         * @param probabilityHundredths the disaster probability in hundredths
+         * @return this builder
+         */
+        public Builder addEnvironmentalRisk(long id, RiskLevel level, int damageIndex, long probabilityHundredths) {
+            int row = nextRow(id, ENVIRONMENTAL, level);
+            // damage index / 100 rounded half up, as in EnvironmentalRisk
+            long damageFactor = damageIndex / 100;
+            if (Math.abs(damageIndex % 100) >= 50) damageFactor += Integer.signum(damageIndex);
+            damageFactors[row] = damageFactor;
+            probabilities[row] = probabilityHundredths;
+            return this;
+        }
+
+        /**
+         * Adds a political risk.
+         *
+         * @param id the ID of the risk
+         * @param level the risk level
+         * @param unrestIndex the unrest index
+         * @param stabilityIndex the stability index
+         * @return this builder
+         */
+        public Builder addPoliticalRisk(long id, RiskLevel level, int unrestIndex, int stabilityIndex) {
+            int row = nextRow(id, POLITICAL, level);
+            unrestIndices[row] = unrestIndex;
+            stabilityIndices[row] = stabilityIndex;
+            return this;
+        }
+
+        /**
+         * @return the snapshot with all scores computed
+         */
+        public RiskScoreColumns build() {
+            return new RiskScoreColumns(this);
+        }
+
+        /**
+         * Grows the columns to hold at least the given number of risks.
+         *
+         * @param capacity the number of risks
+         */
+        void reserve(int capacity) {
+            if (capacity > ids.length) allocate(capacity);
+        }
+
+        /**
+         * Claims the next row and fills the columns shared by all risk types.
+         *
+         * @param id the ID of the risk
+         * @param type the type code
+         * @param level the risk level
+         * @return the row index
+         * @throws IllegalArgumentException if the ID is not greater than the previously added one
+         */
+        private int nextRow(long id, byte type, RiskLevel level) {
+            if (size > 0 && ids[size - 1] >= id) {
+                throw new IllegalArgumentException("Risks must be added in ascending ID order, got " + id + " after " + ids[size - 1]);
+            }
+            if (size == ids.length) allocate(size * 2);
+            ids[size] = id;
+            types[size] = type;
+            levels[size] = level.getWeight();
+            return size++;
+        }
+
+        /**
+         * Resizes all columns to the given capacity.
+         *
+         * @param capacity the new number of rows
+         */
+        private void allocate(int capacity) {
+            ids = ids == null ? new long[capacity] : Arrays.copyOf(ids, capacity);
+            types = types == null ? new byte[capacity] : Arrays.copyOf(types, capacity);
+            levels = levels == null ? new long[capacity] : Arrays.copyOf(levels, capacity);
+            severities = severities == null ? new long[capacity] : Arrays.copyOf(severities, capacity);
+            probabilities = probabilities == null ? new long[capacity] : Arrays.copyOf(probabilities, capacity);
+            damageFactors = damageFactors == null ? new long[capacity] : Arrays.copyOf(damageFactors, capacity);
+            unrestIndices = unrestIndices == null ? new int[capacity] : Arrays.copyOf(unrestIndices, capacity);
+            stabilityIndices = stabilityIndices == null ? new int[capacity] : Arrays.copyOf(stabilityIndices, capacity);
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package hr.java.corporatetravelriskassessmenttool.analytics;
+
+import hr.java.corporatetravelriskassessmenttool.exception.RepositoryAccessException;
+import hr.java.corporatetravelriskassessmenttool.model.Person;
+import hr.java.corporatetravelriskassessmenttool.model.Trip;
+import hr.java.corporatetravelriskassessmenttool.repository.RiskDependencyIndex;
+import hr.java.corporatetravelriskassessmenttool.repository.TripRepository;
+import hr.java.corporatetravelriskassessmenttool.repository.TripRepository.TripRiskScore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the trips ranked by their total risk score without polling.
+ * <p>
+ * All trip scores are read once from the materialized {@code trip_risk_score} table into an indexed max-heap.
+ * Afterwards the tracker listens to the {@link RiskDependencyIndex}, which reports the trips whose risk exposure may
+ * have changed with each committed repository write; only the scores of those trips are read again and moved within
+ * the heap. Updates are serialized, so the scores applied last are always the latest committed ones.
+ * If the scores of some trips cannot be read, the tracker is marked stale and the next update loads all scores again.
+ * </p>
+ * <p>
+ * Listeners are notified only when the riskiest trip or its score actually changes, in order, on the thread
+ * that made the change and while the tracker is locked, so they should only hand the update over, for example
+ * with {@code Platform.runLater}.
+ * </p>
+ */
+public class RiskiestTripTracker {
+    private static final Logger log = LoggerFactory.getLogger(RiskiestTripTracker.class);
+    private static volatile RiskiestTripTracker instance;
+
+    private final TripRepository<Trip<Person>> tripRepository = new TripRepository<>();
+    private final List<Consumer<Optional<TripRiskScore>>> listeners = new CopyOnWriteArrayList<>();
+    private final Map<Long, Integer> positions = new HashMap<>();
+    private TripRiskScore[] heap = new TripRiskScore[16];
+    private long[] keys = new long[16];
+    private int size;
+    private boolean stale;
+
+    /**
+     * Private constructor, use {@link #getInstance()}.
+     */
+    private RiskiestTripTracker() {}
+
+    /**
+     * Returns the shared tracker, loading all trip scores and subscribing to changes on first use.
+     *
+     * @return the tracker
+     * @throws RepositoryAccessException if the scores cannot be loaded
+     */
+    public static RiskiestTripTracker getInstance() {
+        RiskiestTripTracker tracker = instance;
+        if (tracker == null) {
+            synchronized (RiskiestTripTracker.class) {
+                tracker = instance;
+                if (tracker == null) {
+                    tracker = new RiskiestTripTracker();
+                    RiskDependencyIndex.getInstance().addExposureListener(tracker::refresh);
+                    tracker.reload();
+                    instance = tracker;
+                }
+            }
+        }
+        return tracker;
+    }
+
+    /**
+     * Registers a listener notified whenever the riskiest trip changes.
+     *
+     * @param listener the listener receiving the new riskiest trip, or empty if there are no trips
+     */
+    public void addListener(Consumer<Optional<TripRiskScore>> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener registered with {@link #addListener(Consumer)}.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeListener(Consumer<Optional<TripRiskScore>> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return the score of the riskiest trip, or empty if there are no trips
+     */
+    public synchronized Optional<TripRiskScore> riskiest() {
+        return Optional.ofNullable(peek());
+    }
+
+    /**
+     * Returns the riskiest trips without modifying the heap, in O(k log k).
+     *
+     * @param k the maximum number of trips to return
+     * @return the scores of up to {@code k} riskiest trips, highest first, ties ordered by trip ID
+     */
+    public synchronized List<TripRiskScore> top(int k) {
+        List<TripRiskScore> top = new ArrayList<>(Math.min(k, size));
+        PriorityQueue<Integer> frontier = new PriorityQueue<>((a, b) -> compare(b, a));
+        if (size > 0) frontier.add(0);
+        while (top.size() < k && !frontier.isEmpty()) {
+            int node = frontier.poll();
+            top.add(heap[node]);
+            if (2 * node + 1 < size) frontier.add(2 * node + 1);
+            if (2 * node + 2 < size) frontier.add(2 * node + 2);
+        }
+        return top;
+    }
+
+    /**
+     * @return the number of tracked trips
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Discards the heap and loads all trip scores again.
+     *
+     * @throws RepositoryAccessException if the scores cannot be loaded
+     */
+    public synchronized void reload() {
+        TripRiskScore before = peek();
+        load();
+        stale = false;
+        notifyIfChanged(before);
+    }
+
+    /**
+     * Reads the scores of the given trips again and updates their heap positions.
+     * Trips without a score, such as deleted ones, are removed. If the tracker is stale, all scores are loaded instead.
+     *
+     * @param tripIds the IDs of the trips whose exposure may have changed
+     */
+    private synchronized void refresh(Set<Long> tripIds) {
+        if (stale) {
+            try {
+                reload();
+            } catch (RepositoryAccessException e) {
+                log.warn("Could not reload the stale risk scores of all trips", e);
+            }
+            return;
+        }
+        TripRiskScore before = peek();
+        Map<Long, TripRiskScore> scores = new HashMap<>();
+        try {
+            tripRepository.findRiskScores(tripIds).forEach(score -> scores.put(score.tripId(), score));
+        } catch (RepositoryAccessException e) {
+            log.warn("Could not refresh the risk scores of trips {}, reloading all scores on the next change", tripIds, e);
+            stale = true;
+            return;
+        }
+        for (Long tripId : tripIds) {
+            TripRiskScore score = scores.get(tripId);
+            if (score == null) remove(tripId);
+            else upsert(score);
+        }
+        notifyIfChanged(before);
+    }
+
+    /**
+     * Replaces the heap content with all scores from the database. The caller holds the monitor.
+     */
+    private void load() {
+        List<TripRiskScore> scores = tripRepository.findRiskiest(Integer.MAX_VALUE);
+        positions.clear();
+        heap = new TripRiskScore[Math.max(16, scores.size())];
+        keys = new long[heap.length];
+        size = 0;
+        // sorted by rank, so appending in order already satisfies the heap property
+        for (TripRiskScore score : scores) {
+            heap[size] = score;
+            keys[size] = toKey(score);
+            positions.put(score.tripId(), size);
+            size++;
+        }
+    }
+
+    /**
+     * @return the score at the root of the heap, or {@code null} if the heap is empty
+     */
+    private TripRiskScore peek() {
+        return size == 0 ? null : heap[0];
+    }
+
+    /**
+     * Notifies the listeners if the riskiest trip differs from the one before a modification.
+     * Called while holding the monitor, so listeners see the changes in order.
+     *
+     * @param before the riskiest trip before the modification, or {@code null}
+     */
+    private void notifyIfChanged(TripRiskScore before) {
+        TripRiskScore after = peek();
+        if (!Objects.equals(before, after)) notifyListeners(Optional.ofNullable(after));
+    }
+
+    /**
+     * Notifies all listeners of a new riskiest trip, logging failing listeners.
+     *
+     * @param riskiest the new riskiest trip
+     */
+    private void notifyListeners(Optional<TripRiskScore> riskiest) {
+        for (Consumer<Optional<TripRiskScore>> listener : listeners) {
+            try {
+                listener.accept(riskiest);
+            } catch (RuntimeException e) {
+                log.warn("Riskiest trip listener failed", e);
+            }
+        }
+    }
+
+    /**
+     * Inserts a trip score or moves an existing one to its new position.
+     *
+     * @param score the current score of the trip
+     */
+    private void upsert(TripRiskScore score) {
+        Integer position = positions.get(score.tripId());
+        if (position == null) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            position = size++;
+        }
+        heap[position] = score;
+        keys[position] = toKey(score);
+        positions.put(score.tripId(), position);
+        siftDown(siftUp(position));
+    }
+
+    /**
+     * Removes a trip from the heap if it is tracked.
+     *
+     * @param tripId the ID of the trip
+     */
+    private void remove(long tripId) {
+        Integer position = positions.remove(tripId);
+        if (position == null) return;
+        size--;
+        if (position == size) {
+            heap[size] = null;
+            return;
+        }
+        heap[position] = heap[size];
+        keys[position] = keys[size];
+        heap[size] = null;
+        positions.put(heap[position].tripId(), position);
+        siftDown(siftUp(position));
+    }
+
+    /**
+     * Moves a node towards the root while it ranks above its parent.
+     *
+     * @param node the node index
+     * @return the final index of the node
+     */
+    private int siftUp(int node) {
+        while (node > 0) {
+            int parent = (node - 1) / 2;
+            if (compare(node, parent) <= 0) break;
+            swap(node, parent);
+            node = parent;
+        }
+        return node;
+    }
+
+    /**
+     * Moves a node towards the leaves while a child ranks above it.
+     *
+     * @param node the node index
+     */
+    private void siftDown(int node) {
+        while (true) {
+            int child = 2 * node + 1;
+            if (child >= size) return;
+            if (child + 1 < size && compare(child + 1, child) > 0) child++;
+            if (compare(child, node) <= 0) return;
+            swap(node, child);
+            node = child;
+        }
+    }
+
+    /**
+     * Ranks two nodes: the higher score first, and the lower trip ID first among equal scores.
+     *
+     * @param a the first node index
+     * @param b the second node index
+     * @return a positive value if {@code a} ranks above {@code b}, negative if below, zero if equal
+     */
+    private int compare(int a, int b) {
+        int byScore = Long.compare(keys[a], keys[b]);
+        return byScore != 0 ? byScore : Long.compare(heap[b].tripId(), heap[a].tripId());
+    }
+
+    /**
+     * Swaps two nodes and updates their positions.
+     *
+     * @param a the first node index
+     * @param b the second node index
+     */
+    private void swap(int a, int b) {
+        TripRiskScore score = heap[a];
+        heap[a] = heap[b];
+        heap[b] = score;
+        long key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        positions.put(heap[a].tripId(), a);
+        positions.put(heap[b].tripId(), b);
+    }
+
+    /**
+     * @param score a trip score
+     * @return the total score in hundredths, used as the heap key
+     */
+    private static long toKey(TripRiskScore score) {
+        return score.totalScore().movePointRight(2).longValueExact();
+    }
+}
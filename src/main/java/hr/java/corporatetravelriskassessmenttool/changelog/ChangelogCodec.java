@@ -0,0 +1,101 @@
+package hr.java.corporatetravelriskassessmenttool.changelog;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Converts {@link ChangelogEntry} objects to and from the payload of a changelog record.
+ * <p>
+ * The payload is written with {@link DataOutput}: the username, role, action and message as length-prefixed UTF-8
+ * strings, followed by the timestamp as epoch seconds and nanoseconds. A length of {@code -1} marks a missing string,
+ * a leading {@code false} a missing timestamp. Unlike {@link DataOutput#writeUTF(String)}, strings are not limited
+ * to 64 KiB, so long batch messages are stored as they are.
+ * </p>
+ */
+final class ChangelogCodec {
+    private static final int NULL_LENGTH = -1;
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private ChangelogCodec() {
+    }
+
+    /**
+     * Serializes an entry.
+     *
+     * @param entry the entry
+     * @return the record payload
+     */
+    static byte[] encode(ChangelogEntry entry) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeString(out, entry.getUsername());
+            writeString(out, entry.getRole());
+            writeString(out, entry.getAction());
+            writeString(out, entry.getMessage());
+            LocalDateTime timestamp = entry.getTimestamp();
+            out.writeBoolean(timestamp != null);
+            if (timestamp != null) {
+                out.writeLong(timestamp.toEpochSecond(ZoneOffset.UTC));
+                out.writeInt(timestamp.getNano());
+            }
+        } catch (IOException e) {
+            // a ByteArrayOutputStream does not throw
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Deserializes an entry.
+     *
+     * @param payload the record payload
+     * @return the entry
+     * @throws IOException if the payload is not a valid entry
+     */
+    static ChangelogEntry decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        String username = readString(in);
+        String role = readString(in);
+        String action = readString(in);
+        String message = readString(in);
+        LocalDateTime timestamp = null;
+        if (in.readBoolean()) {
+            timestamp = LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+        }
+        if (in.available() > 0) throw new IOException("Unexpected trailing bytes in changelog record");
+        return new ChangelogEntry(username, role, action, message, timestamp);
+    }
+
+    /**
+     * @param out the output
+     * @param value the string to write, may be {@code null}
+     * @throws IOException if writing fails
+     */
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * @param in the input
+     * @return the string read, may be {@code null}
+     * @throws IOException if the string is truncated or its length is invalid
+     */
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == NULL_LENGTH) return null;
+        if (length < 0 || length > in.available()) throw new IOException("Invalid string length " + length);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
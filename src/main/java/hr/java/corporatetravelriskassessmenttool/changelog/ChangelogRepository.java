@@ -1,48 +1,74 @@
 package hr.java.corporatetravelriskassessmenttool.changelog;
 
+import hr.java.corporatetravelriskassessmenttool.exception.ChangelogLockedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.*;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
 
 /**
  * Handles storage and retrieval of changelog entries.
- * The changelog is saved to file {@code dat/changelog.dat} using java serialization.
+ * The changelog is saved to append-only segment files in {@code dat/changelog} by a {@link ChangelogStore}
+ * shared by all repository instances, which rotates, compresses and retires the segments as configured in
+ * {@code changelog.properties}. A changelog left in the single file {@code dat/changelog.log}, or in the legacy
+ * serialized file {@code dat/changelog.dat}, is migrated on first use.
+ * <p>
+ * Changes are written asynchronously by a {@link ChangelogWriter} configured in {@code changelog.properties};
+ * reads first wait for the changes already logged, so they always include them.
+ * </p>
+ * <p>
+ * Only one process may use the changelog at a time: the store locks its directory when it is opened, and a second
+ * process fails to open it until the first one has closed it.
+ * </p>
  */
 public class ChangelogRepository {
-    private static final String LOG_FILE = "dat/changelog.dat";
+    private static final Path LOG_DIRECTORY = Path.of("dat/changelog");
+    private static final Path SINGLE_LOG_FILE = Path.of("dat/changelog.log");
+    private static final Path LEGACY_LOG_FILE = Path.of("dat/changelog.dat");
+    private static final String CONFIG_FILE = "src/main/resources/changelog.properties";
     private static final Logger log = LoggerFactory.getLogger(ChangelogRepository.class);
+    private static final Properties CONFIG = loadProperties();
+    private static final ChangelogStore STORE = new ChangelogStore(LOG_DIRECTORY, SINGLE_LOG_FILE, LEGACY_LOG_FILE, CONFIG);
+    private static final ChangelogWriter WRITER = new ChangelogWriter(STORE, CONFIG);
 
     /**
-     * Logs a new change and appends it to the existing changelog file by reading all existing entries and adding the new
-     * one before writing the entire list back to the file.
+     * Opens the changelog now instead of on first use, so a process that must not run next to another user of the
+     * changelog can find out before it changes anything.
+     *
+     * @throws ChangelogLockedException if another process has the changelog open
+     * @throws IOException if the changelog cannot be opened
+     */
+    public void open() throws IOException {
+        STORE.open();
+    }
+
+    /**
+     * Logs a new change by queueing it for the changelog writer, which appends it to the end of the changelog file.
+     * Blocks only while the queue of pending changes is full.
      *
      * @param entry the entry to log
      */
-    public synchronized void logChange(ChangelogEntry entry) {
-        List<ChangelogEntry> entries = readAll();
-        entries.add(entry);
-        try(ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(LOG_FILE))){
-            oos.writeObject(entries);
-        }catch(IOException e){
+    public void logChange(ChangelogEntry entry) {
+        try {
+            WRITER.submit(entry);
+        } catch (IOException e) {
             log.error("Error writing change to log file", e);
         }
     }
 
     /**
-     * Reads and returns all changelog entries from the changelog file.
+     * Reads and returns all changelog entries kept by the retention policy.
      *
      * @return list of all {@link ChangelogEntry} objects from the log file.
      */
-    public synchronized List<ChangelogEntry> readAll() {
-        File file = new File(LOG_FILE);
-        if(!file.exists()) return new ArrayList<>();
-        try(ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
-            return (List<ChangelogEntry>) ois.readObject();
-        }catch(IOException | ClassNotFoundException e) {
+    public List<ChangelogEntry> readAll() {
+        try {
+            WRITER.flush();
+            return STORE.readAll();
+        } catch (IOException e) {
             log.error("Error reading log file", e);
             return new ArrayList<>();
         }
@@ -53,10 +79,104 @@ public class ChangelogRepository {
      *
      * @return the latest Changelog entry
      */
-    public synchronized Optional<ChangelogEntry> readLastEntry(){
-        List<ChangelogEntry> entries = readAll();
-        if(!entries.isEmpty()) return Optional.ofNullable(entries.getLast());
-        return Optional.empty();
+    public Optional<ChangelogEntry> readLastEntry(){
+        try {
+            WRITER.flush();
+            return STORE.readLast();
+        } catch (IOException e) {
+            log.error("Error reading log file", e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Reads a page of consecutive changelog entries.
+     *
+     * @param fromSeq the sequence number of the first entry, starting at {@link #firstSequence()}
+     * @param count the maximum number of entries to read
+     * @return the entries from {@code fromSeq} on, oldest first, or an empty list if they cannot be read
+     * or {@code fromSeq} has been removed by retention
+     */
+    public List<ChangelogEntry> readRange(long fromSeq, int count) {
+        try {
+            WRITER.flush();
+            return STORE.readRange(fromSeq, count);
+        } catch (IOException e) {
+            log.error("Error reading log file", e);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Iterates over the changelog entries from the newest to the oldest, reading them as the iteration proceeds.
+     *
+     * @return the iterator, empty if the changelog cannot be read
+     */
+    public Iterator<ChangelogEntry> iterateNewestFirst() {
+        try {
+            WRITER.flush();
+            return STORE.newestFirst();
+        } catch (IOException e) {
+            log.error("Error reading log file", e);
+            return Collections.emptyIterator();
+        }
+    }
+
+    /**
+     * Returns the number of entries in the changelog.
+     *
+     * @return the number of entries, or 0 if the changelog cannot be read
+     */
+    public long count() {
+        try {
+            WRITER.flush();
+            return STORE.count();
+        } catch (IOException e) {
+            log.error("Error reading log file", e);
+            return 0;
+        }
+    }
+
+    /**
+     * Returns the sequence number of the oldest entry still kept by the retention policy.
+     *
+     * @return the sequence number, or 0 if the changelog cannot be read
+     */
+    public long firstSequence() {
+        try {
+            return STORE.firstSequence();
+        } catch (IOException e) {
+            log.error("Error reading log file", e);
+            return 0;
+        }
+    }
+
+    /**
+     * Writes all pending changes and closes the changelog file, for example on application shutdown.
+     * Changes logged afterwards are written synchronously.
+     */
+    public void close() {
+        WRITER.close();
+        log.info("Changelog writer closed: {}", WRITER.getMetrics());
+        try {
+            STORE.close();
+        } catch (IOException e) {
+            log.warn("Error closing log file", e);
+        }
     }
-}
 
+    /**
+     * Loads the changelog configuration, falling back to the defaults if the file cannot be read.
+     *
+     * @return the loaded properties
+     */
+    private static Properties loadProperties() {
+        Properties props = new Properties();
+        try (FileInputStream fis = new FileInputStream(CONFIG_FILE)) {
+            props.load(fis);
+        } catch (IOException e) {
+            log.warn("Could not load {}, using the default changelog settings", CONFIG_FILE, e);
+        }
+        return props;
+    }
+}
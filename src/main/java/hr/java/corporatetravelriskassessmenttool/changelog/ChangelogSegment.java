@@ -0,0 +1,651 @@
+package hr.java.corporatetravelriskassessmenttool.changelog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * One append-only segment file of the changelog, holding the entries from a first sequence number on.
+ * <p>
+ * The file starts with an 8 byte header: the magic number {@code CHLG}, the format version as a short and two
+ * reserved bytes. Every entry is stored as one record framed as
+ * {@code [payload length][CRC32 of payload][payload][payload length]}, with big-endian ints and the payload encoded
+ * by {@link ChangelogCodec}. Appending an entry writes only its record at the end of the file, so the cost of a write
+ * does not depend on the size of the history. The trailing length, added in format version 2, lets the newest record
+ * be found from the end of the file, so it is read with two positional reads whatever the size of the segment.
+ * </p>
+ * <p>
+ * The segment is opened on first use. All records are validated then; a record that is truncated or fails its
+ * checksum can only be the tail of a write interrupted by a crash, so it is cut off together with anything after it
+ * and the next append continues a valid file. A version 1 segment, whose records have no trailing length, is rewritten
+ * as version 2 through a temporary file replacing it atomically.
+ * </p>
+ * <p>
+ * Ranges and reverse iteration read the segment through a read-only memory mapping, so no entry is copied to the heap
+ * before it is decoded. A sparse index holds the offset of every {@value #INDEX_INTERVAL}th record; a range is
+ * located by jumping to the closest indexed record and skipping the following ones by their length prefixes,
+ * without checksumming or decoding them. Once the segment is closed, {@link ClosedSegments} reads it, starting from the
+ * same index, and compresses it.
+ * </p>
+ */
+final class ChangelogSegment implements Closeable {
+    static final int MAGIC = 0x43484C47;
+    static final short FORMAT_VERSION = 2;
+    static final short FORMAT_VERSION_WITHOUT_TRAILER = 1;
+    static final int FILE_HEADER_SIZE = 8;
+    static final int RECORD_HEADER_SIZE = 8;
+    static final int RECORD_TRAILER_SIZE = 4;
+    static final int MAX_PAYLOAD_SIZE = 16 * 1024 * 1024;
+    static final int INDEX_INTERVAL = 1024;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final Logger log = LoggerFactory.getLogger(ChangelogSegment.class);
+
+    private final Path file;
+    private final long firstSequence;
+    private FileChannel channel;
+    private long end;
+    private long count;
+    private long[] checkpoints = new long[16];
+    private MappedByteBuffer mapped;
+    private LocalDateTime firstTimestamp;
+
+    /**
+     * Creates a segment; the file is created or opened on first use.
+     *
+     * @param file the segment file
+     * @param firstSequence the sequence number of the first entry of the segment
+     */
+    ChangelogSegment(Path file, long firstSequence) {
+        this.file = file;
+        this.firstSequence = firstSequence;
+    }
+
+    /**
+     * Appends a batch of entries with a single write. Entries too large for a record are logged and skipped.
+     *
+     * @param entries the entries to append, oldest first
+     * @return the number of entries appended
+     * @throws IOException if the batch cannot be written; none of its entries are kept then
+     */
+    synchronized int appendAll(List<ChangelogEntry> entries) throws IOException {
+        ensureOpen();
+        List<ByteBuffer> records = new ArrayList<>(entries.size());
+        for (ChangelogEntry entry : entries) {
+            try {
+                records.add(frame(entry));
+            } catch (IOException e) {
+                log.error("Skipping changelog entry '{}'", entry.getAction(), e);
+            }
+        }
+        write(records);
+        return records.size();
+    }
+
+    /**
+     * Forces the appended records to the storage device.
+     *
+     * @throws IOException if the segment cannot be synced
+     */
+    synchronized void force() throws IOException {
+        if (channel != null) channel.force(false);
+    }
+
+    /**
+     * Reads the newest entry by following the trailing length of the last record back to its start.
+     *
+     * @return the newest entry, or empty if the segment is empty
+     * @throws IOException if the segment cannot be read or its last record is damaged
+     */
+    synchronized Optional<ChangelogEntry> readLast() throws IOException {
+        ensureOpen();
+        if (count == 0) return Optional.empty();
+        int length = readAt(channel, end - RECORD_TRAILER_SIZE, RECORD_TRAILER_SIZE).getInt();
+        long start = end - RECORD_TRAILER_SIZE - length - RECORD_HEADER_SIZE;
+        if (length < 0 || length > MAX_PAYLOAD_SIZE || start < FILE_HEADER_SIZE) {
+            throw new IOException("Invalid length " + length + " at the end of changelog " + file);
+        }
+        ByteBuffer record = readAt(channel, start, RECORD_HEADER_SIZE + length);
+        int checksum = record.getInt(Integer.BYTES);
+        byte[] payload = new byte[length];
+        record.position(RECORD_HEADER_SIZE).get(payload);
+        if (record.getInt(0) != length || checksum(payload) != checksum) {
+            throw new IOException("Last record of changelog " + file + " is damaged");
+        }
+        return Optional.of(ChangelogCodec.decode(payload));
+    }
+
+    /**
+     * Reads consecutive entries through the memory-mapped segment, starting at the closest indexed record.
+     *
+     * @param fromSeq the sequence number of the first entry, not before the first one of the segment
+     * @param limit the maximum number of entries to read
+     * @return the entries, oldest first; fewer than {@code limit} at the end of the segment
+     * @throws IOException if the segment cannot be mapped or a record is damaged
+     */
+    synchronized List<ChangelogEntry> readRange(long fromSeq, int limit) throws IOException {
+        ensureOpen();
+        long index = fromSeq - firstSequence;
+        if (index < 0 || limit < 0) throw new IllegalArgumentException("Invalid changelog range " + fromSeq + "+" + limit);
+        int available = (int) Math.min(limit, Math.max(0, count - index));
+        if (available == 0) return new ArrayList<>();
+        return decodeRange(mapping(), (int) checkpoints[(int) (index / INDEX_INTERVAL)], index % INDEX_INTERVAL,
+                available, file);
+    }
+
+    /**
+     * Iterates over the entries from the newest to the oldest, following the trailing lengths backwards.
+     * The iterator works on the entries present when it was created and does not lock the segment.
+     *
+     * @return the iterator; it throws {@link UncheckedIOException} if a record is damaged
+     * @throws IOException if the segment cannot be mapped
+     */
+    synchronized Iterator<ChangelogEntry> newestFirst() throws IOException {
+        ensureOpen();
+        return newestFirst(mapping(), (int) end, file);
+    }
+
+    /**
+     * @return the number of entries in the segment
+     * @throws IOException if the segment cannot be opened
+     */
+    synchronized long count() throws IOException {
+        ensureOpen();
+        return count;
+    }
+
+    /**
+     * @return the size of the valid part of the segment file in bytes
+     * @throws IOException if the segment cannot be opened
+     */
+    synchronized long size() throws IOException {
+        ensureOpen();
+        return end;
+    }
+
+    /**
+     * @return the timestamp of the oldest entry, or {@code null} if the segment is empty or the entry has none
+     * @throws IOException if the segment cannot be read
+     */
+    synchronized LocalDateTime firstTimestamp() throws IOException {
+        ensureOpen();
+        if (firstTimestamp == null && count > 0) {
+            firstTimestamp = decodeAt(mapping(), FILE_HEADER_SIZE, file).getTimestamp();
+        }
+        return firstTimestamp;
+    }
+
+    /**
+     * @return the offset of every {@value #INDEX_INTERVAL}th record, starting with the first one
+     * @throws IOException if the segment cannot be opened
+     */
+    synchronized long[] checkpoints() throws IOException {
+        ensureOpen();
+        return Arrays.copyOf(checkpoints, (int) ((count + INDEX_INTERVAL - 1) / INDEX_INTERVAL));
+    }
+
+    /**
+     * @return the sequence number of the first entry of the segment
+     */
+    long firstSequence() {
+        return firstSequence;
+    }
+
+    /**
+     * @return the segment file
+     */
+    Path file() {
+        return file;
+    }
+
+    /**
+     * Closes the segment file. It is opened again when the segment is used afterwards.
+     *
+     * @throws IOException if closing fails
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } finally {
+            channel = null;
+            mapped = null;
+        }
+    }
+
+    /**
+     * Opens the segment file on first use, creating it if needed and cutting off a torn tail.
+     *
+     * @throws IOException if the file cannot be opened or is not a changelog segment
+     */
+    private void ensureOpen() throws IOException {
+        if (channel != null) return;
+        FileChannel opened = FileChannel.open(file, CREATE, READ, WRITE);
+        try {
+            if (opened.size() < FILE_HEADER_SIZE) {
+                // a new file, or one whose creation was interrupted before any record was written
+                opened.truncate(0);
+                writeHeader(opened);
+            } else if (readVersion(opened) == FORMAT_VERSION_WITHOUT_TRAILER) {
+                opened = upgrade(opened);
+            }
+            recover(opened);
+        } catch (IOException e) {
+            opened.close();
+            throw e;
+        }
+        channel = opened;
+    }
+
+    /**
+     * Validates all records and truncates the file after the last valid one.
+     *
+     * @param opened the segment file
+     * @throws IOException if the file cannot be read or truncated
+     */
+    private void recover(FileChannel opened) throws IOException {
+        long size = opened.size();
+        RecordScanner scanner = new RecordScanner(opened, FILE_HEADER_SIZE, size, RECORD_TRAILER_SIZE);
+        long records = 0;
+        checkpoints = new long[16];
+        for (long offset = scanner.offset(); scanner.next() != null; offset = scanner.offset()) {
+            if (records % INDEX_INTERVAL == 0) addCheckpoint(records, offset);
+            records++;
+        }
+        if (scanner.offset() < size) {
+            log.warn("Changelog segment {} has {} bytes of incomplete or corrupt data after record {}, truncating",
+                    file, size - scanner.offset(), records);
+            opened.truncate(scanner.offset());
+            opened.force(true);
+        }
+        end = scanner.offset();
+        count = records;
+    }
+
+    /**
+     * Writes framed records at the end of the segment in one positional write and indexes them.
+     * If the write fails, the segment is truncated back to its previous end.
+     *
+     * @param records the framed records
+     * @throws IOException if writing fails
+     */
+    private void write(List<ByteBuffer> records) throws IOException {
+        if (records.isEmpty()) return;
+        ByteBuffer batch = records.getFirst();
+        if (records.size() > 1) {
+            batch = ByteBuffer.allocate(records.stream().mapToInt(ByteBuffer::remaining).sum());
+            records.forEach(batch::put);
+            batch.flip();
+        }
+        int size = batch.remaining();
+        try {
+            writeFully(channel, batch, end);
+        } catch (IOException e) {
+            try {
+                channel.truncate(end);
+            } catch (IOException truncateFailure) {
+                e.addSuppressed(truncateFailure);
+            }
+            throw e;
+        }
+        long offset = end;
+        for (ByteBuffer record : records) {
+            if (count % INDEX_INTERVAL == 0) addCheckpoint(count, offset);
+            offset += record.limit();
+            count++;
+        }
+        end += size;
+    }
+
+    /**
+     * Records the offset of an indexed record.
+     *
+     * @param seq the sequence number of the record, a multiple of {@link #INDEX_INTERVAL}
+     * @param offset the position of the record in the segment
+     */
+    private void addCheckpoint(long seq, long offset) {
+        int index = (int) (seq / INDEX_INTERVAL);
+        if (index == checkpoints.length) checkpoints = Arrays.copyOf(checkpoints, index * 2);
+        checkpoints[index] = offset;
+    }
+
+    /**
+     * Returns a read-only view of the valid part of the segment, mapping it again only after it has grown.
+     *
+     * @return a view with its own position, sharing the mapping
+     * @throws IOException if the segment cannot be mapped
+     */
+    private ByteBuffer mapping() throws IOException {
+        if (mapped == null || mapped.capacity() < end) {
+            if (end > Integer.MAX_VALUE) throw new IOException("Changelog " + file + " is too large to be mapped");
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, end);
+        }
+        return mapped.duplicate();
+    }
+
+    /**
+     * Decodes consecutive records of a segment buffer.
+     *
+     * @param segment the segment
+     * @param offset the position of a record
+     * @param skip the number of records to skip from there
+     * @param limit the number of records to decode after the skipped ones
+     * @param source the file the buffer belongs to, for error messages
+     * @return the entries, oldest first
+     * @throws IOException if a record is damaged
+     */
+    private static List<ChangelogEntry> decodeRange(ByteBuffer segment, int offset, long skip, int limit, Path source) throws IOException {
+        for (long skipped = 0; skipped < skip; skipped++) {
+            offset += recordSize(segment.getInt(offset));
+        }
+        List<ChangelogEntry> entries = new ArrayList<>(limit);
+        for (int i = 0; i < limit; i++) {
+            entries.add(decodeAt(segment, offset, source));
+            offset += recordSize(segment.getInt(offset));
+        }
+        return entries;
+    }
+
+    /**
+     * Iterates backwards over the records of a segment buffer by their trailing lengths.
+     *
+     * @param segment the segment
+     * @param end the position after the newest record
+     * @param source the file the buffer belongs to, for error messages
+     * @return the iterator; it throws {@link UncheckedIOException} if a record is damaged
+     */
+    private static Iterator<ChangelogEntry> newestFirst(ByteBuffer segment, int end, Path source) {
+        return new Iterator<>() {
+            private int position = end;
+
+            @Override
+            public boolean hasNext() {
+                return position > FILE_HEADER_SIZE;
+            }
+
+            @Override
+            public ChangelogEntry next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                int start = position - recordSize(segment.getInt(position - RECORD_TRAILER_SIZE));
+                try {
+                    ChangelogEntry entry = decodeAt(segment, start, source);
+                    position = start;
+                    return entry;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Decodes the record at an offset of a segment buffer, verifying its checksum and trailer.
+     *
+     * @param segment the segment
+     * @param offset the position of the record
+     * @param source the file the buffer belongs to, for error messages
+     * @return the entry
+     * @throws IOException if the record is damaged
+     */
+    private static ChangelogEntry decodeAt(ByteBuffer segment, int offset, Path source) throws IOException {
+        int length = segment.getInt(offset);
+        if (length < 0 || length > MAX_PAYLOAD_SIZE || offset + recordSize(length) > segment.limit()) {
+            throw new IOException("Invalid record length " + length + " at offset " + offset + " of changelog " + source);
+        }
+        byte[] payload = new byte[length];
+        segment.get(offset + RECORD_HEADER_SIZE, payload);
+        if (checksum(payload) != segment.getInt(offset + Integer.BYTES)
+                || segment.getInt(offset + RECORD_HEADER_SIZE + length) != length) {
+            throw new IOException("Record at offset " + offset + " of changelog " + source + " is damaged");
+        }
+        return ChangelogCodec.decode(payload);
+    }
+
+    /**
+     * @param length the payload length of a record
+     * @return the size of the whole record
+     */
+    private static int recordSize(int length) {
+        return RECORD_HEADER_SIZE + length + RECORD_TRAILER_SIZE;
+    }
+
+    /**
+     * Rewrites a version 1 segment in the current format, adding the trailing length to every record.
+     * A torn tail of the old segment is dropped.
+     *
+     * @param old the open version 1 segment, closed by this method
+     * @return the upgraded segment, open
+     * @throws IOException if the segment cannot be read or rewritten
+     */
+    private FileChannel upgrade(FileChannel old) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        long records = 0;
+        try (old; FileChannel out = FileChannel.open(temporary, CREATE, TRUNCATE_EXISTING, WRITE)) {
+            writeHeader(out);
+            long position = FILE_HEADER_SIZE;
+            RecordScanner scanner = new RecordScanner(old, FILE_HEADER_SIZE, old.size(), 0);
+            for (byte[] payload = scanner.next(); payload != null; payload = scanner.next()) {
+                ByteBuffer record = frame(payload);
+                int size = record.remaining();
+                writeFully(out, record, position);
+                position += size;
+                records++;
+            }
+            out.force(true);
+        }
+        Files.move(temporary, file, ATOMIC_MOVE, REPLACE_EXISTING);
+        log.info("Upgraded {} changelog records in {} to format version {}", records, file, FORMAT_VERSION);
+        return FileChannel.open(file, READ, WRITE);
+    }
+
+    /**
+     * Writes a complete segment file from a list of entries. The file only appears once it is complete.
+     *
+     * @param file the segment file to create
+     * @param entries the entries, oldest first
+     * @throws IOException if the segment cannot be written
+     */
+    static void create(Path file, List<ChangelogEntry> entries) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temporary, CREATE, TRUNCATE_EXISTING, WRITE)) {
+            writeHeader(out);
+            long position = FILE_HEADER_SIZE;
+            for (ChangelogEntry entry : entries) {
+                ByteBuffer record = frame(entry);
+                int size = record.remaining();
+                writeFully(out, record, position);
+                position += size;
+            }
+            out.force(true);
+        }
+        Files.move(temporary, file, ATOMIC_MOVE);
+    }
+
+    /**
+     * @param out the new segment file
+     * @throws IOException if writing fails
+     */
+    private static void writeHeader(FileChannel out) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE).putInt(MAGIC).putShort(FORMAT_VERSION).putShort((short) 0);
+        writeFully(out, header.flip(), 0);
+    }
+
+    /**
+     * @param in the segment file
+     * @return the format version of the segment, either the current one or one that can be upgraded
+     * @throws IOException if the header cannot be read or is not a supported changelog header
+     */
+    private short readVersion(FileChannel in) throws IOException {
+        ByteBuffer header = readAt(in, 0, FILE_HEADER_SIZE);
+        if (header.getInt() != MAGIC) throw new IOException(file + " is not a changelog segment");
+        short version = header.getShort();
+        if (version != FORMAT_VERSION && version != FORMAT_VERSION_WITHOUT_TRAILER) {
+            throw new IOException("Unsupported changelog format version " + version);
+        }
+        return version;
+    }
+
+    /**
+     * Encodes an entry as a complete record.
+     *
+     * @param entry the entry
+     * @return the record, ready to be written
+     * @throws IOException if the entry is too large for a record
+     */
+    private static ByteBuffer frame(ChangelogEntry entry) throws IOException {
+        return frame(ChangelogCodec.encode(entry));
+    }
+
+    /**
+     * Frames a payload as a complete record.
+     *
+     * @param payload the encoded entry
+     * @return the record, ready to be written
+     * @throws IOException if the payload is too large for a record
+     */
+    private static ByteBuffer frame(byte[] payload) throws IOException {
+        if (payload.length > MAX_PAYLOAD_SIZE) {
+            throw new IOException("Changelog entry of " + payload.length + " bytes exceeds the record size limit");
+        }
+        return ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.length + RECORD_TRAILER_SIZE)
+                .putInt(payload.length).putInt(checksum(payload)).put(payload).putInt(payload.length).flip();
+    }
+
+    /**
+     * @param payload a record payload
+     * @return the CRC32 of the payload, truncated to an int
+     */
+    static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Writes a whole buffer at a position.
+     *
+     * @param out the file
+     * @param buffer the bytes to write
+     * @param position the file position
+     * @throws IOException if writing fails
+     */
+    private static void writeFully(FileChannel out, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += out.write(buffer, position);
+        }
+    }
+
+    /**
+     * Reads a number of bytes at a position.
+     *
+     * @param in the file
+     * @param position the file position
+     * @param size the number of bytes
+     * @return the bytes, ready to be read
+     * @throws IOException if reading fails or the file ends first
+     */
+    private static ByteBuffer readAt(FileChannel in, long position, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer, position + buffer.position()) < 0) throw new EOFException("Unexpected end of changelog");
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Reads consecutive records through a reusable buffer with positional reads, so it does not disturb appends.
+     * Stops at the limit or at the first record that is incomplete, fails its checksum or has a mismatching trailer.
+     */
+    private static final class RecordScanner {
+        private final FileChannel channel;
+        private final long limit;
+        private final int trailerSize;
+        private ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE).flip();
+        private long bufferEnd;
+        private long offset;
+        private boolean done;
+
+        /**
+         * @param channel the segment file
+         * @param from the position of the first record
+         * @param limit the position after the last byte to read
+         * @param trailerSize the size of the record trailer, 0 for format version 1
+         */
+        private RecordScanner(FileChannel channel, long from, long limit, int trailerSize) {
+            this.channel = channel;
+            this.limit = limit;
+            this.trailerSize = trailerSize;
+            this.bufferEnd = from;
+            this.offset = from;
+        }
+
+        /**
+         * @return the payload of the next valid record, or {@code null} if there is none
+         * @throws IOException if reading fails
+         */
+        private byte[] next() throws IOException {
+            if (done || !fill(RECORD_HEADER_SIZE)) return stop();
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length < 0 || length > MAX_PAYLOAD_SIZE || !fill(length + trailerSize)) return stop();
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+            if (checksum(payload) != checksum) return stop();
+            if (trailerSize > 0 && buffer.getInt() != length) return stop();
+            offset += RECORD_HEADER_SIZE + length + trailerSize;
+            return payload;
+        }
+
+        /**
+         * @return the position after the last valid record returned
+         */
+        private long offset() {
+            return offset;
+        }
+
+        /**
+         * @return {@code null}, after marking the scan as finished
+         */
+        private byte[] stop() {
+            done = true;
+            return null;
+        }
+
+        /**
+         * Makes sure the buffer holds at least the given number of unread bytes.
+         *
+         * @param bytes the number of bytes needed
+         * @return {@code false} if the limit is reached first
+         * @throws IOException if reading fails
+         */
+        private boolean fill(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) return true;
+            if (buffer.capacity() < bytes) {
+                buffer = ByteBuffer.allocate(bytes).put(buffer);
+            } else {
+                buffer.compact();
+            }
+            while (buffer.position() < bytes && bufferEnd < limit) {
+                if (buffer.remaining() > limit - bufferEnd) buffer.limit(buffer.position() + (int) (limit - bufferEnd));
+                int read = channel.read(buffer, bufferEnd);
+                if (read < 0) break;
+                bufferEnd += read;
+            }
+            buffer.flip();
+            return buffer.remaining() >= bytes;
+        }
+    }
+}
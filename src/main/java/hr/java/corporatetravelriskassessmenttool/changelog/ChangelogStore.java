@@ -0,0 +1,632 @@
+package hr.java.corporatetravelriskassessmenttool.changelog;
+
+import hr.java.corporatetravelriskassessmenttool.exception.ChangelogLockedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Append-only storage of changelog entries in a directory of size- and time-bounded segments.
+ * <p>
+ * Entries are numbered by sequence, oldest first, and every segment file is named after the sequence number of its
+ * first entry. New entries are appended to the active segment, the one with the highest first sequence number.
+ * When the active segment has reached {@code segment.maxBytes}, or its oldest entry is older than
+ * {@code segment.maxAgeHours}, the next append starts a new segment. The closed segment is compressed with gzip in the
+ * background and removed once the compressed copy is complete.
+ * </p>
+ * <p>
+ * After every rotation, and when the store is opened, the retention policy removes the oldest closed segments that
+ * were last written more than {@code retention.days} ago, or that make the changelog exceed {@code retention.maxBytes}.
+ * Removed segments are moved to {@code retention.archiveDirectory} if one is configured, and deleted otherwise.
+ * A value of 0 disables a limit. The active segment is never removed.
+ * </p>
+ * <p>
+ * The newest entry and recent ranges are read from the active segment alone. Older ranges are streamed from the closed
+ * segment they fall in by {@link ClosedSegments}, starting at the indexed block of their first entry, so neither reads
+ * nor iteration hold more than one block of a closed segment in memory. An uncompressed segment file that cannot be
+ * deleted after compression, because a reader of the former active segment still maps it, is deleted again after the
+ * next rotation or opening. An older single-file changelog, and before it the legacy serialized changelog, becomes
+ * the first segment when the directory is created.
+ * </p>
+ * <p>
+ * Segments are written at the end the store last knew of, and a tail that cannot be parsed is cut off when the store
+ * is opened, so only one store may have the directory open at a time. An open store holds an exclusive lock on the
+ * {@value #LOCK_FILE} file of the directory until it is closed; opening the directory a second time, in this or another
+ * process, fails with a {@link ChangelogLockedException}.
+ * </p>
+ */
+final class ChangelogStore implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(ChangelogStore.class);
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d{20})\\.log(\\.gz)?");
+    private static final String LOCK_FILE = ".lock";
+
+    private final Path directory;
+    private final Path singleFile;
+    private final Path legacyFile;
+    private final long maxSegmentBytes;
+    private final Duration maxSegmentAge;
+    private final Duration retentionAge;
+    private final long retentionBytes;
+    private final Path archiveDirectory;
+    private final NavigableMap<Long, ClosedSegment> closedSegments = new TreeMap<>();
+    private final Set<Path> undeletedFiles = new HashSet<>();
+    private ChangelogSegment active;
+    private ExecutorService maintenance;
+    private FileChannel lockChannel;
+
+    /**
+     * A segment that no longer receives entries.
+     *
+     * @param firstSequence the sequence number of its first entry
+     * @param count the number of entries in it
+     * @param file the segment file, ending with {@code .gz} once compressed
+     * @param checkpoints the record offsets indexed while the uncompressed segment was active, or {@code null}
+     */
+    private record ClosedSegment(long firstSequence, long count, Path file, long[] checkpoints) {
+        /**
+         * @return whether the segment has been compressed
+         */
+        private boolean compressed() {
+            return file.getFileName().toString().endsWith(".gz");
+        }
+    }
+
+    /**
+     * Creates a store configured by the {@code segment.*} and {@code retention.*} properties.
+     * No file is touched until the first read or write.
+     *
+     * @param directory the directory of the segments
+     * @param singleFile the changelog file used before segments, moved into the directory as its first segment
+     * @param legacyFile the changelog in the legacy serialized format, migrated if neither of the others exists
+     * @param props the changelog properties
+     */
+    ChangelogStore(Path directory, Path singleFile, Path legacyFile, Properties props) {
+        this.directory = directory;
+        this.singleFile = singleFile;
+        this.legacyFile = legacyFile;
+        this.maxSegmentBytes = Long.parseLong(props.getProperty("segment.maxBytes", "16777216").trim());
+        this.maxSegmentAge = Duration.ofHours(Long.parseLong(props.getProperty("segment.maxAgeHours", "24").trim()));
+        this.retentionAge = Duration.ofDays(Long.parseLong(props.getProperty("retention.days", "365").trim()));
+        this.retentionBytes = Long.parseLong(props.getProperty("retention.maxBytes", "1073741824").trim());
+        String archive = props.getProperty("retention.archiveDirectory", "").trim();
+        this.archiveDirectory = archive.isEmpty() ? null : Path.of(archive);
+    }
+
+    /**
+     * Opens the store now instead of on first use, taking the lock on its directory.
+     *
+     * @throws ChangelogLockedException if another store, in this or another process, has the directory open
+     * @throws IOException if the directory cannot be read or the active segment cannot be opened
+     */
+    synchronized void open() throws IOException {
+        ensureOpen();
+    }
+
+    /**
+     * Appends an entry to the active segment, rotating it first if it is full.
+     *
+     * @param entry the entry to append
+     * @throws IOException if the entry is too large or cannot be written
+     */
+    synchronized void append(ChangelogEntry entry) throws IOException {
+        appendAll(List.of(entry));
+    }
+
+    /**
+     * Appends a batch of entries to the active segment with a single write, rotating it first if it is full.
+     * Entries too large for a record are logged and skipped.
+     *
+     * @param entries the entries to append, oldest first
+     * @return the number of entries appended
+     * @throws IOException if the batch cannot be written; none of its entries are kept then
+     */
+    synchronized int appendAll(List<ChangelogEntry> entries) throws IOException {
+        ensureOpen();
+        if (rotationDue()) rotate();
+        return active.appendAll(entries);
+    }
+
+    /**
+     * Forces the appended records to the storage device.
+     *
+     * @throws IOException if the active segment cannot be synced
+     */
+    synchronized void force() throws IOException {
+        if (active != null) active.force();
+    }
+
+    /**
+     * Reads all retained entries, oldest first.
+     *
+     * @return the entries
+     * @throws IOException if a segment cannot be read
+     */
+    synchronized List<ChangelogEntry> readAll() throws IOException {
+        ensureOpen();
+        return readRange(firstSequence(), (int) Math.min(count(), Integer.MAX_VALUE - 8));
+    }
+
+    /**
+     * Reads the newest entry from the end of the active segment.
+     *
+     * @return the newest entry, or empty if the changelog is empty
+     * @throws IOException if the segment cannot be read or its last record is damaged
+     */
+    synchronized Optional<ChangelogEntry> readLast() throws IOException {
+        ensureOpen();
+        Optional<ChangelogEntry> last = active.readLast();
+        if (last.isPresent() || closedSegments.isEmpty()) return last;
+        Iterator<ChangelogEntry> older = newestFirst();
+        return older.hasNext() ? Optional.of(older.next()) : Optional.empty();
+    }
+
+    /**
+     * Reads consecutive entries, possibly spanning several segments. The entries always start at {@code fromSeq},
+     * so none are read if it has already been removed by retention.
+     *
+     * @param fromSeq the sequence number of the first entry
+     * @param limit the maximum number of entries to read
+     * @return the entries, oldest first; fewer than {@code limit} at the end of the changelog,
+     * and none if {@code fromSeq} is before {@link #firstSequence()}
+     * @throws IOException if a segment cannot be read or a record is damaged
+     */
+    synchronized List<ChangelogEntry> readRange(long fromSeq, int limit) throws IOException {
+        if (fromSeq < 0 || limit < 0) throw new IllegalArgumentException("Invalid changelog range " + fromSeq + "+" + limit);
+        ensureOpen();
+        if (fromSeq < firstSequence()) return new ArrayList<>();
+        List<ChangelogEntry> entries = new ArrayList<>(Math.min(limit, 1024));
+        long seq = fromSeq;
+        while (entries.size() < limit && seq < active.firstSequence()) {
+            ClosedSegment segment = closedSegments.floorEntry(seq).getValue();
+            int available = (int) Math.min(limit - entries.size(), segment.firstSequence() + segment.count() - seq);
+            entries.addAll(readClosed(segment, seq - segment.firstSequence(), available));
+            seq += available;
+        }
+        if (entries.size() < limit) entries.addAll(active.readRange(seq, limit - entries.size()));
+        return entries;
+    }
+
+    /**
+     * Iterates over the entries from the newest to the oldest. Closed segments are read one indexed block at a time
+     * when the iteration reaches them; it ends early at a segment removed by retention in the meantime.
+     *
+     * @return the iterator; it throws {@link UncheckedIOException} if a segment cannot be read
+     * @throws IOException if the active segment cannot be mapped
+     */
+    synchronized Iterator<ChangelogEntry> newestFirst() throws IOException {
+        ensureOpen();
+        Iterator<ChangelogEntry> newest = active.newestFirst();
+        Deque<ClosedSegment> older = new ArrayDeque<>(closedSegments.descendingMap().values());
+        return new Iterator<>() {
+            private Iterator<ChangelogEntry> current = newest;
+            private long block = -1;
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && !older.isEmpty()) {
+                    ClosedSegment segment = older.peek();
+                    if (segment.count() == 0) {
+                        older.poll();
+                        continue;
+                    }
+                    if (block < 0) block = (segment.count() - 1) / ChangelogSegment.INDEX_INTERVAL;
+                    long from = block * ChangelogSegment.INDEX_INTERVAL;
+                    try {
+                        List<ChangelogEntry> entries = readClosed(segment, from,
+                                (int) Math.min(ChangelogSegment.INDEX_INTERVAL, segment.count() - from));
+                        current = entries.reversed().iterator();
+                    } catch (NoSuchFileException e) {
+                        older.clear();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    if (--block < 0) older.poll();
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public ChangelogEntry next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return current.next();
+            }
+        };
+    }
+
+    /**
+     * @return the number of retained entries
+     * @throws IOException if the store cannot be opened
+     */
+    synchronized long count() throws IOException {
+        ensureOpen();
+        return active.firstSequence() + active.count() - firstSequence();
+    }
+
+    /**
+     * @return the sequence number of the oldest retained entry
+     * @throws IOException if the store cannot be opened
+     */
+    synchronized long firstSequence() throws IOException {
+        ensureOpen();
+        return closedSegments.isEmpty() ? active.firstSequence() : closedSegments.firstKey();
+    }
+
+    /**
+     * Waits briefly for the scheduled maintenance, closes the active segment and releases the lock on the directory.
+     * Compressions that did not finish are redone when the store is opened again.
+     *
+     * @throws IOException if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        ExecutorService running;
+        synchronized (this) {
+            running = maintenance;
+        }
+        if (running != null) {
+            running.shutdown();
+            try {
+                if (!running.awaitTermination(10, TimeUnit.SECONDS)) log.warn("Changelog maintenance did not finish in time");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            if (active == null) return;
+            try {
+                active.close();
+            } finally {
+                active = null;
+                maintenance = null;
+                closedSegments.clear();
+                unlock();
+            }
+        }
+    }
+
+    /**
+     * Opens the store on first use: locks the directory, migrates older changelogs, finds the segments, opens the
+     * active one and schedules the compression of closed segments left uncompressed and the retention policy.
+     *
+     * @throws ChangelogLockedException if another store, in this or another process, has the directory open
+     * @throws IOException if the directory cannot be read or the active segment cannot be opened
+     */
+    private void ensureOpen() throws IOException {
+        if (active != null) return;
+        Files.createDirectories(directory);
+        lock();
+        try {
+            openSegments();
+        } catch (IOException | RuntimeException e) {
+            unlock();
+            throw e;
+        }
+        maintenance = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "changelog-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        closedSegments.values().stream().filter(segment -> !segment.compressed())
+                .forEach(segment -> schedule(() -> compress(segment)));
+        schedule(this::applyRetention);
+    }
+
+    /**
+     * Takes an exclusive lock on the lock file of the directory, without waiting.
+     *
+     * @throws ChangelogLockedException if the lock is held by another store, in this or another process
+     * @throws IOException if the lock file cannot be opened
+     */
+    private void lock() throws IOException {
+        Path lockFile = directory.resolve(LOCK_FILE);
+        FileChannel channel = FileChannel.open(lockFile, CREATE, WRITE);
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            channel.close();
+            throw new ChangelogLockedException("Changelog " + directory + " is already open in this process", e);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        if (lock == null) {
+            channel.close();
+            throw new ChangelogLockedException("Changelog " + directory + " is in use by another process, lock " + lockFile);
+        }
+        lockChannel = channel;
+    }
+
+    /**
+     * Releases the lock on the directory, if it is held. Closing the channel releases the lock.
+     */
+    private void unlock() {
+        if (lockChannel == null) return;
+        try {
+            lockChannel.close();
+        } catch (IOException e) {
+            log.warn("Could not release the changelog lock {}", directory.resolve(LOCK_FILE), e);
+        } finally {
+            lockChannel = null;
+        }
+    }
+
+    /**
+     * Finds the segments, migrating an older changelog if there are none, and opens the active one.
+     *
+     * @throws IOException if the directory cannot be read or the active segment cannot be opened
+     */
+    private void openSegments() throws IOException {
+        NavigableMap<Long, Path> files = findSegments();
+        if (files.isEmpty()) {
+            migrateOlderChangelog();
+            files = findSegments();
+        }
+        closedSegments.clear();
+        if (files.isEmpty() || files.lastEntry().getValue().getFileName().toString().endsWith(".gz")) {
+            long next = files.isEmpty() ? 0 : files.lastKey() + ClosedSegments.count(files.lastEntry().getValue());
+            files.put(next, segmentFile(next, false));
+        }
+        Map.Entry<Long, Path> newest = files.pollLastEntry();
+        ChangelogSegment opened = new ChangelogSegment(newest.getValue(), newest.getKey());
+        opened.count();
+        Long next = newest.getKey();
+        for (Map.Entry<Long, Path> file : files.descendingMap().entrySet()) {
+            closedSegments.put(file.getKey(), new ClosedSegment(file.getKey(), next - file.getKey(), file.getValue(), null));
+            next = file.getKey();
+        }
+        active = opened;
+    }
+
+    /**
+     * Lists the segment files, removing temporary files of interrupted writes and uncompressed copies of segments
+     * whose compressed copy is complete.
+     *
+     * @return the segment files by their first sequence number
+     * @throws IOException if the directory cannot be read
+     */
+    private NavigableMap<Long, Path> findSegments() throws IOException {
+        NavigableMap<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                Matcher matcher = SEGMENT_NAME.matcher(name);
+                if (name.endsWith(".tmp")) {
+                    Files.deleteIfExists(file);
+                } else if (matcher.matches()) {
+                    long first = Long.parseLong(matcher.group(1));
+                    Path other = files.get(first);
+                    if (other == null) {
+                        files.put(first, file);
+                    } else {
+                        boolean compressed = matcher.group(2) != null;
+                        Files.deleteIfExists(compressed ? other : file);
+                        if (compressed) files.put(first, file);
+                    }
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Moves the single-file changelog into the directory, or converts the legacy changelog, as the first segment.
+     *
+     * @throws IOException if the older changelog cannot be read or moved
+     */
+    @SuppressWarnings("unchecked")
+    private void migrateOlderChangelog() throws IOException {
+        Path first = segmentFile(0, false);
+        if (Files.exists(singleFile)) {
+            Files.move(singleFile, first, ATOMIC_MOVE);
+            log.info("Moved changelog {} to segment {}", singleFile, first);
+        } else if (Files.exists(legacyFile)) {
+            List<ChangelogEntry> entries = List.of();
+            if (Files.size(legacyFile) > 0) {
+                try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(legacyFile)))) {
+                    entries = (List<ChangelogEntry>) ois.readObject();
+                } catch (ClassNotFoundException | ClassCastException e) {
+                    throw new IOException("Legacy changelog " + legacyFile + " cannot be read", e);
+                }
+            }
+            ChangelogSegment.create(first, entries);
+            Files.move(legacyFile, legacyFile.resolveSibling(legacyFile.getFileName() + ".migrated"), REPLACE_EXISTING);
+            log.info("Migrated {} changelog entries from {} to {}", entries.size(), legacyFile, first);
+        }
+    }
+
+    /**
+     * @return whether the active segment is full, by size or by the age of its oldest entry
+     * @throws IOException if the active segment cannot be read
+     */
+    private boolean rotationDue() throws IOException {
+        if (active.count() == 0) return false;
+        if (maxSegmentBytes > 0 && active.size() >= maxSegmentBytes) return true;
+        LocalDateTime oldest = active.firstTimestamp();
+        return !maxSegmentAge.isZero() && oldest != null && oldest.plus(maxSegmentAge).isBefore(LocalDateTime.now());
+    }
+
+    /**
+     * Closes the active segment, starts the next one and schedules the compression and the retention policy.
+     *
+     * @throws IOException if the active segment cannot be synced or the next one cannot be created
+     */
+    private void rotate() throws IOException {
+        active.force();
+        long next = active.firstSequence() + active.count();
+        ChangelogSegment created = new ChangelogSegment(segmentFile(next, false), next);
+        created.count();
+        ClosedSegment segment = new ClosedSegment(active.firstSequence(), active.count(), active.file(), active.checkpoints());
+        active.close();
+        closedSegments.put(segment.firstSequence(), segment);
+        active = created;
+        log.info("Changelog segment {} closed with {} entries", segment.file(), segment.count());
+        schedule(() -> compress(segment));
+        schedule(this::applyRetention);
+    }
+
+    /**
+     * Runs a maintenance task on the maintenance thread. Tasks scheduled while the store is closing are dropped;
+     * the next opening schedules them again.
+     *
+     * @param task the task
+     */
+    private void schedule(Runnable task) {
+        try {
+            maintenance.execute(task);
+        } catch (RejectedExecutionException e) {
+            log.debug("Changelog maintenance skipped while closing");
+        }
+    }
+
+    /**
+     * Compresses a closed segment to a temporary file, renames it once complete and removes the uncompressed one.
+     * Runs on the maintenance thread; the store is only locked to swap the segment files. If the uncompressed file
+     * cannot be deleted yet, it is tried again after the next rotation.
+     *
+     * @param segment the closed, uncompressed segment
+     */
+    private void compress(ClosedSegment segment) {
+        Path compressed = segmentFile(segment.firstSequence(), true);
+        Path temporary = compressed.resolveSibling(compressed.getFileName() + ".tmp");
+        try {
+            ClosedSegments.compress(segment.file(), temporary);
+            Files.setLastModifiedTime(temporary, Files.getLastModifiedTime(segment.file()));
+            Files.move(temporary, compressed, ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not compress changelog segment {}", segment.file(), e);
+            deleteQuietly(temporary);
+            return;
+        }
+        synchronized (this) {
+            if (!segment.equals(closedSegments.get(segment.firstSequence()))) {
+                // removed by retention or the store was closed meanwhile; the next opening sorts out the files
+                return;
+            }
+            closedSegments.put(segment.firstSequence(), new ClosedSegment(segment.firstSequence(), segment.count(), compressed, null));
+        }
+        if (!deleteQuietly(segment.file())) {
+            synchronized (this) {
+                undeletedFiles.add(segment.file());
+            }
+        }
+    }
+
+    /**
+     * Removes the oldest closed segments that are older or beyond the size limit of the retention policy,
+     * and the uncompressed files that could not be deleted after compression. Runs on the maintenance thread.
+     */
+    private synchronized void applyRetention() {
+        if (active == null) return;
+        undeletedFiles.removeIf(ChangelogStore::deleteQuietly);
+        long total = closedSegments.values().stream().mapToLong(segment -> sizeOf(segment.file())).sum() + sizeOf(active.file());
+        long cutoff = System.currentTimeMillis() - retentionAge.toMillis();
+        while (!closedSegments.isEmpty()) {
+            ClosedSegment oldest = closedSegments.firstEntry().getValue();
+            boolean expired = !retentionAge.isZero() && lastModified(oldest.file()) < cutoff;
+            boolean oversized = retentionBytes > 0 && total > retentionBytes;
+            if (!expired && !oversized) return;
+            long size = sizeOf(oldest.file());
+            try {
+                if (archiveDirectory != null) {
+                    Files.createDirectories(archiveDirectory);
+                    Files.move(oldest.file(), archiveDirectory.resolve(oldest.file().getFileName()), REPLACE_EXISTING);
+                } else {
+                    Files.deleteIfExists(oldest.file());
+                }
+            } catch (IOException e) {
+                log.warn("Could not remove changelog segment {}", oldest.file(), e);
+                return;
+            }
+            closedSegments.pollFirstEntry();
+            total -= size;
+            log.info("Changelog segment {} with {} entries {} by the retention policy", oldest.file(), oldest.count(),
+                    archiveDirectory != null ? "archived" : "deleted");
+        }
+    }
+
+    /**
+     * Reads consecutive entries of a closed segment from its current file, compressed or not.
+     *
+     * @param segment the closed segment
+     * @param index the position of the first entry in the segment
+     * @param limit the number of entries to read
+     * @return the entries, oldest first
+     * @throws IOException if the segment cannot be read
+     */
+    private synchronized List<ChangelogEntry> readClosed(ClosedSegment segment, long index, int limit) throws IOException {
+        ClosedSegment current = closedSegments.getOrDefault(segment.firstSequence(), segment);
+        return ClosedSegments.readRange(current.file(), current.checkpoints(), index, limit);
+    }
+
+    /**
+     * @param firstSequence the sequence number of the first entry of the segment
+     * @param compressed whether the name of the compressed file is wanted
+     * @return the path of the segment file
+     */
+    private Path segmentFile(long firstSequence, boolean compressed) {
+        return directory.resolve("segment-%020d.log%s".formatted(firstSequence, compressed ? ".gz" : ""));
+    }
+
+    /**
+     * @param file a segment file
+     * @return its size, or 0 if it cannot be read
+     */
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @param file a segment file
+     * @return its modification time in milliseconds, or the current time if it cannot be read
+     */
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Deletes a file, logging a failure.
+     *
+     * @param file the file
+     * @return whether the file is gone
+     */
+    private static boolean deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+            return true;
+        } catch (IOException e) {
+            log.warn("Could not delete {}", file, e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package hr.java.corporatetravelriskassessmenttool.changelog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Writes changelog entries to a {@link ChangelogStore} asynchronously, with group commits.
+ * <p>
+ * Any number of threads submit entries to a bounded queue; a single writer thread drains whatever has accumulated,
+ * up to the maximum batch size, and appends it with one write. Submitting only enqueues the entry, so repository
+ * operations no longer wait for file I/O. When the queue is full, submitting threads block until the writer catches
+ * up, which bounds the memory held by pending entries.
+ * </p>
+ * <p>
+ * When written batches are forced to the storage device depends on the {@link FlushPolicy}; in every case the writer
+ * drains the queue and syncs the segment when it is closed, either on application stop or by a shutdown hook.
+ * {@link #flush()} waits until the entries submitted so far are written, so readers see their own changes.
+ * </p>
+ */
+final class ChangelogWriter implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(ChangelogWriter.class);
+    private static final ChangelogEntry SHUTDOWN = new ChangelogEntry(null, null, null, null, null);
+
+    private final ChangelogStore store;
+    private final BlockingQueue<ChangelogEntry> queue;
+    private final int maxBatchSize;
+    private final FlushPolicy flushPolicy;
+    private final long flushIntervalMillis;
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong blockedSubmits = new AtomicLong();
+    private final Object progress = new Object();
+    private final ReadWriteLock state = new ReentrantReadWriteLock();
+    private long processed;
+    private long batches;
+    private Thread writer;
+    private boolean closed;
+
+    /**
+     * When written entries are forced to the storage device.
+     */
+    enum FlushPolicy {
+        /** After every batch; one sync covers all entries of the batch. */
+        EVERY_WRITE,
+        /** At most once per flush interval, as long as there are unsynced entries. */
+        INTERVAL,
+        /** Only when the writer is closed; the operating system decides until then. */
+        ON_SHUTDOWN
+    }
+
+    /**
+     * Counters of the writer.
+     *
+     * @param pending the number of entries waiting in the queue
+     * @param written the number of entries written or dropped after a failed write
+     * @param batches the number of group commits
+     * @param blockedSubmits the number of submits that had to wait for free space in the queue
+     */
+    record WriterMetrics(int pending, long written, long batches, long blockedSubmits) {
+    }
+
+    /**
+     * Creates a writer configured by the {@code writer.*} properties; the writer thread starts with the first entry.
+     *
+     * @param store the store the entries are appended to
+     * @param props the changelog properties
+     */
+    ChangelogWriter(ChangelogStore store, Properties props) {
+        this.store = store;
+        this.queue = new ArrayBlockingQueue<>(Integer.parseInt(props.getProperty("writer.queueCapacity", "4096").trim()));
+        this.maxBatchSize = Integer.parseInt(props.getProperty("writer.maxBatchSize", "512").trim());
+        this.flushPolicy = FlushPolicy.valueOf(props.getProperty("writer.flushPolicy", "INTERVAL").trim());
+        this.flushIntervalMillis = Long.parseLong(props.getProperty("writer.flushIntervalMillis", "1000").trim());
+    }
+
+    /**
+     * Queues an entry for writing, blocking while the queue is full.
+     * After the writer has been closed, the entry is appended and synced directly instead, once the writer thread
+     * has written the entries queued before, so it still comes after them.
+     *
+     * @param entry the entry to write
+     * @throws IOException if the writer is closed and the entry cannot be written directly
+     */
+    void submit(ChangelogEntry entry) throws IOException {
+        // the read lock keeps close() from passing while an entry is being queued
+        state.readLock().lock();
+        try {
+            if (!closed) {
+                startIfNeeded();
+                if (!queue.offer(entry)) {
+                    blockedSubmits.incrementAndGet();
+                    queue.put(entry);
+                }
+                submitted.incrementAndGet();
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting to log a change", e);
+        } finally {
+            state.readLock().unlock();
+        }
+        awaitWriter();
+        store.append(entry);
+        store.force();
+    }
+
+    /**
+     * Waits until every entry submitted before the call has been written to the segment.
+     */
+    void flush() {
+        long target = submitted.get();
+        synchronized (progress) {
+            while (processed < target && isRunning()) {
+                try {
+                    progress.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the current counters of the writer
+     */
+    WriterMetrics getMetrics() {
+        synchronized (progress) {
+            return new WriterMetrics(queue.size(), processed, batches, blockedSubmits.get());
+        }
+    }
+
+    /**
+     * Stops accepting entries, writes and syncs all queued ones and stops the writer thread.
+     * Calling it again has no effect.
+     */
+    @Override
+    public void close() {
+        Thread running;
+        state.writeLock().lock();
+        try {
+            if (closed) return;
+            closed = true;
+            running = currentWriter();
+        } finally {
+            state.writeLock().unlock();
+        }
+        if (running == null) return;
+        try {
+            queue.put(SHUTDOWN);
+            running.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while closing the changelog writer, {} entries may be lost", queue.size());
+        }
+    }
+
+    /**
+     * Starts the writer thread and registers the shutdown hook with the first entry.
+     */
+    private synchronized void startIfNeeded() {
+        if (writer != null) return;
+        writer = new Thread(this::run, "changelog-writer");
+        writer.setDaemon(true);
+        writer.start();
+        try {
+            Runtime.getRuntime().addShutdownHook(new Thread(this::close, "changelog-writer-shutdown"));
+        } catch (IllegalStateException e) {
+            log.warn("Changelog writer started during shutdown, pending changes are only written when it is closed");
+        }
+    }
+
+    /**
+     * @return the writer thread, or {@code null} if it was never started
+     */
+    private synchronized Thread currentWriter() {
+        return writer;
+    }
+
+    /**
+     * Waits until the writer thread has ended, after close() has queued the shutdown marker.
+     *
+     * @throws IOException if interrupted while waiting
+     */
+    private void awaitWriter() throws IOException {
+        Thread running = currentWriter();
+        if (running == null) return;
+        try {
+            running.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the changelog writer to stop", e);
+        }
+    }
+
+    /**
+     * @return whether the writer thread is alive to make progress
+     */
+    private boolean isRunning() {
+        Thread running = currentWriter();
+        return running != null && running.isAlive();
+    }
+
+    /**
+     * Writer loop: waits for entries, appends them in batches and syncs them as the flush policy requires.
+     * Ends after the shutdown marker, with everything before it written and synced.
+     */
+    private void run() {
+        List<ChangelogEntry> batch = new ArrayList<>(maxBatchSize);
+        boolean unsynced = false;
+        long lastSync = System.currentTimeMillis();
+        boolean shutdown = false;
+        while (!shutdown) {
+            ChangelogEntry first;
+            try {
+                first = unsynced && flushPolicy == FlushPolicy.INTERVAL
+                        ? queue.poll(Math.max(0, lastSync + flushIntervalMillis - System.currentTimeMillis()), TimeUnit.MILLISECONDS)
+                        : queue.take();
+            } catch (InterruptedException e) {
+                // the writer is only stopped through the shutdown marker
+                continue;
+            }
+            if (first != null) {
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                shutdown = batch.remove(SHUTDOWN);
+                unsynced |= writeBatch(batch);
+                batch.clear();
+            }
+            boolean syncDue = switch (flushPolicy) {
+                case EVERY_WRITE -> true;
+                case INTERVAL -> System.currentTimeMillis() - lastSync >= flushIntervalMillis;
+                case ON_SHUTDOWN -> false;
+            };
+            if (unsynced && (syncDue || shutdown)) {
+                sync();
+                unsynced = false;
+                lastSync = System.currentTimeMillis();
+            }
+        }
+        try {
+            store.close();
+        } catch (IOException e) {
+            log.warn("Error closing log file", e);
+        }
+    }
+
+    /**
+     * Appends a batch as one group commit and reports the progress to waiting readers.
+     *
+     * @param batch the entries to append
+     * @return whether anything was written
+     */
+    private boolean writeBatch(List<ChangelogEntry> batch) {
+        if (batch.isEmpty()) return false;
+        boolean written = false;
+        try {
+            written = store.appendAll(batch) > 0;
+        } catch (IOException | RuntimeException e) {
+            log.error("Error writing {} changes to log file", batch.size(), e);
+        }
+        synchronized (progress) {
+            processed += batch.size();
+            batches++;
+            progress.notifyAll();
+        }
+        return written;
+    }
+
+    /**
+     * Forces the written entries to the storage device, logging a failure.
+     */
+    private void sync() {
+        try {
+            store.force();
+        } catch (IOException e) {
+            log.error("Error syncing log file", e);
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package hr.java.corporatetravelriskassessmenttool.changelog;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static hr.java.corporatetravelriskassessmenttool.changelog.ChangelogSegment.*;
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Compresses and reads the changelog segments that no longer receive entries, without loading them whole.
+ * <p>
+ * A segment is compressed as a series of gzip members: the first holds the file header, and every other one
+ * {@value ChangelogSegment#INDEX_INTERVAL} records. An index footer follows the members, uncompressed: the file offset
+ * of every record member as a long, then the number of records as a long, and the number of records per member, the
+ * number of record members and the magic number {@code CHLX} as ints. A range is read by seeking to the member holding
+ * its first record and inflating from there as a stream, skipping the records before it by their length prefixes;
+ * at most one member is inflated in vain.
+ * Concatenated members are a valid gzip file, so standard tools can still inflate a segment, ignoring the footer.
+ * A segment compressed before the footer existed is inflated from its start, still as a stream.
+ * </p>
+ * <p>
+ * An uncompressed closed segment is read with positional reads, starting at the record offsets that
+ * {@link ChangelogSegment#checkpoints()} indexed while it was active, or at its start if it was closed before the store
+ * was opened; it is compressed shortly after either way. Closed segments are never mapped, so their files
+ * can be deleted as soon as they are compressed or retired, also on systems that do not delete mapped files.
+ * </p>
+ */
+final class ClosedSegments {
+    static final int FOOTER_MAGIC = 0x43484C58;
+    static final int FOOTER_TAIL_SIZE = Long.BYTES + 3 * Integer.BYTES;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Where the records of a closed segment file start.
+     *
+     * @param compressed whether the file is compressed
+     * @param blockSize the number of records per indexed block
+     * @param blockOffsets the file offset of the first record of every block, or of the gzip member holding the block;
+     *                     {@code null} if the file has no index and is read from its start
+     * @param end the position after the last byte of record data
+     */
+    private record Layout(boolean compressed, int blockSize, long[] blockOffsets, long end) {
+    }
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private ClosedSegments() {
+    }
+
+    /**
+     * Compresses a closed segment into one gzip member per block of records followed by the index footer,
+     * and forces the result to the storage device.
+     *
+     * @param source the uncompressed segment
+     * @param target the compressed file to write, replaced if it exists
+     * @throws IOException if the segment cannot be read, is damaged, or the target cannot be written
+     */
+    static void compress(Path source, Path target) throws IOException {
+        try (FileChannel in = FileChannel.open(source, READ);
+             FileChannel out = FileChannel.open(target, CREATE, TRUNCATE_EXISTING, WRITE)) {
+            DataInputStream records = new DataInputStream(
+                    new BufferedInputStream(new ChannelInputStream(in, 0, in.size()), READ_BUFFER_SIZE));
+            OutputStream file = new ChannelOutputStream(out);
+            byte[] header = records.readNBytes(FILE_HEADER_SIZE);
+            checkHeader(ByteBuffer.wrap(header), source);
+            GZIPOutputStream member = new GZIPOutputStream(file, READ_BUFFER_SIZE);
+            member.write(header);
+            List<Long> blockOffsets = new ArrayList<>();
+            byte[] buffer = new byte[READ_BUFFER_SIZE];
+            long count = 0;
+            for (int length = readLength(records, source); length >= 0; length = readLength(records, source), count++) {
+                if (count % INDEX_INTERVAL == 0) {
+                    member.close();
+                    blockOffsets.add(out.position());
+                    member = new GZIPOutputStream(file, READ_BUFFER_SIZE);
+                }
+                ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE).putInt(length).putInt(records.readInt());
+                member.write(recordHeader.array());
+                for (long left = (long) length + RECORD_TRAILER_SIZE; left > 0; ) {
+                    int read = records.read(buffer, 0, (int) Math.min(buffer.length, left));
+                    if (read < 0) throw new EOFException("Changelog " + source + " ends inside record " + count);
+                    member.write(buffer, 0, read);
+                    left -= read;
+                }
+            }
+            member.close();
+            ByteBuffer footer = ByteBuffer.allocate(blockOffsets.size() * Long.BYTES + FOOTER_TAIL_SIZE);
+            blockOffsets.forEach(footer::putLong);
+            footer.putLong(count).putInt(INDEX_INTERVAL).putInt(blockOffsets.size()).putInt(FOOTER_MAGIC).flip();
+            while (footer.hasRemaining()) {
+                out.write(footer);
+            }
+            out.force(true);
+        }
+    }
+
+    /**
+     * Counts the records of a closed segment, from the index footer if it has one.
+     *
+     * @param file the segment file
+     * @return the number of records
+     * @throws IOException if the segment cannot be read
+     */
+    static long count(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            if (compressed(file)) {
+                ByteBuffer tail = readTail(channel);
+                if (tail != null) return tail.getLong(0);
+            }
+            Layout layout = layout(file, channel, null);
+            try (DataInputStream in = open(channel, layout, 0, file)) {
+                long records = 0;
+                while (skipRecord(in, file)) {
+                    records++;
+                }
+                return records;
+            }
+        }
+    }
+
+    /**
+     * Reads consecutive entries of a closed segment.
+     *
+     * @param file the segment file, compressed if its name ends with {@code .gz}
+     * @param checkpoints the record offsets indexed while the segment was active, used if it is not compressed;
+     *                    {@code null} to read from its start
+     * @param index the position of the first entry in the segment
+     * @param limit the number of entries to read, all present in the segment
+     * @return the entries, oldest first
+     * @throws IOException if the segment cannot be read, a record is damaged or the segment ends first
+     */
+    static List<ChangelogEntry> readRange(Path file, long[] checkpoints, long index, int limit) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            Layout layout = layout(file, channel, checkpoints);
+            int block = layout.blockOffsets() == null ? 0 : (int) (index / layout.blockSize());
+            if (layout.blockOffsets() != null && block >= layout.blockOffsets().length) {
+                throw new EOFException("Changelog " + file + " ends before record " + index);
+            }
+            try (DataInputStream in = open(channel, layout, block, file)) {
+                for (long skip = index - (long) block * layout.blockSize(); skip > 0; skip--) {
+                    if (!skipRecord(in, file)) throw new EOFException("Changelog " + file + " ends before record " + index);
+                }
+                List<ChangelogEntry> entries = new ArrayList<>(limit);
+                for (int i = 0; i < limit; i++) {
+                    entries.add(readRecord(in, file));
+                }
+                return entries;
+            }
+        }
+    }
+
+    /**
+     * @param file a segment file
+     * @return whether it is compressed
+     */
+    private static boolean compressed(Path file) {
+        return file.getFileName().toString().endsWith(".gz");
+    }
+
+    /**
+     * Finds where the records of a segment file start, reading the index footer of a compressed one.
+     *
+     * @param file the segment file
+     * @param channel the open file
+     * @param checkpoints the record offsets of an uncompressed segment, or {@code null}
+     * @return the layout
+     * @throws IOException if the file cannot be read
+     */
+    private static Layout layout(Path file, FileChannel channel, long[] checkpoints) throws IOException {
+        long size = channel.size();
+        if (!compressed(file)) return new Layout(false, INDEX_INTERVAL, checkpoints, size);
+        ByteBuffer tail = readTail(channel);
+        if (tail == null) return new Layout(true, 0, null, size);
+        int blockSize = tail.getInt(Long.BYTES);
+        int blocks = tail.getInt(Long.BYTES + Integer.BYTES);
+        long end = size - FOOTER_TAIL_SIZE - (long) blocks * Long.BYTES;
+        long[] offsets = new long[blocks];
+        readAt(channel, end, blocks * Long.BYTES).asLongBuffer().get(offsets);
+        for (int i = 0; i < blocks; i++) {
+            if (offsets[i] <= 0 || offsets[i] >= end || i > 0 && offsets[i] <= offsets[i - 1]) {
+                throw new IOException("Invalid index footer in changelog " + file);
+            }
+        }
+        return new Layout(true, blockSize, offsets, end);
+    }
+
+    /**
+     * Reads the fixed-size end of the index footer of a compressed segment.
+     *
+     * @param channel the open file
+     * @return the count, the block size, the number of blocks and the magic number, or {@code null} if the file
+     * has no footer
+     * @throws IOException if the file cannot be read
+     */
+    private static ByteBuffer readTail(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < FOOTER_TAIL_SIZE) return null;
+        ByteBuffer tail = readAt(channel, size - FOOTER_TAIL_SIZE, FOOTER_TAIL_SIZE);
+        int blockSize = tail.getInt(Long.BYTES);
+        int blocks = tail.getInt(Long.BYTES + Integer.BYTES);
+        boolean valid = tail.getInt(Long.BYTES + 2 * Integer.BYTES) == FOOTER_MAGIC && blockSize > 0 && blocks >= 0
+                && size - FOOTER_TAIL_SIZE >= (long) blocks * Long.BYTES && tail.getLong(0) >= 0;
+        return valid ? tail : null;
+    }
+
+    /**
+     * Opens a stream of records starting at an indexed block, after checking the file header if it is read.
+     *
+     * @param channel the open file
+     * @param layout the layout of the file
+     * @param block the block to start at; 0 if the file has no index
+     * @param file the segment file, for error messages
+     * @return the stream, positioned at the first record of the block
+     * @throws IOException if the file header is invalid or cannot be read
+     */
+    private static DataInputStream open(FileChannel channel, Layout layout, int block, Path file) throws IOException {
+        boolean fromStart = layout.blockOffsets() == null;
+        long position = fromStart ? 0 : layout.blockOffsets()[block];
+        InputStream in = new ChannelInputStream(channel, position, layout.end());
+        if (layout.compressed()) in = new GZIPInputStream(in, READ_BUFFER_SIZE);
+        DataInputStream records = new DataInputStream(new BufferedInputStream(in, READ_BUFFER_SIZE));
+        if (fromStart) checkHeader(ByteBuffer.wrap(records.readNBytes(FILE_HEADER_SIZE)), file);
+        return records;
+    }
+
+    /**
+     * @param header the first bytes of a segment
+     * @param file the segment file, for error messages
+     * @throws IOException if they are not the header of a current changelog segment
+     */
+    private static void checkHeader(ByteBuffer header, Path file) throws IOException {
+        if (header.limit() < FILE_HEADER_SIZE || header.getInt(0) != MAGIC || header.getShort(Integer.BYTES) != FORMAT_VERSION) {
+            throw new IOException(file + " is not a closed changelog segment");
+        }
+    }
+
+    /**
+     * Reads the length prefix of the next record.
+     *
+     * @param in the stream of records
+     * @param file the segment file, for error messages
+     * @return the payload length, or -1 at the end of the records
+     * @throws IOException if the length is invalid or the stream ends inside it
+     */
+    private static int readLength(DataInputStream in, Path file) throws IOException {
+        int first = in.read();
+        if (first < 0) return -1;
+        int length = first << 24 | in.readUnsignedByte() << 16 | in.readUnsignedByte() << 8 | in.readUnsignedByte();
+        if (length < 0 || length > MAX_PAYLOAD_SIZE) throw new IOException("Invalid record length " + length + " in changelog " + file);
+        return length;
+    }
+
+    /**
+     * Skips the next record by its length prefix, without reading its payload into memory.
+     *
+     * @param in the stream of records
+     * @param file the segment file, for error messages
+     * @return {@code false} at the end of the records
+     * @throws IOException if the record is truncated
+     */
+    private static boolean skipRecord(DataInputStream in, Path file) throws IOException {
+        int length = readLength(in, file);
+        if (length < 0) return false;
+        in.skipNBytes(Integer.BYTES + length + RECORD_TRAILER_SIZE);
+        return true;
+    }
+
+    /**
+     * Reads and verifies the next record.
+     *
+     * @param in the stream of records
+     * @param file the segment file, for error messages
+     * @return the entry
+     * @throws IOException if the record is damaged or missing
+     */
+    private static ChangelogEntry readRecord(DataInputStream in, Path file) throws IOException {
+        int length = readLength(in, file);
+        if (length < 0) throw new EOFException("Unexpected end of changelog " + file);
+        int checksum = in.readInt();
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        if (checksum(payload) != checksum || in.readInt() != length) {
+            throw new IOException("Record of changelog " + file + " is damaged");
+        }
+        return ChangelogCodec.decode(payload);
+    }
+
+    /**
+     * Reads a number of bytes at a position.
+     *
+     * @param channel the file
+     * @param position the file position
+     * @param size the number of bytes
+     * @return the bytes, ready to be read
+     * @throws IOException if reading fails or the file ends first
+     */
+    private static ByteBuffer readAt(FileChannel channel, long position, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) throw new EOFException("Unexpected end of changelog");
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Stream over a part of a file, read with positional reads so it does not share a position with other readers.
+     */
+    private static final class ChannelInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+
+        /**
+         * @param channel the file
+         * @param position the position of the first byte
+         * @param end the position after the last byte
+         */
+        private ChannelInputStream(FileChannel channel, long position, long end) {
+            this.channel = channel;
+            this.position = position;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) return 0;
+            if (position >= end) return -1;
+            int read = channel.read(ByteBuffer.wrap(bytes, offset, (int) Math.min(length, end - position)), position);
+            if (read > 0) position += read;
+            return read;
+        }
+
+        /**
+         * @return the bytes left, so that a {@link GZIPInputStream} goes on with the next member
+         */
+        @Override
+        public int available() {
+            return (int) Math.min(end - position, Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Stream appending to a file at its position; closing it leaves the file open for the next gzip member.
+     */
+    private static final class ChannelOutputStream extends OutputStream {
+        private final FileChannel channel;
+
+        /**
+         * @param channel the file
+         */
+        private ChannelOutputStream(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package hr.java.corporatetravelriskassessmenttool.changelog;
+
+import java.util.*;
+
+/**
+ * Read-only list view of the changelog that loads entries page by page when they are accessed.
+ * <p>
+ * The size and the first entry are fixed when the view is created. Only the most recently used pages are kept,
+ * so a virtualized control such as a {@code TableView} can scroll through millions of entries with constant memory.
+ * A page that cannot be read is not cached, and its entries are shown as placeholders without a timestamp.
+ * Entries removed by retention after the view was created are shown as placeholders as well.
+ * </p>
+ */
+public class PagedChangelogList extends AbstractList<ChangelogEntry> {
+    private static final int PAGE_SIZE = 256;
+    private static final int CACHED_PAGES = 8;
+
+    private final ChangelogRepository repository;
+    private final long first;
+    private final int size;
+    private final Map<Long, List<ChangelogEntry>> pages = new LinkedHashMap<>(CACHED_PAGES * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, List<ChangelogEntry>> eldest) {
+            return size() > CACHED_PAGES;
+        }
+    };
+
+    /**
+     * Creates a view of the entries currently in the changelog.
+     *
+     * @param repository the repository the pages are read from
+     */
+    public PagedChangelogList(ChangelogRepository repository) {
+        this.repository = repository;
+        this.first = repository.firstSequence();
+        this.size = (int) Math.min(repository.count(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns an entry, reading its page if it is not cached.
+     *
+     * @param index the position of the entry, 0 being the oldest when the view was created
+     * @return the entry
+     */
+    @Override
+    public ChangelogEntry get(int index) {
+        Objects.checkIndex(index, size);
+        long page = index / PAGE_SIZE;
+        List<ChangelogEntry> entries = pages.get(page);
+        if (entries == null) {
+            entries = readPage(page);
+            if (entries == null) {
+                return placeholder("Changelog entry " + index + " could not be read");
+            }
+            pages.put(page, entries);
+        }
+        return entries.get(index % PAGE_SIZE);
+    }
+
+    /**
+     * Reads a page. Entries removed by retention since the view was created are replaced by placeholders.
+     *
+     * @param page the number of the page
+     * @return the entries of the page, or {@code null} if they cannot all be read
+     */
+    private List<ChangelogEntry> readPage(long page) {
+        long from = first + page * PAGE_SIZE;
+        int expected = (int) Math.min(PAGE_SIZE, size - page * PAGE_SIZE);
+        int removed = Math.clamp(repository.firstSequence() - from, 0, expected);
+        List<ChangelogEntry> retained = removed == expected ? List.of() : repository.readRange(from + removed, expected - removed);
+        if (retained.size() < expected - removed) return null;
+        List<ChangelogEntry> entries = new ArrayList<>(expected);
+        for (int i = 0; i < removed; i++) {
+            entries.add(placeholder("Changelog entry " + (page * PAGE_SIZE + i) + " was removed by retention"));
+        }
+        entries.addAll(retained);
+        return entries;
+    }
+
+    /**
+     * @param message the text shown instead of the entry
+     * @return an entry without a timestamp
+     */
+    private static ChangelogEntry placeholder(String message) {
+        return new ChangelogEntry("", "", "", message, null);
+    }
+
+    /**
+     * @return the number of entries when the view was created
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+}
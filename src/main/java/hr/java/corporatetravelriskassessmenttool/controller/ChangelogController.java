@@ -2,20 +2,23 @@ package hr.java.corporatetravelriskassessmenttool.controller;
 
 import hr.java.corporatetravelriskassessmenttool.changelog.ChangelogEntry;
 import hr.java.corporatetravelriskassessmenttool.changelog.ChangelogRepository;
+import hr.java.corporatetravelriskassessmenttool.changelog.PagedChangelogList;
 import javafx.beans.property.SimpleStringProperty;
+import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 
 import java.time.format.DateTimeFormatter;
-import java.util.List;
+
+import static hr.java.corporatetravelriskassessmenttool.main.CorporateTravelRiskAssessmentApplication.changelogRepository;
 
 /**
  * Controller class responsible for displaying changelog entries.
  * <p>
  *     This controller:
  *     <ul>
- *         <li>Loads changelog entries from the {@link ChangelogRepository}</li>
+ *         <li>Pages changelog entries from the {@link ChangelogRepository} as they are scrolled into view</li>
  *         <li>Binds {@link ChangelogEntry} data to table columns</li>
  *     </ul>
  * </p>
@@ -37,17 +40,19 @@ public class ChangelogController {
 
     /**
      * Initializes the changelog table and binds specific properties of {@link ChangelogEntry} to table columns.
+     * The table is backed by a {@link PagedChangelogList}, so only the visible pages of the changelog are loaded;
+     * sorting is disabled because it would need every entry.
      */
     public void initialize() {
-        List<ChangelogEntry> changelogEntries = new ChangelogRepository().readAll();
-        changelogTableView.getItems().setAll(changelogEntries);
+        changelogTableView.setItems(FXCollections.observableList(new PagedChangelogList(changelogRepository)));
         actionTableColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getAction()));
         roleTableColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getRole()));
         messageTableColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getMessage()));
 
         DateTimeFormatter format = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm");
-        dateTimeTableColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getTimestamp()
-                .format(format)));
+        dateTimeTableColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getTimestamp() == null
+                ? "" : cellData.getValue().getTimestamp().format(format)));
+        changelogTableView.getColumns().forEach(column -> column.setSortable(false));
 
         actionTableColumn.setPrefWidth(100);
         roleTableColumn.setPrefWidth(100);
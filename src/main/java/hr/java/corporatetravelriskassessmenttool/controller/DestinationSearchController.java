@@ -4,12 +4,12 @@ import hr.java.corporatetravelriskassessmenttool.exception.RepositoryAccessExcep
 import hr.java.corporatetravelriskassessmenttool.model.Destination;
 import hr.java.corporatetravelriskassessmenttool.model.Risk;
 import hr.java.corporatetravelriskassessmenttool.model.User;
-import hr.java.corporatetravelriskassessmenttool.repository.AbstractRepository;
+import hr.java.corporatetravelriskassessmenttool.repository.DestinationCriteria;
 import hr.java.corporatetravelriskassessmenttool.repository.DestinationRepository;
+import hr.java.corporatetravelriskassessmenttool.utils.PagedTableLoader;
 import hr.java.corporatetravelriskassessmenttool.utils.ValidationUtils;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -54,21 +54,22 @@ public class DestinationSearchController implements RoleAware {
     @FXML
     private TableColumn<Destination, String> risksTableColumn;
     private User loggedUser;
-    AbstractRepository<Destination> destinationRepository = new DestinationRepository<>();
+    DestinationRepository<Destination> destinationRepository = new DestinationRepository<>();
+    private static final int PAGE_SIZE = 50;
+    private PagedTableLoader<Destination> destinationLoader;
 
     /**
-     * Initializes the controller, loads all destinations from the repository
-     * and sets up the table view and context menu.
+     * Initializes the controller, loads the first page of destinations from the repository
+     * and sets up the table view and context menu. Further pages are loaded while scrolling.
      */
     public void initialize()  {
-        ObservableList<Destination> destinations = FXCollections.observableArrayList();
+        destinationLoader = new PagedTableLoader<>(destinationTableView, destinationRepository, PAGE_SIZE);
         try{
-            destinations = FXCollections.observableArrayList(destinationRepository.findAll());
+            destinationLoader.reload();
         }catch(RepositoryAccessException e){
             log.error("Error while fetching destinations from DB {}", e.getMessage(), e);
             ValidationUtils.showError("Error while fetching destinations", e.getMessage());
         }
-        destinationTableView.setItems(destinations);
         destinationTableView.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
         idTableColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getId().toString()));
         countryTableColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getCountry()));
@@ -98,20 +99,15 @@ public class DestinationSearchController implements RoleAware {
      * Filters the displayed destinations based on the entered country and city.
      */
     public void filterDestinations()  {
-        String city = cityTextField.getText();
-        List<Destination> destinations = destinationRepository.findAll();
-        if(!city.isEmpty()){
-            destinations = destinations.stream()
-                    .filter(destination -> destination.getCity().toLowerCase().contains(city.toLowerCase()))
-                    .toList();
-        }
-        String country = countryTextField.getText();
-        if(!country.isEmpty()){
-            destinations = destinations.stream()
-                    .filter(destination -> destination.getCountry().toLowerCase().contains(country.toLowerCase()))
-                    .toList();
+        DestinationCriteria criteria = new DestinationCriteria()
+                .cityContains(cityTextField.getText())
+                .countryContains(countryTextField.getText());
+        try{
+            destinationTableView.setItems(FXCollections.observableArrayList(destinationRepository.findMatching(criteria)));
+        }catch(RepositoryAccessException e){
+            log.error("Error while filtering destinations {}", e.getMessage(), e);
+            ValidationUtils.showError("Error while filtering destinations", e.getMessage());
         }
-        destinationTableView.setItems(FXCollections.observableArrayList(destinations));
     }
 
     /**
@@ -196,13 +192,11 @@ public class DestinationSearchController implements RoleAware {
     }
 
     /**
-     * Reloads all destinations and refreshes the table view after an update.
+     * Reloads the first page of destinations and refreshes the table view after an update.
      */
     public void reloadDestinationTable(){
         try{
-            List<Destination> destinations = destinationRepository.findAll();
-            destinationTableView.setItems(FXCollections.observableArrayList(destinations));
-
+            destinationLoader.reload();
         }catch(RepositoryAccessException e){
             log.error("Failed to reload destinations {}", e.getMessage(), e);
             ValidationUtils.showError("Failed to reload destinations", e.getMessage());
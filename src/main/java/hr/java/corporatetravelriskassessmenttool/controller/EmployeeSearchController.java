@@ -4,12 +4,12 @@ package hr.java.corporatetravelriskassessmenttool.controller;
 import hr.java.corporatetravelriskassessmenttool.exception.RepositoryAccessException;
 import hr.java.corporatetravelriskassessmenttool.model.Employee;
 import hr.java.corporatetravelriskassessmenttool.model.User;
-import hr.java.corporatetravelriskassessmenttool.repository.AbstractRepository;
+import hr.java.corporatetravelriskassessmenttool.repository.EmployeeCriteria;
 import hr.java.corporatetravelriskassessmenttool.repository.EmployeeRepository;
+import hr.java.corporatetravelriskassessmenttool.utils.PagedTableLoader;
 import hr.java.corporatetravelriskassessmenttool.utils.ValidationUtils;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -21,9 +21,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.math.BigDecimal;
-import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
 import java.util.Optional;
 
 /**
@@ -68,21 +66,22 @@ public class EmployeeSearchController implements RoleAware {
     @FXML
     private DatePicker birthDatePicker;
 
-    private AbstractRepository<Employee> employeeRepository = new EmployeeRepository<>();
+    private static final int PAGE_SIZE = 50;
+    private EmployeeRepository<Employee> employeeRepository = new EmployeeRepository<>();
+    private PagedTableLoader<Employee> employeeLoader;
 
     /**
-     * Initializes the controller, loads all employees from the repository
-     * and sets up the table view and context menu.
+     * Initializes the controller, loads the first page of employees from the repository
+     * and sets up the table view and context menu. Further pages are loaded while scrolling.
      */
     public void initialize() {
-        ObservableList<Employee> employees = FXCollections.observableArrayList();
+        employeeLoader = new PagedTableLoader<>(employeeTableView, employeeRepository, PAGE_SIZE);
         try{
-            employees = FXCollections.observableArrayList(employeeRepository.findAll());
+            employeeLoader.reload();
         }catch(RepositoryAccessException e){
             log.error("Error while fetching employees {}", e.getMessage(), e);
             ValidationUtils.showError("Error while fetching employees", e.getMessage());
         }
-        employeeTableView.setItems(employees);
         employeeTableView.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
         idTableColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getId().toString()));
         nameTableColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getName()));
@@ -99,39 +98,25 @@ public class EmployeeSearchController implements RoleAware {
      * Filters employees by entered search criteria.
      */
     public void filterEmployees() {
-        List<Employee> employeeList = employeeRepository.findAll();
-        String employeeName = nameTextField.getText();
-        if(!employeeName.isEmpty()){
-            employeeList = employeeList.stream().filter(employee ->
-                    employee.getName().toLowerCase().contains(employeeName.toLowerCase())).toList();
-        }
-        String jobTitle = jobTitleTextField.getText();
-        if(!jobTitle.isEmpty()){
-            employeeList = employeeList.stream().filter(employee -> employee.getJobTitle().toLowerCase()
-                    .contains(jobTitle.toLowerCase())).toList();
-        }
-        String department = departmentTextField.getText();
-        if(!department.isEmpty()){
-            employeeList = employeeList.stream().filter(employee ->
-                employee.getDepartment().toLowerCase().contains(department.toLowerCase())).toList();
-        }
+        EmployeeCriteria criteria = new EmployeeCriteria()
+                .nameContains(nameTextField.getText())
+                .jobTitleContains(jobTitleTextField.getText())
+                .departmentContains(departmentTextField.getText())
+                .bornAfter(birthDatePicker.getValue());
         if(!salaryTextField.getText().isEmpty()){
             try {
-                BigDecimal salary = new BigDecimal(salaryTextField.getText());
-                employeeList = employeeList.stream().filter(employee -> employee.getSalary().compareTo(salary) > 0).toList();
+                criteria.salaryAbove(new BigDecimal(salaryTextField.getText()));
             }catch(NumberFormatException e){
                 log.warn("Invalid salary input when trying to filter employees", e);
                 ValidationUtils.showError("Invalid salary format", "Please enter a valid salary (e.g., 5000.00)");
             }
         }
-        Optional<LocalDate> dateOfBirth = Optional.ofNullable(birthDatePicker.getValue());
-        if(dateOfBirth.isPresent() && !dateOfBirth.get().toString().isEmpty()) {
-            employeeList = employeeList.stream()
-                    .filter(employee -> employee.getDateOfBirth().isAfter(dateOfBirth.get()))
-                    .toList();
+        try{
+            employeeTableView.setItems(FXCollections.observableList(employeeRepository.findMatching(criteria)));
+        }catch(RepositoryAccessException e){
+            log.error("Error while filtering employees {}", e.getMessage(), e);
+            ValidationUtils.showError("Error while filtering employees", e.getMessage());
         }
-        ObservableList<Employee> employeeObservableList = FXCollections.observableList(employeeList);
-        employeeTableView.setItems(employeeObservableList);
     }
 
     /**
@@ -223,9 +208,7 @@ public class EmployeeSearchController implements RoleAware {
      */
     public void reloadEmployeeTable() {
         try{
-            List<Employee> employee = employeeRepository.findAll();
-            employeeTableView.setItems(FXCollections.observableArrayList(employee));
-
+            employeeLoader.reload();
         }catch(RepositoryAccessException e){
             log.error("Failed to reload employees {}", e.getMessage(), e);
             ValidationUtils.showError("Failed to reload employees", e.getMessage());
@@ -4,6 +4,7 @@ import hr.java.corporatetravelriskassessmenttool.exception.RepositoryAccessExcep
 import hr.java.corporatetravelriskassessmenttool.model.*;
 import hr.java.corporatetravelriskassessmenttool.repository.AbstractRepository;
 import hr.java.corporatetravelriskassessmenttool.repository.EmployeeRepository;
+import hr.java.corporatetravelriskassessmenttool.repository.RiskAssessmentCriteria;
 import hr.java.corporatetravelriskassessmenttool.repository.RiskAssessmentRepository;
 import hr.java.corporatetravelriskassessmenttool.repository.TripRepository;
 import hr.java.corporatetravelriskassessmenttool.utils.ValidationUtils;
@@ -14,6 +15,7 @@ import javafx.fxml.FXML;
 import javafx.scene.control.*;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
@@ -60,7 +62,7 @@ public class RiskAssessmentController implements RoleAware{
     private DatePicker assessmentDatePicker;
     private User loggedUser;
     private AbstractRepository<Trip<Person>> tripRepository = new TripRepository<>();
-    private AbstractRepository<RiskAssessment<Person, Risk>> assessmentRepository = new RiskAssessmentRepository<>();
+    private RiskAssessmentRepository<RiskAssessment<Person, Risk>> assessmentRepository = new RiskAssessmentRepository<>();
     private AbstractRepository<Employee> employeeRepository = new EmployeeRepository<>();
     private Optional<List<RiskAssessment<Person, Risk>>> filteredRiskAssessments;
     private static final String HEALTH_TYPE = "Health";
@@ -94,7 +96,7 @@ public class RiskAssessmentController implements RoleAware{
     /**
      * Generates or updates risk assessments for the selected trip.
      * For each employee-destination-risk combination in the trip, a new assessment is created,
-     * or if an assessment already exists it is updated instead.
+     * or if an assessment already exists its date is refreshed instead. The whole step runs in the database.
      */
     public void generateAssessments() {
         Trip<Person> selectedTrip = tripComboBox.getSelectionModel().getSelectedItem();
@@ -106,45 +108,30 @@ public class RiskAssessmentController implements RoleAware{
             alert.showAndWait();
             return;
         }
-        Set<Person> employees = selectedTrip.getEmployees();
-        Set<Destination> destinations= selectedTrip.getDestinations();
-        Set<Risk> risks = new HashSet<>();
-        destinations.forEach(destination ->
-            risks.addAll(destination.getRisks()));
-        List<RiskAssessment<Person, Risk>> assessments = new ArrayList<>();
         Optional<ButtonType> confirm = ValidationUtils.showConfirmation("Confirm generating assessments",
                 "Are you sure you want to generate new Assessments?");
-        if(confirm.isPresent() && confirm.get() == ButtonType.OK) {
-            List<RiskAssessment<Person, Risk>> existing = assessmentRepository.findAll().stream()
-                    .filter(a -> a.getTrip().equals(selectedTrip)).toList();
-            for (Person e : employees) {
-                for (Risk r : risks) {
-                    RiskAssessment<Person, Risk> assessment = new RiskAssessment.Builder<>().setRisk(r).setPerson(e)
-                            .setTrip(selectedTrip).setAssessmentDate(LocalDate.now()).build();
-                    boolean exists = existing.stream().anyMatch(existingAssessment ->
-                            existingAssessment.getRisk().getId().equals(r.getId()) &&
-                                    existingAssessment.getPerson().getId().equals(e.getId()) &&
-                                    existingAssessment.getTrip().getId().equals(selectedTrip.getId())
-                    );
-                    if(Boolean.TRUE.equals(exists)) {
-                        assessment.setId(
-                                existing.stream().filter(existingAssessment ->
-                                        existingAssessment.getPerson().getId().equals(e.getId())
-                                        && existingAssessment.getRisk().getId().equals(r.getId())
-                                        && existingAssessment.getTrip().getId().equals(selectedTrip.getId()))
-                                        .findFirst().map(RiskAssessment::getId).orElse(null)
-                        );
-                        assessmentRepository.update(assessment, loggedUser);
-                    }else {
-                        assessmentRepository.save(assessment, loggedUser);
-                    }
-                    assessments.add(assessment);
-                }
-            }
+        if(confirm.isEmpty() || confirm.get() != ButtonType.OK) return;
+        try {
+            RiskAssessmentRepository.GenerationResult result =
+                    assessmentRepository.generateForTrip(selectedTrip.getId(), LocalDate.now(), loggedUser);
+            List<RiskAssessment<Person, Risk>> assessments = findAssessmentsForTrip(selectedTrip);
+            filteredRiskAssessments = Optional.of(assessments);
+            assessmentTableView.setItems(FXCollections.observableArrayList(assessments));
+            statusLabel.setText("Created " + result.created() + " and refreshed " + result.refreshed() + " assessments.");
+        }catch(RepositoryAccessException ex){
+            log.error("Error while saving assessments {}", ex.getMessage(), ex);
+            ValidationUtils.showError("Error while saving assessments", ex.getMessage());
         }
+    }
 
-        assessmentTableView.setItems(FXCollections
-                .observableArrayList(assessments));
+    /**
+     * Loads the saved assessments of a trip, filtered in the database.
+     *
+     * @param trip the trip whose assessments to find
+     * @return the saved assessments of the trip
+     */
+    private List<RiskAssessment<Person, Risk>> findAssessmentsForTrip(Trip<Person> trip) {
+        return assessmentRepository.findMatching(new RiskAssessmentCriteria().forTrip(trip.getId()));
     }
 
     /**
@@ -153,8 +140,7 @@ public class RiskAssessmentController implements RoleAware{
     public void tripSelected() {
         Trip<Person> selectedTrip = tripComboBox.getSelectionModel().getSelectedItem();
         if (selectedTrip == null) return;
-        List<RiskAssessment<Person, Risk>> existing = assessmentRepository.findAll();
-        existing = existing.stream().filter(assessment -> assessment.getTrip().getId().equals(selectedTrip.getId())).toList();
+        List<RiskAssessment<Person, Risk>> existing = findAssessmentsForTrip(selectedTrip);
         filteredRiskAssessments = Optional.of(existing);
         if(!existing.isEmpty()) {
             assessmentTableView.setItems(FXCollections.observableArrayList(existing));
@@ -194,10 +180,12 @@ public class RiskAssessmentController implements RoleAware{
             if (!riskScoreTextField.getText().isEmpty()) {
                 try {
                     BigDecimal riskScore = new BigDecimal(riskScoreTextField.getText());
+                    long scaledLimit = riskScore.setScale(RiskCalculator.SCORE_SCALE, RoundingMode.CEILING)
+                            .unscaledValue().longValueExact();
                     assessments = assessments.stream().filter(assessment ->
-                            assessment.getRisk().calculateRisk().compareTo(riskScore) < 0
+                            assessment.getRisk().calculateRiskScaled() < scaledLimit
                     ).toList();
-                } catch (NumberFormatException e) {
+                } catch (NumberFormatException | ArithmeticException e) {
                     log.warn("Invalid score input when trying to filter employees", e);
                     ValidationUtils.showError("Invalid salary format", "Please enter a valid risk score (e.g., 20.00)");
                 }
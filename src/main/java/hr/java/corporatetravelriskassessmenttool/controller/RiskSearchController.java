@@ -3,12 +3,12 @@ package hr.java.corporatetravelriskassessmenttool.controller;
 import hr.java.corporatetravelriskassessmenttool.enums.RiskLevel;
 import hr.java.corporatetravelriskassessmenttool.exception.RepositoryAccessException;
 import hr.java.corporatetravelriskassessmenttool.model.*;
-import hr.java.corporatetravelriskassessmenttool.repository.AbstractRepository;
+import hr.java.corporatetravelriskassessmenttool.repository.RiskCriteria;
 import hr.java.corporatetravelriskassessmenttool.repository.RiskRepository;
+import hr.java.corporatetravelriskassessmenttool.utils.PagedTableLoader;
 import hr.java.corporatetravelriskassessmenttool.utils.ValidationUtils;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -54,26 +54,27 @@ public class RiskSearchController implements RoleAware{
     TableColumn<Risk, String> riskSeverityTableColumn;
     @FXML
     TableColumn<Risk, String> totalRiskTableColumn;
-    private AbstractRepository<Risk> riskRepository = new RiskRepository<>();
+    private static final int PAGE_SIZE = 50;
+    private RiskRepository<Risk> riskRepository = new RiskRepository<>();
+    private PagedTableLoader<Risk> riskLoader;
     private User loggedUser;
     private static final String HEALTH_TYPE = "Health";
     private static final String POLITICAL_TYPE = "Political";
     private static final String ENVIRONMENTAL_TYPE = "Environmental";
 
     /**
-     * Initializes the controller, loads all risks from the repository
-     * and sets up the table view and context menu.
+     * Initializes the controller, loads the first page of risks from the repository
+     * and sets up the table view and context menu. Further pages are loaded while scrolling.
      */
     public void initialize() {
-        ObservableList<Risk> risks = FXCollections.observableArrayList();
+        riskLoader = new PagedTableLoader<>(riskTableView, riskRepository, PAGE_SIZE);
         try {
-            risks = FXCollections.observableArrayList(riskRepository.findAll());
+            riskLoader.reload();
         }catch(RepositoryAccessException e){
             log.error("Error fetching risks from DB {}", e.getMessage(), e);
             ValidationUtils.showError("Error fetching risks from DB", e.getMessage());
 
         }
-        riskTableView.setItems(risks);
         riskTableView.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
         riskTypeTableColumn.setCellValueFactory(cellData -> {
             Risk risk = cellData.getValue();
@@ -108,38 +109,16 @@ public class RiskSearchController implements RoleAware{
      * Filters risks by entered search criteria.
      */
     public void filterRisks() {
-        List<Risk> risks = riskRepository.findAll();
-        String description = descriptionTextField.getText();
-        if(!description.isEmpty()) {
-            risks = risks.stream()
-                    .filter(risk -> risk.getDescription().toLowerCase().contains(description.toLowerCase())).toList();
-        }
-        String type = riskTypeComboBox.getValue();
-        switch(type){
-            case ENVIRONMENTAL_TYPE:
-                risks = risks.stream()
-                        .filter(EnvironmentalRisk.class::isInstance)
-                        .toList();
-                break;
-            case HEALTH_TYPE:
-                risks = risks.stream()
-                        .filter(HealthRisk.class::isInstance)
-                        .toList();
-                break;
-            case POLITICAL_TYPE:
-                risks = risks.stream()
-                        .filter(PoliticalRisk.class::isInstance)
-                        .toList();
-                break;
-            default:
-        }
-        String level = riskLevelComboBox.getSelectionModel().getSelectedItem().toString();
-        if(!level.isEmpty()) {
-            risks = risks.stream()
-                    .filter(risk -> risk.getRiskLevel().toString().toLowerCase().contains(level.toLowerCase()))
-                    .toList();
+        RiskCriteria criteria = new RiskCriteria()
+                .descriptionContains(descriptionTextField.getText())
+                .ofType(riskTypeComboBox.getValue())
+                .withLevel(riskLevelComboBox.getSelectionModel().getSelectedItem());
+        try{
+            riskTableView.setItems(FXCollections.observableList(riskRepository.findMatching(criteria)));
+        }catch(RepositoryAccessException e){
+            log.error("Error while filtering risks {}", e.getMessage(), e);
+            ValidationUtils.showError("Error while filtering risks", e.getMessage());
         }
-        riskTableView.setItems(FXCollections.observableList(risks));
     }
 
     /**
@@ -225,8 +204,7 @@ public class RiskSearchController implements RoleAware{
      */
     public void reloadRiskTable() {
         try{
-            List<Risk> risks = riskRepository.findAll();
-            riskTableView.setItems(FXCollections.observableArrayList(risks));
+            riskLoader.reload();
         }catch(RepositoryAccessException e){
             log.error("Failed to reload risks {}", e.getMessage(), e);
             ValidationUtils.showError("Failed to reload risks", e.getMessage());
@@ -1,28 +1,25 @@
 package hr.java.corporatetravelriskassessmenttool.controller;
 
+import hr.java.corporatetravelriskassessmenttool.analytics.RiskiestTripTracker;
 import hr.java.corporatetravelriskassessmenttool.exception.RepositoryAccessException;
 import hr.java.corporatetravelriskassessmenttool.model.*;
 import hr.java.corporatetravelriskassessmenttool.repository.*;
-import hr.java.corporatetravelriskassessmenttool.threads.FindHighestRiskTripThread;
+import hr.java.corporatetravelriskassessmenttool.utils.PagedTableLoader;
 import hr.java.corporatetravelriskassessmenttool.utils.ValidationUtils;
-import javafx.animation.Animation;
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
+import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.stage.Stage;
-import javafx.util.Duration;
 
 import java.io.IOException;
-import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.Consumer;
 
 import static hr.java.corporatetravelriskassessmenttool.main.CorporateTravelRiskAssessmentApplication.log;
 /**
@@ -34,7 +31,7 @@ import static hr.java.corporatetravelriskassessmenttool.main.CorporateTravelRisk
  *         <li>Filter trips by name,employees, destinations, start and end date.</li>
  *         <li>Delete selected trips</li>
  *         <li>Open a window to update a selected trip by right-clicking it in the table</li>
- *         <li>Highlights the riskiest trip in the table in red using timeline, and any risks with warnings in yellow</li>
+ *         <li>Highlights the riskiest trip in the table in red as soon as it changes, and any risks with warnings in yellow</li>
  *     </ul>
  * </p>
  * Implements the {@link RoleAware} interface to track the currently logged-in user.
@@ -64,41 +61,25 @@ public class TripSearchController implements RoleAware {
     private TableColumn<Trip<Person>, String> employeeTableColumn;
     @FXML
     private TableColumn<Trip<Person>, String> destinationTableColumn;
+    private static final int PAGE_SIZE = 50;
     private User loggedUser;
-    AbstractRepository<Trip<Person>> tripRepository = new TripRepository<>();
+    TripRepository<Trip<Person>> tripRepository = new TripRepository<>();
     AbstractRepository<Employee> employeeRepository = new EmployeeRepository<>();
     AbstractRepository<Destination> destinationRepository = new DestinationRepository<>();
-    private Optional<Trip<Person>> riskiestTrip = Optional.empty();
-    private List<Trip<Person>> allTrips = new ArrayList<>();
-    private ObservableList<Trip<Person>> filteredTrips = FXCollections.observableArrayList();
+    private PagedTableLoader<Trip<Person>> tripLoader;
+    private Optional<Long> riskiestTripId = Optional.empty();
+    private RiskiestTripTracker riskiestTripTracker;
+    private Consumer<Optional<TripRepository.TripRiskScore>> riskiestTripListener;
 
     /**
-     * Sets the currently identified riskiest trip to be highlighted in the table view.
-     *
-     * @param trip an {@code Optional} containing the riskiest trip, or empty if none is set
-     */
-    public void setRiskiestTrip(Optional<Trip<Person>> trip){
-        this.riskiestTrip = trip;
-    }
-    /**
-     * Updates the internal list of all trips and re-applies filters to refresh the table view.
-     *
-     * @param newTrips a list of updated {@code Trip} objects
-     */
-    public void updateTrips(List<Trip<Person>> newTrips){
-        this.allTrips.clear();
-        this.allTrips.addAll(newTrips);
-        filterTrips();
-    }
-    /**
-     * Initializes the controller, loads all trips from the repository
-     * and sets up the table view and context menu.
-     * Starts a background thread to periodically determine and highlight the riskiest trip.
+     * Initializes the controller, loads the first page of trips from the repository
+     * and sets up the table view and context menu. Further pages are loaded while scrolling.
+     * Subscribes to the {@link RiskiestTripTracker} to highlight the riskiest trip whenever it changes.
      */
     public void initialize() {
-        ObservableList<Trip<Person>> trips = FXCollections.observableArrayList();
+        tripLoader = new PagedTableLoader<>(tripTableView, tripRepository, PAGE_SIZE);
         try{
-            trips = FXCollections.observableArrayList(tripRepository.findAll());
+            tripLoader.reload();
         }catch(RepositoryAccessException e){
             log.error("Error while fetching trips from DB {}", e.getMessage(), e);
             ValidationUtils.showError("Error while fetching trips from DB", e.getMessage());
@@ -127,9 +108,6 @@ public class TripSearchController implements RoleAware {
             );
             return new SimpleStringProperty(destinationString.toString());
         });
-        allTrips.addAll(trips);
-        filteredTrips.setAll(trips);
-        tripTableView.setItems(filteredTrips);
         tripTableView.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
         tripTableView.getSelectionModel().setSelectionMode(SelectionMode.SINGLE);
         tripTableView.setRowFactory(tv -> {
@@ -157,35 +135,22 @@ public class TripSearchController implements RoleAware {
 
             return row;
         });
-        startHighestRiskTimeline();
+        startRiskiestTripTracking();
     }
     /**
      * Filter trips by entered search criteria
      */
     public void filterTrips() {
         try {
-            List<Trip<Person>> result = tripRepository.findAll();
-            Set<Employee> selectedEmployees = new HashSet<>(employeeListView.getSelectionModel().getSelectedItems());
-            if(!selectedEmployees.isEmpty()) result = result.stream()
-                        .filter(trip -> trip.getEmployees().containsAll(selectedEmployees))
-                        .toList();
-            Set<Destination> selectedDestinations = new HashSet<>(destinationListView.getSelectionModel().getSelectedItems());
-            if(!selectedDestinations.isEmpty()) result = result.stream()
-                        .filter(trip -> trip.getDestinations().containsAll(selectedDestinations))
-                        .toList();
-            String name = nameTextField.getText();
-            if(!name.isEmpty()) result = result.stream()
-                        .filter(trip -> trip.getName().toLowerCase().contains(name.toLowerCase()))
-                        .toList();
-            Optional<LocalDate> startDate = Optional.ofNullable(startDatePicker.getValue());
-            if(startDate.isPresent()) result = result.stream()
-                        .filter(trip -> trip.getStartDate().isAfter(startDate.get()))
-                        .toList();
-            Optional<LocalDate> endDate = Optional.ofNullable(endDatePicker.getValue());
-            if(endDate.isPresent()) result = result.stream()
-                        .filter(trip -> trip.getEndDate().isBefore(endDate.get()))
-                        .toList();
-            tripTableView.setItems(FXCollections.observableList(result));
+            TripCriteria criteria = new TripCriteria()
+                    .withAllEmployees(employeeListView.getSelectionModel().getSelectedItems().stream()
+                            .map(Employee::getId).toList())
+                    .withAllDestinations(destinationListView.getSelectionModel().getSelectedItems().stream()
+                            .map(Destination::getId).toList())
+                    .nameContains(nameTextField.getText())
+                    .startsAfter(startDatePicker.getValue())
+                    .endsBefore(endDatePicker.getValue());
+            tripTableView.setItems(FXCollections.observableList(tripRepository.findMatching(criteria)));
         }catch(RepositoryAccessException e){
             log.error(e.getMessage(), e);
             ValidationUtils.showError("Filtering failed", e.getMessage());
@@ -238,19 +203,47 @@ public class TripSearchController implements RoleAware {
         }
     }
     /**
-     * Starts a background timeline that continuously evaluates and highlights
-     * the riskiest trip in the table every 5 seconds.
+     * Highlights the current riskiest trip and registers for changes of it with the {@link RiskiestTripTracker}.
+     * The registration is dropped as soon as the table leaves its scene or the scene leaves its window,
+     * which is what happens when the main stage switches to another screen.
+     */
+    private void startRiskiestTripTracking(){
+        try{
+            riskiestTripTracker = RiskiestTripTracker.getInstance();
+        }catch(RepositoryAccessException e){
+            log.error("Error while loading trip risk scores {}", e.getMessage(), e);
+            return;
+        }
+        riskiestTripListener = riskiest -> Platform.runLater(() -> {
+            if (riskiestTripListener != null) showRiskiestTrip(riskiest);
+        });
+        riskiestTripTracker.addListener(riskiestTripListener);
+        tripTableView.sceneProperty().addListener((observable, oldScene, newScene) -> {
+            if (oldScene != null) stopRiskiestTripTracking();
+            if (newScene != null) {
+                newScene.windowProperty().addListener((windowObservable, oldWindow, newWindow) -> {
+                    if (newWindow == null) stopRiskiestTripTracking();
+                });
+            }
+        });
+        showRiskiestTrip(riskiestTripTracker.riskiest());
+    }
+    /**
+     * Unregisters from the {@link RiskiestTripTracker}, if still registered.
+     */
+    private void stopRiskiestTripTracking(){
+        if (riskiestTripListener == null) return;
+        riskiestTripTracker.removeListener(riskiestTripListener);
+        riskiestTripListener = null;
+    }
+    /**
+     * Highlights the given trip as the riskiest one.
+     *
+     * @param riskiest the score of the riskiest trip, or empty if there are no trips
      */
-    private void startHighestRiskTimeline(){
-        FindHighestRiskTripThread thread = new FindHighestRiskTripThread(tripTableView, this);
-        Timeline riskiestTripTimeline = new Timeline(new KeyFrame(Duration.ZERO, e -> {
-            Thread runner = new Thread(thread);
-            runner.setDaemon(true);
-            runner.start();
-        }),
-                new KeyFrame(Duration.seconds(5)));
-        riskiestTripTimeline.setCycleCount(Animation.INDEFINITE);
-        riskiestTripTimeline.play();
+    private void showRiskiestTrip(Optional<TripRepository.TripRiskScore> riskiest){
+        riskiestTripId = riskiest.map(TripRepository.TripRiskScore::tripId);
+        tripTableView.refresh();
     }
     /**
      * Updates the row style for a given trip in the table view.
@@ -271,7 +264,7 @@ public class TripSearchController implements RoleAware {
         if(trip.hasWarning()){
             style = "-fx-background-color: #fff3cd;";
         }
-        if (riskiestTrip.isPresent() && trip.getId().equals(riskiestTrip.get().getId())) {
+        if (riskiestTripId.isPresent() && trip.getId().equals(riskiestTripId.get())) {
             style = "-fx-background-color: #ffcccc;";
         }
         row.setStyle(style);
@@ -282,10 +275,7 @@ public class TripSearchController implements RoleAware {
      */
     public void reloadTripTable() {
         try{
-            List<Trip<Person>> trips = tripRepository.findAll();
-            allTrips.clear();
-            allTrips.addAll(trips);
-            filterTrips();
+            tripLoader.reload();
         }catch(RepositoryAccessException e){
             log.error("Failed to reload trips {}", e.getMessage(), e);
             ValidationUtils.showError("Failed to reload trips", e.getMessage());
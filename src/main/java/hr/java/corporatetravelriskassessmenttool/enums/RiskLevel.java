@@ -12,12 +12,14 @@ public enum RiskLevel {
     MEDIUM(BigDecimal.valueOf(2)),
     HIGH(BigDecimal.valueOf(3));
     private final BigDecimal level;
+    private final long weight;
 
     /**
      * @param level the numeric value representing the severity
      */
     RiskLevel(BigDecimal level) {
         this.level = level;
+        this.weight = level.longValueExact();
     }
 
     /**
@@ -26,4 +28,11 @@ public enum RiskLevel {
     public BigDecimal getLevel() {
         return level;
     }
+
+    /**
+     * @return the risk severity level as a primitive value, equal to {@link #getLevel()}
+     */
+    public long getWeight() {
+        return weight;
+    }
 }
@@ -0,0 +1,23 @@
+package hr.java.corporatetravelriskassessmenttool.exception;
+
+import java.io.IOException;
+
+/**
+ * Checked exception indicating that the changelog cannot be opened because another process,
+ * such as the running application or a batch job, already holds its lock.
+ */
+public class ChangelogLockedException extends IOException {
+    /**
+     * @param message the detail message
+     */
+    public ChangelogLockedException(String message) {
+        super(message);
+    }
+    /**
+     * @param message the detail message
+     * @param cause   the cause of the exception
+     */
+    public ChangelogLockedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,11 +1,18 @@
 package hr.java.corporatetravelriskassessmenttool.main;
 
 import hr.java.corporatetravelriskassessmenttool.changelog.ChangelogRepository;
+import hr.java.corporatetravelriskassessmenttool.exception.ChangelogLockedException;
+import hr.java.corporatetravelriskassessmenttool.repository.DatabaseConnectionPool;
+import hr.java.corporatetravelriskassessmenttool.repository.SchemaMigrator;
+import hr.java.corporatetravelriskassessmenttool.model.User;
 import hr.java.corporatetravelriskassessmenttool.threads.FindLatestChangeThread;
+import hr.java.corporatetravelriskassessmenttool.threads.IncrementalReassessmentThread;
+import hr.java.corporatetravelriskassessmenttool.utils.ValidationUtils;
 import javafx.animation.Animation;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
@@ -15,6 +22,9 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 /**
  * Main class of the Corporate Travel Risk Assessment application.
  * <p>
@@ -30,17 +40,34 @@ public class CorporateTravelRiskAssessmentApplication extends Application {
     public static final Logger log = LoggerFactory.getLogger(CorporateTravelRiskAssessmentApplication.class);
     public static final ChangelogRepository changelogRepository = new ChangelogRepository();
     public static final String APP_CSS = "/styles/app.css";
+    private static final long REASSESSMENT_INTERVAL_SECONDS = 30;
     private static Stage mainStage;
+    private ScheduledExecutorService reassessmentScheduler;
     /**
      * Starts the JavaFX application.
-     * Loads the initial FXML view and sets up the main stage.
+     * Opens the changelog and exits if another process, such as the assessment regeneration job, is using it.
+     * Applies pending database migrations, then loads the initial FXML view and sets up the main stage.
      * Also starts the FindLatestChangeThread, which sets the title
-     * as the latest change found in the changelog file.
+     * as the latest change found in the changelog file, and schedules the IncrementalReassessmentThread on a single
+     * background thread, which refreshes assessments made stale by changed risks, destinations and trips.
      * @param stage the primary stage for this application
      * @throws IOException if loading the FXML view fails
+     * @throws hr.java.corporatetravelriskassessmenttool.exception.DatabaseConfigurationException if a migration fails
      */
     @Override
     public void start(Stage stage) throws IOException {
+        try {
+            changelogRepository.open();
+        } catch (ChangelogLockedException e) {
+            log.error("Changelog is in use by another process {}", e.getMessage(), e);
+            ValidationUtils.showError("Changelog in use",
+                    "Another process, such as the assessment regeneration job, is using the changelog.\n Please try again when it has finished.");
+            Platform.exit();
+            return;
+        } catch (IOException e) {
+            log.error("Error while opening the changelog {}", e.getMessage(), e);
+        }
+        new SchemaMigrator().migrate();
         setStage(stage);
         FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/hr/java/RiskAssessmentTool/hello-view.fxml"));
         Scene scene = new Scene(fxmlLoader.load(), 650, 750);
@@ -58,6 +85,47 @@ public class CorporateTravelRiskAssessmentApplication extends Application {
         );
         latestChangeTimeline.setCycleCount(Animation.INDEFINITE);
         latestChangeTimeline.play();
+        IncrementalReassessmentThread reassessment = new IncrementalReassessmentThread(User.SYSTEM);
+        reassessmentScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "incremental-reassessment");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reassessmentScheduler.scheduleWithFixedDelay(() -> {
+            try {
+                reassessment.run();
+            } catch (RuntimeException e) {
+                // an exception escaping the task would cancel all later runs
+                log.error("Incremental re-assessment failed", e);
+            }
+        }, 0, REASSESSMENT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+    /**
+     * Stops the application. Waits for a running re-assessment to finish before closing the pooled
+     * database connections and the changelog file.
+     */
+    @Override
+    public void stop() {
+        stopReassessment();
+        log.info("Shutting down, database pool state: {}", DatabaseConnectionPool.getInstance().getMetrics());
+        DatabaseConnectionPool.getInstance().shutdown();
+        changelogRepository.close();
+    }
+    /**
+     * Stops scheduling re-assessments and waits for a run in progress, so it does not lose its connection.
+     */
+    private void stopReassessment() {
+        if (reassessmentScheduler == null) return;
+        reassessmentScheduler.shutdown();
+        try {
+            if (!reassessmentScheduler.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Incremental re-assessment did not finish in time, interrupting it");
+                reassessmentScheduler.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reassessmentScheduler.shutdownNow();
+        }
     }
     /**
      * Main method that launches the JavaFX application.
@@ -16,6 +16,7 @@ public final class EnvironmentalRisk extends Risk {
 
     private Integer damageIndex;
     private BigDecimal disasterProbability;
+    private long disasterProbabilityHundredths;
     /**
      * Constructs a new {@code EnvironmentalRisk} instance using the given builder.
      *
@@ -25,6 +26,7 @@ public final class EnvironmentalRisk extends Risk {
         super(builder.id, builder.description, builder.riskLevel);
         this.damageIndex = builder.damageIndex;
         this.disasterProbability = builder.disasterProbability;
+        this.disasterProbabilityHundredths = toHundredths(builder.disasterProbability);
     }
     /**
      * Returns the damage index, which quantifies the severity of potential damage.
@@ -41,6 +43,7 @@ public final class EnvironmentalRisk extends Risk {
      */
     public void setDamageIndex(Integer damageIndex) {
         this.damageIndex = damageIndex;
+        invalidateScore();
     }
     /**
      * Returns the probability of a disaster occurring.
@@ -57,6 +60,8 @@ public final class EnvironmentalRisk extends Risk {
      */
     public void setDisasterProbability(BigDecimal disasterProbability) {
         this.disasterProbability = disasterProbability;
+        this.disasterProbabilityHundredths = toHundredths(disasterProbability);
+        invalidateScore();
     }
     /**
      * Calculates the total environmental risk score based on:
@@ -67,11 +72,25 @@ public final class EnvironmentalRisk extends Risk {
      * @return the calculated risk score as a {@code BigDecimal}
      */
     @Override
-    public BigDecimal calculateRisk(){
+    protected BigDecimal computeRisk() {
         return disasterProbability.multiply(BigDecimal.valueOf(damageIndex)
                 .divide(BigDecimal.valueOf(100), RoundingMode.HALF_UP))
                 .multiply(getRiskLevel().getLevel());
     }
+    /**
+     * Calculates the environmental risk score in hundredths, using the same formula and rounding
+     * as {@link #calculateRisk()}: the damage index is divided by 100 and rounded half up to a whole number.
+     *
+     * @return the calculated risk score in hundredths
+     */
+    @Override
+    public long calculateRiskScaled() {
+        if (disasterProbabilityHundredths == NOT_SCALED) return calculateRiskScaledFromDecimal();
+        long damage = damageIndex;
+        long damageFactor = damage / 100;
+        if (Math.abs(damage % 100) >= 50) damageFactor += Long.signum(damage);
+        return disasterProbabilityHundredths * damageFactor * getRiskLevel().getWeight();
+    }
 
     /**
      * Compares this risk to another object for equality.
@@ -13,6 +13,7 @@ import java.util.Objects;
  */
 public final class HealthRisk extends Risk {
     private BigDecimal severity;
+    private long severityHundredths;
     /**
      * Constructs a HealthRisk from the provided builder.
      *
@@ -21,6 +22,7 @@ public final class HealthRisk extends Risk {
     public HealthRisk(HealthRiskBuilder builder) {
         super(builder.id, builder.description, builder.riskLevel);
         this.severity = builder.severity;
+        this.severityHundredths = toHundredths(builder.severity);
     }
     /**
      * Returns the severity of the health risk.
@@ -37,6 +39,8 @@ public final class HealthRisk extends Risk {
      */
     public void setSeverity(BigDecimal severity) {
         this.severity = severity;
+        this.severityHundredths = toHundredths(severity);
+        invalidateScore();
     }
     /**
      * Calculates the risk score for this health risk.
@@ -49,9 +53,19 @@ public final class HealthRisk extends Risk {
      * @return the computed risk score
      */
     @Override
-    public BigDecimal calculateRisk(){
+    protected BigDecimal computeRisk() {
         return severity.multiply(getRiskLevel().getLevel());
     }
+    /**
+     * Calculates the risk score in hundredths, using the same formula as {@link #calculateRisk()}.
+     *
+     * @return the computed risk score in hundredths
+     */
+    @Override
+    public long calculateRiskScaled() {
+        if (severityHundredths == NOT_SCALED) return calculateRiskScaledFromDecimal();
+        return severityHundredths * getRiskLevel().getWeight();
+    }
     /**
      * Checks whether this health risk is equal to another object.
      *
@@ -38,6 +38,7 @@ public final class PoliticalRisk extends Risk {
      */
     public void setUnrestIndex(Integer unrestIndex) {
         this.unrestIndex = unrestIndex;
+        invalidateScore();
     }
     /**
      * Returns the stability index representing the political stability level.
@@ -54,6 +55,7 @@ public final class PoliticalRisk extends Risk {
      */
     public void setStabilityIndex(Integer stabilityIndex) {
         this.stabilityIndex = stabilityIndex;
+        invalidateScore();
     }
     /**
      * Checks whether this political risk is equal to another object.
@@ -88,10 +90,21 @@ public final class PoliticalRisk extends Risk {
      * @return the calculated risk as a {@link BigDecimal}
      */
     @Override
-    public BigDecimal calculateRisk() {
+    protected BigDecimal computeRisk() {
         BigDecimal totalScore = BigDecimal.valueOf((long) unrestIndex - stabilityIndex).divide(getRiskLevel().getLevel(), RoundingMode.FLOOR);
         return totalScore.compareTo(BigDecimal.ZERO) < 0 ? BigDecimal.ZERO : totalScore;
     }
+    /**
+     * Computes the political risk score in hundredths, using the same formula and rounding as {@link #calculateRisk()}.
+     *
+     * @return the calculated risk in hundredths
+     * @throws ArithmeticException if the risk level is {@link RiskLevel#NONE}
+     */
+    @Override
+    public long calculateRiskScaled() {
+        long totalScore = Math.floorDiv((long) unrestIndex - stabilityIndex, getRiskLevel().getWeight());
+        return Math.max(totalScore, 0) * 100;
+    }
     /**
      * Returns a string representation of the political risk.
      *
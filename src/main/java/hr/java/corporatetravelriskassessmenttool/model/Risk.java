@@ -3,14 +3,33 @@ package hr.java.corporatetravelriskassessmenttool.model;
 import hr.java.corporatetravelriskassessmenttool.enums.RiskLevel;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 /**
  * Represents a general risk with a description and risk level.
  * This class is non-sealed and can be extended by specific risk types.
  */
 public non-sealed class Risk extends Entity implements RiskCalculator {
+    /**
+     * Marks a decimal input that cannot be represented exactly in hundredths.
+     */
+    static final long NOT_SCALED = Long.MIN_VALUE;
+    private static final AtomicIntegerFieldUpdater<Risk> SCORE_VERSION =
+            AtomicIntegerFieldUpdater.newUpdater(Risk.class, "scoreVersion");
     private String description;
     private RiskLevel riskLevel;
+    private transient volatile int scoreVersion;
+    private transient volatile CachedScore cachedScore;
+
+    /**
+     * A computed risk score together with the version of the inputs it was computed from.
+     *
+     * @param version the value of the score version when the computation started
+     * @param score the computed score
+     */
+    private record CachedScore(int version, BigDecimal score) {
+    }
     /**
      * Constructs a Risk instance.
      *
@@ -55,17 +74,75 @@ public non-sealed class Risk extends Entity implements RiskCalculator {
      */
     public void setRiskLevel(RiskLevel riskLevel) {
         this.riskLevel = riskLevel;
+        invalidateScore();
     }
     /**
-     * Calculates the risk score.
+     * Returns the risk score, computing it with {@link #computeRisk()} only when an input has changed
+     * since the last calculation.
+     * <p>
+     * Safe to call from background threads: a score is reused only if no setter ran since its computation started.
+     * </p>
+     *
+     * @return the calculated risk as BigDecimal
+     */
+    @Override
+    public final BigDecimal calculateRisk() {
+        int version = scoreVersion;
+        CachedScore cached = cachedScore;
+        if (cached != null && cached.version() == version) return cached.score();
+        BigDecimal score = computeRisk();
+        cachedScore = new CachedScore(version, score);
+        return score;
+    }
+    /**
+     * Computes the risk score.
      * This implementation returns the numeric value of the risk level.
      * Subclasses may override for more specific calculations.
      *
-     * @return the calculated risk as BigDecimal
+     * @return the computed risk as BigDecimal
      */
-    public BigDecimal calculateRisk() {
+    protected BigDecimal computeRisk() {
         return riskLevel.getLevel();
     }
+    /**
+     * Discards the cached risk score. Must be called by every setter of a value the score depends on,
+     * after the value has been assigned.
+     */
+    protected final void invalidateScore() {
+        SCORE_VERSION.incrementAndGet(this);
+    }
+    /**
+     * Calculates the risk score in hundredths.
+     * This implementation returns the risk level multiplied by 100.
+     *
+     * @return the calculated risk in hundredths
+     */
+    @Override
+    public long calculateRiskScaled() {
+        return riskLevel.getWeight() * 100;
+    }
+    /**
+     * Converts a decimal input of a risk score to hundredths.
+     *
+     * @param value the decimal value, may be {@code null}
+     * @return the value in hundredths, or {@link #NOT_SCALED} if it is {@code null} or has more than two decimal places
+     */
+    static long toHundredths(BigDecimal value) {
+        if (value == null) return NOT_SCALED;
+        try {
+            return value.setScale(SCORE_SCALE).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            return NOT_SCALED;
+        }
+    }
+    /**
+     * Computes the scaled score from {@link #calculateRisk()}, for inputs the primitive path cannot represent exactly.
+     *
+     * @return the decimal risk score rounded half up to hundredths
+     */
+    long calculateRiskScaledFromDecimal() {
+        return calculateRisk().setScale(SCORE_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
     /**
      * Checks equality based on description and risk level.
      *
@@ -15,4 +15,30 @@ public sealed interface RiskCalculator permits Risk{
      */
     BigDecimal calculateRisk();
 
+    /**
+     * Number of decimal places of the scaled risk score, matching the precision scores are stored with.
+     */
+    int SCORE_SCALE = 2;
+
+    /**
+     * Calculates the risk score as a fixed-point number in hundredths, without allocating.
+     * <p>
+     * The result equals {@link #calculateRisk()} rounded half up to {@value #SCORE_SCALE} decimal places
+     * and multiplied by 100, so {@code BigDecimal.valueOf(calculateRiskScaled(), SCORE_SCALE)} compares equal
+     * to the decimal score whenever its inputs have at most two decimal places.
+     * </p>
+     *
+     * @return the calculated risk score in hundredths
+     */
+    long calculateRiskScaled();
+
+    /**
+     * Converts a scaled risk score back to a decimal.
+     *
+     * @param scaledScore the risk score in hundredths
+     * @return the risk score with {@value #SCORE_SCALE} decimal places
+     */
+    static BigDecimal toDecimal(long scaledScore) {
+        return BigDecimal.valueOf(scaledScore, SCORE_SCALE);
+    }
 }
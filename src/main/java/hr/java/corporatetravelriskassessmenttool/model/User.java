@@ -7,4 +7,8 @@ package hr.java.corporatetravelriskassessmenttool.model;
  * @param role     the role assigned to the user (e.g., admin, user)
  */
 public record User(String username, String password, String role) {
+    /**
+     * The user that background jobs run as, recorded as the author of their changes.
+     */
+    public static final User SYSTEM = new User("system", null, "Admin");
 }
@@ -1,28 +1,44 @@
 package hr.java.corporatetravelriskassessmenttool.repository;
 
 import hr.java.corporatetravelriskassessmenttool.exception.DatabaseConfigurationException;
+import hr.java.corporatetravelriskassessmenttool.exception.RepositoryAccessException;
 import hr.java.corporatetravelriskassessmenttool.model.Entity;
 import hr.java.corporatetravelriskassessmenttool.model.User;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.SQLException;
-import java.util.List;
-import java.util.Properties;
+import java.sql.*;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 /**
  * Abstract base repository class providing common database connection
  * management and concurrency control for entities extending {@link Entity}.
+ * <p>
+ * Each repository locks only its own table through the {@link DatabaseLockManager},
+ * so reads run concurrently and writes block only access to the same table.
+ * </p>
  *
  * @param <T> the type of entity managed by this repository
  */
 public abstract class AbstractRepository<T extends Entity> {
-    private static final String DATABASE_FILE = "src/main/resources/database.properties";
-    private static final Logger log = LoggerFactory.getLogger(AbstractRepository.class);
-    protected static Boolean databaseAccessInProgress = false;
+    private final String tableName;
+    /**
+     * Creates a repository for the given main table.
+     *
+     * @param tableName the name of the table this repository manages, used to scope its locks
+     */
+    protected AbstractRepository(String tableName) {
+        this.tableName = tableName;
+    }
+    /**
+     * Returns the name of the main table managed by this repository.
+     *
+     * @return the table name
+     */
+    protected String getTableName() {
+        return tableName;
+    }
     /**
      * Finds an entity by its unique identifier.
      *
@@ -36,6 +52,33 @@ public abstract class AbstractRepository<T extends Entity> {
      * @return a list of all entities
      */
     public abstract List<T> findAll();
+    /**
+     * Retrieves all entities with the given identifiers using a single set-based lookup.
+     * Identifiers without a matching entity are ignored.
+     *
+     * @param ids the IDs of the entities to find
+     * @return a list of the entities found, in no particular order
+     */
+    public abstract List<T> findAllById(Collection<Long> ids);
+    /**
+     * Retrieves one page of entities in ascending ID order using keyset pagination.
+     *
+     * @param request the page to load
+     * @return the requested page together with the key of the next page and an estimated total
+     */
+    public abstract Page<T> findPage(PageRequest request);
+    /**
+     * Streams all entities of this type from a forward-only database cursor.
+     * <p>
+     * Rows are read lazily while the stream is consumed, at most {@code fetchSize} at a time, so memory use
+     * does not depend on the size of the table. The stream holds a database connection until it is closed
+     * and must therefore be used in a try-with-resources block.
+     * </p>
+     *
+     * @param fetchSize the number of rows fetched from the cursor at a time
+     * @return a lazily populated stream of all entities
+     */
+    public abstract Stream<T> streamAll(int fetchSize);
     /**
      * Saves a new entity to the database.
      *
@@ -50,6 +93,32 @@ public abstract class AbstractRepository<T extends Entity> {
      * @param user the user performing the update operation
      */
     public abstract void update(T entity, User user);
+    /**
+     * Saves several new entities.
+     * <p>
+     * The default implementation saves the entities one by one. Repositories that can write in bulk
+     * override it to insert all entities with JDBC batches in a single transaction.
+     * </p>
+     *
+     * @param entities the entities to save
+     * @param user the user performing the save operation
+     */
+    public void saveAll(Collection<T> entities, User user) {
+        entities.forEach(entity -> save(entity, user));
+    }
+    /**
+     * Updates several existing entities.
+     * <p>
+     * The default implementation updates the entities one by one. Repositories that can write in bulk
+     * override it to update all entities with JDBC batches in a single transaction.
+     * </p>
+     *
+     * @param entities the entities to update
+     * @param user the user performing the update operation
+     */
+    public void updateAll(Collection<T> entities, User user) {
+        entities.forEach(entity -> update(entity, user));
+    }
     /**
      * Deletes an entity from the database by its ID.
      *
@@ -58,48 +127,265 @@ public abstract class AbstractRepository<T extends Entity> {
      */
     public abstract void delete(Long id, User user);
     /**
-     * Establishes a connection to the database using the configuration
-     * provided in the {@code database.properties} file.
+     * Borrows a connection from the shared {@link DatabaseConnectionPool}, which is configured
+     * once from the {@code database.properties} file.
+     * Closing the connection returns it to the pool.
      *
-     * @return a new {@link Connection} object to the database
-     * @throws SQLException if a database access error occurs
+     * @return a pooled {@link Connection} to the database
+     * @throws SQLException if a database access error occurs or no connection becomes available in time
      * @throws DatabaseConfigurationException if loading the properties file fails
      */
     protected Connection connectToDb() throws SQLException {
-        Properties props = new Properties();
-        try(FileInputStream fis = new FileInputStream(DATABASE_FILE)) {
-            props.load(fis);
-            String url = props.getProperty("url");
-            String user = props.getProperty("username");
-            String password = props.getProperty("password");
-            return DriverManager.getConnection(url, user, password);
-        } catch (IOException e) {
-            throw new DatabaseConfigurationException("Error loading database properties", e);
-        }
+        return DatabaseConnectionPool.getInstance().getConnection();
     }
     /**
-     * Closes the given database connection.
+     * Returns the given database connection to the pool.
      *
-     * @param connection the {@link Connection} to close
-     * @throws SQLException if an error occurs while closing the connection
+     * @param connection the {@link Connection} to release
+     * @throws SQLException if an error occurs while releasing the connection
      */
     protected void disconnectFromDb(Connection connection) throws SQLException {
         connection.close();
     }
     /**
-     * Synchronizes database access by waiting if another thread is
-     * currently accessing the database. Once access is granted,
-     * sets the flag indicating database access is in progress.
+     * Creates a SQL array of IDs to be bound to an {@code = ANY(?)} parameter.
+     *
+     * @param con the active database connection
+     * @param ids the IDs to include
+     * @return a SQL {@link Array} of BIGINT values
+     * @throws SQLException if the array cannot be created
+     */
+    protected Array toIdArray(Connection con, Collection<Long> ids) throws SQLException {
+        return con.createArrayOf("BIGINT", ids.toArray(new Long[0]));
+    }
+    /**
+     * Builds a page from rows read with a limit of one more than the page size.
+     * The extra row only signals that a next page exists and is dropped from the content.
+     *
+     * @param rows the rows read for the page, at most {@code request.size() + 1}
+     * @param request the page request
+     * @param totalEstimate the estimated number of rows in the table
+     * @return the page
      */
-    protected synchronized void waitForDbAccess(){
-        while(Boolean.TRUE.equals(databaseAccessInProgress)){
-            try{
-                wait();
-            }catch(InterruptedException e){
-                log.error(e.getMessage());
-                Thread.currentThread().interrupt();
+    protected Page<T> toPage(List<T> rows, PageRequest request, long totalEstimate) {
+        boolean hasNext = rows.size() > request.size();
+        List<T> content = hasNext ? rows.subList(0, request.size()) : rows;
+        Long lastId = content.isEmpty() ? null : content.getLast().getId();
+        return new Page<>(content, request, lastId, hasNext, totalEstimate);
+    }
+    /**
+     * Returns the row count estimate the database keeps for this repository's table.
+     * Reading the estimate is cheap, unlike {@code COUNT(*)} on a large table.
+     *
+     * @param con the active database connection
+     * @return the estimated number of rows, or 0 if no estimate is available
+     * @throws SQLException if a database access error occurs
+     */
+    protected long estimateRowCount(Connection con) throws SQLException {
+        String sql = "SELECT ROW_COUNT_ESTIMATE FROM INFORMATION_SCHEMA.TABLES " +
+                "WHERE TABLE_SCHEMA = SCHEMA() AND TABLE_NAME = UPPER(?)";
+        try(PreparedStatement ps = con.prepareStatement(sql)){
+            ps.setString(1, tableName);
+            ResultSet rs = ps.executeQuery();
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+    /**
+     * Opens a forward-only cursor over the given query and exposes its rows as a lazy stream.
+     * <p>
+     * The query runs in H2's lazy execution mode, so rows are produced as the cursor advances instead of being
+     * materialized up front. Read access to the table is only held while the query is opened; the cursor keeps
+     * reading from the database snapshot of that moment. Closing the stream closes the cursor and returns the
+     * connection to the pool.
+     * </p>
+     *
+     * @param sql the query to run
+     * @param fetchSize the number of rows fetched from the cursor at a time
+     * @param mapper maps each row to an element of the stream
+     * @param <R> the type of stream elements
+     * @return a lazily populated stream of mapped rows
+     * @throws RepositoryAccessException if the query cannot be opened or a row cannot be read
+     */
+    protected <R> Stream<R> streamQuery(String sql, int fetchSize, RowMapper<R> mapper) {
+        Connection con = null;
+        acquireReadAccess();
+        try {
+            con = connectToDb();
+            Cursor<R> cursor = new Cursor<>(con, sql, fetchSize, mapper);
+            return StreamSupport.stream(cursor, false).onClose(cursor::close);
+        } catch (SQLException e) {
+            closeQuietly(con);
+            throw new RepositoryAccessException(e);
+        } catch (DatabaseConfigurationException e) {
+            closeQuietly(con);
+            throw new RepositoryAccessException("Database config failed", e);
+        } finally {
+            releaseReadAccess();
+        }
+    }
+    /**
+     * Groups the elements of a stream into chunks and maps each chunk to entities.
+     * Used to hydrate entities with related data one chunk at a time while streaming.
+     * Closing the returned stream closes the source stream.
+     *
+     * @param source the stream of rows to group
+     * @param chunkSize the maximum number of rows per chunk
+     * @param hydrator maps a chunk of rows to the corresponding entities
+     * @param <R> the type of source rows
+     * @param <E> the type of hydrated entities
+     * @return a lazily populated stream of hydrated entities
+     */
+    protected static <R, E> Stream<E> hydrateInChunks(Stream<R> source, int chunkSize, Function<List<R>, List<E>> hydrator) {
+        Iterator<R> rows = source.iterator();
+        Iterator<E> entities = new Iterator<>() {
+            private Iterator<E> chunk = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!chunk.hasNext() && rows.hasNext()) {
+                    List<R> batch = new ArrayList<>(chunkSize);
+                    while (batch.size() < chunkSize && rows.hasNext()) batch.add(rows.next());
+                    chunk = hydrator.apply(batch).iterator();
+                }
+                return chunk.hasNext();
+            }
+
+            @Override
+            public E next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return chunk.next();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(entities, Spliterator.ORDERED), false)
+                .onClose(source::close);
+    }
+    /**
+     * Returns a connection to the pool, ignoring errors. Used when cleaning up after a failure.
+     *
+     * @param con the connection to close, may be {@code null}
+     */
+    private static void closeQuietly(AutoCloseable con) {
+        if (con == null) return;
+        try {
+            con.close();
+        } catch (Exception ignored) {
+            // the original failure is more relevant than the failure to clean up
+        }
+    }
+    /**
+     * Forward-only cursor over a query, read one row per {@link #tryAdvance(Consumer)} call.
+     *
+     * @param <R> the type of mapped rows
+     */
+    private static final class Cursor<R> extends Spliterators.AbstractSpliterator<R> {
+        private final Connection con;
+        private final PreparedStatement ps;
+        private final ResultSet rs;
+        private final RowMapper<R> mapper;
+        private boolean closed;
+
+        /**
+         * Switches the connection to lazy execution and opens the query.
+         *
+         * @param con the connection to read from, owned by the cursor from now on
+         * @param sql the query to run
+         * @param fetchSize the number of rows fetched at a time
+         * @param mapper maps each row
+         * @throws SQLException if the query cannot be opened
+         */
+        private Cursor(Connection con, String sql, int fetchSize, RowMapper<R> mapper) throws SQLException {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.con = con;
+            this.mapper = mapper;
+            try (Statement stmt = con.createStatement()) {
+                stmt.execute("SET LAZY_QUERY_EXECUTION TRUE");
+            }
+            this.ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            this.rs = ps.executeQuery();
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super R> action) {
+            if (closed) return false;
+            try {
+                if (!rs.next()) {
+                    close();
+                    return false;
+                }
+                action.accept(mapper.map(rs));
+                return true;
+            } catch (SQLException e) {
+                close();
+                throw new RepositoryAccessException(e);
+            }
+        }
+
+        /**
+         * Closes the cursor, restores eager execution and returns the connection to the pool.
+         */
+        private void close() {
+            if (closed) return;
+            closed = true;
+            closeQuietly(rs);
+            closeQuietly(ps);
+            try (Statement stmt = con.createStatement()) {
+                stmt.execute("SET LAZY_QUERY_EXECUTION FALSE");
+            } catch (SQLException e) {
+                // the pool validates the connection before handing it out again
             }
+            closeQuietly(con);
         }
-        databaseAccessInProgress = true;
+    }
+    /**
+     * Notifies {@link RepositoryEventPublisher} listeners about a committed change to one row of this repository's table.
+     *
+     * @param type the kind of change
+     * @param id the ID of the changed row, nothing is published if {@code null}
+     * @see #publishChange(RepositoryChangeEvent.ChangeType, Collection)
+     */
+    protected void publishChange(RepositoryChangeEvent.ChangeType type, Long id) {
+        if(id != null) publishChange(type, List.of(id));
+    }
+    /**
+     * Notifies {@link RepositoryEventPublisher} listeners about committed changes to rows of this repository's table.
+     * Must be called after the change is committed and the table lock has been released.
+     *
+     * @param type the kind of change
+     * @param ids the IDs of the changed rows, nothing is published if empty
+     */
+    protected void publishChange(RepositoryChangeEvent.ChangeType type, Collection<Long> ids) {
+        if(ids.isEmpty()) return;
+        RepositoryEventPublisher.publish(new RepositoryChangeEvent(tableName, type, Set.copyOf(ids)));
+    }
+    /**
+     * Waits for shared read access to this repository's table.
+     * Other readers may access the table at the same time.
+     *
+     * @throws hr.java.corporatetravelriskassessmenttool.exception.RepositoryAccessException if access is not granted in time
+     */
+    protected void acquireReadAccess(){
+        DatabaseLockManager.acquireRead(tableName);
+    }
+    /**
+     * Releases read access previously acquired with {@link #acquireReadAccess()}.
+     */
+    protected void releaseReadAccess(){
+        DatabaseLockManager.releaseRead(tableName);
+    }
+    /**
+     * Waits for exclusive write access to this repository's table.
+     * Access to tables of other repositories is not blocked.
+     *
+     * @throws hr.java.corporatetravelriskassessmenttool.exception.RepositoryAccessException if access is not granted in time
+     */
+    protected void acquireWriteAccess(){
+        DatabaseLockManager.acquireWrite(tableName);
+    }
+    /**
+     * Releases write access previously acquired with {@link #acquireWriteAccess()}.
+     */
+    protected void releaseWriteAccess(){
+        DatabaseLockManager.releaseWrite(tableName);
     }
 }
@@ -0,0 +1,184 @@
+package hr.java.corporatetravelriskassessmenttool.repository;
+
+import hr.java.corporatetravelriskassessmenttool.exception.DatabaseConfigurationException;
+import hr.java.corporatetravelriskassessmenttool.exception.RepositoryAccessException;
+
+import java.sql.*;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Journal of the changes that make risk assessments stale, stored in the {@code entity_change} table.
+ * <p>
+ * Repositories record a change in the same transaction as the write itself whenever a risk's values,
+ * a destination's risks or a trip's employees and destinations change. Every change gets an ID from an
+ * ever-growing sequence that serves as the change watermark. Consumers remember the last watermark they
+ * processed in the {@code change_watermark} table and read only the changes made after it.
+ * </p>
+ */
+public class ChangeJournal {
+    private static final String DATABASE_ERROR_STRING = "Database config failed";
+    private static final List<String> JOURNALED_TABLES = List.of("risk", "destinations", "trip");
+
+    /**
+     * Kind of entity whose change is recorded.
+     */
+    public enum EntityType {
+        /** The level or type-specific values of a risk changed. */
+        RISK,
+        /** The risks of a destination changed. */
+        DESTINATION,
+        /** A trip was created or its employees or destinations changed. */
+        TRIP
+    }
+
+    /**
+     * Records a change as part of the caller's transaction.
+     *
+     * @param con the connection of the transaction making the change
+     * @param type the kind of the changed entity
+     * @param entityId the ID of the changed entity
+     * @throws SQLException if the change cannot be recorded
+     */
+    static void record(Connection con, EntityType type, long entityId) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement("INSERT INTO entity_change(entity_type, entity_id) VALUES (?, ?)")) {
+            ps.setString(1, type.name());
+            ps.setLong(2, entityId);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Returns the watermark of the newest committed change.
+     * <p>
+     * Read access to every journaled table is held while reading it. Changes are recorded by transactions
+     * that hold write access to one of those tables until they commit, so no change below the returned
+     * watermark can still become visible later.
+     *
+     * @return the highest change ID, or 0 if nothing has been recorded yet
+     * @throws RepositoryAccessException if a database access error occurs
+     */
+    public long currentWatermark() {
+        int locked = 0;
+        try {
+            for (String table : JOURNALED_TABLES) {
+                DatabaseLockManager.acquireRead(table);
+                locked++;
+            }
+            try (Connection con = DatabaseConnectionPool.getInstance().getConnection();
+                 Statement stmt = con.createStatement()) {
+                ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(id), 0) FROM entity_change");
+                rs.next();
+                return rs.getLong(1);
+            }
+        } catch (SQLException e) {
+            throw new RepositoryAccessException(e);
+        } catch (DatabaseConfigurationException e) {
+            throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                DatabaseLockManager.releaseRead(JOURNALED_TABLES.get(i));
+            }
+        }
+    }
+
+    /**
+     * Returns the last watermark processed by a consumer.
+     *
+     * @param consumer the name of the consumer
+     * @return the stored watermark, or 0 if the consumer has not processed any changes yet
+     * @throws RepositoryAccessException if a database access error occurs
+     */
+    public long readWatermark(String consumer) {
+        try (Connection con = DatabaseConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = con.prepareStatement("SELECT last_change_id FROM change_watermark WHERE consumer = ?")) {
+            ps.setString(1, consumer);
+            ResultSet rs = ps.executeQuery();
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            throw new RepositoryAccessException(e);
+        } catch (DatabaseConfigurationException e) {
+            throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
+        }
+    }
+
+    /**
+     * Stores the watermark a consumer has processed up to.
+     *
+     * @param consumer the name of the consumer
+     * @param watermark the ID of the last processed change
+     * @throws RepositoryAccessException if a database access error occurs
+     */
+    public void advanceWatermark(String consumer, long watermark) {
+        String sql = "MERGE INTO change_watermark(consumer, last_change_id, updated_at) KEY(consumer) " +
+                "VALUES (?, ?, CURRENT_TIMESTAMP)";
+        try (Connection con = DatabaseConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setString(1, consumer);
+            ps.setLong(2, watermark);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new RepositoryAccessException(e);
+        } catch (DatabaseConfigurationException e) {
+            throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
+        }
+    }
+
+    /**
+     * Finds the IDs of entities of one kind changed in a watermark range.
+     *
+     * @param type the kind of entity
+     * @param after the exclusive lower watermark
+     * @param upTo the inclusive upper watermark
+     * @return the IDs of the changed entities, without duplicates
+     * @throws RepositoryAccessException if a database access error occurs
+     */
+    public Set<Long> findChanged(EntityType type, long after, long upTo) {
+        String sql = "SELECT DISTINCT entity_id FROM entity_change WHERE entity_type = ? AND id > ? AND id <= ?";
+        return queryIds(sql, type.name(), after, upTo);
+    }
+
+    /**
+     * Finds the trips whose required assessments may have changed in a watermark range:
+     * trips that changed themselves and trips visiting a destination whose risks changed.
+     *
+     * @param after the exclusive lower watermark
+     * @param upTo the inclusive upper watermark
+     * @return the IDs of the affected trips, without duplicates
+     * @throws RepositoryAccessException if a database access error occurs
+     */
+    public Set<Long> findTripsWithChangedRelations(long after, long upTo) {
+        String sql = "SELECT c.entity_id FROM entity_change c WHERE c.entity_type = ? AND c.id > ? AND c.id <= ? " +
+                "UNION SELECT td.trip_id FROM entity_change c JOIN trip_destination td ON td.destination_id = c.entity_id " +
+                "WHERE c.entity_type = ? AND c.id > ? AND c.id <= ?";
+        return queryIds(sql, EntityType.TRIP.name(), after, upTo, EntityType.DESTINATION.name(), after, upTo);
+    }
+
+    /**
+     * Runs a query returning a single ID column.
+     *
+     * @param sql the query
+     * @param params the query parameters
+     * @return the returned IDs in the order they were read
+     * @throws RepositoryAccessException if a database access error occurs
+     */
+    private Set<Long> queryIds(String sql, Object... params) {
+        Set<Long> ids = new LinkedHashSet<>();
+        try (Connection con = DatabaseConnectionPool.getInstance().getConnection();
+             PreparedStatement ps = con.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                ps.setObject(i + 1, params[i]);
+            }
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                ids.add(rs.getLong(1));
+            }
+        } catch (SQLException e) {
+            throw new RepositoryAccessException(e);
+        } catch (DatabaseConfigurationException e) {
+            throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
+        }
+        return ids;
+    }
+}
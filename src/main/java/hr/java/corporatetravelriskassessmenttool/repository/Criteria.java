@@ -0,0 +1,81 @@
+package hr.java.corporatetravelriskassessmenttool.repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Base class for typed search criteria that are compiled into a parameterized SQL {@code WHERE} clause.
+ * <p>
+ * Subclasses expose fluent methods for the filters of one entity and translate each of them into a predicate
+ * with bound parameters, so filtering happens in the database and only matching rows are read.
+ * All predicates are combined with {@code AND}. Filters given a {@code null} or empty value are ignored,
+ * which lets search screens pass their input fields through unchanged.
+ * </p>
+ */
+public abstract class Criteria {
+    private final List<String> predicates = new ArrayList<>();
+    private final List<Object> parameters = new ArrayList<>();
+
+    /**
+     * Adds a predicate together with the values of its {@code ?} placeholders.
+     *
+     * @param predicate the SQL predicate
+     * @param params the values bound to the placeholders of the predicate, in order
+     */
+    protected void where(String predicate, Object... params) {
+        predicates.add(predicate);
+        parameters.addAll(List.of(params));
+    }
+
+    /**
+     * Adds a case-insensitive substring filter on a text column.
+     *
+     * @param column the column to search
+     * @param text the text to look for, ignored if {@code null} or empty
+     */
+    protected void whereContains(String column, String text) {
+        if (text == null || text.isEmpty()) return;
+        String escaped = text.toLowerCase().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        where("LOWER(" + column + ") LIKE ? ESCAPE '\\'", "%" + escaped + "%");
+    }
+
+    /**
+     * Checks whether any filter has been set.
+     *
+     * @return true if the criteria match every row
+     */
+    public boolean isEmpty() {
+        return predicates.isEmpty();
+    }
+
+    /**
+     * Compiles the predicates into a {@code WHERE} clause.
+     *
+     * @return the clause starting with a space, or an empty string if there are no predicates
+     */
+    String toWhereClause() {
+        return predicates.isEmpty() ? "" : " WHERE " + String.join(" AND ", predicates);
+    }
+
+    /**
+     * Binds the parameter values of all predicates to a statement created from {@link #toWhereClause()}.
+     *
+     * @param ps the prepared statement
+     * @param startIndex the index of the first placeholder belonging to the criteria
+     * @throws SQLException if a parameter cannot be bound
+     */
+    void bind(PreparedStatement ps, int startIndex) throws SQLException {
+        int index = startIndex;
+        for (Object parameter : parameters) {
+            if (parameter instanceof LocalDate date) {
+                ps.setDate(index++, Date.valueOf(date));
+            } else {
+                ps.setObject(index++, parameter);
+            }
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package hr.java.corporatetravelriskassessmenttool.repository;
+
+import hr.java.corporatetravelriskassessmenttool.exception.DatabaseConfigurationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of JDBC connections shared by all repositories.
+ * <p>
+ * The configuration is read once from {@code database.properties}. Borrowed connections are
+ * validated before being handed out, idle connections are closed after the configured idle timeout,
+ * and closing a borrowed connection returns it to the pool instead of closing the physical connection.
+ * </p>
+ * Supported properties (besides {@code url}, {@code username} and {@code password}):
+ * <ul>
+ *     <li>{@code pool.maxSize} - maximum number of open connections (default 10)</li>
+ *     <li>{@code pool.borrowTimeoutMillis} - how long to wait for a free connection (default 5000)</li>
+ *     <li>{@code pool.idleTimeoutMillis} - how long an unused connection is kept open (default 60000)</li>
+ *     <li>{@code pool.validationTimeoutSeconds} - timeout for connection validation (default 2)</li>
+ * </ul>
+ */
+public class DatabaseConnectionPool {
+    private static final String DATABASE_FILE = "src/main/resources/database.properties";
+    private static final Logger log = LoggerFactory.getLogger(DatabaseConnectionPool.class);
+    private static volatile DatabaseConnectionPool instance;
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final int validationTimeoutSeconds;
+    private final Semaphore permits;
+    private final BlockingDeque<IdleConnection> idleConnections = new LinkedBlockingDeque<>();
+    private final ScheduledExecutorService idleReaper;
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong borrowed = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private volatile boolean shutdown;
+
+    /**
+     * Snapshot of the pool state, intended for monitoring and logging.
+     *
+     * @param maxSize the maximum number of connections the pool will open
+     * @param active the number of connections currently borrowed
+     * @param idle the number of open connections waiting to be borrowed
+     * @param created total number of physical connections opened
+     * @param borrowed total number of successful borrows
+     * @param timeouts total number of borrows that timed out waiting for a connection
+     * @param validationFailures total number of idle connections discarded because validation failed
+     * @param evicted total number of idle connections closed by the idle timeout
+     */
+    public record PoolMetrics(int maxSize, int active, int idle, long created, long borrowed, long timeouts,
+                              long validationFailures, long evicted) {
+    }
+
+    /**
+     * An open physical connection together with the time it was returned to the pool.
+     *
+     * @param connection the physical connection
+     * @param returnedAt the time in milliseconds when the connection became idle
+     */
+    private record IdleConnection(Connection connection, long returnedAt) {
+    }
+
+    /**
+     * Creates a pool from the given configuration.
+     *
+     * @param props the database properties
+     */
+    private DatabaseConnectionPool(Properties props) {
+        this.url = props.getProperty("url");
+        this.username = props.getProperty("username");
+        this.password = props.getProperty("password");
+        this.maxSize = Integer.parseInt(props.getProperty("pool.maxSize", "10").trim());
+        this.borrowTimeoutMillis = Long.parseLong(props.getProperty("pool.borrowTimeoutMillis", "5000").trim());
+        this.idleTimeoutMillis = Long.parseLong(props.getProperty("pool.idleTimeoutMillis", "60000").trim());
+        this.validationTimeoutSeconds = Integer.parseInt(props.getProperty("pool.validationTimeoutSeconds", "2").trim());
+        this.permits = new Semaphore(maxSize, true);
+        this.idleReaper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "db-pool-idle-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long reapInterval = Math.max(1000, idleTimeoutMillis / 2);
+        idleReaper.scheduleWithFixedDelay(this::evictIdleConnections, reapInterval, reapInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the shared pool, loading the database configuration on first use.
+     *
+     * @return the connection pool
+     * @throws DatabaseConfigurationException if loading the properties file fails
+     */
+    public static DatabaseConnectionPool getInstance() {
+        DatabaseConnectionPool pool = instance;
+        if (pool == null) {
+            synchronized (DatabaseConnectionPool.class) {
+                pool = instance;
+                if (pool == null) {
+                    pool = new DatabaseConnectionPool(loadProperties());
+                    instance = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Loads the database configuration file.
+     *
+     * @return the loaded properties
+     * @throws DatabaseConfigurationException if the file cannot be read or is malformed
+     */
+    private static Properties loadProperties() {
+        Properties props = new Properties();
+        try (FileInputStream fis = new FileInputStream(DATABASE_FILE)) {
+            props.load(fis);
+        } catch (IOException e) {
+            throw new DatabaseConfigurationException("Error loading database properties", e);
+        }
+        if (props.getProperty("url") == null) {
+            throw new DatabaseConfigurationException("Database url is missing from " + DATABASE_FILE);
+        }
+        return props;
+    }
+
+    /**
+     * Borrows a connection from the pool, waiting up to the configured borrow timeout if all connections are in use.
+     * Closing the returned connection gives it back to the pool.
+     *
+     * @return a validated connection
+     * @throws SQLException if the pool has been shut down, no connection becomes available in time
+     * or a new connection cannot be opened
+     */
+    public Connection getConnection() throws SQLException {
+        if (shutdown) throw new SQLException("The database connection pool has been shut down");
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLException("Timed out after " + borrowTimeoutMillis + " ms waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        try {
+            Connection physical = takeIdleConnection();
+            if (physical == null) {
+                physical = DriverManager.getConnection(url, username, password);
+                created.incrementAndGet();
+            }
+            borrowed.incrementAndGet();
+            return wrap(physical);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a snapshot of the pool metrics.
+     *
+     * @return current pool metrics
+     */
+    public PoolMetrics getMetrics() {
+        return new PoolMetrics(maxSize, maxSize - permits.availablePermits(), idleConnections.size(), created.get(),
+                borrowed.get(), timeouts.get(), validationFailures.get(), evicted.get());
+    }
+
+    /**
+     * Closes all idle connections and stops the idle reaper. Borrowed connections are closed when returned
+     * instead of going back to the pool.
+     */
+    public void shutdown() {
+        shutdown = true;
+        idleReaper.shutdownNow();
+        IdleConnection idle;
+        while ((idle = idleConnections.pollFirst()) != null) {
+            closeQuietly(idle.connection());
+        }
+    }
+
+    /**
+     * Takes the most recently used idle connection that is still valid, discarding expired or broken ones.
+     *
+     * @return a valid physical connection, or {@code null} if no idle connection is available
+     */
+    private Connection takeIdleConnection() {
+        IdleConnection idle;
+        while ((idle = idleConnections.pollFirst()) != null) {
+            Connection connection = idle.connection();
+            if (System.currentTimeMillis() - idle.returnedAt() > idleTimeoutMillis) {
+                evicted.incrementAndGet();
+                closeQuietly(connection);
+            } else if (isValid(connection)) {
+                return connection;
+            } else {
+                validationFailures.incrementAndGet();
+                closeQuietly(connection);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns a physical connection to the pool after resetting its transactional state,
+     * or closes it if the pool has been shut down.
+     *
+     * @param connection the physical connection being returned
+     */
+    private void release(Connection connection) {
+        try {
+            if (connection.isClosed()) return;
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            if (shutdown) {
+                closeQuietly(connection);
+                return;
+            }
+            IdleConnection idle = new IdleConnection(connection, System.currentTimeMillis());
+            idleConnections.offerFirst(idle);
+            // shutdown() may have drained the idle connections between the check and the offer
+            if (shutdown && idleConnections.remove(idle)) closeQuietly(connection);
+        } catch (SQLException e) {
+            log.warn("Discarding database connection that could not be reset", e);
+            closeQuietly(connection);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Closes idle connections that have not been used within the idle timeout.
+     */
+    private void evictIdleConnections() {
+        long now = System.currentTimeMillis();
+        for (IdleConnection idle : idleConnections) {
+            if (now - idle.returnedAt() > idleTimeoutMillis && idleConnections.remove(idle)) {
+                evicted.incrementAndGet();
+                closeQuietly(idle.connection());
+            }
+        }
+    }
+
+    /**
+     * Checks whether a connection is still usable.
+     *
+     * @param connection the connection to validate
+     * @return true if the driver reports the connection as valid
+     */
+    private boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Closes a physical connection, logging instead of propagating failures.
+     *
+     * @param connection the connection to close
+     */
+    private void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.warn("Error closing pooled database connection", e);
+        }
+    }
+
+    /**
+     * Wraps a physical connection so that {@link Connection#close()} returns it to the pool.
+     * Any use of the wrapper after it has been closed fails with an {@link SQLException}.
+     *
+     * @param physical the physical connection
+     * @return the pooled connection handed to callers
+     */
+    private Connection wrap(Connection physical) {
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close" -> {
+                            if (closed.compareAndSet(false, true)) release(physical);
+                            return null;
+                        }
+                        case "isClosed" -> {
+                            return closed.get() || physical.isClosed();
+                        }
+                        case "equals" -> {
+                            return proxy == args[0];
+                        }
+                        case "hashCode" -> {
+                            return System.identityHashCode(proxy);
+                        }
+                        case "toString" -> {
+                            return "Pooled" + physical;
+                        }
+                        default -> {
+                            if (closed.get()) throw new SQLException("Connection has already been returned to the pool");
+                            return invoke(physical, method, args);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Invokes a method on the physical connection, unwrapping reflection exceptions.
+     *
+     * @param physical the physical connection
+     * @param method the method to invoke
+     * @param args the method arguments
+     * @return the method result
+     * @throws Throwable the exception thrown by the physical connection
+     */
+    private static Object invoke(Connection physical, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(physical, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
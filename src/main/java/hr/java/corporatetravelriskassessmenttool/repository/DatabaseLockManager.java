@@ -0,0 +1,94 @@
+package hr.java.corporatetravelriskassessmenttool.repository;
+
+import hr.java.corporatetravelriskassessmenttool.exception.RepositoryAccessException;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Hands out one fair read/write lock per database table.
+ * <p>
+ * Any number of threads may read a table at the same time, while writes to a table are exclusive
+ * only with respect to other access to that same table. Waiting threads are served in arrival order
+ * and give up with a {@link RepositoryAccessException} once the lock timeout expires, so a slow
+ * operation on one table never blocks work on the others.
+ * </p>
+ */
+public class DatabaseLockManager {
+    private static final long LOCK_TIMEOUT_MILLIS = 10_000;
+    private static final ConcurrentMap<String, ReentrantReadWriteLock> TABLE_LOCKS = new ConcurrentHashMap<>();
+
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private DatabaseLockManager() {}
+
+    /**
+     * Acquires shared read access to a table.
+     *
+     * @param table the table name
+     * @throws RepositoryAccessException if the lock could not be acquired within the timeout
+     */
+    public static void acquireRead(String table) {
+        acquire(lockFor(table).readLock(), table);
+    }
+
+    /**
+     * Releases shared read access to a table.
+     *
+     * @param table the table name
+     */
+    public static void releaseRead(String table) {
+        lockFor(table).readLock().unlock();
+    }
+
+    /**
+     * Acquires exclusive write access to a table.
+     *
+     * @param table the table name
+     * @throws RepositoryAccessException if the lock could not be acquired within the timeout
+     */
+    public static void acquireWrite(String table) {
+        acquire(lockFor(table).writeLock(), table);
+    }
+
+    /**
+     * Releases exclusive write access to a table.
+     *
+     * @param table the table name
+     */
+    public static void releaseWrite(String table) {
+        lockFor(table).writeLock().unlock();
+    }
+
+    /**
+     * Returns the lock guarding the given table, creating it on first use.
+     *
+     * @param table the table name
+     * @return the fair read/write lock for the table
+     */
+    private static ReentrantReadWriteLock lockFor(String table) {
+        return TABLE_LOCKS.computeIfAbsent(table, key -> new ReentrantReadWriteLock(true));
+    }
+
+    /**
+     * Waits for the given lock up to the lock timeout.
+     *
+     * @param lock the lock to acquire
+     * @param table the table the lock guards, used in error messages
+     * @throws RepositoryAccessException if the timeout expires or the thread is interrupted
+     */
+    private static void acquire(Lock lock, String table) {
+        try {
+            if (!lock.tryLock(LOCK_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                throw new RepositoryAccessException("Timed out waiting for access to table " + table);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RepositoryAccessException("Interrupted while waiting for access to table " + table, e);
+        }
+    }
+}
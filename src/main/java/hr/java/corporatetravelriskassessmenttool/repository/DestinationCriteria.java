@@ -0,0 +1,31 @@
+package hr.java.corporatetravelriskassessmenttool.repository;
+
+import hr.java.corporatetravelriskassessmenttool.model.Destination;
+
+/**
+ * Search criteria for {@link Destination} entities, used with
+ * {@link DestinationRepository#findMatching(DestinationCriteria)}.
+ */
+public class DestinationCriteria extends Criteria {
+    /**
+     * Matches destinations whose city contains the given text, ignoring case.
+     *
+     * @param city the text to look for
+     * @return these criteria
+     */
+    public DestinationCriteria cityContains(String city) {
+        whereContains("city", city);
+        return this;
+    }
+
+    /**
+     * Matches destinations whose country contains the given text, ignoring case.
+     *
+     * @param country the text to look for
+     * @return these criteria
+     */
+    public DestinationCriteria countryContains(String country) {
+        whereContains("country", country);
+        return this;
+    }
+}
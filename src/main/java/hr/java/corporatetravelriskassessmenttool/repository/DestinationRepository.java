@@ -8,11 +8,13 @@ import hr.java.corporatetravelriskassessmenttool.exception.UnknownRiskTypeExcept
 import hr.java.corporatetravelriskassessmenttool.mapper.DestinationMapper;
 import hr.java.corporatetravelriskassessmenttool.mapper.RiskMapper;
 import hr.java.corporatetravelriskassessmenttool.model.*;
+import hr.java.corporatetravelriskassessmenttool.repository.RepositoryChangeEvent.ChangeType;
 import hr.java.corporatetravelriskassessmenttool.utils.ChangelogUtil;
 
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.stream.Stream;
 
 import static hr.java.corporatetravelriskassessmenttool.main.CorporateTravelRiskAssessmentApplication.changelogRepository;
 /**
@@ -24,6 +26,12 @@ import static hr.java.corporatetravelriskassessmenttool.main.CorporateTravelRisk
 public class DestinationRepository<T extends Destination> extends AbstractRepository<T> {
     private static final String DEST_ID = "destination_id";
     private static final String DATABASE_ERROR_STRING = "Database config failed";
+    /**
+     * Creates a repository backed by the {@code destinations} table.
+     */
+    public DestinationRepository() {
+        super("destinations");
+    }
     /**
      * Finds a destination by its ID.
      *
@@ -33,8 +41,8 @@ public class DestinationRepository<T extends Destination> extends AbstractReposi
      * @throws RepositoryAccessException if a database access error occurs
      */
     @Override
-    public synchronized T findById(Long id){
-        waitForDbAccess();
+    public T findById(Long id){
+        acquireReadAccess();
         try(Connection con = connectToDb()){
             String sql = "SELECT d.id, d.country, d.city FROM destinations d WHERE d.id = ?";
             Destination destination;
@@ -66,8 +74,7 @@ public class DestinationRepository<T extends Destination> extends AbstractReposi
             throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
         }
         finally{
-            databaseAccessInProgress = false;
-            notifyAll();
+            releaseReadAccess();
         }
     }
     /**
@@ -77,8 +84,8 @@ public class DestinationRepository<T extends Destination> extends AbstractReposi
      * @throws RepositoryAccessException if a database access error occurs
      */
     @Override
-    public synchronized List<T> findAll() {
-        waitForDbAccess();
+    public List<T> findAll() {
+        acquireReadAccess();
         Map<Long, Destination> destinationMap = new HashMap<>();
 
         try(Connection conn = connectToDb()){
@@ -95,12 +102,172 @@ public class DestinationRepository<T extends Destination> extends AbstractReposi
         }catch(DatabaseConfigurationException e){
             throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
         }finally{
-            databaseAccessInProgress = false;
-            notifyAll();
+            releaseReadAccess();
+        }
+        return (List<T>) new ArrayList<>(destinationMap.values());
+    }
+
+    /**
+     * Retrieves all destinations with the given IDs, including their associated risks,
+     * using one query for the destinations and one for their risks.
+     *
+     * @param ids the IDs of the destinations to find
+     * @return a list of the destinations found
+     * @throws RepositoryAccessException if a database access error occurs
+     */
+    @Override
+    public List<T> findAllById(Collection<Long> ids) {
+        Map<Long, Destination> destinationMap = new HashMap<>();
+        if(ids.isEmpty()) return new ArrayList<>();
+        acquireReadAccess();
+        try(Connection con = connectToDb()){
+            try(PreparedStatement ps = con.prepareStatement("SELECT id, city, country FROM destinations WHERE id = ANY(?)")){
+                ps.setArray(1, toIdArray(con, ids));
+                ResultSet rs = ps.executeQuery();
+                while(rs.next()){
+                    Destination destination = DestinationMapper.map(rs);
+                    destinationMap.put(destination.getId(), destination);
+                }
+            }
+            populateRisksById(con, destinationMap);
+        }catch(SQLException | UnknownRiskTypeException e){
+            throw new RepositoryAccessException(e.getMessage(), e);
+        }catch(DatabaseConfigurationException e){
+            throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
+        }finally{
+            releaseReadAccess();
+        }
+        return (List<T>) new ArrayList<>(destinationMap.values());
+    }
+
+    /**
+     * Retrieves one page of destinations ordered by ID, including their associated risks.
+     *
+     * @param request the page to load
+     * @return the requested page of destinations
+     * @throws RepositoryAccessException if a database access error occurs
+     */
+    @Override
+    public Page<T> findPage(PageRequest request) {
+        acquireReadAccess();
+        Map<Long, Destination> destinationMap = new LinkedHashMap<>();
+        try(Connection con = connectToDb()){
+            try(PreparedStatement ps = con.prepareStatement("SELECT id, city, country FROM destinations " +
+                    "WHERE id > ? ORDER BY id LIMIT ?")){
+                ps.setLong(1, request.afterIdOrMin());
+                ps.setInt(2, request.size() + 1);
+                ResultSet rs = ps.executeQuery();
+                while(rs.next()){
+                    Destination destination = DestinationMapper.map(rs);
+                    destinationMap.put(destination.getId(), destination);
+                }
+            }
+            populateRisksById(con, destinationMap);
+            return toPage((List<T>) new ArrayList<>(destinationMap.values()), request, estimateRowCount(con));
+        }catch(SQLException | UnknownRiskTypeException e){
+            throw new RepositoryAccessException(e.getMessage(), e);
+        }catch(DatabaseConfigurationException e){
+            throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
+        }finally{
+            releaseReadAccess();
+        }
+    }
+
+    /**
+     * Retrieves the destinations matching the given criteria, filtered in the database,
+     * including their associated risks.
+     *
+     * @param criteria the search criteria
+     * @return the matching destinations ordered by ID
+     * @throws RepositoryAccessException if a database access error occurs
+     */
+    public List<T> findMatching(DestinationCriteria criteria) {
+        acquireReadAccess();
+        Map<Long, Destination> destinationMap = new LinkedHashMap<>();
+        try(Connection con = connectToDb()){
+            try(PreparedStatement ps = con.prepareStatement("SELECT id, city, country FROM destinations" +
+                    criteria.toWhereClause() + " ORDER BY id")){
+                criteria.bind(ps, 1);
+                ResultSet rs = ps.executeQuery();
+                while(rs.next()){
+                    Destination destination = DestinationMapper.map(rs);
+                    destinationMap.put(destination.getId(), destination);
+                }
+            }
+            populateRisksById(con, destinationMap);
+        }catch(SQLException | UnknownRiskTypeException e){
+            throw new RepositoryAccessException(e.getMessage(), e);
+        }catch(DatabaseConfigurationException e){
+            throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
+        }finally{
+            releaseReadAccess();
+        }
+        return (List<T>) new ArrayList<>(destinationMap.values());
+    }
+
+    /**
+     * Streams all destinations ordered by ID from a forward-only cursor.
+     * Risks are loaded for each chunk of {@code fetchSize} destinations as the stream is consumed.
+     * The stream must be closed to release its database connection.
+     *
+     * @param fetchSize the number of rows fetched from the cursor at a time
+     * @return a lazily populated stream of all destinations
+     * @throws RepositoryAccessException if a database access error occurs
+     */
+    @Override
+    public Stream<T> streamAll(int fetchSize) {
+        Stream<Destination> rows = streamQuery("SELECT id, city, country FROM destinations ORDER BY id",
+                fetchSize, DestinationMapper::map);
+        return hydrateInChunks(rows, fetchSize, this::withRisks);
+    }
+
+    /**
+     * Loads the risks of a chunk of destinations.
+     *
+     * @param destinations the destinations to populate
+     * @return the same destinations with their risks
+     * @throws RepositoryAccessException if a database access error occurs
+     */
+    private List<T> withRisks(List<Destination> destinations) {
+        Map<Long, Destination> destinationMap = new LinkedHashMap<>();
+        destinations.forEach(destination -> destinationMap.put(destination.getId(), destination));
+        acquireReadAccess();
+        try(Connection con = connectToDb()){
+            populateRisksById(con, destinationMap);
+        }catch(SQLException | UnknownRiskTypeException e){
+            throw new RepositoryAccessException(e.getMessage(), e);
+        }catch(DatabaseConfigurationException e){
+            throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
+        }finally{
+            releaseReadAccess();
         }
         return (List<T>) new ArrayList<>(destinationMap.values());
     }
 
+    /**
+     * Populates the risks of the destinations in the provided map with a single query
+     * restricted to their IDs.
+     *
+     * @param con the active database connection
+     * @param map a map of destination IDs to Destination objects
+     * @throws SQLException if a database access error occurs
+     */
+    private void populateRisksById(Connection con, Map<Long, Destination> map) throws SQLException {
+        if(map.isEmpty()) return;
+        String riskSql = "SELECT dr.destination_id, r.id, r.description, r.level, r.type, e.damage_index, " +
+                "e.disaster_probability, h.severity, p.unrest_index, p.stability_index FROM destination_risk dr " +
+                "JOIN risk r ON dr.risk_id = r.id LEFT JOIN environmental_risk e ON r.id = e.risk_id " +
+                "LEFT JOIN health_risk h ON r.id = h.risk_id LEFT JOIN political_risk p ON r.id = p.risk_id " +
+                "WHERE dr.destination_id = ANY(?)";
+        try(PreparedStatement ps = con.prepareStatement(riskSql)){
+            ps.setArray(1, toIdArray(con, map.keySet()));
+            ResultSet rs = ps.executeQuery();
+            while(rs.next()){
+                map.get(rs.getLong(DEST_ID)).addRisk(RiskMapper.map(rs));
+            }
+        }
+    }
+
     /**
      * Populates the risks for each destination in the provided map.
      *
@@ -134,8 +301,8 @@ public class DestinationRepository<T extends Destination> extends AbstractReposi
      * @throws RepositoryAccessException if a database access error occurs
      */
     @Override
-    public synchronized void save(T entity, User user) {
-        waitForDbAccess();
+    public void save(T entity, User user) {
+        acquireWriteAccess();
         try(Connection con = connectToDb()){
             con.setAutoCommit(false);
             String destinationSql = "INSERT INTO destinations(country, city) VALUES (?, ?)";
@@ -146,9 +313,9 @@ public class DestinationRepository<T extends Destination> extends AbstractReposi
         }catch(DatabaseConfigurationException e){
             throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
         }finally{
-            databaseAccessInProgress = false;
-            notifyAll();
+            releaseWriteAccess();
         }
+        publishChange(ChangeType.CREATED, entity.getId());
     }
 
     /**
@@ -163,7 +330,7 @@ public class DestinationRepository<T extends Destination> extends AbstractReposi
      * @throws SQLException if a database error occurs (transaction rollback is performed)
      * @throws RepositoryAccessException wrapping the SQLException
      */
-    private synchronized void insertDestination(T entity, String destinationSql, String riskSql, Connection con, User user) throws SQLException {
+    private void insertDestination(T entity, String destinationSql, String riskSql, Connection con, User user) throws SQLException {
         try(PreparedStatement destinationStmt = con.prepareStatement(destinationSql, Statement.RETURN_GENERATED_KEYS);
             PreparedStatement riskStmt = con.prepareStatement(riskSql)){
             destinationStmt.setString(1, entity.getCountry());
@@ -172,6 +339,7 @@ public class DestinationRepository<T extends Destination> extends AbstractReposi
             ResultSet rs = destinationStmt.getGeneratedKeys();
             if(rs.next()){
                 Long destId = rs.getLong(1);
+                entity.setId(destId);
                 riskStmt.setLong(1, destId);
                 Set<Risk> risks = entity.getRisks();
                 for(Risk risk : risks){
@@ -191,16 +359,17 @@ public class DestinationRepository<T extends Destination> extends AbstractReposi
     }
     /**
      * Updates an existing destination and its associated risks in the database.
-     * The operation is logged into the changelog.
+     * The operation is logged into the changelog and recorded in the {@link ChangeJournal};
+     * the risk scores of trips visiting the destination are refreshed.
      *
      * @param entity the destination entity with updated data
      * @param user the user performing the operation
      * @throws RepositoryAccessException if a database access error occurs
      */
     @Override
-    public synchronized void update(T entity, User user) {
+    public void update(T entity, User user) {
         Destination existingDestination = findById(entity.getId());
-        waitForDbAccess();
+        acquireWriteAccess();
         try(Connection con = connectToDb()){
             try (PreparedStatement destinationStmt = con.prepareStatement("UPDATE destinations SET country = ?, city = ?" +
                     " WHERE id = ?");
@@ -220,7 +389,8 @@ public class DestinationRepository<T extends Destination> extends AbstractReposi
                     insertRiskStmt.addBatch();
                 }
                 insertRiskStmt.executeBatch();
-                con.commit();
+                ChangeJournal.record(con, ChangeJournal.EntityType.DESTINATION, entity.getId());
+                TripRiskScores.refreshAndCommit(con, c -> TripRiskScores.refreshTripsOfDestination(c, entity.getId()));
                 ChangelogUtil.logDestinationUpdate(user, existingDestination, entity);
             }
         }catch(SQLException e){
@@ -228,35 +398,44 @@ public class DestinationRepository<T extends Destination> extends AbstractReposi
         }catch(DatabaseConfigurationException e){
             throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
         }finally{
-            databaseAccessInProgress = false;
-            notifyAll();
+            releaseWriteAccess();
         }
+        publishChange(ChangeType.UPDATED, entity.getId());
     }
 
     /**
      * Deletes a destination by its ID from the database and logs the deletion.
+     * The risk scores of trips that visited the destination are refreshed in the same transaction.
      *
      * @param id the ID of the destination to delete
      * @param user the user performing the deletion
      * @throws RepositoryAccessException if a database access error occurs
      */
     @Override
-    public synchronized void delete(Long id, User user) {
-        waitForDbAccess();
+    public void delete(Long id, User user) {
+        acquireWriteAccess();
         try(Connection con = connectToDb()){
+            con.setAutoCommit(false);
             try(PreparedStatement ps = con.prepareStatement("DELETE FROM destinations WHERE id = ?")){
-                ps.setLong(1, id);
-                ps.executeUpdate();
+                TripRiskScores.refreshAndCommit(con, c -> {
+                    List<Long> affectedTrips = TripRiskScores.findTripsOfDestination(c, id);
+                    ps.setLong(1, id);
+                    ps.executeUpdate();
+                    TripRiskScores.refreshTrips(c, affectedTrips);
+                });
                 changelogRepository.logChange(new ChangelogEntry(user.username(), user.role(), "Deleted destination"
                 , "Id: " + id, LocalDateTime.now()));
+            }catch(SQLException e){
+                con.rollback();
+                throw e;
             }
         }catch(SQLException e){
             throw new RepositoryAccessException(e);
         }catch(DatabaseConfigurationException e){
             throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
         }finally{
-            databaseAccessInProgress = false;
-            notifyAll();
+            releaseWriteAccess();
         }
+        publishChange(ChangeType.DELETED, id);
     }
 }
@@ -0,0 +1,66 @@
+package hr.java.corporatetravelriskassessmenttool.repository;
+
+import hr.java.corporatetravelriskassessmenttool.model.Employee;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Search criteria for {@link Employee} entities, used with {@link EmployeeRepository#findMatching(EmployeeCriteria)}.
+ */
+public class EmployeeCriteria extends Criteria {
+    /**
+     * Matches employees whose name contains the given text, ignoring case.
+     *
+     * @param name the text to look for
+     * @return these criteria
+     */
+    public EmployeeCriteria nameContains(String name) {
+        whereContains("name", name);
+        return this;
+    }
+
+    /**
+     * Matches employees whose job title contains the given text, ignoring case.
+     *
+     * @param jobTitle the text to look for
+     * @return these criteria
+     */
+    public EmployeeCriteria jobTitleContains(String jobTitle) {
+        whereContains("job_title", jobTitle);
+        return this;
+    }
+
+    /**
+     * Matches employees whose department contains the given text, ignoring case.
+     *
+     * @param department the text to look for
+     * @return these criteria
+     */
+    public EmployeeCriteria departmentContains(String department) {
+        whereContains("department", department);
+        return this;
+    }
+
+    /**
+     * Matches employees earning more than the given salary.
+     *
+     * @param salary the exclusive lower bound, ignored if {@code null}
+     * @return these criteria
+     */
+    public EmployeeCriteria salaryAbove(BigDecimal salary) {
+        if (salary != null) where("salary > ?", salary);
+        return this;
+    }
+
+    /**
+     * Matches employees born after the given date.
+     *
+     * @param date the exclusive lower bound, ignored if {@code null}
+     * @return these criteria
+     */
+    public EmployeeCriteria bornAfter(LocalDate date) {
+        if (date != null) where("date_of_birth > ?", date);
+        return this;
+    }
+}
@@ -7,12 +7,14 @@ import hr.java.corporatetravelriskassessmenttool.exception.RepositoryAccessExcep
 import hr.java.corporatetravelriskassessmenttool.mapper.EmployeeMapper;
 import hr.java.corporatetravelriskassessmenttool.model.Employee;
 import hr.java.corporatetravelriskassessmenttool.model.User;
+import hr.java.corporatetravelriskassessmenttool.repository.RepositoryChangeEvent.ChangeType;
 import hr.java.corporatetravelriskassessmenttool.utils.ChangelogUtil;
 
 import java.sql.*;
+import java.sql.Date;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.stream.Stream;
 
 import static hr.java.corporatetravelriskassessmenttool.main.CorporateTravelRiskAssessmentApplication.changelogRepository;
 /**
@@ -23,6 +25,12 @@ import static hr.java.corporatetravelriskassessmenttool.main.CorporateTravelRisk
  */
 public class EmployeeRepository<T extends Employee> extends AbstractRepository<T> {
     private static final String DATABASE_ERROR_STRING = "Database config failed";
+    /**
+     * Creates a repository backed by the {@code employees} table.
+     */
+    public EmployeeRepository() {
+        super("employees");
+    }
     /**
      * Finds an employee by its ID.
      *
@@ -32,8 +40,8 @@ public class EmployeeRepository<T extends Employee> extends AbstractRepository<T
      * @throws RepositoryAccessException if a database access error occurs
      */
     @Override
-    public synchronized T findById(Long id) {
-        waitForDbAccess();
+    public T findById(Long id) {
+        acquireReadAccess();
         try(Connection con = connectToDb()){
             try(PreparedStatement ps = con.prepareStatement("SELECT id, name, " +
                     "job_title, department, date_of_birth, salary FROM employees WHERE id = ?");) {
@@ -50,8 +58,7 @@ public class EmployeeRepository<T extends Employee> extends AbstractRepository<T
         }catch(DatabaseConfigurationException e){
             throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
         }finally{
-            databaseAccessInProgress = false;
-            notifyAll();
+            releaseReadAccess();
         }
     }
     /**
@@ -61,8 +68,8 @@ public class EmployeeRepository<T extends Employee> extends AbstractRepository<T
      * @throws RepositoryAccessException if a database access error occurs
      */
     @Override
-    public synchronized List<T> findAll() {
-        waitForDbAccess();
+    public List<T> findAll() {
+        acquireReadAccess();
         List<T> employees = new ArrayList<>();
 
         try(Connection con = connectToDb()){
@@ -78,8 +85,108 @@ public class EmployeeRepository<T extends Employee> extends AbstractRepository<T
         catch(DatabaseConfigurationException e){
             throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
         }finally{
-            databaseAccessInProgress = false;
-            notifyAll();
+            releaseReadAccess();
+        }
+        return employees;
+    }
+    /**
+     * Retrieves all employees with the given IDs in a single query.
+     *
+     * @param ids the IDs of the employees to find
+     * @return a list of the employees found
+     * @throws RepositoryAccessException if a database access error occurs
+     */
+    @Override
+    public List<T> findAllById(Collection<Long> ids) {
+        List<T> employees = new ArrayList<>();
+        if(ids.isEmpty()) return employees;
+        acquireReadAccess();
+        try(Connection con = connectToDb()){
+            try(PreparedStatement ps = con.prepareStatement("SELECT id, name, date_of_birth, job_title, department, salary " +
+                    "FROM employees WHERE id = ANY(?)")) {
+                ps.setArray(1, toIdArray(con, ids));
+                ResultSet rs = ps.executeQuery();
+                while (rs.next()) {
+                    employees.add((T) EmployeeMapper.map(rs));
+                }
+            }
+        }catch(SQLException e){
+            throw new RepositoryAccessException(e);
+        }catch(DatabaseConfigurationException e){
+            throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
+        }finally{
+            releaseReadAccess();
+        }
+        return employees;
+    }
+    /**
+     * Retrieves one page of employees ordered by ID.
+     *
+     * @param request the page to load
+     * @return the requested page of employees
+     * @throws RepositoryAccessException if a database access error occurs
+     */
+    @Override
+    public Page<T> findPage(PageRequest request) {
+        acquireReadAccess();
+        List<T> employees = new ArrayList<>();
+        try(Connection con = connectToDb()){
+            try(PreparedStatement ps = con.prepareStatement("SELECT id, name, date_of_birth, job_title, department, salary " +
+                    "FROM employees WHERE id > ? ORDER BY id LIMIT ?")) {
+                ps.setLong(1, request.afterIdOrMin());
+                ps.setInt(2, request.size() + 1);
+                ResultSet rs = ps.executeQuery();
+                while (rs.next()) {
+                    employees.add((T) EmployeeMapper.map(rs));
+                }
+            }
+            return toPage(employees, request, estimateRowCount(con));
+        }catch(SQLException e){
+            throw new RepositoryAccessException(e);
+        }catch(DatabaseConfigurationException e){
+            throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
+        }finally{
+            releaseReadAccess();
+        }
+    }
+    /**
+     * Streams all employees ordered by ID from a forward-only cursor.
+     * The stream must be closed to release its database connection.
+     *
+     * @param fetchSize the number of rows fetched from the cursor at a time
+     * @return a lazily populated stream of all employees
+     * @throws RepositoryAccessException if a database access error occurs
+     */
+    @Override
+    public Stream<T> streamAll(int fetchSize) {
+        return streamQuery("SELECT id, name, date_of_birth, job_title, department, salary FROM employees ORDER BY id",
+                fetchSize, rs -> (T) EmployeeMapper.map(rs));
+    }
+    /**
+     * Retrieves the employees matching the given criteria, filtered in the database.
+     *
+     * @param criteria the search criteria
+     * @return the matching employees ordered by ID
+     * @throws RepositoryAccessException if a database access error occurs
+     */
+    public List<T> findMatching(EmployeeCriteria criteria) {
+        acquireReadAccess();
+        List<T> employees = new ArrayList<>();
+        try(Connection con = connectToDb()){
+            try(PreparedStatement ps = con.prepareStatement("SELECT id, name, date_of_birth, job_title, department, salary " +
+                    "FROM employees" + criteria.toWhereClause() + " ORDER BY id")) {
+                criteria.bind(ps, 1);
+                ResultSet rs = ps.executeQuery();
+                while (rs.next()) {
+                    employees.add((T) EmployeeMapper.map(rs));
+                }
+            }
+        }catch(SQLException e){
+            throw new RepositoryAccessException(e);
+        }catch(DatabaseConfigurationException e){
+            throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
+        }finally{
+            releaseReadAccess();
         }
         return employees;
     }
@@ -92,8 +199,8 @@ public class EmployeeRepository<T extends Employee> extends AbstractRepository<T
      * @throws RepositoryAccessException if a database access error occurs
      */
     @Override
-    public synchronized void save(T entity, User user){
-        waitForDbAccess();
+    public void save(T entity, User user){
+        acquireWriteAccess();
         try(Connection con = connectToDb()){
             try(PreparedStatement ps =con.prepareStatement("INSERT INTO EMPLOYEES(NAME, JOB_TITLE, DEPARTMENT, DATE_OF_BIRTH, SALARY)"
              + "VALUES(?, ?, ?, ?, ?)", Statement.RETURN_GENERATED_KEYS)) {
@@ -106,6 +213,7 @@ public class EmployeeRepository<T extends Employee> extends AbstractRepository<T
                 ResultSet rs = ps.getGeneratedKeys();
                 if (rs.next()) {
                     Long id = rs.getLong(1);
+                    entity.setId(id);
                     ChangelogUtil.logCreation(user, "Created new employee ",
                             "Id: " + id + " Name: " + entity.getName());
                 }
@@ -115,9 +223,9 @@ public class EmployeeRepository<T extends Employee> extends AbstractRepository<T
         }catch(DatabaseConfigurationException e){
             throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
         }finally{
-            databaseAccessInProgress = false;
-            notifyAll();
+            releaseWriteAccess();
         }
+        publishChange(ChangeType.CREATED, entity.getId());
     }
     /**
      * Updates an existing employee entity in the database.
@@ -128,9 +236,9 @@ public class EmployeeRepository<T extends Employee> extends AbstractRepository<T
      * @throws RepositoryAccessException if a database access error occurs
      */
     @Override
-    public synchronized void update(T entity, User user) {
+    public void update(T entity, User user) {
         Employee existingEmployee = findById(entity.getId());
-        waitForDbAccess();
+        acquireWriteAccess();
         try(Connection con = connectToDb()) {
             try (PreparedStatement employeeStmt = con.prepareStatement("UPDATE employees SET name = ?, job_title = ?" +
                     ", department = ?, salary = ?, date_of_birth = ? WHERE id = ?");
@@ -149,9 +257,98 @@ public class EmployeeRepository<T extends Employee> extends AbstractRepository<T
         }catch(DatabaseConfigurationException e){
             throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
         }finally{
-            databaseAccessInProgress = false;
-            notifyAll();
+            releaseWriteAccess();
+        }
+        publishChange(ChangeType.UPDATED, entity.getId());
+    }
+    /**
+     * Saves several new employees with one JDBC batch in a single transaction.
+     * A single changelog entry covers the whole batch.
+     *
+     * @param entities the employees to save, their IDs are set to the generated keys
+     * @param user the user performing the save operation, used for logging
+     * @throws RepositoryAccessException if a database access error occurs, in which case nothing is saved
+     */
+    @Override
+    public void saveAll(Collection<T> entities, User user) {
+        if(entities.isEmpty()) return;
+        List<String> details = new ArrayList<>();
+        acquireWriteAccess();
+        try(Connection con = connectToDb()){
+            con.setAutoCommit(false);
+            try(PreparedStatement ps = con.prepareStatement("INSERT INTO EMPLOYEES(NAME, JOB_TITLE, DEPARTMENT, " +
+                    "DATE_OF_BIRTH, SALARY) VALUES(?, ?, ?, ?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+                for(T entity : entities){
+                    ps.setString(1, entity.getName());
+                    ps.setString(2, entity.getJobTitle());
+                    ps.setString(3, entity.getDepartment());
+                    ps.setDate(4, Date.valueOf(entity.getDateOfBirth()));
+                    ps.setBigDecimal(5, entity.getSalary());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                ResultSet rs = ps.getGeneratedKeys();
+                for(T entity : entities){
+                    if(!rs.next()) break;
+                    entity.setId(rs.getLong(1));
+                    details.add("Id: " + entity.getId() + " Name: " + entity.getName());
+                }
+            }
+            con.commit();
+        }catch(SQLException e){
+            throw new RepositoryAccessException(e);
+        }catch(DatabaseConfigurationException e){
+            throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
+        }finally{
+            releaseWriteAccess();
+        }
+        ChangelogUtil.logBatch(user, "Created new employees", details);
+        publishChange(ChangeType.CREATED, entities.stream().map(Employee::getId).toList());
+    }
+    /**
+     * Updates several existing employees with one JDBC batch in a single transaction.
+     * A single changelog entry lists the changed fields of all employees.
+     *
+     * @param entities the employees with updated data
+     * @param user the user performing the update, used for logging
+     * @throws RepositoryAccessException if a database access error occurs, in which case nothing is updated
+     */
+    @Override
+    public void updateAll(Collection<T> entities, User user) {
+        if(entities.isEmpty()) return;
+        Map<Long, T> existingEmployees = new HashMap<>();
+        findAllById(entities.stream().map(Employee::getId).toList())
+                .forEach(employee -> existingEmployees.put(employee.getId(), employee));
+        List<String> details = new ArrayList<>();
+        acquireWriteAccess();
+        try(Connection con = connectToDb()) {
+            con.setAutoCommit(false);
+            try (PreparedStatement employeeStmt = con.prepareStatement("UPDATE employees SET name = ?, job_title = ?" +
+                    ", department = ?, salary = ?, date_of_birth = ? WHERE id = ?")) {
+                for(T entity : entities){
+                    employeeStmt.setString(1, entity.getName());
+                    employeeStmt.setString(2, entity.getJobTitle());
+                    employeeStmt.setString(3, entity.getDepartment());
+                    employeeStmt.setBigDecimal(4, entity.getSalary());
+                    employeeStmt.setDate(5, Date.valueOf(entity.getDateOfBirth()));
+                    employeeStmt.setLong(6, entity.getId());
+                    employeeStmt.addBatch();
+                    T existing = existingEmployees.get(entity.getId());
+                    List<String> changes = existing == null ? List.of() : ChangelogUtil.employeeChanges(existing, entity);
+                    if(!changes.isEmpty()) details.add("Id: " + entity.getId() + " " + changes);
+                }
+                employeeStmt.executeBatch();
+            }
+            con.commit();
+        }catch(SQLException e){
+            throw new RepositoryAccessException(e);
+        }catch(DatabaseConfigurationException e){
+            throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
+        }finally{
+            releaseWriteAccess();
         }
+        ChangelogUtil.logBatch(user, "Employees updated", details);
+        publishChange(ChangeType.UPDATED, entities.stream().map(Employee::getId).toList());
     }
     /**
      * Deletes an employee from the database by their unique ID.
@@ -162,8 +359,8 @@ public class EmployeeRepository<T extends Employee> extends AbstractRepository<T
      * @throws RepositoryAccessException if a database access error occurs
      */
     @Override
-    public synchronized void delete(Long id, User user) {
-        waitForDbAccess();
+    public void delete(Long id, User user) {
+        acquireWriteAccess();
         try(Connection con = connectToDb()){
             try(PreparedStatement ps = con.prepareStatement("DELETE FROM EMPLOYEES WHERE id = ?")) {
                 ps.setLong(1, id);
@@ -176,9 +373,9 @@ public class EmployeeRepository<T extends Employee> extends AbstractRepository<T
         }catch(DatabaseConfigurationException e){
             throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
         }finally {
-            databaseAccessInProgress = false;
-            notifyAll();
+            releaseWriteAccess();
         }
+        publishChange(ChangeType.DELETED, id);
     }
 
 }
@@ -46,6 +46,7 @@ public class EnvironmentalRiskHandler {
             ResultSet rs = riskStmt.getGeneratedKeys();
             if (rs.next()) {
                 Long riskId = rs.getLong(1);
+                envRisk.setId(riskId);
                 envStmt.setLong(1, riskId);
                 envStmt.setLong(2, envRisk.getDamageIndex());
                 envStmt.setBigDecimal(3, envRisk.getDisasterProbability());
@@ -70,7 +71,8 @@ public class EnvironmentalRiskHandler {
      * Updates an existing {@link EnvironmentalRisk} entity in the database.
      * <p>
      * Updates are performed within a transaction, modifying both the "risk" and "environmental_risk" tables.
-     * The method detects and logs any changes between the existing and updated entities.
+     * The method detects and logs any changes between the existing and updated entities
+     * and records the update in the {@link ChangeJournal}. The risk scores of affected trips are refreshed.
      * <p>
      * If any update operation fails, the transaction is rolled back to maintain data consistency.
      *
@@ -110,8 +112,9 @@ public class EnvironmentalRiskHandler {
             healthStmt.setBigDecimal(2, updatedRisk.getDisasterProbability());
             healthStmt.setLong(3, updatedRisk.getId());
             healthStmt.executeUpdate();
+            ChangeJournal.record(con, ChangeJournal.EntityType.RISK, updatedRisk.getId());
+            TripRiskScores.refreshAndCommit(con, c -> TripRiskScores.refreshTripsOfRisk(c, updatedRisk.getId()));
             ChangelogUtil.logEnvironmentalRiskUpdate(user, existingRisk, updatedRisk);
-            con.commit();
         } catch (SQLException e) {
             con.rollback();
             throw new RepositoryAccessException(e);
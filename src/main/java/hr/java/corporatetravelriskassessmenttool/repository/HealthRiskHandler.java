@@ -46,6 +46,7 @@ public class HealthRiskHandler {
             ResultSet rs = riskStmt.getGeneratedKeys();
             if (rs.next()) {
                 Long riskId = rs.getLong(1);
+                healthRisk.setId(riskId);
                 healthStmt.setLong(1, riskId);
                 healthStmt.setBigDecimal(2, healthRisk.getSeverity());
                 healthStmt.executeUpdate();
@@ -71,7 +72,7 @@ public class HealthRiskHandler {
      * Updates the general "risk" table and the specific "health_risk" table within a single transaction.
      * Rolls back the transaction if any update operation fails.
      * <p>
-     * Logs the update with details on changes made.
+     * Logs the update with details on changes made and records it in the {@link ChangeJournal}. The risk scores of affected trips are refreshed.
      *
      * @param updatedRisk the {@link HealthRisk} entity with updated information
      * @param existingRisk the current {@link HealthRisk} entity prior to the update
@@ -94,8 +95,9 @@ public class HealthRiskHandler {
             healthStmt.setBigDecimal(1, updatedRisk.getSeverity());
             healthStmt.setLong(2, updatedRisk.getId());
             healthStmt.executeUpdate();
+            ChangeJournal.record(con, ChangeJournal.EntityType.RISK, updatedRisk.getId());
+            TripRiskScores.refreshAndCommit(con, c -> TripRiskScores.refreshTripsOfRisk(c, updatedRisk.getId()));
             ChangelogUtil.logHealthRiskUpdate(user, existingRisk, updatedRisk);
-            con.commit();
         } catch (SQLException e) {
             con.rollback();
             throw new RepositoryAccessException(e);
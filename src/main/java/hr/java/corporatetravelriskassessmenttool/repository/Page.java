@@ -0,0 +1,25 @@
+package hr.java.corporatetravelriskassessmenttool.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * One page of entities returned by {@link AbstractRepository#findPage(PageRequest)}.
+ *
+ * @param content the entities of this page, in ascending ID order
+ * @param request the request this page was loaded for
+ * @param lastId the ID of the last entity in this page, or {@code null} if the page is empty
+ * @param hasNext whether more entities follow this page
+ * @param totalEstimate the estimated number of rows in the table, taken from the database statistics
+ * @param <T> the type of entity in the page
+ */
+public record Page<T>(List<T> content, PageRequest request, Long lastId, boolean hasNext, long totalEstimate) {
+    /**
+     * Returns the request for the page following this one.
+     *
+     * @return the next page request, or empty if this is the last page
+     */
+    public Optional<PageRequest> nextRequest() {
+        return hasNext ? Optional.of(new PageRequest(lastId, request.size())) : Optional.empty();
+    }
+}
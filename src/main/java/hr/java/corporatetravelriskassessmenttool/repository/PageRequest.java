@@ -0,0 +1,44 @@
+package hr.java.corporatetravelriskassessmenttool.repository;
+
+/**
+ * Request for one page of entities using keyset (seek) pagination.
+ * <p>
+ * Instead of skipping rows with an offset, a page starts right after the ID of the last entity of the
+ * previous page, so reading a page costs the same no matter how deep into the table it is.
+ * Entities are always returned in ascending ID order.
+ * </p>
+ *
+ * @param afterId the ID after which the page starts, or {@code null} for the first page
+ * @param size the maximum number of entities in the page
+ */
+public record PageRequest(Long afterId, int size) {
+    /**
+     * Validates the page size.
+     *
+     * @throws IllegalArgumentException if the size is not positive
+     */
+    public PageRequest {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Page size must be positive, was " + size);
+        }
+    }
+
+    /**
+     * Creates a request for the first page.
+     *
+     * @param size the maximum number of entities in the page
+     * @return the first page request
+     */
+    public static PageRequest first(int size) {
+        return new PageRequest(null, size);
+    }
+
+    /**
+     * Returns the lower ID bound to bind to the seek predicate.
+     *
+     * @return the ID after which the page starts, or {@link Long#MIN_VALUE} for the first page
+     */
+    public long afterIdOrMin() {
+        return afterId == null ? Long.MIN_VALUE : afterId;
+    }
+}
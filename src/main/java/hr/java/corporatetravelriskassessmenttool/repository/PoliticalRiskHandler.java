@@ -46,6 +46,7 @@ public class PoliticalRiskHandler {
             ResultSet rs = riskStmt.getGeneratedKeys();
             if (rs.next()) {
                 Long riskId = rs.getLong(1);
+                polRisk.setId(riskId);
                 polStmt.setLong(1, riskId);
                 polStmt.setLong(2, polRisk.getUnrestIndex());
                 polStmt.setLong(3, polRisk.getStabilityIndex());
@@ -70,7 +71,7 @@ public class PoliticalRiskHandler {
      * Updates the general "risk" table and the specific "political_risk" table within a single transaction.
      * Rolls back the transaction if any update operation fails.
      * <p>
-     * Logs the update with details on changes made.
+     * Logs the update with details on changes made and records it in the {@link ChangeJournal}. The risk scores of affected trips are refreshed.
      *
      * @param updatedRisk the {@link PoliticalRisk} entity with updated information
      * @param existingRisk the current {@link PoliticalRisk} entity prior to the update
@@ -95,8 +96,9 @@ public class PoliticalRiskHandler {
             healthStmt.setLong(2, updatedRisk.getUnrestIndex());
             healthStmt.setLong(3, updatedRisk.getId());
             healthStmt.executeUpdate();
+            ChangeJournal.record(con, ChangeJournal.EntityType.RISK, updatedRisk.getId());
+            TripRiskScores.refreshAndCommit(con, c -> TripRiskScores.refreshTripsOfRisk(c, updatedRisk.getId()));
             ChangelogUtil.logPoliticalRiskUpdate(user, existingRisk, updatedRisk);
-            con.commit();
         } catch (SQLException e) {
             con.rollback();
             throw new RepositoryAccessException(e);
@@ -0,0 +1,22 @@
+package hr.java.corporatetravelriskassessmenttool.repository;
+
+import java.util.Set;
+
+/**
+ * Notification that rows of a table were written by a repository.
+ * Events are published after the change has been committed.
+ *
+ * @param table the main table of the repository that made the change
+ * @param type the kind of change
+ * @param ids the IDs of the changed rows
+ */
+public record RepositoryChangeEvent(String table, ChangeType type, Set<Long> ids) {
+    /**
+     * Kind of change made to the rows.
+     */
+    public enum ChangeType {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+}
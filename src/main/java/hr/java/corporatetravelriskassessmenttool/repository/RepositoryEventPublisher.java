@@ -0,0 +1,59 @@
+package hr.java.corporatetravelriskassessmenttool.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Delivers {@link RepositoryChangeEvent}s from the repositories to interested listeners, such as indexes and caches.
+ * <p>
+ * Listeners are called synchronously on the thread that made the change, after it has been committed and
+ * after the repository released its table lock, so a listener may read from the database. A failing
+ * listener is logged and does not affect the write or the other listeners.
+ * </p>
+ */
+public class RepositoryEventPublisher {
+    private static final Logger log = LoggerFactory.getLogger(RepositoryEventPublisher.class);
+    private static final List<Consumer<RepositoryChangeEvent>> LISTENERS = new CopyOnWriteArrayList<>();
+
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private RepositoryEventPublisher() {}
+
+    /**
+     * Registers a listener for all subsequent changes.
+     *
+     * @param listener the listener to register
+     */
+    public static void subscribe(Consumer<RepositoryChangeEvent> listener) {
+        LISTENERS.add(listener);
+    }
+
+    /**
+     * Removes a previously registered listener.
+     *
+     * @param listener the listener to remove
+     */
+    public static void unsubscribe(Consumer<RepositoryChangeEvent> listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * Delivers an event to every registered listener.
+     *
+     * @param event the event to deliver
+     */
+    static void publish(RepositoryChangeEvent event) {
+        for (Consumer<RepositoryChangeEvent> listener : LISTENERS) {
+            try {
+                listener.accept(event);
+            } catch (RuntimeException e) {
+                log.warn("Change listener failed for {}", event, e);
+            }
+        }
+    }
+}
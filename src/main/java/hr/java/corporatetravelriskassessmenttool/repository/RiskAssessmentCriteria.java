@@ -0,0 +1,31 @@
+package hr.java.corporatetravelriskassessmenttool.repository;
+
+import hr.java.corporatetravelriskassessmenttool.model.RiskAssessment;
+
+/**
+ * Search criteria for {@link RiskAssessment} entities, used with
+ * {@link RiskAssessmentRepository#findMatching(RiskAssessmentCriteria)}.
+ */
+public class RiskAssessmentCriteria extends Criteria {
+    /**
+     * Matches assessments made for the given trip.
+     *
+     * @param tripId the ID of the trip, ignored if {@code null}
+     * @return these criteria
+     */
+    public RiskAssessmentCriteria forTrip(Long tripId) {
+        if (tripId != null) where("trip_id = ?", tripId);
+        return this;
+    }
+
+    /**
+     * Matches assessments made for the given employee.
+     *
+     * @param employeeId the ID of the employee, ignored if {@code null}
+     * @return these criteria
+     */
+    public RiskAssessmentCriteria forEmployee(Long employeeId) {
+        if (employeeId != null) where("employee_id = ?", employeeId);
+        return this;
+    }
+}
@@ -6,14 +6,17 @@ import hr.java.corporatetravelriskassessmenttool.exception.DatabaseConfiguration
 import hr.java.corporatetravelriskassessmenttool.exception.EmptyRepositoryException;
 import hr.java.corporatetravelriskassessmenttool.exception.RepositoryAccessException;
 import hr.java.corporatetravelriskassessmenttool.model.*;
+import hr.java.corporatetravelriskassessmenttool.repository.RepositoryChangeEvent.ChangeType;
 import hr.java.corporatetravelriskassessmenttool.utils.ChangelogUtil;
 
 import java.sql.*;
+import java.sql.Date;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static hr.java.corporatetravelriskassessmenttool.main.CorporateTravelRiskAssessmentApplication.changelogRepository;
 /**
@@ -27,6 +30,24 @@ import static hr.java.corporatetravelriskassessmenttool.main.CorporateTravelRisk
  */
 public class RiskAssessmentRepository<T extends RiskAssessment<Person, Risk>> extends AbstractRepository<T>{
     private static final String DATABASE_ERROR_STRING = "Database config failed";
+    private static final int TRIP_LOCK_STRIPES = 64;
+
+    /**
+     * Outcome of generating the assessments of a trip in the database.
+     *
+     * @param tripId the ID of the trip
+     * @param created the number of newly inserted assessments
+     * @param refreshed the number of existing assessments whose assessment date was changed
+     */
+    public record GenerationResult(long tripId, int created, int refreshed) {
+    }
+
+    /**
+     * Creates a repository backed by the {@code risk_assessment} table.
+     */
+    public RiskAssessmentRepository() {
+        super("risk_assessment");
+    }
 
     /**
      * Finds a {@link RiskAssessment} by its unique ID.
@@ -39,8 +60,8 @@ public class RiskAssessmentRepository<T extends RiskAssessment<Person, Risk>> ex
      * @throws RepositoryAccessException if a database access error occurs
      */
     @Override
-    public synchronized T findById(Long id){
-        waitForDbAccess();
+    public T findById(Long id){
+        acquireReadAccess();
         String sql = "SELECT id, trip_id, employee_id, risk_id, assessment_date FROM risk_assessment WHERE id = ?";
         RiskAssessmentStub stub;
         try (Connection con = connectToDb()) {
@@ -59,10 +80,9 @@ public class RiskAssessmentRepository<T extends RiskAssessment<Person, Risk>> ex
             throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
         }
         finally {
-            databaseAccessInProgress = false;
-            notifyAll();
+            releaseReadAccess();
         }
-        return (T) buildFromStub(stub);
+        return (T) buildFromStubs(List.of(stub)).getFirst();
     }
 
     /**
@@ -74,8 +94,8 @@ public class RiskAssessmentRepository<T extends RiskAssessment<Person, Risk>> ex
      * @throws RepositoryAccessException if a database access error occurs
      */
     @Override
-    public synchronized List<T> findAll() {
-        waitForDbAccess();
+    public List<T> findAll() {
+        acquireReadAccess();
         List<RiskAssessmentStub> assessmentStubs = new ArrayList<>();
         String sql = "SELECT id, trip_id, employee_id, risk_id, assessment_date FROM risk_assessment";
         try (Connection con = connectToDb()){
@@ -91,77 +111,195 @@ public class RiskAssessmentRepository<T extends RiskAssessment<Person, Risk>> ex
             throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
         }
         finally {
-            databaseAccessInProgress = false;
-            notifyAll();
+            releaseReadAccess();
         }
-        List<RiskAssessment<Person, Risk>> assessments = new ArrayList<>();
-        assessmentStubs.forEach(stub -> assessments.add(buildFromStub(stub)));
-        return (List<T>) assessments;
+        return (List<T>) buildFromStubs(assessmentStubs);
     }
     /**
-     * Saves a new {@link RiskAssessment} or updates an existing one based on composite key.
+     * Retrieves all {@link RiskAssessment} records with the given IDs.
      * <p>
-     * First checks for existence by composite key (person, risk, trip). If present, calls update;
-     * otherwise inserts a new record.
+     * The assessments are read with a single query and hydrated in bulk.
+     *
+     * @param ids the IDs of the risk assessments to find
+     * @return list of the risk assessments found
+     * @throws RepositoryAccessException if a database access error occurs
+     */
+    @Override
+    public List<T> findAllById(Collection<Long> ids) {
+        if(ids.isEmpty()) return new ArrayList<>();
+        acquireReadAccess();
+        List<RiskAssessmentStub> assessmentStubs = new ArrayList<>();
+        String sql = "SELECT id, trip_id, employee_id, risk_id, assessment_date FROM risk_assessment WHERE id = ANY(?)";
+        try (Connection con = connectToDb()){
+            try(PreparedStatement ps = con.prepareStatement(sql)){
+                ps.setArray(1, toIdArray(con, ids));
+                ResultSet rs = ps.executeQuery();
+                while (rs.next()) {
+                    assessmentStubs.add(extractFromResultSet(rs));
+                }
+            }
+        }catch (SQLException e) {
+            throw new RepositoryAccessException(e);
+        }catch(DatabaseConfigurationException e){
+            throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
+        }
+        finally {
+            releaseReadAccess();
+        }
+        return (List<T>) buildFromStubs(assessmentStubs);
+    }
+    /**
+     * Retrieves one page of {@link RiskAssessment} records ordered by ID.
      * <p>
-     * Logs creation events on successful insert.
+     * Only the assessments of the page are hydrated, in bulk.
      *
-     * @param entity the risk assessment to save
-     * @param user the user performing the operation, for changelog logging
-     * @throws RepositoryAccessException if a database error occurs
+     * @param request the page to load
+     * @return the requested page of risk assessments
+     * @throws RepositoryAccessException if a database access error occurs
      */
     @Override
-    public synchronized void save(T entity, User user) {
-        Optional<T> existing = Optional.empty();
-        try {
-            existing = findByCompositeKey(entity.getPerson().getId(), entity.getRisk().getId(), entity.getTrip().getId());
-        } catch (SQLException e) {
+    public Page<T> findPage(PageRequest request) {
+        acquireReadAccess();
+        List<RiskAssessmentStub> assessmentStubs = new ArrayList<>();
+        long totalEstimate;
+        String sql = "SELECT id, trip_id, employee_id, risk_id, assessment_date FROM risk_assessment " +
+                "WHERE id > ? ORDER BY id LIMIT ?";
+        try (Connection con = connectToDb()){
+            try(PreparedStatement ps = con.prepareStatement(sql)){
+                ps.setLong(1, request.afterIdOrMin());
+                ps.setInt(2, request.size() + 1);
+                ResultSet rs = ps.executeQuery();
+                while (rs.next()) {
+                    assessmentStubs.add(extractFromResultSet(rs));
+                }
+            }
+            totalEstimate = estimateRowCount(con);
+        }catch (SQLException e) {
             throw new RepositoryAccessException(e);
+        }catch(DatabaseConfigurationException e){
+            throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
         }
-        if (existing.isPresent()) {
-            update(existing.get(), user);
-        }else {
-            waitForDbAccess();
-            String sql = "INSERT INTO risk_assessment(employee_id, risk_id, trip_id, assessment_date) VALUES (?, ?, ?, ?)";
-            try (Connection con = connectToDb()) {
-                try (PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-                    ps.setLong(1, entity.getPerson().getId());
-                    ps.setLong(2, entity.getRisk().getId());
-                    ps.setObject(3, entity.getTrip() != null ? entity.getTrip().getId() : null);
-                    ps.setDate(4, Date.valueOf(entity.getAssessmentDate()));
-                    ps.executeUpdate();
-                    ResultSet rs = ps.getGeneratedKeys();
-                    if (rs.next()) {
-                        Long id = rs.getLong(1);
-                        ChangelogUtil.logCreation(user, "Created new risk assessment ",
-                                "Id: " + id + " Assessment date " + entity.getAssessmentDate());
-                    }
+        finally {
+            releaseReadAccess();
+        }
+        return toPage((List<T>) buildFromStubs(assessmentStubs), request, totalEstimate);
+    }
+    /**
+     * Retrieves the {@link RiskAssessment} records matching the given criteria, filtered in the database.
+     * <p>
+     * Only the matching assessments are hydrated, in bulk.
+     *
+     * @param criteria the search criteria
+     * @return the matching risk assessments ordered by ID
+     * @throws RepositoryAccessException if a database access error occurs
+     */
+    public List<T> findMatching(RiskAssessmentCriteria criteria) {
+        acquireReadAccess();
+        List<RiskAssessmentStub> assessmentStubs = new ArrayList<>();
+        String sql = "SELECT id, trip_id, employee_id, risk_id, assessment_date FROM risk_assessment" +
+                criteria.toWhereClause() + " ORDER BY id";
+        try (Connection con = connectToDb()){
+            try(PreparedStatement ps = con.prepareStatement(sql)){
+                criteria.bind(ps, 1);
+                ResultSet rs = ps.executeQuery();
+                while (rs.next()) {
+                    assessmentStubs.add(extractFromResultSet(rs));
                 }
-            }catch (SQLException e) {
-                throw new RepositoryAccessException(e);
-            }catch(DatabaseConfigurationException e){
-                throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
             }
-            finally {
-                databaseAccessInProgress = false;
-                notifyAll();
+        }catch (SQLException e) {
+            throw new RepositoryAccessException(e);
+        }catch(DatabaseConfigurationException e){
+            throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
+        }
+        finally {
+            releaseReadAccess();
+        }
+        return (List<T>) buildFromStubs(assessmentStubs);
+    }
+    /**
+     * Streams all {@link RiskAssessment} records ordered by ID from a forward-only cursor.
+     * <p>
+     * Assessments are hydrated in bulk for each chunk of {@code fetchSize} rows as the stream is consumed.
+     * The stream must be closed to release its database connection.
+     *
+     * @param fetchSize the number of rows fetched from the cursor at a time
+     * @return a lazily populated stream of all risk assessments
+     * @throws RepositoryAccessException if a database access error occurs
+     */
+    @Override
+    public Stream<T> streamAll(int fetchSize) {
+        Stream<RiskAssessmentStub> stubs = streamQuery("SELECT id, trip_id, employee_id, risk_id, assessment_date " +
+                "FROM risk_assessment ORDER BY id", fetchSize, this::extractFromResultSet);
+        return hydrateInChunks(stubs, fetchSize, chunk -> (List<T>) buildFromStubs(chunk));
+    }
+    /**
+     * Saves a new {@link RiskAssessment} or refreshes an existing one with the same composite key.
+     * <p>
+     * Uses a single {@code MERGE INTO ... KEY(employee_id, risk_id, trip_id)} statement. The previous row,
+     * if any, is returned by the statement itself through {@code OLD TABLE}, so the related entities are never
+     * reloaded. The old state is only assembled when the assessment date changed and the update must be logged.
+     * <p>
+     * Logs creation events on insert and update events on changed assessments.
+     *
+     * @param entity the risk assessment to save, its ID is set to the new or existing row ID
+     * @param user the user performing the operation, for changelog logging
+     * @throws RepositoryAccessException if a database error occurs
+     */
+    @Override
+    public void save(T entity, User user) {
+        Optional<RiskAssessmentStub> previous = Optional.empty();
+        acquireWriteAccess();
+        String mergeSql = "SELECT id, trip_id, employee_id, risk_id, assessment_date FROM OLD TABLE (" +
+                "MERGE INTO risk_assessment(employee_id, risk_id, trip_id, assessment_date) " +
+                "KEY(employee_id, risk_id, trip_id) VALUES (?, ?, ?, ?))";
+        try (Connection con = connectToDb()) {
+            con.setAutoCommit(false);
+            try (PreparedStatement ps = con.prepareStatement(mergeSql)) {
+                ps.setLong(1, entity.getPerson().getId());
+                ps.setLong(2, entity.getRisk().getId());
+                ps.setLong(3, entity.getTrip().getId());
+                ps.setDate(4, Date.valueOf(entity.getAssessmentDate()));
+                ResultSet rs = ps.executeQuery();
+                if (rs.next()) {
+                    previous = Optional.of(extractFromResultSet(rs));
+                }
             }
+            if (previous.isPresent()) {
+                entity.setId(previous.get().getId());
+            } else {
+                entity.setId(findIdByCompositeKey(con, entity));
+            }
+            con.commit();
+        }catch (SQLException e) {
+            throw new RepositoryAccessException(e);
+        }catch(DatabaseConfigurationException e){
+            throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
+        }
+        finally {
+            releaseWriteAccess();
         }
+        if (previous.isEmpty()) {
+            ChangelogUtil.logCreation(user, "Created new risk assessment ",
+                    "Id: " + entity.getId() + " Assessment date " + entity.getAssessmentDate());
+        } else if (!previous.get().getDate().equals(entity.getAssessmentDate())) {
+            ChangelogUtil.logAssessmentUpdate(user, withPreviousDate(entity, previous.get()), entity);
+        }
+        publishChange(previous.isEmpty() ? ChangeType.CREATED : ChangeType.UPDATED, entity.getId());
     }
     /**
      * Updates an existing {@link RiskAssessment} in the database.
      * <p>
-     * Loads the existing entity, then updates all fields.
-     * Logs the update in the changelog.
+     * Reads the stored row first to log the changes. The related entities are only reloaded
+     * if the update moves the assessment to a different employee, risk or trip.
      *
      * @param entity the risk assessment with updated data
      * @param user the user performing the update, for changelog logging
      * @throws RepositoryAccessException if a database error occurs
      */
     @Override
-    public synchronized void update(T entity, User user) {
-        RiskAssessment<Person, Risk> existingAssessment = findById(entity.getId());
-        waitForDbAccess();
+    public void update(T entity, User user) {
+        RiskAssessment<Person, Risk> existingAssessment = findPreviousState(entity);
+        acquireWriteAccess();
         String sql = "UPDATE risk_assessment SET employee_id = ?, risk_id = ?, trip_id = ?, assessment_date = ? WHERE id = ?";
         try (Connection con = connectToDb()) {
             try (PreparedStatement ps = con.prepareStatement(sql)) {
@@ -179,9 +317,277 @@ public class RiskAssessmentRepository<T extends RiskAssessment<Person, Risk>> ex
             throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
         }
         finally {
-            databaseAccessInProgress = false;
-            notifyAll();
+            releaseWriteAccess();
         }
+        publishChange(ChangeType.UPDATED, entity.getId());
+    }
+    /**
+     * Saves several {@link RiskAssessment}s, updating those that already exist for the same composite key.
+     * <p>
+     * Existing assessments are looked up with one query, then new assessments are inserted and existing ones
+     * updated with one JDBC batch each, all in a single transaction. A single changelog entry covers the batch.
+     * Entities sharing a composite key are saved once, with the values of the last of them.
+     *
+     * @param entities the risk assessments to save, their IDs are set to the new or existing row IDs
+     * @param user the user performing the operation, for changelog logging
+     * @throws RepositoryAccessException if a database error occurs, in which case nothing is saved
+     */
+    @Override
+    public void saveAll(Collection<T> entities, User user) {
+        if(entities.isEmpty()) return;
+        List<String> details = new ArrayList<>();
+        List<T> inserts = new ArrayList<>();
+        List<T> updates = new ArrayList<>();
+        Map<List<Long>, T> unique = new LinkedHashMap<>();
+        for(T entity : entities) unique.put(compositeKey(entity), entity);
+        acquireWriteAccess();
+        try (Connection con = connectToDb()) {
+            con.setAutoCommit(false);
+            Map<List<Long>, RiskAssessmentStub> existing = findExistingByCompositeKey(con, unique.values());
+            for(T entity : unique.values()){
+                RiskAssessmentStub stub = existing.get(compositeKey(entity));
+                if(stub == null){
+                    inserts.add(entity);
+                }else{
+                    entity.setId(stub.getId());
+                    updates.add(entity);
+                    if(!stub.getDate().equals(entity.getAssessmentDate())){
+                        details.add("Id: " + stub.getId() + " assessment date: '" + stub.getDate() + " → "
+                                + entity.getAssessmentDate() + "'");
+                    }
+                }
+            }
+            String insertSql = "INSERT INTO risk_assessment(employee_id, risk_id, trip_id, assessment_date) VALUES (?, ?, ?, ?)";
+            try (PreparedStatement ps = con.prepareStatement(insertSql, Statement.RETURN_GENERATED_KEYS)) {
+                for(T entity : inserts){
+                    ps.setLong(1, entity.getPerson().getId());
+                    ps.setLong(2, entity.getRisk().getId());
+                    ps.setLong(3, entity.getTrip().getId());
+                    ps.setDate(4, Date.valueOf(entity.getAssessmentDate()));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                ResultSet rs = ps.getGeneratedKeys();
+                for(T entity : inserts){
+                    if(!rs.next()) break;
+                    entity.setId(rs.getLong(1));
+                    details.add("Id: " + entity.getId() + " Assessment date " + entity.getAssessmentDate());
+                }
+            }
+            try (PreparedStatement ps = con.prepareStatement("UPDATE risk_assessment SET assessment_date = ? WHERE id = ?")) {
+                for(T entity : updates){
+                    ps.setDate(1, Date.valueOf(entity.getAssessmentDate()));
+                    ps.setLong(2, entity.getId());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            con.commit();
+        }catch (SQLException e) {
+            throw new RepositoryAccessException(e);
+        }catch(DatabaseConfigurationException e){
+            throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
+        }
+        finally {
+            releaseWriteAccess();
+        }
+        for(T entity : entities) entity.setId(unique.get(compositeKey(entity)).getId());
+        ChangelogUtil.logBatch(user, "Saved risk assessments", details);
+        publishChange(ChangeType.CREATED, inserts.stream().map(RiskAssessment::getId).toList());
+        publishChange(ChangeType.UPDATED, updates.stream().map(RiskAssessment::getId).toList());
+    }
+    /**
+     * Updates several existing {@link RiskAssessment}s with one JDBC batch in a single transaction.
+     * <p>
+     * The previous state is read in bulk first, and a single changelog entry lists the changes of all assessments.
+     *
+     * @param entities the risk assessments with updated data
+     * @param user the user performing the update, for changelog logging
+     * @throws RepositoryAccessException if a database error occurs, in which case nothing is updated
+     */
+    @Override
+    public void updateAll(Collection<T> entities, User user) {
+        if(entities.isEmpty()) return;
+        Map<Long, T> existingAssessments = new HashMap<>();
+        findAllById(entities.stream().map(RiskAssessment::getId).toList())
+                .forEach(assessment -> existingAssessments.put(assessment.getId(), assessment));
+        List<String> details = new ArrayList<>();
+        acquireWriteAccess();
+        String sql = "UPDATE risk_assessment SET employee_id = ?, risk_id = ?, trip_id = ?, assessment_date = ? WHERE id = ?";
+        try (Connection con = connectToDb()) {
+            con.setAutoCommit(false);
+            try (PreparedStatement ps = con.prepareStatement(sql)) {
+                for(T entity : entities){
+                    ps.setLong(1, entity.getPerson().getId());
+                    ps.setLong(2, entity.getRisk().getId());
+                    ps.setLong(3, entity.getTrip().getId());
+                    ps.setDate(4, Date.valueOf(entity.getAssessmentDate()));
+                    ps.setLong(5, entity.getId());
+                    ps.addBatch();
+                    T existing = existingAssessments.get(entity.getId());
+                    List<String> changes = existing == null ? List.of() : ChangelogUtil.assessmentChanges(existing, entity);
+                    if(!changes.isEmpty()) details.add("Id: " + entity.getId() + " " + changes);
+                }
+                ps.executeBatch();
+            }
+            con.commit();
+        }catch(SQLException e){
+            throw new RepositoryAccessException(e);
+        }catch(DatabaseConfigurationException e){
+            throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
+        }
+        finally {
+            releaseWriteAccess();
+        }
+        ChangelogUtil.logBatch(user, "Risk assessments updated", details);
+        publishChange(ChangeType.UPDATED, entities.stream().map(RiskAssessment::getId).toList());
+    }
+    /**
+     * Generates the risk assessments of a whole trip inside the database and logs the outcome.
+     *
+     * @param tripId the ID of the trip to generate assessments for
+     * @param assessmentDate the assessment date of the created and refreshed assessments
+     * @param user the user performing the operation, for changelog logging
+     * @return the number of created and refreshed assessments
+     * @throws RepositoryAccessException if a database error occurs, in which case nothing is changed
+     * @see #generateForTrip(Long, LocalDate)
+     */
+    public GenerationResult generateForTrip(Long tripId, LocalDate assessmentDate, User user) {
+        GenerationResult result = generateForTrip(tripId, assessmentDate);
+        if(result.created() > 0 || result.refreshed() > 0){
+            ChangelogUtil.logCreation(user, "Generated risk assessments", "Trip id: " + tripId + " created: "
+                    + result.created() + " refreshed: " + result.refreshed() + " assessment date " + assessmentDate);
+        }
+        return result;
+    }
+    /**
+     * Generates the risk assessments of a whole trip inside the database, without logging.
+     * <p>
+     * Every employee of the trip is paired with every risk of the trip's destinations by joining
+     * {@code trip_employee}, {@code trip_destination} and {@code destination_risk}. Pairs that are already
+     * assessed get the new assessment date and the remaining pairs are inserted with one {@code INSERT ... SELECT},
+     * both in a single transaction. No rows are transferred to the application.
+     * <p>
+     * Generation only touches the rows of one trip, so it holds shared access to the table together with
+     * exclusive access to the trip. Generation for different trips can run in parallel, while
+     * whole-table writes such as {@link #save(RiskAssessment, User)} still exclude it.
+     *
+     * @param tripId the ID of the trip to generate assessments for
+     * @param assessmentDate the assessment date of the created and refreshed assessments
+     * @return the number of created and refreshed assessments
+     * @throws RepositoryAccessException if a database error occurs, in which case nothing is changed
+     */
+    public GenerationResult generateForTrip(Long tripId, LocalDate assessmentDate) {
+        String tripLock = getTableName() + "#trip-" + Math.floorMod(tripId, TRIP_LOCK_STRIPES);
+        String tripPairs = "FROM trip_employee te JOIN trip_destination td ON td.trip_id = te.trip_id " +
+                "JOIN destination_risk dr ON dr.destination_id = td.destination_id ";
+        String refreshSql = "SELECT id FROM FINAL TABLE (UPDATE risk_assessment ra SET assessment_date = ? " +
+                "WHERE ra.trip_id = ? AND ra.assessment_date <> ? AND EXISTS (SELECT 1 " + tripPairs +
+                "WHERE te.trip_id = ra.trip_id AND te.employee_id = ra.employee_id AND dr.risk_id = ra.risk_id))";
+        String insertSql = "SELECT id FROM FINAL TABLE (INSERT INTO risk_assessment(employee_id, risk_id, trip_id, " +
+                "assessment_date) SELECT DISTINCT te.employee_id, dr.risk_id, te.trip_id, ? " + tripPairs +
+                "WHERE te.trip_id = ? AND NOT EXISTS (SELECT 1 FROM risk_assessment ra WHERE ra.trip_id = te.trip_id " +
+                "AND ra.employee_id = te.employee_id AND ra.risk_id = dr.risk_id))";
+        List<Long> refreshedIds = new ArrayList<>();
+        List<Long> createdIds = new ArrayList<>();
+        acquireReadAccess();
+        try {
+            DatabaseLockManager.acquireWrite(tripLock);
+            try (Connection con = connectToDb()) {
+                con.setAutoCommit(false);
+                try (PreparedStatement ps = con.prepareStatement(refreshSql)) {
+                    ps.setDate(1, Date.valueOf(assessmentDate));
+                    ps.setLong(2, tripId);
+                    ps.setDate(3, Date.valueOf(assessmentDate));
+                    ResultSet rs = ps.executeQuery();
+                    while (rs.next()) refreshedIds.add(rs.getLong("id"));
+                }
+                try (PreparedStatement ps = con.prepareStatement(insertSql)) {
+                    ps.setDate(1, Date.valueOf(assessmentDate));
+                    ps.setLong(2, tripId);
+                    ResultSet rs = ps.executeQuery();
+                    while (rs.next()) createdIds.add(rs.getLong("id"));
+                }
+                con.commit();
+            }catch (SQLException e) {
+                throw new RepositoryAccessException(e);
+            }catch(DatabaseConfigurationException e){
+                throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
+            }
+            finally {
+                DatabaseLockManager.releaseWrite(tripLock);
+            }
+        } finally {
+            releaseReadAccess();
+        }
+        publishChange(ChangeType.CREATED, createdIds);
+        publishChange(ChangeType.UPDATED, refreshedIds);
+        return new GenerationResult(tripId, createdIds.size(), refreshedIds.size());
+    }
+    /**
+     * Refreshes the assessment date of every assessment of the given risks, across all trips.
+     * Used when the values of the risks changed, so the assessments no longer reflect the date they were assessed on.
+     *
+     * @param riskIds the IDs of the risks whose assessments to refresh
+     * @param assessmentDate the new assessment date
+     * @return the number of assessments whose date was changed
+     * @throws RepositoryAccessException if a database error occurs
+     */
+    public int refreshForRisks(Collection<Long> riskIds, LocalDate assessmentDate) {
+        if(riskIds.isEmpty()) return 0;
+        List<Long> refreshedIds = new ArrayList<>();
+        acquireWriteAccess();
+        String sql = "SELECT id FROM FINAL TABLE (UPDATE risk_assessment SET assessment_date = ? " +
+                "WHERE risk_id = ANY(?) AND assessment_date <> ?)";
+        try (Connection con = connectToDb(); PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setDate(1, Date.valueOf(assessmentDate));
+            ps.setArray(2, toIdArray(con, riskIds));
+            ps.setDate(3, Date.valueOf(assessmentDate));
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) refreshedIds.add(rs.getLong("id"));
+        }catch (SQLException e) {
+            throw new RepositoryAccessException(e);
+        }catch(DatabaseConfigurationException e){
+            throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
+        }
+        finally {
+            releaseWriteAccess();
+        }
+        publishChange(ChangeType.UPDATED, refreshedIds);
+        return refreshedIds.size();
+    }
+    /**
+     * Reads the stored assessments that share a composite key with any of the given assessments.
+     * Candidates are narrowed down by trip with one query.
+     *
+     * @param con the active database connection
+     * @param entities the assessments to look up
+     * @return the stored assessments keyed by {@link #compositeKey(RiskAssessment)}
+     * @throws SQLException if a database access error occurs
+     */
+    private Map<List<Long>, RiskAssessmentStub> findExistingByCompositeKey(Connection con, Collection<T> entities)
+            throws SQLException {
+        Set<Long> tripIds = entities.stream().map(entity -> entity.getTrip().getId()).collect(Collectors.toSet());
+        Map<List<Long>, RiskAssessmentStub> existing = new HashMap<>();
+        String sql = "SELECT id, trip_id, employee_id, risk_id, assessment_date FROM risk_assessment WHERE trip_id = ANY(?)";
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setArray(1, toIdArray(con, tripIds));
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                RiskAssessmentStub stub = extractFromResultSet(rs);
+                existing.put(List.of(stub.getPersonId(), stub.getRiskId(), stub.getTripId()), stub);
+            }
+        }
+        return existing;
+    }
+    /**
+     * Returns the composite key identifying an assessment: its employee, risk and trip IDs.
+     *
+     * @param entity the assessment
+     * @return the key as a list of the employee, risk and trip IDs
+     */
+    private List<Long> compositeKey(T entity) {
+        return List.of(entity.getPerson().getId(), entity.getRisk().getId(), entity.getTrip().getId());
     }
     /**
      * Deletes a {@link RiskAssessment} by its ID.
@@ -193,8 +599,8 @@ public class RiskAssessmentRepository<T extends RiskAssessment<Person, Risk>> ex
      * @throws RepositoryAccessException if a database error occurs
      */
     @Override
-    public synchronized void delete(Long id, User user) {
-        waitForDbAccess();
+    public void delete(Long id, User user) {
+        acquireWriteAccess();
         try(Connection con = connectToDb()){
             try(PreparedStatement ps = con.prepareStatement("DELETE FROM risk_assessment WHERE id = ?")){
                 ps.setLong(1, id);
@@ -207,46 +613,77 @@ public class RiskAssessmentRepository<T extends RiskAssessment<Person, Risk>> ex
         }catch(DatabaseConfigurationException e){
             throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
         }finally{
-            databaseAccessInProgress = false;
-            notifyAll();
+            releaseWriteAccess();
+        }
+        publishChange(ChangeType.DELETED, id);
+    }
+    /**
+     * Finds the ID of the stored assessment with the same composite key as the given one.
+     * The lookup is served by the unique index on {@code (employee_id, risk_id, trip_id)}.
+     *
+     * @param con the active database connection
+     * @param entity the assessment whose row to find
+     * @return the ID of the stored assessment
+     * @throws SQLException if a database access error occurs or no such row exists
+     */
+    private Long findIdByCompositeKey(Connection con, T entity) throws SQLException {
+        String sql = "SELECT id FROM risk_assessment WHERE employee_id = ? AND risk_id = ? AND trip_id = ?";
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setLong(1, entity.getPerson().getId());
+            ps.setLong(2, entity.getRisk().getId());
+            ps.setLong(3, entity.getTrip().getId());
+            ResultSet rs = ps.executeQuery();
+            if (!rs.next()) {
+                throw new SQLException("Saved risk assessment not found for composite key " + compositeKey(entity));
+            }
+            return rs.getLong("id");
         }
     }
     /**
-     * Finds a risk assessment by a composite key consisting of person ID, risk ID, and trip ID.
+     * Assembles the stored state of an assessment that is about to be updated.
      * <p>
-     * Used internally to check if an assessment already exists for the combination.
+     * Only the stored row is read. If it still refers to the same employee, risk and trip,
+     * the related entities of the updated assessment are reused; otherwise the old assessment is fully loaded.
      *
-     * @param personId the ID of the person/employee
-     * @param riskId the ID of the risk
-     * @param tripId the ID of the trip
-     * @return an {@link Optional} containing the found risk assessment, or empty if not found
-     * @throws SQLException if a database access error occurs
-     * @throws RepositoryAccessException if other database configuration errors occur
+     * @param entity the updated assessment
+     * @return the assessment as currently stored
+     * @throws EmptyRepositoryException if the assessment does not exist
+     * @throws RepositoryAccessException if a database access error occurs
      */
-    private synchronized Optional<T> findByCompositeKey(Long personId, Long riskId, Long tripId) throws SQLException {
-        waitForDbAccess();
-        String sql = "SELECT id, employee_id, risk_id, trip_id, assessment_date FROM risk_assessment WHERE employee_id = ? AND risk_id = ? AND trip_id = ?";
-        Optional<RiskAssessmentStub> stub = Optional.empty();
+    private RiskAssessment<Person, Risk> findPreviousState(T entity) {
+        acquireReadAccess();
+        RiskAssessmentStub stub;
+        String sql = "SELECT id, trip_id, employee_id, risk_id, assessment_date FROM risk_assessment WHERE id = ?";
         try (Connection con = connectToDb(); PreparedStatement ps = con.prepareStatement(sql)) {
-            ps.setLong(1, personId);
-            ps.setLong(2, riskId);
-            ps.setLong(3, tripId);
+            ps.setLong(1, entity.getId());
             ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                stub = Optional.of(extractFromResultSet(rs));
+            if (!rs.next()) {
+                throw new EmptyRepositoryException("Assessment not found with ID: " + entity.getId());
             }
+            stub = extractFromResultSet(rs);
         }catch(SQLException e){
             throw new RepositoryAccessException(e);
         }catch(DatabaseConfigurationException e){
             throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
         }
         finally {
-            databaseAccessInProgress = false;
-            notifyAll();
+            releaseReadAccess();
         }
-        if(stub.isPresent()){
-            return (Optional<T>) Optional.of(buildFromStub(stub.get()));
-        }else return Optional.empty();
+        boolean sameKey = stub.getPersonId().equals(entity.getPerson().getId())
+                && stub.getRiskId().equals(entity.getRisk().getId())
+                && stub.getTripId().equals(entity.getTrip().getId());
+        return sameKey ? withPreviousDate(entity, stub) : buildFromStubs(List.of(stub)).getFirst();
+    }
+    /**
+     * Creates a copy of an assessment carrying the ID and date of its stored row.
+     *
+     * @param entity the assessment with the current related entities
+     * @param previous the stored row of the assessment
+     * @return the assessment as it was before the change
+     */
+    private RiskAssessment<Person, Risk> withPreviousDate(T entity, RiskAssessmentStub previous) {
+        return new RiskAssessment.Builder<>().setId(previous.getId()).setTrip(entity.getTrip())
+                .setPerson(entity.getPerson()).setRisk(entity.getRisk()).setAssessmentDate(previous.getDate()).build();
     }
     /**
      * Extracts a {@link RiskAssessmentStub} from the current row of a {@link ResultSet}.
@@ -264,21 +701,58 @@ public class RiskAssessmentRepository<T extends RiskAssessment<Person, Risk>> ex
         return new RiskAssessmentStub(id, personId, riskId, tripId, date);
     }
     /**
-     * Builds a fully populated {@link RiskAssessment} entity from a {@link RiskAssessmentStub}.
+     * Builds fully populated {@link RiskAssessment} entities from a list of {@link RiskAssessmentStub}s.
      * <p>
-     * Fetches related {@link Risk}, {@link Employee}, and {@link Trip} entities from their respective repositories.
+     * All referenced trips are loaded in one bulk lookup. Employees and risks already contained in those
+     * trips are reused, and only the remaining ones are fetched, again in one lookup per repository.
+     * Assessments referencing the same employee, risk or trip share the same instance.
+     *
+     * @param stubs the risk assessment stubs containing IDs and dates
+     * @return the fully constructed {@link RiskAssessment} entities, in the order of the stubs
+     * @throws EmptyRepositoryException if a referenced employee, risk or trip does not exist
+     */
+    private List<RiskAssessment<Person, Risk>> buildFromStubs(List<RiskAssessmentStub> stubs) {
+        List<RiskAssessment<Person, Risk>> assessments = new ArrayList<>();
+        if(stubs.isEmpty()) return assessments;
+        Set<Long> tripIds = stubs.stream().map(RiskAssessmentStub::getTripId).collect(Collectors.toSet());
+        Map<Long, Trip<Person>> trips = new TripRepository<>().findAllById(tripIds).stream()
+                .collect(Collectors.toMap(Trip::getId, Function.identity()));
+        Map<Long, Person> employees = new HashMap<>();
+        Map<Long, Risk> risks = new HashMap<>();
+        trips.values().forEach(trip -> {
+            trip.getEmployees().forEach(employee -> employees.put(employee.getId(), employee));
+            trip.getDestinations().forEach(destination ->
+                    destination.getRisks().forEach(risk -> risks.put(risk.getId(), risk)));
+        });
+        Set<Long> missingEmployeeIds = stubs.stream().map(RiskAssessmentStub::getPersonId)
+                .filter(id -> !employees.containsKey(id)).collect(Collectors.toSet());
+        new EmployeeRepository<>().findAllById(missingEmployeeIds)
+                .forEach(employee -> employees.put(employee.getId(), employee));
+        Set<Long> missingRiskIds = stubs.stream().map(RiskAssessmentStub::getRiskId)
+                .filter(id -> !risks.containsKey(id)).collect(Collectors.toSet());
+        new RiskRepository<>().findAllById(missingRiskIds).forEach(risk -> risks.put(risk.getId(), risk));
+        for(RiskAssessmentStub stub : stubs){
+            assessments.add(new RiskAssessment.Builder<>().setId(stub.getId())
+                    .setTrip(requireLoaded(trips, stub.getTripId(), "Trip"))
+                    .setPerson(requireLoaded(employees, stub.getPersonId(), "Employee"))
+                    .setRisk(requireLoaded(risks, stub.getRiskId(), "Risk"))
+                    .setAssessmentDate(stub.getDate()).build());
+        }
+        return assessments;
+    }
+    /**
+     * Looks up an entity loaded during bulk hydration.
      *
-     * @param stub the risk assessment stub containing IDs and date
-     * @return a fully constructed {@link RiskAssessment} entity
+     * @param loaded the loaded entities, keyed by ID
+     * @param id the ID of the referenced entity
+     * @param type the entity type name, used in the error message
+     * @param <E> the entity type
+     * @return the loaded entity
+     * @throws EmptyRepositoryException if the entity was not found
      */
-    private RiskAssessment<Person, Risk> buildFromStub(RiskAssessmentStub stub) {
-        AbstractRepository<Risk> riskRepository = new RiskRepository<>();
-        AbstractRepository<Employee> employeeRepository = new EmployeeRepository<>();
-        AbstractRepository<Trip<Person>> tripRepository = new TripRepository<>();
-        Employee employee = employeeRepository.findById(stub.getPersonId());
-        Risk risk = riskRepository.findById(stub.getRiskId());
-        Trip<Person> trip = tripRepository.findById(stub.getTripId());
-        return new RiskAssessment.Builder<>().setId(stub.getId()).setTrip(trip).setPerson(employee).setRisk(risk)
-                .setAssessmentDate(stub.getDate()).build();
+    private static <E> E requireLoaded(Map<Long, E> loaded, Long id, String type) {
+        E entity = loaded.get(id);
+        if(entity == null) throw new EmptyRepositoryException(type + " not found with ID: " + id);
+        return entity;
     }
 }
@@ -0,0 +1,42 @@
+package hr.java.corporatetravelriskassessmenttool.repository;
+
+import hr.java.corporatetravelriskassessmenttool.enums.RiskLevel;
+import hr.java.corporatetravelriskassessmenttool.model.Risk;
+
+/**
+ * Search criteria for {@link Risk} entities, used with {@link RiskRepository#findMatching(RiskCriteria)}.
+ */
+public class RiskCriteria extends Criteria {
+    /**
+     * Matches risks whose description contains the given text, ignoring case.
+     *
+     * @param description the text to look for
+     * @return these criteria
+     */
+    public RiskCriteria descriptionContains(String description) {
+        whereContains("r.description", description);
+        return this;
+    }
+
+    /**
+     * Matches risks of the given type.
+     *
+     * @param type the stored risk type, e.g. {@code Health}, ignored if {@code null} or empty
+     * @return these criteria
+     */
+    public RiskCriteria ofType(String type) {
+        if (type != null && !type.isEmpty()) where("r.type = ?", type);
+        return this;
+    }
+
+    /**
+     * Matches risks of the given level. Levels are compared ignoring case, as they are stored in mixed case.
+     *
+     * @param level the risk level, ignored if {@code null}
+     * @return these criteria
+     */
+    public RiskCriteria withLevel(RiskLevel level) {
+        if (level != null) where("UPPER(r.level) = ?", level.name());
+        return this;
+    }
+}
@@ -0,0 +1,635 @@
+package hr.java.corporatetravelriskassessmenttool.repository;
+
+import hr.java.corporatetravelriskassessmenttool.exception.DatabaseConfigurationException;
+import hr.java.corporatetravelriskassessmenttool.exception.RepositoryAccessException;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory inverted index from risks to the destinations, trips, travellers and assessments that depend on them.
+ * <p>
+ * The index holds only IDs, read from {@code destination_risk}, {@code trip_destination}, {@code trip_employee}
+ * and {@code risk_assessment}, in both directions, so impact queries such as "which trips and travellers are
+ * affected if this risk changes" take time proportional to the size of the answer instead of loading all trips.
+ * </p>
+ * <p>
+ * The index is loaded once on first use and then kept current through {@link RepositoryEventPublisher}:
+ * for every committed repository write only the relation rows of the changed entities are read again.
+ * Those reloads are serialized, so the last reload after a change always sees the committed state.
+ * If a reload fails, the index is marked stale and loaded again in full on the next change or lookup.
+ * Exposure listeners are then told which trips the change may have affected, so data derived from trip
+ * risks can be recomputed for those trips only.
+ * </p>
+ */
+public class RiskDependencyIndex implements Consumer<RepositoryChangeEvent> {
+    private static final String DATABASE_ERROR_STRING = "Database config failed";
+    private static volatile RiskDependencyIndex instance;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Links destinationRisks = new Links();
+    private final Links tripDestinations = new Links();
+    private final Links tripEmployees = new Links();
+    private final Links assessmentRisks = new Links();
+    private final Links assessmentTrips = new Links();
+    private final Links assessmentEmployees = new Links();
+    private final List<Consumer<Set<Long>>> exposureListeners = new CopyOnWriteArrayList<>();
+    private volatile boolean stale;
+
+    /**
+     * Everything that depends on a risk.
+     *
+     * @param riskId the ID of the risk
+     * @param destinationIds the destinations exposed to the risk
+     * @param tripIds the trips visiting any of those destinations
+     * @param employeeIds the travellers on any of those trips
+     * @param assessmentIds the assessments of the risk
+     */
+    public record Impact(long riskId, Set<Long> destinationIds, Set<Long> tripIds, Set<Long> employeeIds,
+                         Set<Long> assessmentIds) {
+    }
+
+    /**
+     * Copy of the relations between trips, destinations, travellers and risks, for whole-graph computations.
+     *
+     * @param risksByDestination the IDs of the risks of each destination
+     * @param destinationsByTrip the IDs of the destinations of each trip
+     * @param employeesByTrip the IDs of the travellers of each trip
+     */
+    public record Relations(Map<Long, Set<Long>> risksByDestination, Map<Long, Set<Long>> destinationsByTrip,
+                            Map<Long, Set<Long>> employeesByTrip) {
+    }
+
+    /**
+     * Private constructor, use {@link #getInstance()}.
+     */
+    private RiskDependencyIndex() {}
+
+    /**
+     * Returns the shared index, loading it and subscribing it to repository changes on first use.
+     *
+     * @return the index
+     * @throws RepositoryAccessException if the index cannot be loaded
+     */
+    public static RiskDependencyIndex getInstance() {
+        RiskDependencyIndex index = instance;
+        if (index == null) {
+            synchronized (RiskDependencyIndex.class) {
+                index = instance;
+                if (index == null) {
+                    index = new RiskDependencyIndex();
+                    // subscribed before loading, so a write committed in between is applied afterwards
+                    RepositoryEventPublisher.subscribe(index);
+                    try {
+                        index.rebuild();
+                    } catch (RuntimeException e) {
+                        RepositoryEventPublisher.unsubscribe(index);
+                        throw e;
+                    }
+                    instance = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Returns everything that depends on a risk.
+     *
+     * @param riskId the ID of the risk
+     * @return the destinations, trips, travellers and assessments affected by a change of the risk
+     * @throws RepositoryAccessException if the index is stale and cannot be loaded again
+     */
+    public Impact impactOfRisk(long riskId) {
+        rebuildIfStale();
+        lock.readLock().lock();
+        try {
+            Set<Long> destinations = Set.copyOf(destinationRisks.leftsOf(riskId));
+            Set<Long> trips = new HashSet<>();
+            destinations.forEach(destinationId -> trips.addAll(tripDestinations.leftsOf(destinationId)));
+            Set<Long> employees = new HashSet<>();
+            trips.forEach(tripId -> employees.addAll(tripEmployees.rightsOf(tripId)));
+            return new Impact(riskId, destinations, Set.copyOf(trips), Set.copyOf(employees),
+                    Set.copyOf(assessmentRisks.leftsOf(riskId)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the trips that visit any destination exposed to one of the given risks.
+     *
+     * @param riskIds the IDs of the risks
+     * @return the IDs of the affected trips
+     * @throws RepositoryAccessException if the index is stale and cannot be loaded again
+     */
+    public Set<Long> tripsAffectedByRisks(Collection<Long> riskIds) {
+        rebuildIfStale();
+        lock.readLock().lock();
+        try {
+            Set<Long> trips = new HashSet<>();
+            collectTripsOfRisks(riskIds, trips);
+            return trips;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Registers a listener notified after every repository change that may have changed the risks some trips
+     * are exposed to: changed risks, destinations and trips. The listener receives the IDs of those trips,
+     * including trips that were deleted or lost the exposure with the change, and is called on the thread
+     * that made the change, after the index has been updated. After a failed update, the thread that loads the
+     * stale index again reports every trip instead.
+     *
+     * @param listener the listener to register
+     */
+    public void addExposureListener(Consumer<Set<Long>> listener) {
+        exposureListeners.add(listener);
+    }
+
+    /**
+     * Removes a listener registered with {@link #addExposureListener(Consumer)}.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeExposureListener(Consumer<Set<Long>> listener) {
+        exposureListeners.remove(listener);
+    }
+
+    /**
+     * Returns a consistent copy of the relations between trips, destinations, travellers and risks.
+     *
+     * @return the copied relations; entities without any relation are not included
+     * @throws RepositoryAccessException if the index is stale and cannot be loaded again
+     */
+    public Relations relations() {
+        rebuildIfStale();
+        lock.readLock().lock();
+        try {
+            return new Relations(destinationRisks.copyByLeft(), tripDestinations.copyByLeft(), tripEmployees.copyByLeft());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the trips that visit a destination.
+     *
+     * @param destinationId the ID of the destination
+     * @return the IDs of the trips
+     * @throws RepositoryAccessException if the index is stale and cannot be loaded again
+     */
+    public Set<Long> tripsVisiting(long destinationId) {
+        return read(() -> Set.copyOf(tripDestinations.leftsOf(destinationId)));
+    }
+
+    /**
+     * Returns the risks a trip is exposed to through its destinations.
+     *
+     * @param tripId the ID of the trip
+     * @return the IDs of the risks
+     * @throws RepositoryAccessException if the index is stale and cannot be loaded again
+     */
+    public Set<Long> risksOfTrip(long tripId) {
+        return read(() -> {
+            Set<Long> risks = new HashSet<>();
+            tripDestinations.rightsOf(tripId).forEach(destinationId -> risks.addAll(destinationRisks.rightsOf(destinationId)));
+            return risks;
+        });
+    }
+
+    /**
+     * Returns the assessments made for a trip.
+     *
+     * @param tripId the ID of the trip
+     * @return the IDs of the assessments
+     * @throws RepositoryAccessException if the index is stale and cannot be loaded again
+     */
+    public Set<Long> assessmentsOfTrip(long tripId) {
+        return read(() -> Set.copyOf(assessmentTrips.leftsOf(tripId)));
+    }
+
+    /**
+     * Discards the index and loads it again from the database.
+     *
+     * @throws RepositoryAccessException if a database access error occurs
+     */
+    public void rebuild() {
+        lock.writeLock().lock();
+        try (Connection con = DatabaseConnectionPool.getInstance().getConnection()) {
+            loadAll(con);
+        } catch (SQLException e) {
+            throw new RepositoryAccessException(e);
+        } catch (DatabaseConfigurationException e) {
+            throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Brings the index up to date after a repository write by reloading the relations of the changed rows,
+     * or all relations if the index is stale. In the latter case the exposure listeners are told about every
+     * trip known before or after the reload, because the changes missed in between are unknown.
+     *
+     * @param event the committed change
+     * @throws RepositoryAccessException if a database access error occurs; the index is then stale
+     */
+    @Override
+    public void accept(RepositoryChangeEvent event) {
+        Set<Long> exposedTrips = new HashSet<>();
+        lock.writeLock().lock();
+        boolean wasStale = stale;
+        // stays set if the change cannot be applied, so that it is not silently lost
+        stale = true;
+        try (Connection con = DatabaseConnectionPool.getInstance().getConnection()) {
+            if (wasStale) {
+                reloadAll(con, exposedTrips);
+                if (event.table().equals("trip")) exposedTrips.addAll(event.ids());
+            } else {
+                applyChange(con, event, exposedTrips);
+                stale = false;
+            }
+        } catch (SQLException e) {
+            throw new RepositoryAccessException(e);
+        } catch (DatabaseConfigurationException e) {
+            throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        notifyExposure(exposedTrips);
+    }
+
+    /**
+     * Loads the index again if a previous load or update failed, and tells the exposure listeners about every
+     * trip known before or after the reload.
+     *
+     * @throws RepositoryAccessException if the index cannot be loaded
+     */
+    private void rebuildIfStale() {
+        if (!stale) return;
+        Set<Long> exposedTrips = new HashSet<>();
+        lock.writeLock().lock();
+        try (Connection con = DatabaseConnectionPool.getInstance().getConnection()) {
+            if (stale) reloadAll(con, exposedTrips);
+        } catch (SQLException e) {
+            throw new RepositoryAccessException(e);
+        } catch (DatabaseConfigurationException e) {
+            throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        notifyExposure(exposedTrips);
+    }
+
+    /**
+     * Replaces a stale index with the relations stored in the database. The caller holds the write lock.
+     *
+     * @param con the database connection
+     * @param exposedTrips the set to add every trip known before or after the reload to
+     * @throws SQLException if a database access error occurs
+     */
+    private void reloadAll(Connection con, Set<Long> exposedTrips) throws SQLException {
+        collectAllTrips(exposedTrips);
+        loadAll(con);
+        collectAllTrips(exposedTrips);
+    }
+
+    /**
+     * Tells the exposure listeners which trips a change may have affected, unless there are none.
+     *
+     * @param exposedTrips the IDs of the trips
+     */
+    private void notifyExposure(Set<Long> exposedTrips) {
+        if (!exposedTrips.isEmpty()) {
+            Set<Long> trips = Set.copyOf(exposedTrips);
+            exposureListeners.forEach(listener -> listener.accept(trips));
+        }
+    }
+
+    /**
+     * Replaces all relations with those stored in the database. The caller holds the write lock.
+     * The index stays marked stale unless every relation is loaded.
+     *
+     * @param con the database connection
+     * @throws SQLException if a database access error occurs
+     */
+    private void loadAll(Connection con) throws SQLException {
+        stale = true;
+        for (Links links : List.of(destinationRisks, tripDestinations, tripEmployees, assessmentRisks,
+                assessmentTrips, assessmentEmployees)) {
+            links.clear();
+        }
+        load(con, "SELECT destination_id, risk_id FROM destination_risk", destinationRisks);
+        load(con, "SELECT trip_id, destination_id FROM trip_destination", tripDestinations);
+        load(con, "SELECT trip_id, employee_id FROM trip_employee", tripEmployees);
+        loadAssessments(con, "SELECT id, risk_id, trip_id, employee_id FROM risk_assessment");
+        stale = false;
+    }
+
+    /**
+     * Reloads the relations of the rows changed by a write. The caller holds the write lock.
+     *
+     * @param con the database connection
+     * @param event the committed change
+     * @param exposedTrips the set to add the trips whose risk exposure may have changed to
+     * @throws SQLException if a database access error occurs
+     */
+    private void applyChange(Connection con, RepositoryChangeEvent event, Set<Long> exposedTrips) throws SQLException {
+        boolean deleted = event.type() == RepositoryChangeEvent.ChangeType.DELETED;
+        Array ids = con.createArrayOf("BIGINT", event.ids().toArray(new Long[0]));
+        switch (event.table()) {
+            case "risk" -> {
+                collectTripsOfRisks(event.ids(), exposedTrips);
+                if (deleted) {
+                    reloadRights(con, "SELECT destination_id, risk_id FROM destination_risk WHERE risk_id = ANY(?)",
+                            ids, event.ids(), destinationRisks);
+                    reloadAssessments(con, "risk_id", ids, event.ids(), assessmentRisks);
+                }
+            }
+            case "employees" -> {
+                if (deleted) {
+                    reloadRights(con, "SELECT trip_id, employee_id FROM trip_employee WHERE employee_id = ANY(?)",
+                            ids, event.ids(), tripEmployees);
+                    reloadAssessments(con, "employee_id", ids, event.ids(), assessmentEmployees);
+                }
+            }
+            case "destinations" -> {
+                event.ids().forEach(destinationId -> exposedTrips.addAll(tripDestinations.leftsOf(destinationId)));
+                reloadLefts(con, "SELECT destination_id, risk_id FROM destination_risk WHERE destination_id = ANY(?)",
+                        ids, event.ids(), destinationRisks);
+                reloadRights(con, "SELECT trip_id, destination_id FROM trip_destination WHERE destination_id = ANY(?)",
+                        ids, event.ids(), tripDestinations);
+                event.ids().forEach(destinationId -> exposedTrips.addAll(tripDestinations.leftsOf(destinationId)));
+            }
+            case "trip" -> {
+                exposedTrips.addAll(event.ids());
+                reloadLefts(con, "SELECT trip_id, destination_id FROM trip_destination WHERE trip_id = ANY(?)",
+                        ids, event.ids(), tripDestinations);
+                reloadLefts(con, "SELECT trip_id, employee_id FROM trip_employee WHERE trip_id = ANY(?)",
+                        ids, event.ids(), tripEmployees);
+                reloadAssessments(con, "trip_id", ids, event.ids(), assessmentTrips);
+            }
+            case "risk_assessment" -> reloadAssessments(con, "id", ids, event.ids(), null);
+            default -> {
+                // tables without relations to risks
+            }
+        }
+    }
+
+    /**
+     * Adds every trip that has a destination or a traveller in the index. The caller holds a lock.
+     *
+     * @param trips the set to add the trip IDs to
+     */
+    private void collectAllTrips(Set<Long> trips) {
+        trips.addAll(tripDestinations.lefts());
+        trips.addAll(tripEmployees.lefts());
+    }
+
+    /**
+     * Runs a lookup while holding the read lock.
+     *
+     * @param lookup the lookup
+     * @return the result of the lookup
+     */
+    private Set<Long> read(java.util.function.Supplier<Set<Long>> lookup) {
+        rebuildIfStale();
+        lock.readLock().lock();
+        try {
+            return lookup.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the trips visiting any destination exposed to one of the given risks. The caller holds a lock.
+     *
+     * @param riskIds the IDs of the risks
+     * @param trips the set to add the trip IDs to
+     */
+    private void collectTripsOfRisks(Collection<Long> riskIds, Set<Long> trips) {
+        for (Long riskId : riskIds) {
+            for (Long destinationId : destinationRisks.leftsOf(riskId)) {
+                trips.addAll(tripDestinations.leftsOf(destinationId));
+            }
+        }
+    }
+
+    /**
+     * Adds all pairs returned by a query to a relation.
+     *
+     * @param con the database connection
+     * @param sql a query returning the left and right ID of each pair
+     * @param links the relation to add to
+     * @throws SQLException if a database access error occurs
+     */
+    private void load(Connection con, String sql, Links links) throws SQLException {
+        try (Statement stmt = con.createStatement()) {
+            ResultSet rs = stmt.executeQuery(sql);
+            while (rs.next()) {
+                links.add(rs.getLong(1), rs.getLong(2));
+            }
+        }
+    }
+
+    /**
+     * Replaces the pairs of the given left IDs with those currently stored in the database.
+     *
+     * @param con the database connection
+     * @param sql a query returning the pairs of the left IDs given as an array parameter
+     * @param ids the left IDs as an SQL array
+     * @param keys the left IDs
+     * @param links the relation to update
+     * @throws SQLException if a database access error occurs
+     */
+    private void reloadLefts(Connection con, String sql, Array ids, Set<Long> keys, Links links) throws SQLException {
+        keys.forEach(links::removeLeft);
+        reload(con, sql, ids, links);
+    }
+
+    /**
+     * Replaces the pairs of the given right IDs with those currently stored in the database.
+     *
+     * @param con the database connection
+     * @param sql a query returning the pairs of the right IDs given as an array parameter
+     * @param ids the right IDs as an SQL array
+     * @param keys the right IDs
+     * @param links the relation to update
+     * @throws SQLException if a database access error occurs
+     */
+    private void reloadRights(Connection con, String sql, Array ids, Set<Long> keys, Links links) throws SQLException {
+        keys.forEach(links::removeRight);
+        reload(con, sql, ids, links);
+    }
+
+    /**
+     * Adds the pairs returned by a query with one array parameter.
+     *
+     * @param con the database connection
+     * @param sql the query
+     * @param ids the array parameter
+     * @param links the relation to add to
+     * @throws SQLException if a database access error occurs
+     */
+    private void reload(Connection con, String sql, Array ids, Links links) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setArray(1, ids);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                links.add(rs.getLong(1), rs.getLong(2));
+            }
+        }
+    }
+
+    /**
+     * Replaces the indexed assessments selected by a column with those currently stored in the database.
+     *
+     * @param con the database connection
+     * @param column the {@code risk_assessment} column the keys refer to
+     * @param ids the keys as an SQL array
+     * @param keys the keys
+     * @param byKey the assessment relation whose right side the keys belong to, or {@code null} if the keys are assessment IDs
+     * @throws SQLException if a database access error occurs
+     */
+    private void reloadAssessments(Connection con, String column, Array ids, Set<Long> keys, Links byKey) throws SQLException {
+        Set<Long> stale = new HashSet<>();
+        if (byKey == null) {
+            stale.addAll(keys);
+        } else {
+            keys.forEach(key -> stale.addAll(byKey.leftsOf(key)));
+        }
+        for (Long assessmentId : stale) {
+            assessmentRisks.removeLeft(assessmentId);
+            assessmentTrips.removeLeft(assessmentId);
+            assessmentEmployees.removeLeft(assessmentId);
+        }
+        try (PreparedStatement ps = con.prepareStatement("SELECT id, risk_id, trip_id, employee_id FROM risk_assessment " +
+                "WHERE " + column + " = ANY(?)")) {
+            ps.setArray(1, ids);
+            addAssessments(ps.executeQuery());
+        }
+    }
+
+    /**
+     * Adds all assessments returned by a query.
+     *
+     * @param con the database connection
+     * @param sql a query returning the ID, risk ID, trip ID and employee ID of assessments
+     * @throws SQLException if a database access error occurs
+     */
+    private void loadAssessments(Connection con, String sql) throws SQLException {
+        try (Statement stmt = con.createStatement()) {
+            addAssessments(stmt.executeQuery(sql));
+        }
+    }
+
+    /**
+     * Adds the assessments of a result set to the assessment relations.
+     *
+     * @param rs the result set with the ID, risk ID, trip ID and employee ID of assessments
+     * @throws SQLException if a database access error occurs
+     */
+    private void addAssessments(ResultSet rs) throws SQLException {
+        while (rs.next()) {
+            long assessmentId = rs.getLong("id");
+            assessmentRisks.add(assessmentId, rs.getLong("risk_id"));
+            assessmentTrips.add(assessmentId, rs.getLong("trip_id"));
+            assessmentEmployees.add(assessmentId, rs.getLong("employee_id"));
+        }
+    }
+
+    /**
+     * A many-to-many relation between IDs, indexed in both directions.
+     */
+    private static final class Links {
+        private final Map<Long, Set<Long>> byLeft = new HashMap<>();
+        private final Map<Long, Set<Long>> byRight = new HashMap<>();
+
+        /**
+         * @param left the left ID
+         * @param right the right ID
+         */
+        private void add(long left, long right) {
+            byLeft.computeIfAbsent(left, key -> new HashSet<>()).add(right);
+            byRight.computeIfAbsent(right, key -> new HashSet<>()).add(left);
+        }
+
+        /**
+         * Removes all pairs with the given left ID.
+         *
+         * @param left the left ID
+         */
+        private void removeLeft(long left) {
+            Set<Long> rights = byLeft.remove(left);
+            if (rights != null) rights.forEach(right -> detach(byRight, right, left));
+        }
+
+        /**
+         * Removes all pairs with the given right ID.
+         *
+         * @param right the right ID
+         */
+        private void removeRight(long right) {
+            Set<Long> lefts = byRight.remove(right);
+            if (lefts != null) lefts.forEach(left -> detach(byLeft, left, right));
+        }
+
+        /**
+         * @param left the left ID
+         * @return the right IDs paired with it
+         */
+        private Set<Long> rightsOf(long left) {
+            return byLeft.getOrDefault(left, Set.of());
+        }
+
+        /**
+         * @param right the right ID
+         * @return the left IDs paired with it
+         */
+        private Set<Long> leftsOf(long right) {
+            return byRight.getOrDefault(right, Set.of());
+        }
+
+        /**
+         * @return the left IDs that have at least one pair
+         */
+        private Set<Long> lefts() {
+            return byLeft.keySet();
+        }
+
+        /**
+         * @return an immutable copy of the right IDs of every left ID
+         */
+        private Map<Long, Set<Long>> copyByLeft() {
+            Map<Long, Set<Long>> copy = new HashMap<>(byLeft.size() * 4 / 3 + 1);
+            byLeft.forEach((left, rights) -> copy.put(left, Set.copyOf(rights)));
+            return Collections.unmodifiableMap(copy);
+        }
+
+        /**
+         * Removes all pairs.
+         */
+        private void clear() {
+            byLeft.clear();
+            byRight.clear();
+        }
+
+        /**
+         * Removes one ID from the set stored under a key, dropping the set once it is empty.
+         *
+         * @param map the direction to update
+         * @param key the key of the set
+         * @param value the ID to remove
+         */
+        private static void detach(Map<Long, Set<Long>> map, long key, long value) {
+            Set<Long> values = map.get(key);
+            if (values != null && values.remove(value) && values.isEmpty()) map.remove(key);
+        }
+    }
+}
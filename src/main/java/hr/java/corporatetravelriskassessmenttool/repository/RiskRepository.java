@@ -1,17 +1,21 @@
 package hr.java.corporatetravelriskassessmenttool.repository;
 
 import hr.java.corporatetravelriskassessmenttool.changelog.ChangelogEntry;
+import hr.java.corporatetravelriskassessmenttool.enums.RiskLevel;
 import hr.java.corporatetravelriskassessmenttool.exception.DatabaseConfigurationException;
 import hr.java.corporatetravelriskassessmenttool.exception.EmptyRepositoryException;
 import hr.java.corporatetravelriskassessmenttool.exception.RepositoryAccessException;
 import hr.java.corporatetravelriskassessmenttool.exception.UnknownRiskTypeException;
 import hr.java.corporatetravelriskassessmenttool.mapper.RiskMapper;
 import hr.java.corporatetravelriskassessmenttool.model.*;
+import hr.java.corporatetravelriskassessmenttool.repository.RepositoryChangeEvent.ChangeType;
 
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static hr.java.corporatetravelriskassessmenttool.main.CorporateTravelRiskAssessmentApplication.changelogRepository;
 /**
@@ -28,6 +32,17 @@ import static hr.java.corporatetravelriskassessmenttool.main.CorporateTravelRisk
  */
 public class RiskRepository<T extends Risk> extends AbstractRepository<T> {
     private static final String DATABASE_ERROR_STRING = "Database config failed";
+    private static final String RISK_SELECT = "SELECT r.id, r.description, r.level, r.type, e.damage_index, " +
+            "e.disaster_probability, h.severity, p.unrest_index, p.stability_index " +
+            "FROM risk r LEFT JOIN environmental_risk e ON r.id = e.risk_id " +
+            "LEFT JOIN health_risk h ON r.id = h.risk_id " +
+            "LEFT JOIN political_risk p ON r.id = p.risk_id";
+    /**
+     * Creates a repository backed by the {@code risk} table.
+     */
+    public RiskRepository() {
+        super("risk");
+    }
     /**
      * Finds a risk entity by its unique ID.
      *
@@ -37,14 +52,10 @@ public class RiskRepository<T extends Risk> extends AbstractRepository<T> {
      * @throws RepositoryAccessException if a database access error occurs or risk type is unknown
      */
     @Override
-    public synchronized T findById(Long id) {
-        waitForDbAccess();
+    public T findById(Long id) {
+        acquireReadAccess();
         try(Connection con = connectToDb()){
-            String sql = " SELECT r.id, r.description, r.level, r.type, e.damage_index, " +
-                    "e.disaster_probability, h.severity, p.unrest_index, p.stability_index " +
-                    "FROM risk r LEFT JOIN environmental_risk e ON r.id = e.risk_id " +
-                    "LEFT JOIN health_risk h ON r.id = h.risk_id " +
-                    "LEFT JOIN political_risk p ON r.id = p.risk_id WHERE r.id = ?";
+            String sql = RISK_SELECT + " WHERE r.id = ?";
             try(PreparedStatement ps = con.prepareStatement(sql)){
                 ps.setLong(1, id);
                 ResultSet rs = ps.executeQuery();
@@ -59,8 +70,7 @@ public class RiskRepository<T extends Risk> extends AbstractRepository<T> {
         }catch(DatabaseConfigurationException e){
             throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
         }finally{
-            databaseAccessInProgress = false;
-            notifyAll();
+            releaseReadAccess();
         }
     }
     /**
@@ -70,16 +80,11 @@ public class RiskRepository<T extends Risk> extends AbstractRepository<T> {
      * @throws RepositoryAccessException if a database access error occurs or risk type is unknown
      */
     @Override
-    public synchronized List<T> findAll() {
-        waitForDbAccess();
+    public List<T> findAll() {
+        acquireReadAccess();
         try(Connection con = connectToDb()){
-            String sql = " SELECT r.id, r.description, r.level, r.type, e.damage_index, " +
-                    "e.disaster_probability, h.severity, p.unrest_index, p.stability_index " +
-                    "FROM risk r LEFT JOIN environmental_risk e ON r.id = e.risk_id " +
-                    "LEFT JOIN health_risk h ON r.id = h.risk_id " +
-                    "LEFT JOIN political_risk p ON r.id = p.risk_id";
             try(Statement stmt = con.createStatement()){
-                ResultSet rs = stmt.executeQuery(sql);
+                ResultSet rs = stmt.executeQuery(RISK_SELECT);
                 List<T> risks = new ArrayList<>();
                 while(rs.next()) risks.add((T) RiskMapper.map(rs));
                 return risks;
@@ -90,8 +95,149 @@ public class RiskRepository<T extends Risk> extends AbstractRepository<T> {
             throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
         }
         finally{
-            databaseAccessInProgress = false;
-            notifyAll();
+            releaseReadAccess();
+        }
+    }
+    /**
+     * Retrieves all risks with the given IDs in a single query, including their type specific data.
+     *
+     * @param ids the IDs of the risks to find
+     * @return a list of the risks found
+     * @throws RepositoryAccessException if a database access error occurs or risk type is unknown
+     */
+    @Override
+    public List<T> findAllById(Collection<Long> ids) {
+        List<T> risks = new ArrayList<>();
+        if(ids.isEmpty()) return risks;
+        acquireReadAccess();
+        try(Connection con = connectToDb()){
+            String sql = RISK_SELECT + " WHERE r.id = ANY(?)";
+            try(PreparedStatement ps = con.prepareStatement(sql)){
+                ps.setArray(1, toIdArray(con, ids));
+                ResultSet rs = ps.executeQuery();
+                while(rs.next()) risks.add((T) RiskMapper.map(rs));
+                return risks;
+            }
+        }catch(SQLException | UnknownRiskTypeException e){
+            throw new RepositoryAccessException(e.getMessage(), e);
+        }catch(DatabaseConfigurationException e){
+            throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
+        }finally{
+            releaseReadAccess();
+        }
+    }
+    /**
+     * Retrieves one page of risks ordered by ID, including their type specific data.
+     *
+     * @param request the page to load
+     * @return the requested page of risks
+     * @throws RepositoryAccessException if a database access error occurs or risk type is unknown
+     */
+    @Override
+    public Page<T> findPage(PageRequest request) {
+        acquireReadAccess();
+        try(Connection con = connectToDb()){
+            String sql = RISK_SELECT + " WHERE r.id > ? ORDER BY r.id LIMIT ?";
+            List<T> risks = new ArrayList<>();
+            try(PreparedStatement ps = con.prepareStatement(sql)){
+                ps.setLong(1, request.afterIdOrMin());
+                ps.setInt(2, request.size() + 1);
+                ResultSet rs = ps.executeQuery();
+                while(rs.next()) risks.add((T) RiskMapper.map(rs));
+            }
+            return toPage(risks, request, estimateRowCount(con));
+        }catch(SQLException | UnknownRiskTypeException e){
+            throw new RepositoryAccessException(e.getMessage(), e);
+        }catch(DatabaseConfigurationException e){
+            throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
+        }finally{
+            releaseReadAccess();
+        }
+    }
+    /**
+     * Streams all risks ordered by ID from a forward-only cursor, including their type specific data.
+     * The stream must be closed to release its database connection.
+     *
+     * @param fetchSize the number of rows fetched from the cursor at a time
+     * @return a lazily populated stream of all risks
+     * @throws RepositoryAccessException if a database access error occurs or risk type is unknown
+     */
+    @Override
+    public Stream<T> streamAll(int fetchSize) {
+        String sql = RISK_SELECT + " ORDER BY r.id";
+        return streamQuery(sql, fetchSize, rs -> {
+            try {
+                return (T) RiskMapper.map(rs);
+            } catch (UnknownRiskTypeException e) {
+                throw new RepositoryAccessException(e.getMessage(), e);
+            }
+        });
+    }
+    /**
+     * Retrieves the risks matching the given criteria, filtered in the database.
+     *
+     * @param criteria the search criteria
+     * @return the matching risks ordered by ID
+     * @throws RepositoryAccessException if a database access error occurs or risk type is unknown
+     */
+    public List<T> findMatching(RiskCriteria criteria) {
+        acquireReadAccess();
+        try(Connection con = connectToDb()){
+            String sql = RISK_SELECT + criteria.toWhereClause() + " ORDER BY r.id";
+            try(PreparedStatement ps = con.prepareStatement(sql)){
+                criteria.bind(ps, 1);
+                ResultSet rs = ps.executeQuery();
+                List<T> risks = new ArrayList<>();
+                while(rs.next()) risks.add((T) RiskMapper.map(rs));
+                return risks;
+            }
+        }catch(SQLException | UnknownRiskTypeException e){
+            throw new RepositoryAccessException(e.getMessage(), e);
+        }catch(DatabaseConfigurationException e){
+            throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
+        }finally{
+            releaseReadAccess();
+        }
+    }
+    /**
+     * Reads the scoring inputs of all risks in ascending ID order, without creating risk objects.
+     * Decimal inputs are read as hundredths, the precision they are stored with.
+     *
+     * @param inputs the receiver of the inputs of each risk
+     * @throws RepositoryAccessException if a database access error occurs or risk type is unknown
+     */
+    public void readScoreInputs(RiskScoreInputs inputs) {
+        acquireReadAccess();
+        try(Connection con = connectToDb()){
+            String sql = " SELECT r.id, r.level, r.type, e.damage_index, " +
+                    "CAST(e.disaster_probability * 100 AS BIGINT) AS probability_hundredths, " +
+                    "CAST(h.severity * 100 AS BIGINT) AS severity_hundredths, p.unrest_index, p.stability_index " +
+                    "FROM risk r LEFT JOIN environmental_risk e ON r.id = e.risk_id " +
+                    "LEFT JOIN health_risk h ON r.id = h.risk_id " +
+                    "LEFT JOIN political_risk p ON r.id = p.risk_id ORDER BY r.id";
+            inputs.expectRows((int) Math.min(estimateRowCount(con), Integer.MAX_VALUE - 8));
+            try(Statement stmt = con.createStatement()){
+                ResultSet rs = stmt.executeQuery(sql);
+                while(rs.next()){
+                    long id = rs.getLong("id");
+                    RiskLevel level = RiskLevel.valueOf(rs.getString("level").toUpperCase());
+                    String type = rs.getString("type");
+                    switch (type) {
+                        case "Environmental" -> inputs.environmental(id, level, rs.getInt("damage_index"),
+                                rs.getLong("probability_hundredths"));
+                        case "Political" -> inputs.political(id, level, rs.getInt("unrest_index"),
+                                rs.getInt("stability_index"));
+                        case "Health" -> inputs.health(id, level, rs.getLong("severity_hundredths"));
+                        default -> throw new UnknownRiskTypeException("Unknown risk type: " + type);
+                    }
+                }
+            }
+        }catch(SQLException | UnknownRiskTypeException e){
+            throw new RepositoryAccessException(e.getMessage(), e);
+        }catch(DatabaseConfigurationException e){
+            throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
+        }finally{
+            releaseReadAccess();
         }
     }
     /**
@@ -104,8 +250,8 @@ public class RiskRepository<T extends Risk> extends AbstractRepository<T> {
      * @throws IllegalArgumentException if the risk type is unsupported
      */
     @Override
-    public synchronized void save(T entity, User user){
-        waitForDbAccess();
+    public void save(T entity, User user){
+        acquireWriteAccess();
         String insertRiskSql = "INSERT INTO risk(description, level, type) VALUES(?, ?, ?)";
         try(Connection con = connectToDb()) {
             switch (entity) {
@@ -120,9 +266,9 @@ public class RiskRepository<T extends Risk> extends AbstractRepository<T> {
             throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
         }
         finally{
-            databaseAccessInProgress = false;
-            notifyAll();
+            releaseWriteAccess();
         }
+        publishChange(ChangeType.CREATED, entity.getId());
     }
     /**
      * Updates an existing risk entity in the database.
@@ -133,9 +279,9 @@ public class RiskRepository<T extends Risk> extends AbstractRepository<T> {
      * @throws RepositoryAccessException if a database access error occurs
      */
     @Override
-    public synchronized void update(T entity, User user) {
+    public void update(T entity, User user) {
         Risk existingRisk= findById(entity.getId());
-        waitForDbAccess();
+        acquireWriteAccess();
         try(Connection con = connectToDb()) {
             switch (entity) {
                 case HealthRisk healthRisk ->
@@ -150,36 +296,45 @@ public class RiskRepository<T extends Risk> extends AbstractRepository<T> {
             throw new RepositoryAccessException(e.getMessage(), e);
         }
         finally{
-            databaseAccessInProgress = false;
-            notifyAll();
+            releaseWriteAccess();
         }
+        publishChange(ChangeType.UPDATED, entity.getId());
     }
     /**
      * Deletes a risk entity from the database by its unique ID.
-     * Logs the deletion event in the changelog.
+     * Logs the deletion event in the changelog. The risk scores of trips exposed to the risk
+     * are refreshed in the same transaction.
      *
      * @param id the unique identifier of the risk to delete
      * @param user the user performing the deletion operation, used for logging
      * @throws RepositoryAccessException if a database access error occurs
      */
     @Override
-    public synchronized void delete(Long id, User user) {
-        waitForDbAccess();
+    public void delete(Long id, User user) {
+        acquireWriteAccess();
         try(Connection con = connectToDb()){
+            con.setAutoCommit(false);
             try(PreparedStatement ps = con.prepareStatement("DELETE FROM risk WHERE id = ?")){
-                ps.setLong(1, id);
-                ps.executeUpdate();
+                TripRiskScores.refreshAndCommit(con, c -> {
+                    List<Long> affectedTrips = TripRiskScores.findTripsOfRisk(c, id);
+                    ps.setLong(1, id);
+                    ps.executeUpdate();
+                    TripRiskScores.refreshTrips(c, affectedTrips);
+                });
                 changelogRepository.logChange(new ChangelogEntry(user.username(), user.role(), "Deleted risk",
                         "Id: " + id, LocalDateTime.now()));
+            }catch(SQLException e){
+                con.rollback();
+                throw e;
             }
         }catch(SQLException e){
             throw new RepositoryAccessException(e);
         }catch(DatabaseConfigurationException e){
             throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
         }finally{
-            databaseAccessInProgress = false;
-            notifyAll();
+            releaseWriteAccess();
         }
+        publishChange(ChangeType.DELETED, id);
     }
 
 }
@@ -0,0 +1,46 @@
+package hr.java.corporatetravelriskassessmenttool.repository;
+
+import hr.java.corporatetravelriskassessmenttool.enums.RiskLevel;
+
+/**
+ * Receives the scoring inputs of risks row by row, as read by {@link RiskRepository#readScoreInputs(RiskScoreInputs)},
+ * without creating risk objects. Decimal inputs are given in hundredths, the precision they are stored with.
+ */
+public interface RiskScoreInputs {
+    /**
+     * Called once before the first row.
+     *
+     * @param expectedRows the estimated number of risks
+     */
+    default void expectRows(int expectedRows) {
+    }
+
+    /**
+     * Receives a health risk.
+     *
+     * @param id the ID of the risk
+     * @param level the risk level
+     * @param severityHundredths the severity in hundredths
+     */
+    void health(long id, RiskLevel level, long severityHundredths);
+
+    /**
+     * Receives an environmental risk.
+     *
+     * @param id the ID of the risk
+     * @param level the risk level
+     * @param damageIndex the damage index
+     * @param probabilityHundredths the disaster probability in hundredths
+     */
+    void environmental(long id, RiskLevel level, int damageIndex, long probabilityHundredths);
+
+    /**
+     * Receives a political risk.
+     *
+     * @param id the ID of the risk
+     * @param level the risk level
+     * @param unrestIndex the unrest index
+     * @param stabilityIndex the stability index
+     */
+    void political(long id, RiskLevel level, int unrestIndex, int stabilityIndex);
+}
@@ -0,0 +1,21 @@
+package hr.java.corporatetravelriskassessmenttool.repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a {@link ResultSet} to an object.
+ *
+ * @param <R> the type of object produced for each row
+ */
+@FunctionalInterface
+interface RowMapper<R> {
+    /**
+     * Maps the current row.
+     *
+     * @param rs the result set positioned at the row to map
+     * @return the mapped object
+     * @throws SQLException if reading the row fails
+     */
+    R map(ResultSet rs) throws SQLException;
+}
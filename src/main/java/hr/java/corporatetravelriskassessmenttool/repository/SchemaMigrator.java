@@ -0,0 +1,230 @@
+package hr.java.corporatetravelriskassessmenttool.repository;
+
+import hr.java.corporatetravelriskassessmenttool.exception.DatabaseConfigurationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Brings the database schema up to date by applying versioned SQL migrations.
+ * <p>
+ * Migrations are SQL scripts on the classpath under {@code /db/migration}, named
+ * {@code V<version>__<description>.sql} and listed in {@link #MIGRATIONS} in the order they must run.
+ * Applied versions are recorded in the {@code schema_version} table together with a checksum of the script,
+ * so every migration runs exactly once per database. A script that changed after it was applied is reported
+ * but not run again. A migration may also have a Java step, listed in {@link #JAVA_STEPS}, that runs after its script
+ * in the same transaction; it backfills data with code the application already uses, so the SQL is not duplicated.
+ * </p>
+ * Concurrent calls are serialized by the write lock of {@code schema_version}. The tables of the repositories
+ * are not locked, so migrations must run at startup, before any repository is used.
+ */
+public class SchemaMigrator {
+    private static final Logger log = LoggerFactory.getLogger(SchemaMigrator.class);
+    private static final String MIGRATION_PATH = "/db/migration/";
+    private static final String LOCK_NAME = "schema_version";
+    private static final List<String> MIGRATIONS = List.of(
+            "V1__unique_risk_assessment_key.sql",
+            "V2__entity_change_journal.sql",
+            "V3__trip_risk_score.sql"
+    );
+    private static final Map<Integer, JavaStep> JAVA_STEPS = Map.of(
+            3, TripRiskScores::refreshAll
+    );
+
+    /**
+     * Code run after the script of a migration, in the same transaction.
+     */
+    @FunctionalInterface
+    private interface JavaStep {
+        /**
+         * Runs the step.
+         *
+         * @param con the connection of the migration transaction
+         * @throws SQLException if a database access error occurs
+         */
+        void run(Connection con) throws SQLException;
+    }
+
+    /**
+     * A migration script together with the metadata stored for it in {@code schema_version}.
+     *
+     * @param version the version the script upgrades the schema to
+     * @param description a readable description taken from the file name
+     * @param script the file name of the script
+     * @param sql the contents of the script
+     * @param checksum the CRC32 of the script contents
+     */
+    private record Migration(int version, String description, String script, String sql, long checksum) {
+    }
+
+    /**
+     * Applies all pending migrations.
+     *
+     * @return the number of migrations applied
+     * @throws DatabaseConfigurationException if a migration script is missing or fails
+     */
+    public int migrate() {
+        DatabaseLockManager.acquireWrite(LOCK_NAME);
+        try (Connection con = DatabaseConnectionPool.getInstance().getConnection()) {
+            createVersionTable(con);
+            Map<Integer, Long> applied = findAppliedVersions(con);
+            int count = 0;
+            for (Migration migration : loadMigrations()) {
+                Long appliedChecksum = applied.get(migration.version());
+                if (appliedChecksum == null) {
+                    apply(con, migration);
+                    count++;
+                } else if (appliedChecksum != migration.checksum()) {
+                    log.warn("Migration {} was changed after it was applied", migration.script());
+                }
+            }
+            log.info("Database schema is up to date, {} migration(s) applied", count);
+            return count;
+        } catch (SQLException e) {
+            throw new DatabaseConfigurationException("Database migration failed", e);
+        } finally {
+            DatabaseLockManager.releaseWrite(LOCK_NAME);
+        }
+    }
+
+    /**
+     * Creates the table recording applied migrations if it does not exist yet.
+     *
+     * @param con the database connection
+     * @throws SQLException if the table cannot be created
+     */
+    private void createVersionTable(Connection con) throws SQLException {
+        try (Statement stmt = con.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                    "version INT PRIMARY KEY, description VARCHAR(255) NOT NULL, script VARCHAR(255) NOT NULL, " +
+                    "checksum BIGINT NOT NULL, installed_on TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL, " +
+                    "execution_ms BIGINT NOT NULL)");
+        }
+    }
+
+    /**
+     * Reads the versions that have already been applied.
+     *
+     * @param con the database connection
+     * @return the checksums of applied migrations keyed by version
+     * @throws SQLException if the versions cannot be read
+     */
+    private Map<Integer, Long> findAppliedVersions(Connection con) throws SQLException {
+        Map<Integer, Long> applied = new HashMap<>();
+        try (Statement stmt = con.createStatement()) {
+            ResultSet rs = stmt.executeQuery("SELECT version, checksum FROM schema_version");
+            while (rs.next()) {
+                applied.put(rs.getInt("version"), rs.getLong("checksum"));
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Runs the script and the Java step of one migration and records it, all in a single transaction.
+     * Note that H2 commits implicitly after most DDL statements.
+     *
+     * @param con the database connection
+     * @param migration the migration to apply
+     * @throws SQLException if a statement of the migration fails
+     */
+    private void apply(Connection con, Migration migration) throws SQLException {
+        log.info("Applying database migration {}", migration.script());
+        long start = System.currentTimeMillis();
+        con.setAutoCommit(false);
+        try (Statement stmt = con.createStatement()) {
+            for (String statement : splitStatements(migration.sql())) {
+                stmt.execute(statement);
+            }
+            JavaStep javaStep = JAVA_STEPS.get(migration.version());
+            if (javaStep != null) javaStep.run(con);
+            try (PreparedStatement ps = con.prepareStatement("INSERT INTO schema_version(version, description, script, " +
+                    "checksum, execution_ms) VALUES (?, ?, ?, ?, ?)")) {
+                ps.setInt(1, migration.version());
+                ps.setString(2, migration.description());
+                ps.setString(3, migration.script());
+                ps.setLong(4, migration.checksum());
+                ps.setLong(5, System.currentTimeMillis() - start);
+                ps.executeUpdate();
+            }
+            con.commit();
+        } catch (SQLException e) {
+            con.rollback();
+            throw new SQLException("Migration " + migration.script() + " failed: " + e.getMessage(), e);
+        } finally {
+            con.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Loads all migration scripts listed in {@link #MIGRATIONS}.
+     *
+     * @return the migrations ordered by version
+     * @throws DatabaseConfigurationException if a script is missing or misnamed
+     */
+    private List<Migration> loadMigrations() {
+        List<Migration> migrations = new ArrayList<>();
+        for (String script : MIGRATIONS) {
+            int separator = script.indexOf("__");
+            if (!script.startsWith("V") || separator < 0 || !script.endsWith(".sql")) {
+                throw new DatabaseConfigurationException("Invalid migration name " + script);
+            }
+            int version = Integer.parseInt(script.substring(1, separator));
+            String description = script.substring(separator + 2, script.length() - ".sql".length()).replace('_', ' ');
+            String sql = readScript(script);
+            CRC32 crc = new CRC32();
+            crc.update(sql.getBytes(StandardCharsets.UTF_8));
+            migrations.add(new Migration(version, description, script, sql, crc.getValue()));
+        }
+        migrations.sort(Comparator.comparingInt(Migration::version));
+        return migrations;
+    }
+
+    /**
+     * Reads a migration script from the classpath.
+     *
+     * @param script the file name of the script
+     * @return the script contents
+     * @throws DatabaseConfigurationException if the script cannot be read
+     */
+    private String readScript(String script) {
+        try (InputStream in = SchemaMigrator.class.getResourceAsStream(MIGRATION_PATH + script)) {
+            if (in == null) {
+                throw new DatabaseConfigurationException("Migration script not found: " + script);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new DatabaseConfigurationException("Error reading migration script " + script, e);
+        }
+    }
+
+    /**
+     * Splits a script into statements. Statements end with a semicolon at the end of a line,
+     * and lines starting with {@code --} are comments.
+     *
+     * @param sql the script contents
+     * @return the statements of the script
+     */
+    private List<String> splitStatements(String sql) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : sql.split("\\R")) {
+            String trimmed = line.trim();
+            if (trimmed.startsWith("--")) continue;
+            current.append(line).append('\n');
+            if (trimmed.endsWith(";")) {
+                String statement = current.toString().trim();
+                statements.add(statement.substring(0, statement.length() - 1));
+                current.setLength(0);
+            }
+        }
+        if (!current.toString().isBlank()) statements.add(current.toString().trim());
+        return statements;
+    }
+}
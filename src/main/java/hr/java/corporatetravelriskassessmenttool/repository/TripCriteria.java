@@ -0,0 +1,90 @@
+package hr.java.corporatetravelriskassessmenttool.repository;
+
+import hr.java.corporatetravelriskassessmenttool.model.Trip;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+/**
+ * Search criteria for {@link Trip} entities, used with {@link TripRepository#findMatching(TripCriteria)}.
+ * <p>
+ * Employee and destination filters are compiled into one {@code EXISTS} clause per selected entity,
+ * so a trip matches only if it includes all of them.
+ * </p>
+ */
+public class TripCriteria extends Criteria {
+    /**
+     * Matches trips whose name contains the given text, ignoring case.
+     *
+     * @param name the text to look for
+     * @return these criteria
+     */
+    public TripCriteria nameContains(String name) {
+        whereContains("t.name", name);
+        return this;
+    }
+
+    /**
+     * Matches trips that include every one of the given employees.
+     *
+     * @param employeeIds the IDs of the employees, ignored if {@code null} or empty
+     * @return these criteria
+     */
+    public TripCriteria withAllEmployees(Collection<Long> employeeIds) {
+        if (employeeIds == null) return this;
+        for (Long employeeId : employeeIds) {
+            where("EXISTS (SELECT 1 FROM trip_employee te WHERE te.trip_id = t.id AND te.employee_id = ?)", employeeId);
+        }
+        return this;
+    }
+
+    /**
+     * Matches trips that visit every one of the given destinations.
+     *
+     * @param destinationIds the IDs of the destinations, ignored if {@code null} or empty
+     * @return these criteria
+     */
+    public TripCriteria withAllDestinations(Collection<Long> destinationIds) {
+        if (destinationIds == null) return this;
+        for (Long destinationId : destinationIds) {
+            where("EXISTS (SELECT 1 FROM trip_destination td WHERE td.trip_id = t.id AND td.destination_id = ?)",
+                    destinationId);
+        }
+        return this;
+    }
+
+    /**
+     * Matches trips starting after the given date.
+     *
+     * @param date the exclusive lower bound, ignored if {@code null}
+     * @return these criteria
+     */
+    public TripCriteria startsAfter(LocalDate date) {
+        if (date != null) where("t.start_date > ?", date);
+        return this;
+    }
+
+    /**
+     * Matches trips ending before the given date.
+     *
+     * @param date the exclusive upper bound, ignored if {@code null}
+     * @return these criteria
+     */
+    public TripCriteria endsBefore(LocalDate date) {
+        if (date != null) where("t.end_date < ?", date);
+        return this;
+    }
+
+    /**
+     * Matches trips that overlap the given date window, i.e. that are under way on at least one day of it.
+     *
+     * @param from the first day of the window, unbounded if {@code null}
+     * @param to the last day of the window, unbounded if {@code null}
+     * @return these criteria
+     */
+    public TripCriteria activeBetween(LocalDate from, LocalDate to) {
+        if (from != null) where("t.end_date >= ?", from);
+        if (to != null) where("t.start_date <= ?", to);
+        return this;
+    }
+}
@@ -6,14 +6,17 @@ import hr.java.corporatetravelriskassessmenttool.exception.EmptyRepositoryExcept
 import hr.java.corporatetravelriskassessmenttool.exception.InvalidTripDataException;
 import hr.java.corporatetravelriskassessmenttool.exception.RepositoryAccessException;
 import hr.java.corporatetravelriskassessmenttool.model.*;
+import hr.java.corporatetravelriskassessmenttool.repository.RepositoryChangeEvent.ChangeType;
 import hr.java.corporatetravelriskassessmenttool.utils.ChangelogUtil;
 import hr.java.corporatetravelriskassessmenttool.utils.TripDataFetcher;
 
+import java.math.BigDecimal;
 import java.sql.*;
 import java.sql.Date;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.stream.Stream;
 
 
 import static hr.java.corporatetravelriskassessmenttool.main.CorporateTravelRiskAssessmentApplication.changelogRepository;
@@ -26,6 +29,27 @@ import static hr.java.corporatetravelriskassessmenttool.main.CorporateTravelRisk
  */
 public class TripRepository<T extends Trip<Person>> extends AbstractRepository<T> {
     private static final String DATABASE_ERROR_STRING = "Database config failed";
+
+    /**
+     * Materialized risk score of a trip: the sum of the scores of the risks of all its destinations.
+     *
+     * @param tripId the ID of the trip
+     * @param totalScore the total risk score
+     * @param healthScore the part of the total coming from health risks
+     * @param environmentalScore the part of the total coming from environmental risks
+     * @param politicalScore the part of the total coming from political risks
+     * @param riskCount the number of destination risks counted
+     */
+    public record TripRiskScore(long tripId, BigDecimal totalScore, BigDecimal healthScore,
+                                BigDecimal environmentalScore, BigDecimal politicalScore, int riskCount) {
+    }
+
+    /**
+     * Creates a repository backed by the {@code trip} table.
+     */
+    public TripRepository() {
+        super("trip");
+    }
     /**
      * Finds a Trip entity by its unique identifier.
      * Fetches trip details along with associated employees and destinations.
@@ -36,82 +60,329 @@ public class TripRepository<T extends Trip<Person>> extends AbstractRepository<T
      * @throws RepositoryAccessException if a database access error occurs
      */
     @Override
-    public synchronized T findById(Long id) {
-        AbstractRepository<Risk> riskRepo = new RiskRepository<>();
-        List<Risk> allRisks = riskRepo.findAll();
-        waitForDbAccess();
+    public T findById(Long id) {
+        acquireReadAccess();
         try(Connection con = connectToDb()){
-            Trip<Person> trip;
+            Map<Long, Trip<Person>> trips = new LinkedHashMap<>();
             String tripSql = "SELECT id, start_date, end_date, name FROM trip WHERE id = ?";
             try(PreparedStatement ps = con.prepareStatement(tripSql)){
                 ps.setLong(1, id);
                 try(ResultSet rs = ps.executeQuery()){
                     if(!rs.next()) throw new EmptyRepositoryException("No trip found with id: " + id);
-                    trip = createTrip(con, rs, allRisks);
+                    trips.put(id, extractTripFromResultSet(rs));
                 }
             }
-            return (T) trip;
+            populateTrips(con, trips);
+            return (T) trips.get(id);
         }catch(SQLException e){
             throw new RepositoryAccessException(e);
         }catch(DatabaseConfigurationException e){
             throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
         }
         finally{
-            databaseAccessInProgress = false;
-            notifyAll();
+            releaseReadAccess();
         }
     }
     /**
      * Retrieves all Trip entities from the database.
-     * Each trip includes its associated employees and destinations.
+     * Each trip includes its associated employees and destinations, which are loaded
+     * for all trips at once instead of trip by trip.
      *
      * @return a list of all Trip entities
      * @throws RepositoryAccessException if a database access error occurs
      */
     @Override
-    public synchronized List<T> findAll() {
-        AbstractRepository<Risk> riskRepo = new RiskRepository<>();
-        List<Risk> allRisks = riskRepo.findAll();
-        waitForDbAccess();
+    public List<T> findAll() {
+        acquireReadAccess();
         try(Connection con = connectToDb()){
-            List<Trip<Person>> trips = new ArrayList<>();
+            Map<Long, Trip<Person>> trips = new LinkedHashMap<>();
             String tripSql = "SELECT id, name, start_date, end_date FROM trip";
             try(PreparedStatement ps = con.prepareStatement(tripSql)){
                 ResultSet rs = ps.executeQuery();
                 while(rs.next()){
-                    trips.add(createTrip(con, rs, allRisks));
+                    Trip<Person> trip = extractTripFromResultSet(rs);
+                    trips.put(trip.getId(), trip);
+                }
+            }
+            populateTrips(con, trips);
+            return (List<T>) new ArrayList<>(trips.values());
+        }catch(SQLException e){
+            throw new RepositoryAccessException(e);
+        }catch(DatabaseConfigurationException e){
+            throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
+        }
+        finally{
+            releaseReadAccess();
+        }
+    }
+    /**
+     * Retrieves all Trip entities with the given IDs.
+     * Employees and destinations of all requested trips are loaded together.
+     *
+     * @param ids the IDs of the trips to find
+     * @return a list of the trips found
+     * @throws RepositoryAccessException if a database access error occurs
+     */
+    @Override
+    public List<T> findAllById(Collection<Long> ids) {
+        if(ids.isEmpty()) return new ArrayList<>();
+        acquireReadAccess();
+        try(Connection con = connectToDb()){
+            Map<Long, Trip<Person>> trips = new LinkedHashMap<>();
+            String tripSql = "SELECT id, name, start_date, end_date FROM trip WHERE id = ANY(?)";
+            try(PreparedStatement ps = con.prepareStatement(tripSql)){
+                ps.setArray(1, toIdArray(con, ids));
+                ResultSet rs = ps.executeQuery();
+                while(rs.next()){
+                    Trip<Person> trip = extractTripFromResultSet(rs);
+                    trips.put(trip.getId(), trip);
+                }
+            }
+            populateTrips(con, trips);
+            return (List<T>) new ArrayList<>(trips.values());
+        }catch(SQLException e){
+            throw new RepositoryAccessException(e);
+        }catch(DatabaseConfigurationException e){
+            throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
+        }
+        finally{
+            releaseReadAccess();
+        }
+    }
+
+    /**
+     * Retrieves one page of Trip entities ordered by ID.
+     * Employees and destinations of all trips in the page are loaded together.
+     *
+     * @param request the page to load
+     * @return the requested page of trips
+     * @throws RepositoryAccessException if a database access error occurs
+     */
+    @Override
+    public Page<T> findPage(PageRequest request) {
+        acquireReadAccess();
+        try(Connection con = connectToDb()){
+            Map<Long, Trip<Person>> trips = new LinkedHashMap<>();
+            String tripSql = "SELECT id, name, start_date, end_date FROM trip WHERE id > ? ORDER BY id LIMIT ?";
+            try(PreparedStatement ps = con.prepareStatement(tripSql)){
+                ps.setLong(1, request.afterIdOrMin());
+                ps.setInt(2, request.size() + 1);
+                ResultSet rs = ps.executeQuery();
+                while(rs.next()){
+                    Trip<Person> trip = extractTripFromResultSet(rs);
+                    trips.put(trip.getId(), trip);
                 }
             }
-            return (List<T>) trips;
+            populateTrips(con, trips);
+            return toPage((List<T>) new ArrayList<>(trips.values()), request, estimateRowCount(con));
         }catch(SQLException e){
             throw new RepositoryAccessException(e);
         }catch(DatabaseConfigurationException e){
             throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
         }
         finally{
-            databaseAccessInProgress = false;
-            notifyAll();
+            releaseReadAccess();
         }
     }
 
+    /**
+     * Retrieves the Trip entities matching the given criteria, filtered in the database.
+     * Employees and destinations are loaded only for the matching trips.
+     *
+     * @param criteria the search criteria
+     * @return the matching trips ordered by ID
+     * @throws RepositoryAccessException if a database access error occurs
+     */
+    public List<T> findMatching(TripCriteria criteria) {
+        acquireReadAccess();
+        try(Connection con = connectToDb()){
+            Map<Long, Trip<Person>> trips = new LinkedHashMap<>();
+            String tripSql = "SELECT t.id, t.name, t.start_date, t.end_date FROM trip t" + criteria.toWhereClause() +
+                    " ORDER BY t.id";
+            try(PreparedStatement ps = con.prepareStatement(tripSql)){
+                criteria.bind(ps, 1);
+                ResultSet rs = ps.executeQuery();
+                while(rs.next()){
+                    Trip<Person> trip = extractTripFromResultSet(rs);
+                    trips.put(trip.getId(), trip);
+                }
+            }
+            populateTrips(con, trips);
+            return (List<T>) new ArrayList<>(trips.values());
+        }catch(SQLException e){
+            throw new RepositoryAccessException(e);
+        }catch(DatabaseConfigurationException e){
+            throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
+        }
+        finally{
+            releaseReadAccess();
+        }
+    }
+
+    /**
+     * Retrieves only the IDs of the trips matching the given criteria.
+     * No employees or destinations are loaded.
+     *
+     * @param criteria the search criteria
+     * @return the IDs of the matching trips in ascending order
+     * @throws RepositoryAccessException if a database access error occurs
+     */
+    public List<Long> findIdsMatching(TripCriteria criteria) {
+        acquireReadAccess();
+        List<Long> ids = new ArrayList<>();
+        try(Connection con = connectToDb();
+            PreparedStatement ps = con.prepareStatement("SELECT t.id FROM trip t" + criteria.toWhereClause() + " ORDER BY t.id")){
+            criteria.bind(ps, 1);
+            ResultSet rs = ps.executeQuery();
+            while(rs.next()){
+                ids.add(rs.getLong("id"));
+            }
+        }catch(SQLException e){
+            throw new RepositoryAccessException(e);
+        }catch(DatabaseConfigurationException e){
+            throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
+        }
+        finally{
+            releaseReadAccess();
+        }
+        return ids;
+    }
+
+    /**
+     * Retrieves the trips with the highest materialized risk scores.
+     *
+     * @param limit the maximum number of trips to return
+     * @return the scores of the riskiest trips, highest first, ties ordered by trip ID
+     * @throws RepositoryAccessException if a database access error occurs
+     */
+    public List<TripRiskScore> findRiskiest(int limit) {
+        return findRiskiest(null, limit);
+    }
+
+    /**
+     * Retrieves the trips with the highest materialized risk scores among the given trips.
+     *
+     * @param tripIds the IDs of the trips to rank, or {@code null} to rank all trips
+     * @param limit the maximum number of trips to return
+     * @return the scores of the riskiest trips, highest first, ties ordered by trip ID
+     * @throws RepositoryAccessException if a database access error occurs
+     */
+    public List<TripRiskScore> findRiskiest(Collection<Long> tripIds, int limit) {
+        return queryRiskScores("SELECT trip_id, total_score, health_score, environmental_score, political_score, " +
+                "risk_count FROM trip_risk_score" + (tripIds == null ? "" : " WHERE trip_id = ANY(?)") +
+                " ORDER BY total_score DESC, trip_id LIMIT ?", tripIds, limit);
+    }
+
+    /**
+     * Retrieves the materialized risk scores of the given trips.
+     *
+     * @param tripIds the IDs of the trips
+     * @return the scores of the trips that exist, in no particular order
+     * @throws RepositoryAccessException if a database access error occurs
+     */
+    public List<TripRiskScore> findRiskScores(Collection<Long> tripIds) {
+        return queryRiskScores("SELECT trip_id, total_score, health_score, environmental_score, political_score, " +
+                "risk_count FROM trip_risk_score WHERE trip_id = ANY(?)", tripIds, null);
+    }
+
+    /**
+     * Runs a query on the materialized trip risk scores.
+     *
+     * @param sql the query, with a trip ID array parameter if {@code tripIds} is given
+     *            and a limit parameter if {@code limit} is given
+     * @param tripIds the trip IDs bound to the first parameter, or {@code null}
+     * @param limit the limit bound to the last parameter, or {@code null}
+     * @return the scores returned by the query
+     * @throws RepositoryAccessException if a database access error occurs
+     */
+    private List<TripRiskScore> queryRiskScores(String sql, Collection<Long> tripIds, Integer limit) {
+        acquireReadAccess();
+        List<TripRiskScore> scores = new ArrayList<>();
+        try(Connection con = connectToDb();
+            PreparedStatement ps = con.prepareStatement(sql)){
+            int index = 1;
+            if(tripIds != null){
+                ps.setArray(index++, con.createArrayOf("BIGINT", tripIds.toArray(new Long[0])));
+            }
+            if(limit != null){
+                ps.setInt(index, limit);
+            }
+            ResultSet rs = ps.executeQuery();
+            while(rs.next()){
+                scores.add(new TripRiskScore(rs.getLong("trip_id"), rs.getBigDecimal("total_score"),
+                        rs.getBigDecimal("health_score"), rs.getBigDecimal("environmental_score"),
+                        rs.getBigDecimal("political_score"), rs.getInt("risk_count")));
+            }
+        }catch(SQLException e){
+            throw new RepositoryAccessException(e);
+        }catch(DatabaseConfigurationException e){
+            throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
+        }
+        finally{
+            releaseReadAccess();
+        }
+        return scores;
+    }
+
+    /**
+     * Streams all Trip entities ordered by ID from a forward-only cursor.
+     * Employees and destinations are loaded for each chunk of {@code fetchSize} trips as the stream is consumed.
+     * The stream must be closed to release its database connection.
+     *
+     * @param fetchSize the number of rows fetched from the cursor at a time
+     * @return a lazily populated stream of all trips
+     * @throws RepositoryAccessException if a database access error occurs
+     */
+    @Override
+    public Stream<T> streamAll(int fetchSize) {
+        Stream<Trip<Person>> rows = streamQuery("SELECT id, name, start_date, end_date FROM trip ORDER BY id",
+                fetchSize, this::extractTripFromResultSet);
+        return hydrateInChunks(rows, fetchSize, this::withEmployeesAndDestinations);
+    }
+
+    /**
+     * Loads the employees and destinations of a chunk of trips.
+     *
+     * @param chunk the trips to populate
+     * @return the same trips with their employees and destinations
+     * @throws RepositoryAccessException if a database access error occurs
+     */
+    private List<T> withEmployeesAndDestinations(List<Trip<Person>> chunk) {
+        Map<Long, Trip<Person>> trips = new LinkedHashMap<>();
+        chunk.forEach(trip -> trips.put(trip.getId(), trip));
+        acquireReadAccess();
+        try(Connection con = connectToDb()){
+            populateTrips(con, trips);
+        }catch(SQLException e){
+            throw new RepositoryAccessException(e);
+        }catch(DatabaseConfigurationException e){
+            throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
+        }finally{
+            releaseReadAccess();
+        }
+        return (List<T>) new ArrayList<>(trips.values());
+    }
+
     /**
      * Persists a new Trip entity into the database.
      * Validates that the start date is not after the end date.
-     * Also saves associations with employees and destinations.
+     * Also saves associations with employees and destinations, in the same transaction,
+     * and records the new trip in the {@link ChangeJournal} together with its risk score.
      *
      * @param entity the Trip entity to save
      * @param user the User performing the operation (used for changelog)
      * @throws RepositoryAccessException if a database access error occurs
      */
     @Override
-    public synchronized void save(T entity, User user) {
+    public void save(T entity, User user) {
         Trip<Person> entityCast = entity;
-        waitForDbAccess();
+        acquireWriteAccess();
         try(Connection con = connectToDb()){
             if(entity.getStartDate().isAfter(entity.getEndDate())){
                 throw new InvalidTripDataException("Start date cannot be after end date");
             }
             String sql = "INSERT INTO trip ( name, start_date, end_date) VALUES (?, ?, ?)";
+            con.setAutoCommit(false);
             try(PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
                 ps.setString(1, entity.getName());
                 ps.setDate(2, Date.valueOf(entity.getStartDate()));
@@ -120,7 +391,10 @@ public class TripRepository<T extends Trip<Person>> extends AbstractRepository<T
                 ResultSet rs = ps.getGeneratedKeys();
                 if (rs.next()) {
                     Long tripId = rs.getLong(1);
+                    entity.setId(tripId);
                     saveEmployeesAndDestinations(con, tripId, entityCast);
+                    ChangeJournal.record(con, ChangeJournal.EntityType.TRIP, tripId);
+                    TripRiskScores.refreshAndCommit(con, c -> TripRiskScores.refreshTrips(c, List.of(tripId)));
                     ChangelogUtil.logCreation(user, "New trip created",
                             "Id: "+ tripId + " Name: " + entity.getName());
                 }
@@ -133,24 +407,24 @@ public class TripRepository<T extends Trip<Person>> extends AbstractRepository<T
             throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
         }
         finally{
-            databaseAccessInProgress = false;
-            notifyAll();
+            releaseWriteAccess();
         }
+        publishChange(ChangeType.CREATED, entity.getId());
     }
     /**
      * Updates an existing Trip entity in the database.
      * Validates trip dates, updates trip data, deletes old relations,
-     * and saves updated employees and destinations.
+     * and saves updated employees and destinations. The change is recorded in the {@link ChangeJournal} and the trip risk score is refreshed.
      *
      * @param entity the Trip entity with updated data
      * @param user the User performing the operation (used for changelog)
      * @throws RepositoryAccessException if a database access error occurs
      */
     @Override
-    public synchronized void update(T entity, User user) {
+    public void update(T entity, User user) {
         Trip<Person> existingTrip = findById(entity.getId());
         Trip<Person> entityCast = entity;
-        waitForDbAccess();
+        acquireWriteAccess();
         try(Connection con = connectToDb()){
             if(entity.getStartDate().isAfter(entity.getEndDate())){
                 throw new InvalidTripDataException("Start date cannot be after end date");
@@ -159,7 +433,8 @@ public class TripRepository<T extends Trip<Person>> extends AbstractRepository<T
             updateTripData(con, entity);
             deleteOldRelations(con, entity.getId());
             saveEmployeesAndDestinations(con, entity.getId(), entityCast);
-            con.commit();
+            ChangeJournal.record(con, ChangeJournal.EntityType.TRIP, entity.getId());
+            TripRiskScores.refreshAndCommit(con, c -> TripRiskScores.refreshTrips(c, List.of(entity.getId())));
             ChangelogUtil.logTripUpdate(user, existingTrip, entityCast);
         }catch(SQLException e){
             throw new RepositoryAccessException(e);
@@ -168,9 +443,9 @@ public class TripRepository<T extends Trip<Person>> extends AbstractRepository<T
         }catch(DatabaseConfigurationException e){
             throw new RepositoryAccessException(DATABASE_ERROR_STRING, e);
         }finally{
-            databaseAccessInProgress = false;
-            notifyAll();
+            releaseWriteAccess();
         }
+        publishChange(ChangeType.UPDATED, entity.getId());
     }
     /**
      * Deletes a Trip entity from the database by its id.
@@ -181,8 +456,8 @@ public class TripRepository<T extends Trip<Person>> extends AbstractRepository<T
      * @throws RepositoryAccessException if a database access error occurs
      */
     @Override
-    public synchronized void delete(Long id, User user) {
-        waitForDbAccess();
+    public void delete(Long id, User user) {
+        acquireWriteAccess();
         try(Connection con = connectToDb()){
             try(PreparedStatement ps = con.prepareStatement("DELETE FROM trip WHERE id = ?")){
                 ps.setLong(1, id);
@@ -193,9 +468,9 @@ public class TripRepository<T extends Trip<Person>> extends AbstractRepository<T
         }catch (SQLException e){
             throw new RepositoryAccessException(e);
         }finally{
-            databaseAccessInProgress = false;
-            notifyAll();
+            releaseWriteAccess();
         }
+        publishChange(ChangeType.DELETED, id);
     }
     /**
      * Extracts Trip data from the current row of a ResultSet.
@@ -218,22 +493,19 @@ public class TripRepository<T extends Trip<Person>> extends AbstractRepository<T
         return trip;
     }
     /**
-     * Creates a fully populated Trip entity including employees and destinations
-     * by querying the database.
+     * Populates employees and destinations of all given trips with set-based queries
+     * and adds warnings to trips that are missing either.
      *
      * @param con the active database connection
-     * @param rs the ResultSet positioned at the trip row
-     * @param allRisks list of all risks to associate with destinations
-     * @return a Trip entity with associated data
-     * @throws SQLException if a database access error occurs
+     * @param trips the trips to populate, keyed by trip id
      */
-    private Trip<Person> createTrip(Connection con, ResultSet rs, List<Risk> allRisks) throws SQLException{
-        Trip<Person> trip = extractTripFromResultSet(rs);
-        trip.setEmployees(TripDataFetcher.fetchEmployees(con, trip.getId()));
-        trip.setDestinations(TripDataFetcher.fetchDestinations(con, trip.getId(), allRisks));
-        if(trip.getEmployees().isEmpty()) trip.setWarningMessage(trip.getWarningMessage()+"No employees! ");
-        if(trip.getDestinations().isEmpty()) trip.setWarningMessage(trip.getWarningMessage()+"No destinations! ");
-        return trip;
+    private void populateTrips(Connection con, Map<Long, Trip<Person>> trips) {
+        TripDataFetcher.fetchEmployees(con, trips);
+        TripDataFetcher.fetchDestinations(con, trips);
+        for(Trip<Person> trip : trips.values()){
+            if(trip.getEmployees().isEmpty()) trip.setWarningMessage(trip.getWarningMessage()+"No employees! ");
+            if(trip.getDestinations().isEmpty()) trip.setWarningMessage(trip.getWarningMessage()+"No destinations! ");
+        }
     }
     /**
      * Updates the main trip data (name, start date, end date) in the database.
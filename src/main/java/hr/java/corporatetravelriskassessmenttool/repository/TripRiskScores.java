@@ -0,0 +1,201 @@
+package hr.java.corporatetravelriskassessmenttool.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Maintains the materialized trip risk scores in the {@code trip_risk_score} table.
+ * <p>
+ * A trip's score is the sum of the scores of the risks of all its destinations, computed in the database with
+ * the same formulas and rounding as the risk classes, and broken down by risk type. Repositories call these methods
+ * in the same transaction as every write that changes the risks a trip is exposed to: trip destinations,
+ * destination risks, and the level or type-specific values of a risk. Deleted trips lose their score row by cascade.
+ * The initial scores are computed by {@link #refreshAll(Connection)} when the table is created.
+ * </p>
+ * <p>
+ * The writers of those tables hold different table locks, so two of them may run at the same time, and each would
+ * recompute a score from the other's state before it committed. Every score refresh therefore runs through
+ * {@link #refreshAndCommit(Connection, ScoreRefresh)}, which holds the {@code trip_risk_score} lock from finding the
+ * affected trips until the commit: the refresh that runs last sees everything the earlier ones committed.
+ * </p>
+ */
+final class TripRiskScores {
+    private static final String LOCK_NAME = "trip_risk_score";
+    private static final String LEVEL_WEIGHT =
+            "CASE UPPER(r.level) WHEN 'LOW' THEN 1 WHEN 'MEDIUM' THEN 2 WHEN 'HIGH' THEN 3 ELSE 0 END";
+    private static final String REFRESH_SQL = "MERGE INTO trip_risk_score(trip_id, total_score, health_score, " +
+            "environmental_score, political_score, risk_count, updated_at) KEY(trip_id) " +
+            "SELECT s.trip_id, s.health_score + s.environmental_score + s.political_score, " +
+            "s.health_score, s.environmental_score, s.political_score, s.risk_count, CURRENT_TIMESTAMP " +
+            "FROM (SELECT t.id AS trip_id, " +
+            "COALESCE(SUM(h.severity * " + LEVEL_WEIGHT + "), 0) AS health_score, " +
+            "COALESCE(SUM(e.disaster_probability * ROUND(CAST(e.damage_index AS DECIMAL(20, 2)) / 100, 0) * "
+            + LEVEL_WEIGHT + "), 0) AS environmental_score, " +
+            "COALESCE(SUM(CASE WHEN p.risk_id IS NULL OR " + LEVEL_WEIGHT + " = 0 " +
+            "OR p.unrest_index <= p.stability_index THEN 0 " +
+            "ELSE (CAST(p.unrest_index AS BIGINT) - p.stability_index) / " + LEVEL_WEIGHT + " END), 0) AS political_score, " +
+            "COUNT(r.id) AS risk_count " +
+            "FROM trip t " +
+            "LEFT JOIN trip_destination td ON td.trip_id = t.id " +
+            "LEFT JOIN destination_risk dr ON dr.destination_id = td.destination_id " +
+            "LEFT JOIN risk r ON r.id = dr.risk_id " +
+            "LEFT JOIN health_risk h ON h.risk_id = r.id " +
+            "LEFT JOIN environmental_risk e ON e.risk_id = r.id " +
+            "LEFT JOIN political_risk p ON p.risk_id = r.id " +
+            "WHERE %s GROUP BY t.id) s";
+    private static final String TRIPS_OF_DESTINATION = "SELECT trip_id FROM trip_destination WHERE destination_id = ?";
+    private static final String TRIPS_OF_RISK = "SELECT td.trip_id FROM trip_destination td " +
+            "JOIN destination_risk dr ON dr.destination_id = td.destination_id WHERE dr.risk_id = ?";
+
+    /**
+     * The part of a transaction that refreshes trip scores, run while holding the score lock.
+     */
+    @FunctionalInterface
+    interface ScoreRefresh {
+        /**
+         * Finds the affected trips, makes any changes that must be seen together with them, and refreshes their scores.
+         *
+         * @param con the connection of the transaction
+         * @throws SQLException if a database access error occurs
+         */
+        void refresh(Connection con) throws SQLException;
+    }
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private TripRiskScores() {
+    }
+
+    /**
+     * Runs the score refresh of a transaction and commits the transaction, holding the score lock in between.
+     *
+     * @param con the connection of the transaction, with auto-commit disabled
+     * @param refresh the score refresh
+     * @throws SQLException if the refresh or the commit fails; the caller rolls back
+     * @throws hr.java.corporatetravelriskassessmenttool.exception.RepositoryAccessException if the lock cannot be acquired
+     */
+    static void refreshAndCommit(Connection con, ScoreRefresh refresh) throws SQLException {
+        DatabaseLockManager.acquireWrite(LOCK_NAME);
+        try {
+            refresh.refresh(con);
+            con.commit();
+        } finally {
+            DatabaseLockManager.releaseWrite(LOCK_NAME);
+        }
+    }
+
+    /**
+     * Recomputes the scores of all trips.
+     *
+     * @param con the database connection
+     * @throws SQLException if the scores cannot be written
+     */
+    static void refreshAll(Connection con) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(REFRESH_SQL.formatted("TRUE"))) {
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Recomputes the scores of the given trips.
+     *
+     * @param con the connection of the transaction that changed the trips
+     * @param tripIds the IDs of the trips
+     * @throws SQLException if the scores cannot be written
+     */
+    static void refreshTrips(Connection con, Collection<Long> tripIds) throws SQLException {
+        if (tripIds.isEmpty()) return;
+        try (PreparedStatement ps = con.prepareStatement(REFRESH_SQL.formatted("t.id = ANY(?)"))) {
+            ps.setArray(1, con.createArrayOf("BIGINT", tripIds.toArray(new Long[0])));
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Recomputes the scores of all trips visiting a destination.
+     *
+     * @param con the connection of the transaction that changed the destination
+     * @param destinationId the ID of the destination
+     * @throws SQLException if the scores cannot be written
+     */
+    static void refreshTripsOfDestination(Connection con, long destinationId) throws SQLException {
+        refresh(con, TRIPS_OF_DESTINATION, destinationId);
+    }
+
+    /**
+     * Recomputes the scores of all trips visiting a destination exposed to a risk.
+     *
+     * @param con the connection of the transaction that changed the risk
+     * @param riskId the ID of the risk
+     * @throws SQLException if the scores cannot be written
+     */
+    static void refreshTripsOfRisk(Connection con, long riskId) throws SQLException {
+        refresh(con, TRIPS_OF_RISK, riskId);
+    }
+
+    /**
+     * Finds the trips visiting a destination, to refresh them after the destination has been deleted.
+     *
+     * @param con the database connection
+     * @param destinationId the ID of the destination
+     * @return the IDs of the trips
+     * @throws SQLException if a database access error occurs
+     */
+    static List<Long> findTripsOfDestination(Connection con, long destinationId) throws SQLException {
+        return queryIds(con, TRIPS_OF_DESTINATION, destinationId);
+    }
+
+    /**
+     * Finds the trips exposed to a risk, to refresh them after the risk has been deleted.
+     *
+     * @param con the database connection
+     * @param riskId the ID of the risk
+     * @return the IDs of the trips
+     * @throws SQLException if a database access error occurs
+     */
+    static List<Long> findTripsOfRisk(Connection con, long riskId) throws SQLException {
+        return queryIds(con, TRIPS_OF_RISK, riskId);
+    }
+
+    /**
+     * Recomputes the scores of the trips selected by a subquery with one ID parameter.
+     *
+     * @param con the database connection
+     * @param tripSelection the subquery selecting the trip IDs
+     * @param id the parameter of the subquery
+     * @throws SQLException if the scores cannot be written
+     */
+    private static void refresh(Connection con, String tripSelection, long id) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(REFRESH_SQL.formatted("t.id IN (" + tripSelection + ")"))) {
+            ps.setLong(1, id);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Runs a query returning trip IDs.
+     *
+     * @param con the database connection
+     * @param sql the query with one ID parameter
+     * @param id the parameter
+     * @return the distinct trip IDs
+     * @throws SQLException if a database access error occurs
+     */
+    private static List<Long> queryIds(Connection con, String sql, long id) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        try (PreparedStatement ps = con.prepareStatement("SELECT DISTINCT trip_id FROM (" + sql + ")")) {
+            ps.setLong(1, id);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                ids.add(rs.getLong(1));
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,355 @@
+package hr.java.corporatetravelriskassessmenttool.threads;
+
+import hr.java.corporatetravelriskassessmenttool.exception.ChangelogLockedException;
+import hr.java.corporatetravelriskassessmenttool.model.Person;
+import hr.java.corporatetravelriskassessmenttool.model.Risk;
+import hr.java.corporatetravelriskassessmenttool.model.RiskAssessment;
+import hr.java.corporatetravelriskassessmenttool.model.User;
+import hr.java.corporatetravelriskassessmenttool.repository.DatabaseConnectionPool;
+import hr.java.corporatetravelriskassessmenttool.repository.RiskAssessmentRepository;
+import hr.java.corporatetravelriskassessmenttool.repository.SchemaMigrator;
+import hr.java.corporatetravelriskassessmenttool.repository.TripCriteria;
+import hr.java.corporatetravelriskassessmenttool.repository.TripRepository;
+import hr.java.corporatetravelriskassessmenttool.utils.ChangelogUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static hr.java.corporatetravelriskassessmenttool.main.CorporateTravelRiskAssessmentApplication.changelogRepository;
+
+/**
+ * Headless batch job that regenerates the risk assessments of all trips, or of the trips in a date window, in parallel.
+ * <p>
+ * Each trip is regenerated in its own transaction through
+ * {@link RiskAssessmentRepository#generateForTrip(Long, LocalDate)}, so a failing trip is reported and skipped
+ * without affecting the others. Trips are handed to a fixed number of worker threads and never more than twice
+ * that many are in flight, so the job neither exhausts the connection pool nor queues the whole fleet in memory.
+ * </p>
+ * <p>
+ * Progress is reported to an optional {@link ProgressListener} after every trip. {@link #cancel()} stops the job
+ * from starting further trips; trips already running are completed, so no trip is left half regenerated.
+ * A single changelog entry summarizes the run.
+ * </p>
+ * <p>
+ * The job must not run while the application is open. The two would append to the same changelog from separate
+ * processes, and the table locks {@code generateForTrip} relies on only exclude other threads of the same process,
+ * so a trip regenerated by both would fail on the unique key of its assessments. Run from the command line, the job
+ * therefore opens the changelog first and exits if the application holds its lock.
+ * </p>
+ */
+public class AssessmentRegenerationJob implements Callable<AssessmentRegenerationJob.Summary> {
+    private static final Logger log = LoggerFactory.getLogger(AssessmentRegenerationJob.class);
+
+    private final int parallelism;
+    private final LocalDate windowStart;
+    private final LocalDate windowEnd;
+    private final LocalDate assessmentDate;
+    private final User user;
+    private final ProgressListener progressListener;
+    private final TripRepository<?> tripRepository = new TripRepository<>();
+    private final RiskAssessmentRepository<RiskAssessment<Person, Risk>> assessmentRepository = new RiskAssessmentRepository<>();
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+
+    /**
+     * Receives progress updates while the job runs. Called from the thread running the job.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        /**
+         * Called after each trip has been processed.
+         *
+         * @param progress the progress so far
+         */
+        void onProgress(Progress progress);
+    }
+
+    /**
+     * Snapshot of the job progress.
+     *
+     * @param tripId the ID of the trip that was just processed
+     * @param processed the number of trips processed so far, including failed ones
+     * @param failed the number of trips that could not be regenerated
+     * @param total the number of trips selected for the run
+     * @param elapsed the time since the job started
+     */
+    public record Progress(long tripId, int processed, int failed, int total, Duration elapsed) {
+        /**
+         * @return the processed share of the selected trips, between 0 and 1
+         */
+        public double fraction() {
+            return total == 0 ? 1 : (double) processed / total;
+        }
+    }
+
+    /**
+     * Outcome and throughput of a finished run.
+     *
+     * @param total the number of trips selected for the run
+     * @param processed the number of trips processed, including failed ones
+     * @param failed the number of trips that could not be regenerated
+     * @param created the number of assessments created
+     * @param refreshed the number of assessments whose date was refreshed
+     * @param cancelled whether the run was cancelled before all trips were processed
+     * @param elapsed the duration of the run
+     */
+    public record Summary(int total, int processed, int failed, long created, long refreshed, boolean cancelled,
+                          Duration elapsed) {
+        /**
+         * @return the number of processed trips per second
+         */
+        public double tripsPerSecond() {
+            return processed / Math.max(elapsed.toMillis() / 1000.0, 0.001);
+        }
+
+        /**
+         * @return the number of created and refreshed assessments per second
+         */
+        public double assessmentsPerSecond() {
+            return (created + refreshed) / Math.max(elapsed.toMillis() / 1000.0, 0.001);
+        }
+    }
+
+    /**
+     * Creates a job from the values of the builder.
+     *
+     * @param builder the builder holding the job configuration
+     */
+    private AssessmentRegenerationJob(Builder builder) {
+        this.parallelism = builder.parallelism;
+        this.windowStart = builder.windowStart;
+        this.windowEnd = builder.windowEnd;
+        this.assessmentDate = builder.assessmentDate;
+        this.user = builder.user;
+        this.progressListener = builder.progressListener;
+    }
+
+    /**
+     * Runs the job and waits until every selected trip has been processed or the job has been cancelled.
+     *
+     * @return the summary of the run
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the workers
+     * @throws hr.java.corporatetravelriskassessmenttool.exception.RepositoryAccessException if the trips cannot be selected
+     */
+    @Override
+    public Summary call() throws InterruptedException {
+        long startNanos = System.nanoTime();
+        List<Long> tripIds = tripRepository.findIdsMatching(new TripCriteria().activeBetween(windowStart, windowEnd));
+        log.info("Regenerating assessments for {} trips with {} workers", tripIds.size(), parallelism);
+        AtomicInteger threadNumber = new AtomicInteger();
+        // a completed trip is reported before its worker takes the next task, so the queue must hold every trip in flight
+        ExecutorService executor = new ThreadPoolExecutor(parallelism, parallelism, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(2 * parallelism), runnable -> {
+                    Thread thread = new Thread(runnable, "assessment-regeneration-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        CompletionService<RiskAssessmentRepository.GenerationResult> completions = new ExecutorCompletionService<>(executor);
+        Map<Future<RiskAssessmentRepository.GenerationResult>, Long> running = new HashMap<>();
+        int processed = 0;
+        int failed = 0;
+        long created = 0;
+        long refreshed = 0;
+        try {
+            Iterator<Long> pending = tripIds.iterator();
+            while (!running.isEmpty() || (pending.hasNext() && !cancelled.get())) {
+                while (running.size() < 2 * parallelism && pending.hasNext() && !cancelled.get()) {
+                    Long tripId = pending.next();
+                    running.put(completions.submit(() -> assessmentRepository.generateForTrip(tripId, assessmentDate)), tripId);
+                }
+                Future<RiskAssessmentRepository.GenerationResult> done = completions.take();
+                long tripId = running.remove(done);
+                processed++;
+                try {
+                    RiskAssessmentRepository.GenerationResult result = done.get();
+                    created += result.created();
+                    refreshed += result.refreshed();
+                } catch (ExecutionException e) {
+                    failed++;
+                    log.warn("Regenerating assessments for trip {} failed: {}", tripId, e.getCause().getMessage(), e.getCause());
+                }
+                if (progressListener != null) {
+                    progressListener.onProgress(new Progress(tripId, processed, failed, tripIds.size(),
+                            Duration.ofNanos(System.nanoTime() - startNanos)));
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Summary summary = new Summary(tripIds.size(), processed, failed, created, refreshed,
+                processed < tripIds.size(), Duration.ofNanos(System.nanoTime() - startNanos));
+        log.info("Assessment regeneration finished: {} ({} trips/s, {} assessments/s)", summary,
+                String.format("%.1f", summary.tripsPerSecond()), String.format("%.1f", summary.assessmentsPerSecond()));
+        if (created > 0 || refreshed > 0) {
+            ChangelogUtil.logCreation(user, "Regenerated risk assessments", "Trips: " + processed + "/" + tripIds.size()
+                    + " failed: " + failed + " created: " + created + " refreshed: " + refreshed
+                    + " assessment date " + assessmentDate);
+        }
+        return summary;
+    }
+
+    /**
+     * Requests cancellation. No further trips are started, trips already running are completed.
+     */
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    /**
+     * @return true if cancellation has been requested
+     */
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    /**
+     * Builder for {@link AssessmentRegenerationJob}.
+     * By default all trips are regenerated with today's date, as the system user, using up to half of the connection pool.
+     */
+    public static class Builder {
+        private int parallelism = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(),
+                DatabaseConnectionPool.getInstance().getMetrics().maxSize() / 2));
+        private LocalDate windowStart;
+        private LocalDate windowEnd;
+        private LocalDate assessmentDate = LocalDate.now();
+        private User user = User.SYSTEM;
+        private ProgressListener progressListener;
+
+        /**
+         * @param parallelism the number of trips regenerated at the same time
+         * @return this builder
+         */
+        public Builder setParallelism(int parallelism) {
+            if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be at least 1");
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Restricts the job to trips that are under way on at least one day of the window.
+         *
+         * @param windowStart the first day of the window, unbounded if {@code null}
+         * @param windowEnd the last day of the window, unbounded if {@code null}
+         * @return this builder
+         */
+        public Builder setWindow(LocalDate windowStart, LocalDate windowEnd) {
+            this.windowStart = windowStart;
+            this.windowEnd = windowEnd;
+            return this;
+        }
+
+        /**
+         * @param assessmentDate the assessment date of created and refreshed assessments
+         * @return this builder
+         */
+        public Builder setAssessmentDate(LocalDate assessmentDate) {
+            this.assessmentDate = assessmentDate;
+            return this;
+        }
+
+        /**
+         * @param user the user the run is logged for in the changelog
+         * @return this builder
+         */
+        public Builder setUser(User user) {
+            this.user = user;
+            return this;
+        }
+
+        /**
+         * @param progressListener the listener notified after every trip
+         * @return this builder
+         */
+        public Builder setProgressListener(ProgressListener progressListener) {
+            this.progressListener = progressListener;
+            return this;
+        }
+
+        /**
+         * @return the configured job
+         */
+        public AssessmentRegenerationJob build() {
+            return new AssessmentRegenerationJob(this);
+        }
+    }
+
+    /**
+     * Runs the job from the command line without the user interface.
+     * <p>
+     * Usage: {@code AssessmentRegenerationJob [windowStart windowEnd [parallelism]]}, with dates in ISO format
+     * and {@code -} for an open end of the window. Exits with status 2 without changing anything if the changelog
+     * cannot be opened, in particular while the application is running. Pending schema migrations are applied first.
+     * </p>
+     *
+     * @param args the optional date window and parallelism
+     * @throws InterruptedException if the job is interrupted
+     */
+    public static void main(String[] args) throws InterruptedException {
+        try {
+            changelogRepository.open();
+        } catch (ChangelogLockedException e) {
+            log.error("Close the application before regenerating assessments: {}", e.getMessage());
+            System.exit(2);
+        } catch (IOException e) {
+            log.error("Could not open the changelog", e);
+            System.exit(2);
+        }
+        Summary summary;
+        try {
+            summary = runFromCommandLine(args);
+        } finally {
+            changelogRepository.close();
+        }
+        if (summary.failed() > 0) System.exit(1);
+    }
+
+    /**
+     * Applies pending migrations and runs the job configured by the command line arguments, logging its progress.
+     *
+     * @param args the optional date window and parallelism
+     * @return the summary of the run
+     * @throws InterruptedException if the job is interrupted
+     */
+    private static Summary runFromCommandLine(String[] args) throws InterruptedException {
+        new SchemaMigrator().migrate();
+        Builder builder = new Builder();
+        if (args.length >= 2) {
+            builder.setWindow(parseDate(args[0]), parseDate(args[1]));
+        }
+        if (args.length >= 3) {
+            builder.setParallelism(Integer.parseInt(args[2]));
+        }
+        AtomicInteger lastReported = new AtomicInteger(-1);
+        AssessmentRegenerationJob job = builder.setProgressListener(progress -> {
+            int percent = (int) (progress.fraction() * 100);
+            if (percent / 10 > lastReported.get()) {
+                lastReported.set(percent / 10);
+                log.info("Processed {}/{} trips ({} failed)", progress.processed(), progress.total(), progress.failed());
+            }
+        }).build();
+        try {
+            return job.call();
+        } finally {
+            DatabaseConnectionPool.getInstance().shutdown();
+        }
+    }
+
+    /**
+     * Parses a command line date.
+     *
+     * @param value the ISO date, or {@code -} for none
+     * @return the parsed date, or {@code null} for {@code -}
+     */
+    private static LocalDate parseDate(String value) {
+        return "-".equals(value) ? null : LocalDate.parse(value);
+    }
+}
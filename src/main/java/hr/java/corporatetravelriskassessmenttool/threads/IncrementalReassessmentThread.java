@@ -0,0 +1,102 @@
+package hr.java.corporatetravelriskassessmenttool.threads;
+
+import hr.java.corporatetravelriskassessmenttool.exception.RepositoryAccessException;
+import hr.java.corporatetravelriskassessmenttool.model.Person;
+import hr.java.corporatetravelriskassessmenttool.model.Risk;
+import hr.java.corporatetravelriskassessmenttool.model.RiskAssessment;
+import hr.java.corporatetravelriskassessmenttool.model.User;
+import hr.java.corporatetravelriskassessmenttool.repository.ChangeJournal;
+import hr.java.corporatetravelriskassessmenttool.repository.RiskAssessmentRepository;
+import hr.java.corporatetravelriskassessmenttool.utils.ChangelogUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runnable task that brings risk assessments up to date with the changes recorded in the {@link ChangeJournal}
+ * since its previous run.
+ * <p>
+ * Assessments of risks whose values changed get a new assessment date, and trips whose employees or destinations
+ * changed, or that visit a destination whose risks changed, are regenerated. Nothing else is touched.
+ * The processed watermark is stored only after all changes up to it have been applied, so an interrupted run
+ * simply repeats the same work the next time; regeneration is idempotent.
+ * </p>
+ * Only one run is active at a time; a run started while another is in progress returns immediately.
+ */
+public class IncrementalReassessmentThread implements Runnable {
+    private static final Logger log = LoggerFactory.getLogger(IncrementalReassessmentThread.class);
+    private static final String CONSUMER = "incremental-reassessment";
+    private static final AtomicBoolean RUNNING = new AtomicBoolean();
+    private final ChangeJournal changeJournal = new ChangeJournal();
+    private final RiskAssessmentRepository<RiskAssessment<Person, Risk>> assessmentRepository = new RiskAssessmentRepository<>();
+    private final User user;
+
+    /**
+     * Outcome of one incremental run.
+     *
+     * @param fromWatermark the watermark the run started after
+     * @param toWatermark the watermark the run processed up to
+     * @param trips the number of regenerated trips
+     * @param created the number of assessments created
+     * @param refreshed the number of assessments whose date was refreshed
+     */
+    public record ReassessmentResult(long fromWatermark, long toWatermark, int trips, int created, int refreshed) {
+    }
+
+    /**
+     * Constructs a new IncrementalReassessmentThread running as the given user.
+     *
+     * @param user the user the changes are logged for
+     */
+    public IncrementalReassessmentThread(User user) {
+        this.user = user;
+    }
+
+    /**
+     * Runs one incremental refresh, logging instead of propagating database errors.
+     */
+    @Override
+    public void run() {
+        if (!RUNNING.compareAndSet(false, true)) return;
+        try {
+            refresh();
+        } catch (RepositoryAccessException e) {
+            log.warn("Incremental re-assessment failed, it will be retried on the next run", e);
+        } finally {
+            RUNNING.set(false);
+        }
+    }
+
+    /**
+     * Applies all changes recorded after the stored watermark and advances the watermark.
+     *
+     * @return the outcome of the run
+     * @throws RepositoryAccessException if a database error occurs, in which case the watermark is not advanced
+     */
+    public ReassessmentResult refresh() {
+        long from = changeJournal.readWatermark(CONSUMER);
+        long to = changeJournal.currentWatermark();
+        if (to <= from) return new ReassessmentResult(from, from, 0, 0, 0);
+        LocalDate today = LocalDate.now();
+        Set<Long> changedRisks = changeJournal.findChanged(ChangeJournal.EntityType.RISK, from, to);
+        int refreshed = assessmentRepository.refreshForRisks(changedRisks, today);
+        int created = 0;
+        Set<Long> trips = changeJournal.findTripsWithChangedRelations(from, to);
+        for (Long tripId : trips) {
+            RiskAssessmentRepository.GenerationResult result = assessmentRepository.generateForTrip(tripId, today);
+            created += result.created();
+            refreshed += result.refreshed();
+        }
+        changeJournal.advanceWatermark(CONSUMER, to);
+        ReassessmentResult result = new ReassessmentResult(from, to, trips.size(), created, refreshed);
+        log.info("Incremental re-assessment applied changes {} to {}: {}", from + 1, to, result);
+        if (created > 0 || refreshed > 0) {
+            ChangelogUtil.logCreation(user, "Refreshed stale risk assessments", "Changed risks: " + changedRisks.size()
+                    + " trips: " + trips.size() + " created: " + created + " refreshed: " + refreshed);
+        }
+        return result;
+    }
+}
@@ -37,6 +37,19 @@ public class ChangelogUtil {
         changelogRepository.logChange(new ChangelogEntry(
                 user.username(), user.role(), action, detail, LocalDateTime.now()));
     }
+    /**
+     * Logs a single entry covering a whole batch operation.
+     * Nothing is logged if the batch did not change anything.
+     *
+     * @param user the user who performed the batch
+     * @param action description of the batch action
+     * @param details one detail line per affected entity
+     */
+    public static void logBatch(User user, String action, List<String> details) {
+        if(details.isEmpty()) return;
+        changelogRepository.logChange(new ChangelogEntry(user.username(), user.role(), action,
+                details.size() + " change(s): " + String.join("; ", details), LocalDateTime.now()));
+    }
     /**
      * Logs updates made to a {@link Trip} by comparing the old and new versions.
      * Only changed fields are recorded.
@@ -100,6 +113,20 @@ public class ChangelogUtil {
      * @param newAssessment the assessment object after changes
      */
     public static void logAssessmentUpdate(User user, RiskAssessment<Person, Risk> oldAssessment, RiskAssessment<Person, Risk> newAssessment) {
+        List<String> changes = assessmentChanges(oldAssessment, newAssessment);
+        if(!changes.isEmpty()) {
+            changelogRepository.logChange(new ChangelogEntry(user.username(), user.role(), "Destination updated",
+                    "Id: " + newAssessment.getId() + " " + changes, LocalDateTime.now()));
+        }
+    }
+    /**
+     * Lists the changed fields between two versions of a {@link RiskAssessment}.
+     *
+     * @param oldAssessment the assessment object before changes
+     * @param newAssessment the assessment object after changes
+     * @return a description of each changed field, empty if nothing changed
+     */
+    public static List<String> assessmentChanges(RiskAssessment<Person, Risk> oldAssessment, RiskAssessment<Person, Risk> newAssessment) {
         List<String> changes = new ArrayList<>();
         if (!oldAssessment.getAssessmentDate().equals(newAssessment.getAssessmentDate())) {
             changes.add("assessment date: '" + oldAssessment.getAssessmentDate() + ARROW + newAssessment.getAssessmentDate() + "'\n");
@@ -107,10 +134,7 @@ public class ChangelogUtil {
         if (!oldAssessment.generateReport().equals(newAssessment.generateReport())) {
             changes.add("report: '" + oldAssessment.generateReport() + ARROW + newAssessment.generateReport() + "'\n");
         }
-        if(!changes.isEmpty()) {
-            changelogRepository.logChange(new ChangelogEntry(user.username(), user.role(), "Destination updated",
-                    "Id: " + newAssessment.getId() + " " + changes, LocalDateTime.now()));
-        }
+        return changes;
     }
     /**
      * Logs updates made to a {@link PoliticalRisk} by comparing the old and new versions.
@@ -200,6 +224,20 @@ public class ChangelogUtil {
      * @param newEmployee the employee object after changes
      */
     public static void logEmployeeUpdate(User user, Employee oldEmployee, Employee newEmployee){
+        List<String> changes = employeeChanges(oldEmployee, newEmployee);
+        if(!changes.isEmpty()) {
+            changelogRepository.logChange(new ChangelogEntry(user.username(), user.role(), "Employee updated",
+                    "Id: " + newEmployee.getId() + " " + changes, LocalDateTime.now()));
+        }
+    }
+    /**
+     * Lists the changed fields between two versions of an {@link Employee}.
+     *
+     * @param oldEmployee the employee object before changes
+     * @param newEmployee the employee object after changes
+     * @return a description of each changed field, empty if nothing changed
+     */
+    public static List<String> employeeChanges(Employee oldEmployee, Employee newEmployee){
         List<String> changes = new ArrayList<>();
         if (!oldEmployee.getName().equals(newEmployee.getName())) {
             changes.add("name: '" + oldEmployee.getName() + ARROW + newEmployee.getName() + "'\n");
@@ -216,9 +254,6 @@ public class ChangelogUtil {
         if (!oldEmployee.getSalary().equals(newEmployee.getSalary())) {
             changes.add("Salary: " + oldEmployee.getSalary() + ARROW + newEmployee.getSalary());
         }
-        if(!changes.isEmpty()) {
-            changelogRepository.logChange(new ChangelogEntry(user.username(), user.role(), "Employee updated",
-                    "Id: " + newEmployee.getId() + " " + changes, LocalDateTime.now()));
-        }
+        return changes;
     }
 }
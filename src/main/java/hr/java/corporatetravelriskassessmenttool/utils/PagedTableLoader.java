@@ -0,0 +1,118 @@
+package hr.java.corporatetravelriskassessmenttool.utils;
+
+import hr.java.corporatetravelriskassessmenttool.exception.RepositoryAccessException;
+import hr.java.corporatetravelriskassessmenttool.model.Entity;
+import hr.java.corporatetravelriskassessmenttool.repository.AbstractRepository;
+import hr.java.corporatetravelriskassessmenttool.repository.Page;
+import hr.java.corporatetravelriskassessmenttool.repository.PageRequest;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.control.TableView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Optional;
+
+/**
+ * Fills a {@link TableView} page by page from a repository.
+ * <p>
+ * The first page is loaded on {@link #reload()}, and the next page is appended whenever the user scrolls
+ * close to the bottom of the table, or right away if the loaded rows do not fill the table yet.
+ * Once the table shows a different list (for example filter results), scrolling no longer loads pages
+ * until the table is reloaded.
+ * </p>
+ *
+ * @param <T> the type of entity shown in the table
+ */
+public class PagedTableLoader<T extends Entity> {
+    private static final Logger log = LoggerFactory.getLogger(PagedTableLoader.class);
+    private static final double LOAD_THRESHOLD = 0.9;
+
+    private final TableView<T> tableView;
+    private final AbstractRepository<T> repository;
+    private final int pageSize;
+    private final ObservableList<T> items = FXCollections.observableArrayList();
+    private Optional<PageRequest> nextRequest = Optional.empty();
+    private ScrollBar verticalScrollBar;
+
+    /**
+     * Creates a loader for the given table and starts listening for scrolling once the table is displayed.
+     *
+     * @param tableView the table to fill
+     * @param repository the repository to load pages from
+     * @param pageSize the number of rows loaded per page
+     */
+    public PagedTableLoader(TableView<T> tableView, AbstractRepository<T> repository, int pageSize) {
+        this.tableView = tableView;
+        this.repository = repository;
+        this.pageSize = pageSize;
+        tableView.skinProperty().addListener((observable, oldSkin, newSkin) -> {
+            if (newSkin != null) Platform.runLater(this::attachScrollBar);
+        });
+    }
+
+    /**
+     * Clears the table and loads the first page.
+     *
+     * @throws RepositoryAccessException if the page could not be loaded
+     */
+    public void reload() {
+        items.clear();
+        nextRequest = Optional.of(PageRequest.first(pageSize));
+        tableView.setItems(items);
+        loadNextPage();
+    }
+
+    /**
+     * Appends the next page to the table, if there is one and the table still shows the paged list.
+     *
+     * @throws RepositoryAccessException if the page could not be loaded
+     */
+    public void loadNextPage() {
+        if (nextRequest.isEmpty() || tableView.getItems() != items) return;
+        Page<T> page = repository.findPage(nextRequest.get());
+        items.addAll(page.content());
+        nextRequest = page.nextRequest();
+        log.debug("Loaded {} of about {} rows into table {}", items.size(), page.totalEstimate(), tableView.getId());
+        Platform.runLater(this::fillViewport);
+    }
+
+    /**
+     * Finds the vertical scroll bar of the table and loads the next page whenever it nears the end.
+     */
+    private void attachScrollBar() {
+        for (Node node : tableView.lookupAll(".scroll-bar")) {
+            if (node instanceof ScrollBar scrollBar && scrollBar.getOrientation() == Orientation.VERTICAL) {
+                verticalScrollBar = scrollBar;
+                scrollBar.valueProperty().addListener((observable, oldValue, newValue) -> {
+                    if (newValue.doubleValue() >= scrollBar.getMax() * LOAD_THRESHOLD) loadSafely();
+                });
+            }
+        }
+        fillViewport();
+    }
+
+    /**
+     * Keeps loading pages while the table has no scroll bar to scroll with, so the loaded rows fill the view.
+     */
+    private void fillViewport() {
+        if (verticalScrollBar != null && !verticalScrollBar.isVisible()) loadSafely();
+    }
+
+    /**
+     * Loads the next page, reporting failures to the user instead of propagating them into the UI event.
+     */
+    private void loadSafely() {
+        try {
+            loadNextPage();
+        } catch (RepositoryAccessException e) {
+            nextRequest = Optional.empty();
+            log.error("Error while loading next page {}", e.getMessage(), e);
+            ValidationUtils.showError("Error while loading data", e.getMessage());
+        }
+    }
+}
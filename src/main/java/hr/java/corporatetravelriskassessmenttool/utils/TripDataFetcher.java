@@ -1,20 +1,19 @@
 package hr.java.corporatetravelriskassessmenttool.utils;
 
 import hr.java.corporatetravelriskassessmenttool.exception.RepositoryAccessException;
+import hr.java.corporatetravelriskassessmenttool.exception.UnknownRiskTypeException;
 import hr.java.corporatetravelriskassessmenttool.mapper.DestinationMapper;
 import hr.java.corporatetravelriskassessmenttool.mapper.EmployeeMapper;
+import hr.java.corporatetravelriskassessmenttool.mapper.RiskMapper;
 import hr.java.corporatetravelriskassessmenttool.model.*;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
+import java.sql.*;
 import java.util.*;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 /**
  * Utility class responsible for fetching trip-related data from the database.
- * Provides methods to retrieve employees and destinations associated with a given trip.
+ * Provides methods to populate the employees and destinations of a whole set of trips at once,
+ * using a constant number of set-based queries regardless of how many trips are loaded.
+ * Employees, destinations and risks shared between trips are loaded once and reused.
  * This class is not instantiable.
  */
 public class TripDataFetcher {
@@ -24,73 +23,99 @@ public class TripDataFetcher {
     private TripDataFetcher() {}
 
     /**
-     * Fetches the set of employees participating in a specified trip.
+     * Populates the employees of every given trip with a single query over {@code trip_employee}.
      *
      * @param con the active database connection
-     * @param tripId the ID of the trip for which to fetch employees
-     * @return a set of {@link Person} objects representing employees linked to the trip
+     * @param trips the trips to populate, keyed by trip ID
      * @throws RepositoryAccessException if a database access error occurs
      */
-    public static Set<Person> fetchEmployees(Connection con, Long tripId) {
-        Set<Person> employees = new HashSet<>();
-        String sql = "SELECT e.id, e.name, e.salary, e.department, e.job_title, e.date_of_birth FROM employees e " +
-                "JOIN trip_employee te ON e.id = te.employee_id WHERE te.trip_id = ?";
+    public static void fetchEmployees(Connection con, Map<Long, Trip<Person>> trips) {
+        if(trips.isEmpty()) return;
+        Map<Long, Person> employeeMap = new HashMap<>();
+        String sql = "SELECT te.trip_id, e.id, e.name, e.salary, e.department, e.job_title, e.date_of_birth FROM employees e " +
+                "JOIN trip_employee te ON e.id = te.employee_id WHERE te.trip_id = ANY(?)";
         try(PreparedStatement ps = con.prepareStatement(sql)){
-            ps.setLong(1, tripId);
-            ResultSet rs = ps.executeQuery();
-            while(rs.next()){
-                employees.add(EmployeeMapper.map(rs));
+            ps.setArray(1, toIdArray(con, trips.keySet()));
+            try(ResultSet rs = ps.executeQuery()){
+                while(rs.next()){
+                    Trip<Person> trip = trips.get(rs.getLong("trip_id"));
+                    Person employee = employeeMap.get(rs.getLong("id"));
+                    if(employee == null){
+                        employee = EmployeeMapper.map(rs);
+                        employeeMap.put(employee.getId(), employee);
+                    }
+                    trip.getEmployees().add(employee);
+                }
             }
         }catch(SQLException e){
             throw new RepositoryAccessException(e);
         }
-        return employees;
     }
     /**
-     * Fetches the set of destinations associated with a specified trip, including their related risks.
+     * Populates the destinations of every given trip, including their related risks.
+     * Destinations are fetched with one query over {@code trip_destination} and their risks
+     * with one query over {@code destination_risk}.
      *
      * @param con the active database connection
-     * @param tripId the ID of the trip for which to fetch destinations
-     * @param allRisks the list of all available risks to be linked to destinations
-     * @return a set of {@link Destination} objects linked to the trip, each populated with associated risks
-     * @throws RepositoryAccessException if a database access error occurs
+     * @param trips the trips to populate, keyed by trip ID
+     * @throws RepositoryAccessException if a database access error occurs or a risk type is unknown
      */
-    public static Set<Destination> fetchDestinations(Connection con, Long tripId, List<Risk> allRisks) {
-        Set<Destination> destinations = new HashSet<>();
+    public static void fetchDestinations(Connection con, Map<Long, Trip<Person>> trips) {
+        if(trips.isEmpty()) return;
         Map<Long, Destination> destinationMap = new HashMap<>();
-        String sql = "SELECT d.id, d.country, d.city FROM destinations d JOIN trip_destination td ON d.id = td.destination_id" +
-                " WHERE td.trip_id = ?";
-        try(PreparedStatement ps = con.prepareStatement(sql)){
-            ps.setLong(1, tripId);
-            ResultSet rs = ps.executeQuery();
-            while(rs.next()){
-                Destination destination = DestinationMapper.map(rs);
-                destinations.add(destination);
-                destinationMap.put(destination.getId(), destination);
+        String sql = "SELECT td.trip_id, d.id, d.country, d.city FROM destinations d JOIN trip_destination td " +
+                "ON d.id = td.destination_id WHERE td.trip_id = ANY(?)";
+        String riskSql = "SELECT dr.destination_id, r.id, r.description, r.level, r.type, e.damage_index, " +
+                "e.disaster_probability, h.severity, p.unrest_index, p.stability_index FROM destination_risk dr " +
+                "JOIN risk r ON dr.risk_id = r.id LEFT JOIN environmental_risk e ON r.id = e.risk_id " +
+                "LEFT JOIN health_risk h ON r.id = h.risk_id LEFT JOIN political_risk p ON r.id = p.risk_id " +
+                "WHERE dr.destination_id IN (SELECT destination_id FROM trip_destination WHERE trip_id = ANY(?))";
+        try{
+            Array tripIds = toIdArray(con, trips.keySet());
+            try(PreparedStatement ps = con.prepareStatement(sql)){
+                ps.setArray(1, tripIds);
+                try(ResultSet rs = ps.executeQuery()){
+                    while(rs.next()){
+                        Trip<Person> trip = trips.get(rs.getLong("trip_id"));
+                        Destination destination = destinationMap.get(rs.getLong("id"));
+                        if(destination == null){
+                            destination = DestinationMapper.map(rs);
+                            destinationMap.put(destination.getId(), destination);
+                        }
+                        trip.getDestinations().add(destination);
+                    }
+                }
             }
-        }catch(SQLException e){
-            throw new RepositoryAccessException(e);
-        }
-        Map<Long, Risk> riskMap = allRisks.stream().collect(Collectors.toMap(Risk::getId, Function.identity()));
-        String riskSql = "SELECT destination_id, risk_id FROM destination_risk WHERE destination_id IN (SELECT destination_id" +
-                " FROM trip_destination where trip_id = ?)";
-        try(PreparedStatement ps = con.prepareStatement(riskSql)){
-            ps.setLong(1, tripId);
-            ResultSet rs = ps.executeQuery();
-            while(rs.next()){
-                Long destinationId = rs.getLong("destination_id");
-                Long riskId = rs.getLong("risk_id");
-                Destination destination = destinationMap.get(destinationId);
-                if(destination != null){
-                    Risk risk = riskMap.get(riskId);
-                    if(risk != null){
-                        destination.getRisks().add(risk);
+            Map<Long, Risk> riskMap = new HashMap<>();
+            try(PreparedStatement ps = con.prepareStatement(riskSql)){
+                ps.setArray(1, tripIds);
+                try(ResultSet rs = ps.executeQuery()){
+                    while(rs.next()){
+                        Destination destination = destinationMap.get(rs.getLong("destination_id"));
+                        Risk risk = riskMap.get(rs.getLong("id"));
+                        if(risk == null){
+                            risk = RiskMapper.map(rs);
+                            riskMap.put(risk.getId(), risk);
+                        }
+                        if(destination != null){
+                            destination.getRisks().add(risk);
+                        }
                     }
                 }
             }
-        }catch(SQLException e){
-            throw new RepositoryAccessException(e);
+        }catch(SQLException | UnknownRiskTypeException e){
+            throw new RepositoryAccessException(e.getMessage(), e);
         }
-        return destinations;
+    }
+    /**
+     * Creates a SQL array of IDs suitable for {@code = ANY(?)} parameters.
+     *
+     * @param con the active database connection
+     * @param ids the IDs to include
+     * @return a SQL {@link Array} of BIGINT values
+     * @throws SQLException if the array cannot be created
+     */
+    public static Array toIdArray(Connection con, Collection<Long> ids) throws SQLException {
+        return con.createArrayOf("BIGINT", ids.toArray(new Long[0]));
     }
 }
@@ -0,0 +1,12 @@
+-- Assessments are identified by the employee, risk and trip they belong to.
+-- Keep only the newest row of any duplicates before enforcing that in the schema.
+DELETE FROM risk_assessment ra
+WHERE EXISTS (SELECT 1 FROM risk_assessment newer
+              WHERE newer.employee_id = ra.employee_id
+                AND newer.risk_id = ra.risk_id
+                AND newer.trip_id = ra.trip_id
+                AND newer.id > ra.id);
+
+-- The unique index also serves the composite key lookup done on every save.
+ALTER TABLE risk_assessment ADD CONSTRAINT IF NOT EXISTS uq_risk_assessment_key
+    UNIQUE (employee_id, risk_id, trip_id);
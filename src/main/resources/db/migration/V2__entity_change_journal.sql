@@ -0,0 +1,15 @@
+-- Journal of changes that make risk assessments stale: risk values, destination risks and trip relations.
+-- The ID is the change watermark, it only ever grows.
+CREATE TABLE IF NOT EXISTS entity_change (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    entity_type VARCHAR(20) NOT NULL,
+    entity_id BIGINT NOT NULL,
+    changed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL
+);
+
+-- Last change each consumer of the journal has processed.
+CREATE TABLE IF NOT EXISTS change_watermark (
+    consumer VARCHAR(64) PRIMARY KEY,
+    last_change_id BIGINT NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL
+);
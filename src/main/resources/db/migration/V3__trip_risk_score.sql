@@ -0,0 +1,15 @@
+-- Materialized risk score of every trip: the sum of the scores of the risks of all its destinations,
+-- broken down by risk type. Kept current in the same transaction as every write to the underlying data.
+-- SchemaMigrator backfills it after this script with TripRiskScores.refreshAll, so the formulas live in one place.
+CREATE TABLE IF NOT EXISTS trip_risk_score (
+    trip_id INT PRIMARY KEY REFERENCES trip(id) ON DELETE CASCADE,
+    total_score DECIMAL(20, 2) NOT NULL,
+    health_score DECIMAL(20, 2) NOT NULL,
+    environmental_score DECIMAL(20, 2) NOT NULL,
+    political_score DECIMAL(20, 2) NOT NULL,
+    risk_count INT NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL
+);
+
+-- Serves the riskiest trip queries.
+CREATE INDEX IF NOT EXISTS idx_trip_risk_score_total ON trip_risk_score(total_score DESC, trip_id);
@@ -0,0 +1,111 @@
+package hr.java.corporatetravelriskassessmenttool.analytics;
+
+import hr.java.corporatetravelriskassessmenttool.analytics.RiskAnalyticsService.Dimension;
+import hr.java.corporatetravelriskassessmenttool.analytics.RiskAnalyticsService.RankedEntity;
+import hr.java.corporatetravelriskassessmenttool.enums.RiskLevel;
+import hr.java.corporatetravelriskassessmenttool.repository.RiskDependencyIndex;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the parallel rankings and percentiles against straightforward sequential computations.
+ */
+class RiskAnalyticsServiceTest {
+    private static final long SEED = 0xA11CEL;
+
+    @Test
+    void aggregatesAlongTheGraph() {
+        RiskScoreColumns risks = new RiskScoreColumns.Builder(0)
+                .addHealthRisk(1, RiskLevel.HIGH, 150)
+                .addEnvironmentalRisk(2, RiskLevel.LOW, 250, 40)
+                .addPoliticalRisk(3, RiskLevel.MEDIUM, 9, 2)
+                .build();
+        RiskDependencyIndex.Relations relations = new RiskDependencyIndex.Relations(
+                Map.of(10L, Set.of(1L, 2L), 11L, Set.of(3L)),
+                Map.of(100L, Set.of(10L), 101L, Set.of(10L, 11L), 102L, Set.of(12L)),
+                Map.of(100L, Set.of(1000L), 101L, Set.of(1000L, 1001L)));
+        RiskAnalyticsService service = RiskAnalyticsService.of(risks, relations);
+
+        assertEquals(List.of(new RankedEntity(10, 570), new RankedEntity(11, 300), new RankedEntity(12, 0)),
+                service.top(Dimension.DESTINATION, 5));
+        assertEquals(List.of(new RankedEntity(101, 870), new RankedEntity(100, 570)), service.top(Dimension.TRIP, 2));
+        assertEquals(List.of(new RankedEntity(1000, 1440), new RankedEntity(1001, 870)),
+                service.top(Dimension.EMPLOYEE, 5));
+        assertEquals(new BigDecimal("8.70"), service.percentile(Dimension.TRIP, 100));
+        assertEquals(new BigDecimal("0.00"), service.percentile(Dimension.TRIP, 0));
+        assertEquals(new RiskAnalyticsService.ScoreSummary(3, new BigDecimal("0.00"), new BigDecimal("5.70"),
+                        new BigDecimal("8.70"), new BigDecimal("8.70"), new BigDecimal("8.70"), new BigDecimal("4.80")),
+                service.summary(Dimension.TRIP));
+    }
+
+    @Test
+    void emptyGraphHasNoScores() {
+        RiskAnalyticsService service = RiskAnalyticsService.of(new RiskScoreColumns.Builder(0).build(),
+                new RiskDependencyIndex.Relations(Map.of(), Map.of(), Map.of()));
+        assertEquals(List.of(), service.top(Dimension.TRIP, 10));
+        assertEquals(new BigDecimal("0.00"), service.percentile(Dimension.EMPLOYEE, 50));
+        assertEquals(0, service.summary(Dimension.DESTINATION).count());
+        assertThrows(IllegalArgumentException.class, () -> service.percentile(Dimension.TRIP, 100.5));
+    }
+
+    @Test
+    void rankingsAndPercentilesMatchSequentialComputation() {
+        Random random = new Random(SEED);
+        RiskScoreColumns.Builder builder = new RiskScoreColumns.Builder(0);
+        Map<Long, Long> riskScores = new HashMap<>();
+        for (long id = 1; id <= 5_000; id++) {
+            long severity = random.nextInt(1_000);
+            builder.addHealthRisk(id, RiskLevel.LOW, severity);
+            riskScores.put(id, severity);
+        }
+        Map<Long, Set<Long>> risksByDestination = new HashMap<>();
+        for (long id = 1; id <= 2_000; id++) {
+            risksByDestination.put(id, randomIds(random, 5, 5_000));
+        }
+        Map<Long, Set<Long>> destinationsByTrip = new HashMap<>();
+        Map<Long, Set<Long>> employeesByTrip = new HashMap<>();
+        for (long id = 1; id <= 20_000; id++) {
+            destinationsByTrip.put(id, randomIds(random, 3, 2_000));
+            employeesByTrip.put(id, randomIds(random, 3, 4_000));
+        }
+        RiskAnalyticsService service = RiskAnalyticsService.of(builder.build(),
+                new RiskDependencyIndex.Relations(risksByDestination, destinationsByTrip, employeesByTrip));
+
+        Map<Long, Long> tripScores = new HashMap<>();
+        destinationsByTrip.forEach((trip, destinations) -> tripScores.put(trip, destinations.stream()
+                .flatMap(destination -> risksByDestination.getOrDefault(destination, Set.of()).stream())
+                .mapToLong(riskScores::get).sum()));
+        List<RankedEntity> expected = tripScores.entrySet().stream()
+                .map(entry -> new RankedEntity(entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparingLong(RankedEntity::scaledScore).reversed()
+                        .thenComparingLong(RankedEntity::id))
+                .toList();
+        assertEquals(expected.subList(0, 100), service.top(Dimension.TRIP, 100));
+
+        long[] sorted = tripScores.values().stream().mapToLong(Long::longValue).sorted().toArray();
+        for (double percentile : new double[]{1, 25, 50, 90, 99, 99.9}) {
+            long nearestRank = sorted[(int) Math.ceil(percentile / 100 * sorted.length) - 1];
+            assertEquals(BigDecimal.valueOf(nearestRank, 2), service.percentile(Dimension.TRIP, percentile));
+        }
+    }
+
+    @Test
+    void topKKeepsGreatestElementsInParallel() {
+        Random random = new Random(SEED);
+        List<Integer> values = IntStream.range(0, 200_000).map(i -> random.nextInt()).boxed().toList();
+        List<Integer> expected = values.stream().sorted(Comparator.reverseOrder()).limit(50).toList();
+        assertEquals(expected, values.parallelStream().collect(RiskAnalyticsService.topK(50, Comparator.naturalOrder())));
+        assertEquals(List.of(), values.parallelStream().collect(RiskAnalyticsService.topK(0, Comparator.naturalOrder())));
+        assertThrows(IllegalArgumentException.class, () -> RiskAnalyticsService.topK(-1, Comparator.naturalOrder()));
+    }
+
+    private static Set<Long> randomIds(Random random, int maxCount, int bound) {
+        return random.longs(1 + random.nextInt(maxCount), 1, bound + 1).boxed().collect(Collectors.toSet());
+    }
+}
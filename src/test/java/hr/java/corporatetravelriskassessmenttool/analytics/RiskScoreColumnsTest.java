@@ -0,0 +1,90 @@
+package hr.java.corporatetravelriskassessmenttool.analytics;
+
+import hr.java.corporatetravelriskassessmenttool.enums.RiskLevel;
+import hr.java.corporatetravelriskassessmenttool.model.EnvironmentalRisk;
+import hr.java.corporatetravelriskassessmenttool.model.HealthRisk;
+import hr.java.corporatetravelriskassessmenttool.model.PoliticalRisk;
+import hr.java.corporatetravelriskassessmenttool.model.Risk;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the column-oriented scores against the scores computed by the risk classes.
+ */
+class RiskScoreColumnsTest {
+    private static final long SEED = 0xC011L;
+
+    @Test
+    void scoresMatchRiskClasses() {
+        Random random = new Random(SEED);
+        RiskScoreColumns.Builder builder = new RiskScoreColumns.Builder(0);
+        List<Risk> risks = new ArrayList<>();
+        for (long id = 1; id <= 100_000; id++) {
+            RiskLevel level = RiskLevel.values()[random.nextInt(RiskLevel.values().length)];
+            switch (random.nextInt(3)) {
+                case 0 -> {
+                    long severity = random.nextLong(-100_000, 100_001);
+                    builder.addHealthRisk(id, level, severity);
+                    risks.add(new HealthRisk.HealthRiskBuilder().setId(id).setRiskLevel(level)
+                            .setSeverity(BigDecimal.valueOf(severity, 2)).createHealthRisk());
+                }
+                case 1 -> {
+                    int damage = random.nextInt(-1_000, 1_001);
+                    long probability = random.nextLong(-10_000, 10_001);
+                    builder.addEnvironmentalRisk(id, level, damage, probability);
+                    risks.add(new EnvironmentalRisk.EnvironmentalRiskBuilder().setId(id).setRiskLevel(level)
+                            .setDamageIndex(damage).setDisasterProbability(BigDecimal.valueOf(probability, 2))
+                            .createEnvironmentalRisk());
+                }
+                default -> {
+                    if (level == RiskLevel.NONE) level = RiskLevel.LOW;
+                    int unrest = random.nextInt();
+                    int stability = random.nextInt();
+                    builder.addPoliticalRisk(id, level, unrest, stability);
+                    risks.add(new PoliticalRisk.PoliticalRiskBuilder().setId(id).setRiskLevel(level)
+                            .setUnrestIndex(unrest).setStabilityIndex(stability).createPoliticalRisk());
+                }
+            }
+        }
+        RiskScoreColumns columns = builder.build();
+        assertEquals(risks.size(), columns.size());
+        long sum = 0;
+        for (Risk risk : risks) {
+            assertEquals(risk.calculateRiskScaled(), columns.scoreOf(risk.getId()), () -> "Score differs for risk " + risk.getId());
+            sum += risk.calculateRiskScaled();
+        }
+        assertEquals(sum, columns.aggregateAll().sum());
+    }
+
+    @Test
+    void politicalRiskWithoutLevelScoresZero() {
+        RiskScoreColumns columns = new RiskScoreColumns.Builder(1).addPoliticalRisk(7, RiskLevel.NONE, 90, 10).build();
+        assertEquals(0, columns.scoreOf(7));
+    }
+
+    @Test
+    void aggregateIgnoresUnknownRisks() {
+        RiskScoreColumns columns = new RiskScoreColumns.Builder(2)
+                .addHealthRisk(1, RiskLevel.HIGH, 150)
+                .addPoliticalRisk(2, RiskLevel.MEDIUM, 9, 2)
+                .addEnvironmentalRisk(5, RiskLevel.LOW, 250, 40)
+                .build();
+        RiskScoreColumns.Aggregate aggregate = columns.aggregate(List.of(1L, 2L, 3L, 5L));
+        assertEquals(new RiskScoreColumns.Aggregate(3, 450 + 300 + 120, 120, 450), aggregate);
+        assertEquals(new RiskScoreColumns.Aggregate(0, 0, 0, 0), columns.aggregate(List.of(4L)));
+        assertEquals(0, columns.scoreOf(4));
+    }
+
+    @Test
+    void risksMustBeAddedInAscendingIdOrder() {
+        RiskScoreColumns.Builder builder = new RiskScoreColumns.Builder(2).addHealthRisk(2, RiskLevel.LOW, 100);
+        assertThrows(IllegalArgumentException.class, () -> builder.addHealthRisk(2, RiskLevel.LOW, 100));
+        assertThrows(IllegalArgumentException.class, () -> builder.addHealthRisk(1, RiskLevel.LOW, 100));
+    }
+}
@@ -0,0 +1,125 @@
+package hr.java.corporatetravelriskassessmenttool.changelog;
+
+import hr.java.corporatetravelriskassessmenttool.exception.ChangelogLockedException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks reading ranges of entries across segments of a store on a temporary directory.
+ */
+class ChangelogStoreTest {
+    private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void rangesSpanSegments() throws IOException {
+        try (ChangelogStore store = store(0)) {
+            append(store, 0, 2_000);
+            assertEquals(0, store.firstSequence());
+            assertEquals(2_000, store.count());
+            assertMessages(store.readRange(0, 2_000), 0, 2_000);
+            assertMessages(store.readRange(1_234, 500), 1_234, 500);
+            assertMessages(store.readRange(1_990, 100), 1_990, 10);
+        }
+    }
+
+    @Test
+    void compressedSegmentsAreReadAndIterated() throws IOException {
+        // segments of a few thousand entries, so that reading and iterating cross indexed blocks
+        try (ChangelogStore store = store(131_072, 0)) {
+            append(store, 0, 6_000);
+        }
+        try (ChangelogStore store = store(131_072, 0)) {
+            assertEquals(6_000, store.count());
+            assertMessages(store.readRange(0, 6_000), 0, 6_000);
+            assertMessages(store.readRange(777, 3_333), 777, 3_333);
+            Iterator<ChangelogEntry> newestFirst = store.newestFirst();
+            for (int i = 5_999; i >= 0; i--) {
+                assertEquals("entry " + i, newestFirst.next().getMessage());
+            }
+            assertFalse(newestFirst.hasNext());
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory.resolve("changelog"), "*.log")) {
+            assertEquals(1, StreamSupport.stream(files.spliterator(), false).count(),
+                    "only the active segment should be left uncompressed");
+        }
+    }
+
+    @Test
+    void rangesDoNotStartBeforeRetainedEntries() throws IOException {
+        try (ChangelogStore store = store(20_000)) {
+            append(store, 0, 2_000);
+        }
+        try (ChangelogStore store = store(20_000)) {
+            long first = store.firstSequence();
+            assertTrue(first > 0, "retention should have removed the oldest segments");
+            assertEquals(2_000 - first, store.count());
+            assertEquals(List.of(), store.readRange(0, 10));
+            assertEquals(List.of(), store.readRange(first - 1, 10));
+            assertMessages(store.readRange(first, 10), first, 10);
+            assertMessages(store.readAll(), first, (int) (2_000 - first));
+        }
+    }
+
+    @Test
+    void directoryIsOpenedByOneStoreAtATime() throws IOException {
+        try (ChangelogStore first = store(0); ChangelogStore second = store(0)) {
+            first.open();
+            append(first, 0, 10);
+            assertThrows(ChangelogLockedException.class, second::open);
+            assertThrows(ChangelogLockedException.class, () -> second.append(
+                    new ChangelogEntry("user", "ADMIN", "UPDATE", "entry 10", TIMESTAMP)));
+            first.close();
+            append(second, 10, 10);
+            assertMessages(second.readAll(), 0, 20);
+        }
+    }
+
+    private ChangelogStore store(long retentionBytes) {
+        return store(4096, retentionBytes);
+    }
+
+    private ChangelogStore store(long segmentBytes, long retentionBytes) {
+        Properties props = new Properties();
+        props.setProperty("segment.maxBytes", Long.toString(segmentBytes));
+        props.setProperty("retention.days", "0");
+        props.setProperty("retention.maxBytes", Long.toString(retentionBytes));
+        return new ChangelogStore(directory.resolve("changelog"), directory.resolve("changelog.log"),
+                directory.resolve("changelog.dat"), props);
+    }
+
+    private static void append(ChangelogStore store, int from, int count) throws IOException {
+        List<ChangelogEntry> entries = new ArrayList<>();
+        for (int i = from; i < from + count; i++) {
+            entries.add(new ChangelogEntry("user", "ADMIN", "UPDATE", "entry " + i, TIMESTAMP.plusSeconds(i)));
+            if (entries.size() == 50) {
+                store.appendAll(entries);
+                entries.clear();
+            }
+        }
+        store.appendAll(entries);
+    }
+
+    private static void assertMessages(List<ChangelogEntry> entries, long from, int count) {
+        assertEquals(count, entries.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals("entry " + (from + i), entries.get(i).getMessage());
+            assertEquals(TIMESTAMP.plusSeconds(from + i), entries.get(i).getTimestamp());
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package hr.java.corporatetravelriskassessmenttool.changelog;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the asynchronous writer keeps every submitted entry, in order, also when it is closed meanwhile.
+ */
+class ChangelogWriterTest {
+    private static final int THREADS = 4;
+    private static final int ENTRIES_PER_THREAD = 2_000;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void entriesSubmittedWhileClosingStayInOrder() throws Exception {
+        Properties props = new Properties();
+        props.setProperty("writer.queueCapacity", "64");
+        props.setProperty("writer.maxBatchSize", "16");
+        props.setProperty("writer.flushPolicy", "ON_SHUTDOWN");
+        ChangelogStore store = new ChangelogStore(directory.resolve("changelog"), directory.resolve("changelog.log"),
+                directory.resolve("changelog.dat"), props);
+        ChangelogWriter writer = new ChangelogWriter(store, props);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch halfway = new CountDownLatch(THREADS);
+        try {
+            List<Future<?>> submitters = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                String user = "user" + thread;
+                submitters.add(executor.submit(() -> {
+                    for (int i = 0; i < ENTRIES_PER_THREAD; i++) {
+                        if (i == ENTRIES_PER_THREAD / 2) halfway.countDown();
+                        writer.submit(new ChangelogEntry(user, "ADMIN", "UPDATE", Integer.toString(i), LocalDateTime.now()));
+                    }
+                    return null;
+                }));
+            }
+            halfway.await();
+            writer.close();
+            for (Future<?> submitter : submitters) {
+                submitter.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        ChangelogWriter.WriterMetrics metrics = writer.getMetrics();
+        assertEquals(0, metrics.pending());
+        assertTrue(metrics.written() > 0 && metrics.written() <= THREADS * ENTRIES_PER_THREAD);
+
+        try (store) {
+            List<ChangelogEntry> entries = store.readAll();
+            assertEquals(THREADS * ENTRIES_PER_THREAD, entries.size());
+            Map<String, Integer> next = new HashMap<>();
+            for (ChangelogEntry entry : entries) {
+                int expected = next.getOrDefault(entry.getUsername(), 0);
+                assertEquals(Integer.toString(expected), entry.getMessage(), () -> "Entries of " + entry.getUsername() + " out of order");
+                next.put(entry.getUsername(), expected + 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package hr.java.corporatetravelriskassessmenttool.changelog;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks reading closed segments, compressed with the index footer, compressed without it, and uncompressed.
+ */
+class ClosedSegmentsTest {
+    private static final int ENTRIES = 5_000;
+    private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    @TempDir
+    private Path directory;
+    private Path segment;
+    private List<ChangelogEntry> entries;
+
+    @BeforeEach
+    void createSegment() throws IOException {
+        Random random = new Random(0x5E6L);
+        entries = new ArrayList<>();
+        for (int i = 0; i < ENTRIES; i++) {
+            entries.add(new ChangelogEntry("user" + random.nextInt(10), "ADMIN", "UPDATE",
+                    "entry " + i + " " + "x".repeat(random.nextInt(200)), TIMESTAMP.plusSeconds(i)));
+        }
+        segment = directory.resolve("segment.log");
+        ChangelogSegment.create(segment, entries);
+    }
+
+    @Test
+    void compressedSegmentIsReadFromTheIndexedBlock() throws IOException {
+        Path compressed = directory.resolve("segment.log.gz");
+        ClosedSegments.compress(segment, compressed);
+
+        assertEquals(ENTRIES, ClosedSegments.count(compressed));
+        assertRanges(compressed, null);
+        assertTrue(Files.size(compressed) < Files.size(segment));
+    }
+
+    @Test
+    void compressedSegmentInflatesToTheOriginal() throws IOException {
+        Path compressed = directory.resolve("segment.log.gz");
+        ClosedSegments.compress(segment, compressed);
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(compressed))) {
+            assertArrayEquals(Files.readAllBytes(segment), in.readAllBytes());
+        }
+    }
+
+    @Test
+    void segmentCompressedWithoutIndexIsStreamed() throws IOException {
+        Path compressed = directory.resolve("segment.log.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(compressed))) {
+            Files.copy(segment, out);
+        }
+        assertEquals(ENTRIES, ClosedSegments.count(compressed));
+        assertRanges(compressed, null);
+    }
+
+    @Test
+    void uncompressedSegmentIsReadFromCheckpoints() throws IOException {
+        long[] checkpoints;
+        try (ChangelogSegment opened = new ChangelogSegment(segment, 0)) {
+            checkpoints = opened.checkpoints();
+        }
+        assertEquals((ENTRIES + ChangelogSegment.INDEX_INTERVAL - 1) / ChangelogSegment.INDEX_INTERVAL, checkpoints.length);
+        assertEquals(ENTRIES, ClosedSegments.count(segment));
+        assertRanges(segment, checkpoints);
+        assertRanges(segment, null);
+    }
+
+    @Test
+    void rangeBeyondTheSegmentFails() throws IOException {
+        Path compressed = directory.resolve("segment.log.gz");
+        ClosedSegments.compress(segment, compressed);
+        assertThrows(IOException.class, () -> ClosedSegments.readRange(compressed, null, ENTRIES - 1, 2));
+        assertThrows(IOException.class, () -> ClosedSegments.readRange(compressed, null, ENTRIES + 1, 1));
+    }
+
+    private void assertRanges(Path file, long[] checkpoints) throws IOException {
+        int interval = ChangelogSegment.INDEX_INTERVAL;
+        long[][] ranges = {{0, 10}, {interval - 1, 2}, {interval, 1}, {3 * interval + 17, 1_500}, {ENTRIES - 1, 1}, {0, ENTRIES}};
+        for (long[] range : ranges) {
+            List<ChangelogEntry> read = ClosedSegments.readRange(file, checkpoints, range[0], (int) range[1]);
+            assertEquals(range[1], read.size());
+            for (int i = 0; i < read.size(); i++) {
+                ChangelogEntry expected = entries.get((int) range[0] + i);
+                assertEquals(expected.getMessage(), read.get(i).getMessage());
+                assertEquals(expected.getTimestamp(), read.get(i).getTimestamp());
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package hr.java.corporatetravelriskassessmenttool.model;
+
+import hr.java.corporatetravelriskassessmenttool.enums.RiskLevel;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that {@link RiskCalculator#calculateRiskScaled()} agrees with {@link RiskCalculator#calculateRisk()}
+ * for every risk type and level.
+ * <p>
+ * Each property is checked on the boundary values of the inputs and on {@value #SAMPLES} random inputs drawn
+ * with a fixed seed, so a failure names the exact risk and can be reproduced.
+ * </p>
+ */
+class RiskScaledScoreTest {
+    private static final int SAMPLES = 200_000;
+    private static final long SEED = 0x5C0BE5L;
+    private static final RiskLevel[] SCORED_LEVELS = {RiskLevel.LOW, RiskLevel.MEDIUM, RiskLevel.HIGH};
+    private static final int[] INDEX_BOUNDARIES = {0, 1, -1, 49, 50, 51, 99, 100, 149, 150, -49, -50, -51, -150,
+            Integer.MAX_VALUE, Integer.MIN_VALUE};
+    private static final String[] DECIMAL_BOUNDARIES = {"0", "0.01", "-0.01", "0.5", "1", "0.99", "-1", "10.00",
+            "999999.99", "-999999.99"};
+
+    @Test
+    void healthScoreMatchesDecimalScoreForTwoDecimalSeverities() {
+        Random random = new Random(SEED);
+        for (RiskLevel level : RiskLevel.values()) {
+            for (String severity : DECIMAL_BOUNDARIES) {
+                assertExact(healthRisk(level, new BigDecimal(severity)));
+            }
+        }
+        for (int i = 0; i < SAMPLES; i++) {
+            assertExact(healthRisk(randomLevel(random), randomHundredths(random)));
+        }
+    }
+
+    @Test
+    void healthScoreRoundsHalfUpForSeveritiesWithMoreDecimals() {
+        Random random = new Random(SEED);
+        assertRounded(healthRisk(RiskLevel.HIGH, new BigDecimal("0.005")));
+        assertRounded(healthRisk(RiskLevel.MEDIUM, new BigDecimal("-0.125")));
+        assertRounded(healthRisk(RiskLevel.LOW, new BigDecimal("1.0049999")));
+        for (int i = 0; i < SAMPLES; i++) {
+            assertRounded(healthRisk(randomLevel(random), randomThousandths(random)));
+        }
+    }
+
+    @Test
+    void environmentalScoreMatchesDecimalScoreForTwoDecimalProbabilities() {
+        Random random = new Random(SEED);
+        for (RiskLevel level : RiskLevel.values()) {
+            for (int damage : INDEX_BOUNDARIES) {
+                for (String probability : DECIMAL_BOUNDARIES) {
+                    assertExact(environmentalRisk(level, damage, new BigDecimal(probability)));
+                }
+            }
+        }
+        for (int i = 0; i < SAMPLES; i++) {
+            assertExact(environmentalRisk(randomLevel(random), randomIndex(random), randomHundredths(random)));
+        }
+    }
+
+    @Test
+    void environmentalScoreRoundsHalfUpForProbabilitiesWithMoreDecimals() {
+        Random random = new Random(SEED);
+        assertRounded(environmentalRisk(RiskLevel.HIGH, 150, new BigDecimal("0.125")));
+        assertRounded(environmentalRisk(RiskLevel.LOW, -250, new BigDecimal("0.333")));
+        for (int i = 0; i < SAMPLES; i++) {
+            assertRounded(environmentalRisk(randomLevel(random), randomIndex(random), randomThousandths(random)));
+        }
+    }
+
+    @Test
+    void politicalScoreMatchesDecimalScore() {
+        Random random = new Random(SEED);
+        for (RiskLevel level : SCORED_LEVELS) {
+            for (int unrest : INDEX_BOUNDARIES) {
+                for (int stability : INDEX_BOUNDARIES) {
+                    assertExact(politicalRisk(level, unrest, stability));
+                }
+            }
+        }
+        for (int i = 0; i < SAMPLES; i++) {
+            RiskLevel level = SCORED_LEVELS[random.nextInt(SCORED_LEVELS.length)];
+            assertExact(politicalRisk(level, randomIndex(random), randomIndex(random)));
+        }
+    }
+
+    @Test
+    void politicalScoreOfNoneLevelFailsLikeDecimalScore() {
+        PoliticalRisk risk = politicalRisk(RiskLevel.NONE, 10, 2);
+        assertThrows(ArithmeticException.class, risk::calculateRisk);
+        assertThrows(ArithmeticException.class, risk::calculateRiskScaled);
+    }
+
+    @Test
+    void plainRiskScoreIsTheLevel() {
+        for (RiskLevel level : RiskLevel.values()) {
+            assertExact(new Risk(1L, "plain", level));
+        }
+    }
+
+    @Test
+    void scaledScoreFollowsChangedInputs() {
+        HealthRisk risk = healthRisk(RiskLevel.LOW, new BigDecimal("1.25"));
+        assertEquals(125, risk.calculateRiskScaled());
+        risk.setSeverity(new BigDecimal("0.125"));
+        assertRounded(risk);
+        risk.setRiskLevel(RiskLevel.HIGH);
+        assertRounded(risk);
+        risk.setSeverity(new BigDecimal("2.50"));
+        assertEquals(750, risk.calculateRiskScaled());
+    }
+
+    /**
+     * Asserts that the scaled score is exactly the decimal score in hundredths.
+     */
+    private static void assertExact(Risk risk) {
+        long expected = risk.calculateRisk().movePointRight(RiskCalculator.SCORE_SCALE).longValueExact();
+        assertEquals(expected, risk.calculateRiskScaled(), () -> "Scaled score differs for " + describe(risk));
+        assertEquals(0, RiskCalculator.toDecimal(risk.calculateRiskScaled()).compareTo(risk.calculateRisk()),
+                () -> "Decimal round trip differs for " + describe(risk));
+    }
+
+    /**
+     * Asserts that the scaled score is the decimal score rounded half up to hundredths.
+     */
+    private static void assertRounded(Risk risk) {
+        long expected = risk.calculateRisk().setScale(RiskCalculator.SCORE_SCALE, RoundingMode.HALF_UP)
+                .movePointRight(RiskCalculator.SCORE_SCALE).longValueExact();
+        assertEquals(expected, risk.calculateRiskScaled(), () -> "Scaled score differs for " + describe(risk));
+    }
+
+    private static String describe(Risk risk) {
+        return switch (risk) {
+            case HealthRisk health -> "health risk " + health.getRiskLevel() + " severity " + health.getSeverity();
+            case EnvironmentalRisk environmental -> "environmental risk " + environmental.getRiskLevel()
+                    + " damage " + environmental.getDamageIndex() + " probability " + environmental.getDisasterProbability();
+            case PoliticalRisk political -> "political risk " + political.getRiskLevel()
+                    + " unrest " + political.getUnrestIndex() + " stability " + political.getStabilityIndex();
+            default -> "risk " + risk.getRiskLevel();
+        };
+    }
+
+    private static HealthRisk healthRisk(RiskLevel level, BigDecimal severity) {
+        return new HealthRisk.HealthRiskBuilder().setId(1L).setDescription("health").setRiskLevel(level)
+                .setSeverity(severity).createHealthRisk();
+    }
+
+    private static EnvironmentalRisk environmentalRisk(RiskLevel level, int damage, BigDecimal probability) {
+        return new EnvironmentalRisk.EnvironmentalRiskBuilder().setId(1L).setDescription("environmental")
+                .setRiskLevel(level).setDamageIndex(damage).setDisasterProbability(probability).createEnvironmentalRisk();
+    }
+
+    private static PoliticalRisk politicalRisk(RiskLevel level, int unrest, int stability) {
+        return new PoliticalRisk.PoliticalRiskBuilder().setId(1L).setDescription("political").setRiskLevel(level)
+                .setUnrestIndex(unrest).setStabilityIndex(stability).createPoliticalRisk();
+    }
+
+    private static RiskLevel randomLevel(Random random) {
+        return RiskLevel.values()[random.nextInt(RiskLevel.values().length)];
+    }
+
+    /**
+     * @return an index around the stored range, including negative values
+     */
+    private static int randomIndex(Random random) {
+        return random.nextInt(4) == 0 ? random.nextInt() : random.nextInt(-1_000, 1_001);
+    }
+
+    /**
+     * @return a decimal with two decimal places, including negative values
+     */
+    private static BigDecimal randomHundredths(Random random) {
+        return BigDecimal.valueOf(random.nextLong(-10_000_000, 10_000_001), 2);
+    }
+
+    /**
+     * @return a decimal with three decimal places, which the scaled path cannot represent exactly
+     */
+    private static BigDecimal randomThousandths(Random random) {
+        long thousandths = random.nextLong(-10_000_000, 10_000_001);
+        return BigDecimal.valueOf(thousandths % 10 == 0 ? thousandths + 1 : thousandths, 3);
+    }
+}
@@ -0,0 +1,256 @@
+package hr.java.corporatetravelriskassessmenttool.repository;
+
+import hr.java.corporatetravelriskassessmenttool.enums.RiskLevel;
+import hr.java.corporatetravelriskassessmenttool.model.EnvironmentalRisk;
+import hr.java.corporatetravelriskassessmenttool.model.HealthRisk;
+import hr.java.corporatetravelriskassessmenttool.model.PoliticalRisk;
+import hr.java.corporatetravelriskassessmenttool.model.Risk;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the scores maintained by {@link TripRiskScores} against the scores computed by the risk classes,
+ * on an in-memory database with the schema of the application.
+ */
+class TripRiskScoresTest {
+    private static final long SEED = 0x7219L;
+    private static final String MIGRATION = "src/main/resources/db/migration/V3__trip_risk_score.sql";
+    private static final int RISKS = 60;
+    private static final int DESTINATIONS = 20;
+    private static final int TRIPS = 40;
+
+    private String url;
+    private Connection keepAlive;
+    private Random random;
+
+    @BeforeEach
+    void createDatabase() throws SQLException, IOException {
+        url = "jdbc:h2:mem:scores" + System.nanoTime() + ";LOCK_TIMEOUT=10000";
+        keepAlive = DriverManager.getConnection(url);
+        random = new Random(SEED);
+        try (Statement stmt = keepAlive.createStatement()) {
+            stmt.execute("CREATE TABLE trip(id INT PRIMARY KEY, start_date DATE, end_date DATE, name VARCHAR(255))");
+            stmt.execute("CREATE TABLE destinations(id INT PRIMARY KEY, country VARCHAR(255), city VARCHAR(255))");
+            stmt.execute("CREATE TABLE trip_destination(trip_id INT, destination_id INT)");
+            stmt.execute("CREATE TABLE destination_risk(destination_id INT, risk_id INT)");
+            stmt.execute("CREATE TABLE risk(id INT PRIMARY KEY, description VARCHAR(255), level VARCHAR(255), type VARCHAR(255))");
+            stmt.execute("CREATE TABLE health_risk(risk_id INT, severity NUMERIC(3, 2))");
+            stmt.execute("CREATE TABLE environmental_risk(risk_id INT, damage_index INT, disaster_probability NUMERIC(3, 2))");
+            stmt.execute("CREATE TABLE political_risk(risk_id INT, unrest_index INT, stability_index INT)");
+            for (String statement : Files.readString(Path.of(MIGRATION)).split(";")) {
+                if (!statement.lines().allMatch(line -> line.isBlank() || line.trim().startsWith("--"))) {
+                    stmt.execute(statement);
+                }
+            }
+        }
+        insertData();
+    }
+
+    @AfterEach
+    void dropDatabase() throws SQLException {
+        keepAlive.close();
+    }
+
+    @Test
+    void refreshAllMatchesRiskClasses() throws SQLException {
+        try (Connection con = DriverManager.getConnection(url)) {
+            TripRiskScores.refreshAll(con);
+            assertScoresMatch(con);
+        }
+    }
+
+    @Test
+    void refreshOfRiskUpdatesAffectedTrips() throws SQLException {
+        try (Connection con = DriverManager.getConnection(url)) {
+            TripRiskScores.refreshAll(con);
+            con.setAutoCommit(false);
+            for (long riskId = 1; riskId <= RISKS; riskId += 7) {
+                setLevel(con, riskId, RiskLevel.HIGH);
+                long id = riskId;
+                TripRiskScores.refreshAndCommit(con, c -> TripRiskScores.refreshTripsOfRisk(c, id));
+            }
+            assertScoresMatch(con);
+        }
+    }
+
+    @Test
+    void refreshAfterDeleteUsesTripsFoundBeforeIt() throws SQLException {
+        try (Connection con = DriverManager.getConnection(url)) {
+            TripRiskScores.refreshAll(con);
+            con.setAutoCommit(false);
+            TripRiskScores.refreshAndCommit(con, c -> {
+                List<Long> affectedTrips = TripRiskScores.findTripsOfDestination(c, 1);
+                assertFalse(affectedTrips.isEmpty());
+                try (Statement stmt = c.createStatement()) {
+                    stmt.executeUpdate("DELETE FROM trip_destination WHERE destination_id = 1");
+                }
+                TripRiskScores.refreshTrips(c, affectedTrips);
+            });
+            assertScoresMatch(con);
+        }
+    }
+
+    @Test
+    void concurrentWritersLeaveCurrentScores() throws Exception {
+        try (Connection con = DriverManager.getConnection(url)) {
+            TripRiskScores.refreshAll(con);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                long seed = SEED + i;
+                boolean linksRisks = i % 2 == 0;
+                writers.add(executor.submit(() -> {
+                    write(new Random(seed), linksRisks);
+                    return null;
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        try (Connection con = DriverManager.getConnection(url)) {
+            assertScoresMatch(con);
+        }
+    }
+
+    /**
+     * Changes either the risks of destinations or the levels of risks, the way the repositories do:
+     * the write first, then the refresh under the score lock.
+     */
+    private void write(Random random, boolean linksRisks) throws SQLException {
+        try (Connection con = DriverManager.getConnection(url)) {
+            con.setAutoCommit(false);
+            for (int i = 0; i < 200; i++) {
+                if (linksRisks) {
+                    long destinationId = 1 + random.nextInt(DESTINATIONS);
+                    try (PreparedStatement ps = con.prepareStatement(
+                            "INSERT INTO destination_risk(destination_id, risk_id) VALUES (?, ?)")) {
+                        ps.setLong(1, destinationId);
+                        ps.setLong(2, 1 + random.nextInt(RISKS));
+                        ps.executeUpdate();
+                    }
+                    TripRiskScores.refreshAndCommit(con, c -> TripRiskScores.refreshTripsOfDestination(c, destinationId));
+                } else {
+                    long riskId = 1 + random.nextInt(RISKS);
+                    setLevel(con, riskId, RiskLevel.values()[1 + random.nextInt(3)]);
+                    TripRiskScores.refreshAndCommit(con, c -> TripRiskScores.refreshTripsOfRisk(c, riskId));
+                }
+            }
+        }
+    }
+
+    private void insertData() throws SQLException {
+        try (Statement stmt = keepAlive.createStatement()) {
+            for (int id = 1; id <= RISKS; id++) {
+                RiskLevel level = RiskLevel.values()[1 + random.nextInt(3)];
+                String type = List.of("Health", "Environmental", "Political").get(id % 3);
+                stmt.executeUpdate("INSERT INTO risk VALUES (" + id + ", 'Risk " + id + "', '" + level + "', '" + type + "')");
+                switch (type) {
+                    case "Health" -> stmt.executeUpdate("INSERT INTO health_risk VALUES (" + id + ", "
+                            + BigDecimal.valueOf(random.nextInt(1000), 2) + ")");
+                    case "Environmental" -> stmt.executeUpdate("INSERT INTO environmental_risk VALUES (" + id + ", "
+                            + random.nextInt(1000) + ", " + BigDecimal.valueOf(random.nextInt(1000), 2) + ")");
+                    default -> stmt.executeUpdate("INSERT INTO political_risk VALUES (" + id + ", "
+                            + random.nextInt(100) + ", " + random.nextInt(100) + ")");
+                }
+            }
+            for (int id = 1; id <= DESTINATIONS; id++) {
+                stmt.executeUpdate("INSERT INTO destinations VALUES (" + id + ", 'Country', 'City " + id + "')");
+                for (int i = random.nextInt(5); i > 0; i--) {
+                    stmt.executeUpdate("INSERT INTO destination_risk VALUES (" + id + ", " + (1 + random.nextInt(RISKS)) + ")");
+                }
+            }
+            for (int id = 1; id <= TRIPS; id++) {
+                stmt.executeUpdate("INSERT INTO trip VALUES (" + id + ", DATE '2025-01-01', DATE '2025-01-10', 'Trip " + id + "')");
+                for (int i = random.nextInt(4); i > 0; i--) {
+                    stmt.executeUpdate("INSERT INTO trip_destination VALUES (" + id + ", " + (1 + random.nextInt(DESTINATIONS)) + ")");
+                }
+            }
+            stmt.executeUpdate("INSERT INTO trip_destination VALUES (1, 1)");
+        }
+    }
+
+    private void setLevel(Connection con, long riskId, RiskLevel level) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement("UPDATE risk SET level = ? WHERE id = ?")) {
+            ps.setString(1, level.toString());
+            ps.setLong(2, riskId);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Compares every stored trip score with the sum of the scores the risk classes compute for the trip's risks.
+     */
+    private void assertScoresMatch(Connection con) throws SQLException {
+        Map<Long, Risk> risks = loadRisks(con);
+        Map<Long, BigDecimal> expected = new HashMap<>();
+        Map<Long, Integer> expectedCounts = new HashMap<>();
+        try (Statement stmt = con.createStatement()) {
+            ResultSet rs = stmt.executeQuery("SELECT t.id, dr.risk_id FROM trip t " +
+                    "LEFT JOIN trip_destination td ON td.trip_id = t.id " +
+                    "LEFT JOIN destination_risk dr ON dr.destination_id = td.destination_id");
+            while (rs.next()) {
+                long tripId = rs.getLong(1);
+                long riskId = rs.getLong(2);
+                BigDecimal score = rs.wasNull() ? BigDecimal.ZERO : risks.get(riskId).calculateRisk();
+                expected.merge(tripId, score, BigDecimal::add);
+                expectedCounts.merge(tripId, rs.wasNull() ? 0 : 1, Integer::sum);
+            }
+        }
+        Map<Long, BigDecimal> actual = new HashMap<>();
+        try (Statement stmt = con.createStatement()) {
+            ResultSet rs = stmt.executeQuery("SELECT trip_id, total_score, risk_count FROM trip_risk_score");
+            while (rs.next()) {
+                long tripId = rs.getLong(1);
+                actual.put(tripId, rs.getBigDecimal(2));
+                assertEquals(expectedCounts.get(tripId), rs.getInt(3), "Risk count differs for trip " + tripId);
+            }
+        }
+        assertEquals(expected.keySet(), actual.keySet());
+        expected.forEach((tripId, score) -> assertEquals(0, score.compareTo(actual.get(tripId)),
+                () -> "Score of trip " + tripId + " is " + actual.get(tripId) + ", expected " + score));
+    }
+
+    private Map<Long, Risk> loadRisks(Connection con) throws SQLException {
+        Map<Long, Risk> risks = new HashMap<>();
+        try (Statement stmt = con.createStatement()) {
+            ResultSet rs = stmt.executeQuery("SELECT r.id, r.level, h.severity, e.damage_index, e.disaster_probability, " +
+                    "p.unrest_index, p.stability_index, r.type FROM risk r " +
+                    "LEFT JOIN health_risk h ON h.risk_id = r.id " +
+                    "LEFT JOIN environmental_risk e ON e.risk_id = r.id " +
+                    "LEFT JOIN political_risk p ON p.risk_id = r.id");
+            while (rs.next()) {
+                long id = rs.getLong(1);
+                RiskLevel level = RiskLevel.valueOf(rs.getString(2));
+                Risk risk = switch (rs.getString(8)) {
+                    case "Health" -> new HealthRisk.HealthRiskBuilder().setId(id).setRiskLevel(level)
+                            .setSeverity(rs.getBigDecimal(3)).createHealthRisk();
+                    case "Environmental" -> new EnvironmentalRisk.EnvironmentalRiskBuilder().setId(id).setRiskLevel(level)
+                            .setDamageIndex(rs.getInt(4)).setDisasterProbability(rs.getBigDecimal(5))
+                            .createEnvironmentalRisk();
+                    default -> new PoliticalRisk.PoliticalRiskBuilder().setId(id).setRiskLevel(level)
+                            .setUnrestIndex(rs.getInt(6)).setStabilityIndex(rs.getInt(7)).createPoliticalRisk();
+                };
+                risks.put(id, risk);
+            }
+        }
+        return risks;
+    }
+}